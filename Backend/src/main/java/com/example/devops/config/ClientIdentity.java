@@ -0,0 +1,75 @@
+package com.example.devops.config;
+
+import com.example.devops.service.WaitingRoomService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * ============================================================
+ *  ClientIdentity (ใครเป็นคนเรียก request นี้)
+ * ============================================================
+ * ✅ IP : app.poll-limit.forwarded-hops เหมือน PollRateLimitConfig
+ *         0 = remoteAddr ; n = ตัวที่ n นับจากขวาของ X-Forwarded-For (proxy ที่เชื่อถือใส่ให้)
+ * ✅ request ที่ node อื่นส่งต่อมา (EventOwnerRouter) : ใช้ IP ที่ node ต้นทาง resolve แล้วใน X-Event-Owner-Client-Ip
+ *    เชื่อเฉพาะเมื่อมี X-Event-Owner-Forwarded คู่กันเท่านั้น (ingress ต้องตัด header X-Event-Owner-* จากภายนอกทิ้ง)
+ * ✅ subject : principal ที่ JwtFilter verify แล้ว (ผ่าน revocation) ; ไม่ได้ login = null
+ * ✅ ใช้ผูก waiting-room token กับผู้ถือ (WaitingRoomController / WaitingRoomGate)
+ * ============================================================
+ */
+@Component
+public class ClientIdentity {
+
+    /** node ที่ส่ง request ต่อมา (ค่า = node id ของต้นทาง) */
+    public static final String FORWARDED_BY_HEADER = "X-Event-Owner-Forwarded";
+    /** IP ของ client ตัวจริงที่ node ต้นทาง resolve แล้ว */
+    public static final String FORWARDED_CLIENT_IP_HEADER = "X-Event-Owner-Client-Ip";
+
+    private final int forwardedHops;
+
+    public ClientIdentity(@Value("${app.poll-limit.forwarded-hops:0}") int forwardedHops) {
+        this.forwardedHops = Math.max(0, forwardedHops);
+    }
+
+    /** ผู้ถือของ request ปัจจุบัน (ไม่มี request = IP "unknown") */
+    public WaitingRoomService.Holder holder() {
+        HttpServletRequest req = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a
+                ? a.getRequest() : null;
+        return holder(req);
+    }
+
+    public WaitingRoomService.Holder holder(HttpServletRequest request) {
+        return new WaitingRoomService.Holder(subject(), request == null ? "unknown" : clientIp(request, forwardedHops));
+    }
+
+    public String clientIp(HttpServletRequest request) {
+        return clientIp(request, forwardedHops);
+    }
+
+    static String clientIp(HttpServletRequest request, int forwardedHops) {
+        String forwardedIp = request.getHeader(FORWARDED_CLIENT_IP_HEADER);
+        if (forwardedIp != null && !forwardedIp.isBlank() && request.getHeader(FORWARDED_BY_HEADER) != null) {
+            return forwardedIp.trim();
+        }
+        if (forwardedHops > 0) {
+            String xff = request.getHeader("X-Forwarded-For");
+            if (xff != null && !xff.isBlank()) {
+                String[] hops = xff.split(",");
+                int i = hops.length - forwardedHops;
+                if (i >= 0) return hops[i].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static String subject() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) return null;
+        return auth.getName();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.devops.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * single-flight : caller ที่เรียก method นี้พร้อมกันด้วย argument เดียวกัน รอผลจากการเรียกจริงครั้งเดียว
+ * (ดู SingleFlight / SingleFlightConfig) ใช้กับ method อ่านอย่างเดียวของ Spring bean เท่านั้น
+ *
+ * ❗ ผลลัพธ์ถูกแชร์ข้าม thread : คืนค่าที่แก้ไม่ได้ (List.copyOf / Optional) หรือให้ caller copy ก่อนแก้
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesced {
+    /** ชื่อใน metrics ; ว่าง = Class.method */
+    String value() default "";
+}
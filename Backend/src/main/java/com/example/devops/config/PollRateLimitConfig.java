@@ -0,0 +1,99 @@
+package com.example.devops.config;
+
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.service.PollRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * ============================================================
+ *  PollRateLimitConfig (@RateLimited → token bucket ต่อ client)
+ * ============================================================
+ * ✅ client = IP + subject ของ Bearer token (verify แล้วเท่านั้น ; ไม่มี/ไม่ผ่าน = anon)
+ *    IP : app.poll-limit.forwarded-hops = จำนวน proxy ที่เชื่อถือหน้าแอป
+ *         0 = remoteAddr ; 1 = ตัวขวาสุดของ X-Forwarded-For (ที่ ingress ใส่ให้ ปลอมไม่ได้)
+ * ✅ ทุก response ของ endpoint ที่ถูกจำกัดมี RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset
+ *    เกิน → 429 {"error":"RATE_LIMITED"} + Retry-After
+ * ============================================================
+ */
+@Configuration
+public class PollRateLimitConfig implements WebMvcConfigurer {
+
+    private final PollRateLimiter limiter;
+    private final JwtVerifier jwtVerifier;
+    private final int forwardedHops;
+
+    public PollRateLimitConfig(ObjectProvider<PollRateLimiter> limiter,
+                               ObjectProvider<JwtVerifier> jwtVerifier,
+                               @Value("${app.poll-limit.forwarded-hops:0}") int forwardedHops) {
+        this.limiter = limiter.getIfAvailable();
+        this.jwtVerifier = jwtVerifier.getIfAvailable();
+        this.forwardedHops = Math.max(0, forwardedHops);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (limiter != null) registry.addInterceptor(new PollRateLimitInterceptor(limiter, jwtVerifier, forwardedHops));
+    }
+
+    static class PollRateLimitInterceptor implements HandlerInterceptor {
+
+        private static final Pattern BEARER = Pattern.compile("(?i)^Bearer\\s+");
+
+        private final PollRateLimiter limiter;
+        private final JwtVerifier jwtVerifier;
+        private final int forwardedHops;
+
+        PollRateLimitInterceptor(PollRateLimiter limiter, JwtVerifier jwtVerifier, int forwardedHops) {
+            this.limiter = limiter;
+            this.jwtVerifier = jwtVerifier;
+            this.forwardedHops = forwardedHops;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+            if (!limiter.isEnabled() || !(handler instanceof HandlerMethod hm)) return true;
+            RateLimited rl = hm.getMethodAnnotation(RateLimited.class);
+            if (rl == null) return true;
+
+            PollRateLimiter.Decision d = limiter.tryAcquire(rl.value(), clientIp(request) + '/' + subject(request));
+            response.setHeader("RateLimit-Limit", String.valueOf(d.limit()));
+            response.setHeader("RateLimit-Remaining", String.valueOf(d.remaining()));
+            response.setHeader("RateLimit-Reset", String.valueOf(d.resetSeconds()));
+            if (d.allowed()) return true;
+
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(d.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"RATE_LIMITED\",\"policy\":\"" + rl.value() + "\"}");
+            return false;
+        }
+
+        String clientIp(HttpServletRequest request) {
+            return ClientIdentity.clientIp(request, forwardedHops);
+        }
+
+        String subject(HttpServletRequest request) {
+            String auth = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (jwtVerifier == null || auth == null || auth.isBlank()) return "anon";
+            try {
+                String sub = jwtVerifier.verify(BEARER.matcher(auth).replaceFirst("")).subject();
+                return sub == null ? "anon" : sub;
+            } catch (Exception e) {
+                return "anon";
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.devops.config;
+
+import java.util.function.Supplier;
+
+/**
+ * ปักหมุด thread ปัจจุบันไว้ที่ primary (ReplicaRoutingDataSource อ่านค่านี้)
+ *   - @ReadFromPrimary บน controller → interceptor ปักให้ทั้ง request
+ *   - โค้ดอื่น : PrimaryRouting.onPrimary(() -> service.read(...))
+ */
+public final class PrimaryRouting {
+
+    private static final ThreadLocal<Integer> PINS = new ThreadLocal<>();
+
+    private PrimaryRouting() {
+    }
+
+    public static boolean isPinned() {
+        Integer n = PINS.get();
+        return n != null && n > 0;
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        pin();
+        try {
+            return work.get();
+        } finally {
+            unpin();
+        }
+    }
+
+    static void pin() {
+        Integer n = PINS.get();
+        PINS.set(n == null ? 1 : n + 1);
+    }
+
+    static void unpin() {
+        Integer n = PINS.get();
+        if (n == null || n <= 1) PINS.remove();
+        else PINS.set(n - 1);
+    }
+}
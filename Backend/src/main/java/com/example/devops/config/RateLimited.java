@@ -0,0 +1,18 @@
+package com.example.devops.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * endpoint ที่ถูก poll : จำกัดอัตราต่อ client (IP + subject ของ token) ด้วย token bucket
+ * value = ชื่อ policy → app.poll-limit.<value>.burst / .per-second (ดู PollRateLimiter)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RateLimited {
+    String value();
+}
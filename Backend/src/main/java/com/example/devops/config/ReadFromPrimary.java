@@ -0,0 +1,17 @@
+package com.example.devops.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * endpoint ที่ต้องเห็นสิ่งที่เพิ่งเขียน (read-your-writes) : transaction readOnly ใน request นี้ไม่ไป replica
+ * ใช้ได้ทั้งบน method และ class ของ controller (ดู ReadReplicaConfig / PrimaryRouting)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,131 @@
+package com.example.devops.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * ============================================================
+ *  ReadReplicaConfig (app.datasource.replica.enabled=true)
+ * ============================================================
+ * ✅ primary pool = spring.datasource.* (+ spring.datasource.hikari.*) เหมือนเดิม
+ *    (app.bulkhead.pools.enabled=true → ฝั่ง primary เป็น pool แยกตามประเภทงานของ WorkloadConfig แทน)
+ * ✅ replica pool = app.datasource.replica.url/username/password (ว่าง = ใช้ของ primary)
+ * ✅ DataSource หลักของแอป (JPA / JdbcTemplate / Flyway)
+ *      LazyConnectionDataSourceProxy → ReplicaRoutingDataSource → primary | replica
+ *    Flyway / งานเขียน / งานนอก transaction ไป primary เสมอ
+ * ✅ @ReadFromPrimary บน controller → ปักหมุด primary ทั้ง request (read-your-writes)
+ * ============================================================
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig implements WebMvcConfigurer {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    @ConditionalOnProperty(name = "app.bulkhead.pools.enabled", havingValue = "false", matchIfMissing = true)
+    public HikariDataSource primaryDataSource(DataSourceProperties props) {
+        HikariDataSource ds = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties props,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password,
+                                              @Value("${app.datasource.replica.pool-size:10}") int poolSize) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName("replica");
+        ds.setJdbcUrl(url);
+        ds.setUsername(username.isBlank() ? props.determineUsername() : username);
+        ds.setPassword(password.isBlank() ? props.determinePassword() : password);
+        ds.setMaximumPoolSize(poolSize);
+        ds.setMinimumIdle(Math.min(2, poolSize));
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${app.datasource.replica.max-lag-ms:2000}") long maxLagMs) {
+        return new ReplicaLagMonitor(replica, maxLagMs);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") ObjectProvider<DataSource> primary,
+                                                             ObjectProvider<WorkloadRoutingDataSource> workloadPools,
+                                                             @Qualifier("replicaDataSource") DataSource replica,
+                                                             ReplicaLagMonitor lag) {
+        WorkloadRoutingDataSource pools = workloadPools.getIfAvailable();
+        DataSource writes = pools != null ? pools : primary.getObject();
+        return new ReplicaRoutingDataSource(writes, replica, lag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource routing) {
+        return registry -> {
+            FunctionCounter.builder("db.replica.routed", routing, ReplicaRoutingDataSource::replicaRoutes)
+                    .description("Read-only transactions served by the replica")
+                    .register(registry);
+            FunctionCounter.builder("db.replica.fallbacks", routing, ReplicaRoutingDataSource::primaryFallbacks)
+                    .description("Read-only transactions sent to primary because the replica lagged or was down")
+                    .register(registry);
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PrimaryPinInterceptor());
+    }
+
+    /** ปักหมุด primary ให้ handler ที่มี @ReadFromPrimary (method หรือ class) */
+    static class PrimaryPinInterceptor implements HandlerInterceptor {
+
+        private static final String PINNED = PrimaryPinInterceptor.class.getName() + ".PINNED";
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (handler instanceof HandlerMethod hm
+                    && (hm.hasMethodAnnotation(ReadFromPrimary.class)
+                        || hm.getBeanType().isAnnotationPresent(ReadFromPrimary.class))) {
+                PrimaryRouting.pin();
+                request.setAttribute(PINNED, Boolean.TRUE);
+            }
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            if (request.getAttribute(PINNED) != null) {
+                request.removeAttribute(PINNED);
+                PrimaryRouting.unpin();
+            }
+        }
+    }
+}
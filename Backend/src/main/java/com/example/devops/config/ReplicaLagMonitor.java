@@ -0,0 +1,85 @@
+package com.example.devops.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * ============================================================
+ *  ReplicaLagMonitor (replica ตามทัน primary ไหม)
+ * ============================================================
+ * ✅ ถาม replica ทุก app.datasource.replica.lag-check-ms
+ *    - replay ทัน WAL ที่รับมาแล้ว → lag 0 (primary เงียบ ๆ ไม่มี transaction ใหม่ก็ไม่นับว่าช้า)
+ *    - ไม่ทัน → now() - pg_last_xact_replay_timestamp()
+ *    - ไม่ได้อยู่ใน recovery (ชี้ไปที่ primary เอง / instance เดี่ยว) → lag 0
+ * ✅ lag เกิน max-lag-ms / ถามไม่ได้ / ยังไม่เคยถาม → unhealthy → ReplicaRoutingDataSource ส่งไป primary
+ * ============================================================
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder {
+
+    static final String LAG_SQL = """
+            SELECT CASE
+                     WHEN NOT pg_is_in_recovery() THEN 0
+                     WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                     ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0)
+                   END
+            """;
+
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    private volatile long lagMillis = -1;
+    private volatile boolean healthy;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagMillis) {
+        this(new JdbcTemplate(replica), maxLagMillis);
+    }
+
+    ReplicaLagMonitor(JdbcTemplate replica, long maxLagMillis) {
+        this.replica = replica;
+        this.maxLagMillis = maxLagMillis;
+        this.replica.setQueryTimeout(2);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:1000}")
+    public void check() {
+        boolean was = healthy;
+        try {
+            Long lag = replica.queryForObject(LAG_SQL, Long.class);
+            lagMillis = lag == null ? 0 : Math.max(0, lag);
+            healthy = lagMillis <= maxLagMillis;
+            if (was && !healthy) log.warn("⚠️ Replica lag {} ms > {} ms → reads go to primary", lagMillis, maxLagMillis);
+        } catch (Exception e) {
+            lagMillis = -1;
+            healthy = false;
+            if (was) log.warn("⚠️ Replica unreachable → reads go to primary: {}", e.getMessage());
+        }
+        if (!was && healthy) log.info("✅ Replica caught up (lag {} ms) → read-only transactions use replica", lagMillis);
+    }
+
+    public boolean healthy() {
+        return healthy;
+    }
+
+    /** ms ; -1 = ไม่รู้ (ยังไม่เคยถาม / ถามไม่ได้) */
+    public long lagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.replica.lag", this, ReplicaLagMonitor::lagMillis)
+                .baseUnit("milliseconds")
+                .description("Replica replay lag (-1 = unknown)")
+                .register(registry);
+        Gauge.builder("db.replica.healthy", this, m -> m.healthy() ? 1 : 0)
+                .description("1 when read-only transactions may use the replica")
+                .register(registry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.devops.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  ReplicaRoutingDataSource (เลือก primary / replica ต่อ connection)
+ * ============================================================
+ * ✅ ไป replica เมื่อครบทุกข้อ
+ *    - อยู่ใน transaction readOnly (@Transactional(readOnly = true))
+ *    - thread ไม่ได้ปักหมุด primary (@ReadFromPrimary / PrimaryRouting.onPrimary)
+ *    - ReplicaLagMonitor บอกว่า replica ตามทัน (lag <= app.datasource.replica.max-lag-ms)
+ *    นอกนั้นไป primary ทั้งหมด (รวมถึงโค้ดที่ไม่มี transaction)
+ * ✅ ต้องห่อด้วย LazyConnectionDataSourceProxy เสมอ (ดู ReadReplicaConfig)
+ *    transaction manager ขอ connection ตอน begin ก่อนตั้งค่า readOnly ของ transaction
+ *    → proxy เลื่อนการเลือก pool ไปถึง statement แรก ซึ่งตอนนั้นค่า readOnly ถูกตั้งแล้ว
+ * ============================================================
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lag;
+
+    private final AtomicLong replicaRoutes = new AtomicLong();
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lag) {
+        this.lag = lag;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route();
+    }
+
+    Target route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) return Target.PRIMARY;
+        if (PrimaryRouting.isPinned()) return Target.PRIMARY;
+        if (!lag.healthy()) {
+            primaryFallbacks.incrementAndGet();
+            return Target.PRIMARY;
+        }
+        replicaRoutes.incrementAndGet();
+        return Target.REPLICA;
+    }
+
+    long replicaRoutes() {
+        return replicaRoutes.get();
+    }
+
+    long primaryFallbacks() {
+        return primaryFallbacks.get();
+    }
+}
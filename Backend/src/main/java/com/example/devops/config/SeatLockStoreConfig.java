@@ -0,0 +1,38 @@
+package com.example.devops.config;
+
+import com.example.devops.service.InMemorySeatLockStore;
+import com.example.devops.service.JdbcSeatLockStore;
+import com.example.devops.service.SeatJournal;
+import com.example.devops.service.SeatLockStore;
+import com.example.devops.service.SequencedSeatLockStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+
+/**
+ * เลือกที่เก็บ lock ที่นั่งจาก app.seats.lock-store
+ *   table (default) | unlogged | memory / sequencer (instance เดียวเท่านั้น)
+ *   sequencer เป็น opt-in : throughput ยังไม่ถึงเป้า (ดู SequencedSeatLockStore)
+ */
+@Configuration
+public class SeatLockStoreConfig {
+
+    @Bean
+    public SeatLockStore seatLockStore(JdbcTemplate jdbc,
+                                       @Value("${app.seats.lock-store:table}") String kind,
+                                       @Value("${app.seats.sequencer.dir:./data/seat-journal}") String journalDir,
+                                       @Value("${app.seats.sequencer.segment-mb:64}") int segmentMb,
+                                       @Value("${app.seats.sequencer.fsync-interval-ms:0}") long fsyncIntervalMs) {
+        return switch (kind == null ? "" : kind.trim().toLowerCase()) {
+            case "unlogged" -> new JdbcSeatLockStore(jdbc, JdbcSeatLockStore.UNLOGGED);
+            case "memory" -> new InMemorySeatLockStore(jdbc);
+            case "sequencer" -> new SequencedSeatLockStore(jdbc,
+                    new SeatJournal(Path.of(journalDir), segmentMb * 1024 * 1024, fsyncIntervalMs));
+            case "table", "" -> new JdbcSeatLockStore(jdbc, JdbcSeatLockStore.TABLE);
+            default -> throw new IllegalArgumentException("Unknown app.seats.lock-store: " + kind);
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.devops.config;
+
+import com.example.devops.service.SingleFlight;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+
+/**
+ * ============================================================
+ *  SingleFlightConfig (@Coalesced → SingleFlight)
+ * ============================================================
+ * ✅ ห่อ bean ที่มี method @Coalesced ด้วย advisor (กลไกเดียวกับ @Async / @Validated ไม่ต้องใช้ AspectJ)
+ *    key = ชื่อ + argument ทั้งหมด (equals/hashCode ของ argument)
+ * ✅ advisor อยู่หน้า @Transactional : follower ไม่เปิด transaction / ไม่ยืม connection
+ * ============================================================
+ */
+@Configuration
+public class SingleFlightConfig {
+
+    @Bean
+    public static SingleFlight singleFlight() {
+        return new SingleFlight();
+    }
+
+    @Bean
+    public static CoalescingPostProcessor coalescingPostProcessor(SingleFlight singleFlight) {
+        return new CoalescingPostProcessor(singleFlight);
+    }
+
+    public static class CoalescingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+        public CoalescingPostProcessor(SingleFlight singleFlight) {
+            this.advisor = new DefaultPointcutAdvisor(
+                    new AnnotationMatchingPointcut(null, Coalesced.class, true),
+                    interceptor(singleFlight));
+            setBeforeExistingAdvisors(true);
+        }
+    }
+
+    static MethodInterceptor interceptor(SingleFlight singleFlight) {
+        return invocation -> {
+            Coalesced c = invocation.getMethod().getAnnotation(Coalesced.class);
+            String name = c != null && StringUtils.hasText(c.value())
+                    ? c.value()
+                    : invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+            return singleFlight.execute(name, Arrays.asList(invocation.getArguments().clone()), invocation::proceed);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.devops.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * ระบุประเภทงานของ controller (ทั้ง class หรือราย method ; method ชนะ)
+ * → WorkloadConfig จำกัด request พร้อมกันตามประเภท และเลือก connection pool ของประเภทนั้น
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Workload {
+    WorkloadClass value();
+}
@@ -0,0 +1,114 @@
+package com.example.devops.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  WorkloadBulkheads (โควตา request thread ต่อประเภทงาน)
+ * ============================================================
+ * ✅ Tomcat มี thread pool เดียว : report ช้า ๆ 50 ตัวกิน thread ไปหมดได้
+ *    → แต่ละประเภทถือ thread พร้อมกันได้ไม่เกิน app.bulkhead.<key>.max-concurrent
+ *    เต็มแล้วรอได้ไม่เกิน max-wait-ms จากนั้นตอบ 503 (ไม่ไปแย่ง thread ของประเภทอื่น)
+ * ✅ max-concurrent <= 0 = ไม่จำกัด
+ * ✅ metrics : bulkhead.active / bulkhead.limit / bulkhead.rejected (tag workload)
+ * ============================================================
+ */
+@Component
+public class WorkloadBulkheads implements MeterBinder {
+
+    private final Map<WorkloadClass, Compartment> compartments = new EnumMap<>(WorkloadClass.class);
+
+    public WorkloadBulkheads(Environment env) {
+        this(limits(env, "max-concurrent", 0), limits(env, "max-wait-ms", 0));
+    }
+
+    WorkloadBulkheads(Map<WorkloadClass, Integer> maxConcurrent, Map<WorkloadClass, Integer> maxWaitMs) {
+        for (WorkloadClass w : WorkloadClass.values()) {
+            compartments.put(w, new Compartment(maxConcurrent.getOrDefault(w, 0), maxWaitMs.getOrDefault(w, 0)));
+        }
+    }
+
+    static Map<WorkloadClass, Integer> limits(Environment env, String name, int fallback) {
+        Map<WorkloadClass, Integer> out = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass w : WorkloadClass.values()) {
+            out.put(w, env.getProperty("app.bulkhead." + w.key() + "." + name, Integer.class, fallback));
+        }
+        return out;
+    }
+
+    /** @return false = เต็ม (ไม่ต้องเรียก exit) */
+    public boolean tryEnter(WorkloadClass workload) {
+        Compartment c = compartments.get(workload);
+        if (c.permits == null) {
+            c.active.incrementAndGet();
+            return true;
+        }
+        try {
+            if (c.permits.tryAcquire(c.maxWaitMs, TimeUnit.MILLISECONDS)) {
+                c.active.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        c.rejected.incrementAndGet();
+        return false;
+    }
+
+    public void exit(WorkloadClass workload) {
+        Compartment c = compartments.get(workload);
+        c.active.decrementAndGet();
+        if (c.permits != null) c.permits.release();
+    }
+
+    int active(WorkloadClass workload) {
+        return (int) compartments.get(workload).active.get();
+    }
+
+    long rejected(WorkloadClass workload) {
+        return compartments.get(workload).rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        compartments.forEach((w, c) -> {
+            Gauge.builder("bulkhead.active", c.active, AtomicLong::get)
+                    .tag("workload", w.key())
+                    .description("Requests of this workload class holding a server thread")
+                    .register(registry);
+            Gauge.builder("bulkhead.limit", c, x -> x.limit)
+                    .tag("workload", w.key())
+                    .description("Max concurrent requests of this workload class (0 = unbounded)")
+                    .register(registry);
+            FunctionCounter.builder("bulkhead.rejected", c.rejected, AtomicLong::get)
+                    .tag("workload", w.key())
+                    .description("Requests turned away because the workload's compartment was full")
+                    .register(registry);
+        });
+    }
+
+    private static final class Compartment {
+        final int limit;
+        final long maxWaitMs;
+        final Semaphore permits;
+        final AtomicLong active = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+
+        Compartment(int limit, long maxWaitMs) {
+            this.limit = Math.max(0, limit);
+            this.maxWaitMs = Math.max(0, maxWaitMs);
+            this.permits = limit > 0 ? new Semaphore(limit) : null;
+        }
+    }
+}
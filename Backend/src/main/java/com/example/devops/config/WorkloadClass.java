@@ -0,0 +1,27 @@
+package com.example.devops.config;
+
+/**
+ * ประเภทงาน (bulkhead) : แต่ละประเภทมี connection pool และโควตา request พร้อมกันของตัวเอง
+ * ใช้คู่กับ @Workload / WorkloadContext
+ */
+public enum WorkloadClass {
+    /** จอง / จ่ายเงิน : เส้นทางที่ต้องไม่ช้าตามคนอื่น */
+    PURCHASE("purchase"),
+    /** หน้า public อ่านอย่างเดียว + request ที่ไม่ได้ติด @Workload */
+    PUBLIC_READ("public-read"),
+    /** admin / organizer : report หนัก ๆ (dashboard, รายการใบจอง, ตั๋วของผู้ใช้) */
+    BACK_OFFICE("back-office"),
+    /** งาน @Scheduled ผ่าน ClusterJobCoordinator */
+    BATCH("batch");
+
+    private final String key;
+
+    WorkloadClass(String key) {
+        this.key = key;
+    }
+
+    /** ชื่อใน property (app.bulkhead.<key>.*) และ tag ของ metrics */
+    public String key() {
+        return key;
+    }
+}
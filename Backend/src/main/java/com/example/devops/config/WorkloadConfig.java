@@ -0,0 +1,134 @@
+package com.example.devops.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  WorkloadConfig (bulkhead ต่อประเภทงาน : PURCHASE / PUBLIC_READ / BACK_OFFICE / BATCH)
+ * ============================================================
+ * ✅ ทุก request : อ่าน @Workload ของ handler → WorkloadContext + โควตา thread (WorkloadBulkheads)
+ * ✅ app.bulkhead.pools.enabled=true : แยก Hikari pool ต่อประเภท (app.bulkhead.<key>.pool-size)
+ *    ค่าอื่นของ pool ใช้ spring.datasource.hikari.* ร่วมกัน ; metrics hikaricp.* tag pool=workload-<key>
+ *    (hikaricp.connections.pending > 0 = pool ของประเภทนั้นอิ่มตัว)
+ *    เปิด read replica ด้วย → pool เหล่านี้เป็นฝั่ง primary ของ ReplicaRoutingDataSource
+ * ============================================================
+ */
+@Configuration
+public class WorkloadConfig implements WebMvcConfigurer {
+
+    private final WorkloadBulkheads bulkheads;
+    private final ObjectMapper mapper;
+
+    public WorkloadConfig(ObjectProvider<WorkloadBulkheads> bulkheads, ObjectProvider<ObjectMapper> mapper) {
+        this.bulkheads = bulkheads.getIfAvailable(() -> new WorkloadBulkheads(Map.of(), Map.of()));
+        this.mapper = mapper.getIfAvailable(ObjectMapper::new);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new WorkloadInterceptor(bulkheads, mapper));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.bulkhead.pools.enabled", havingValue = "true")
+    public WorkloadRoutingDataSource workloadRoutingDataSource(DataSourceProperties props,
+                                                               Environment env,
+                                                               ObjectProvider<MeterRegistry> registry) {
+        Map<WorkloadClass, Integer> sizes = WorkloadBulkheads.limits(env, "pool-size", 5);
+        Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass w : WorkloadClass.values()) {
+            HikariDataSource ds = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(ds));
+            int size = Math.max(1, sizes.get(w));
+            ds.setPoolName("workload-" + w.key());
+            ds.setMaximumPoolSize(size);
+            ds.setMinimumIdle(Math.min(ds.getMinimumIdle() < 0 ? size : ds.getMinimumIdle(), size));
+            registry.ifAvailable(r -> ds.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+            pools.put(w, ds);
+        }
+        return new WorkloadRoutingDataSource(pools);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnExpression("${app.bulkhead.pools.enabled:false} and !${app.datasource.replica.enabled:false}")
+    public DataSource dataSource(WorkloadRoutingDataSource pools) {
+        return pools;
+    }
+
+    /** @Workload ของ handler (method ชนะ class) ; ไม่มี / ไม่ใช่ controller method → null */
+    public static WorkloadClass workloadOf(Object handler) {
+        if (!(handler instanceof HandlerMethod hm)) return null;
+        Workload w = hm.getMethodAnnotation(Workload.class);
+        if (w == null) w = AnnotatedElementUtils.findMergedAnnotation(hm.getBeanType(), Workload.class);
+        return w == null ? null : w.value();
+    }
+
+    /** ตั้ง WorkloadContext + ขอโควตาก่อนเข้า handler ; เต็ม → 503 WORKLOAD_SATURATED */
+    static class WorkloadInterceptor implements HandlerInterceptor {
+
+        private static final String ENTERED = WorkloadInterceptor.class.getName() + ".ENTERED";
+
+        private final WorkloadBulkheads bulkheads;
+        private final ObjectMapper mapper;
+
+        WorkloadInterceptor(WorkloadBulkheads bulkheads, ObjectMapper mapper) {
+            this.bulkheads = bulkheads;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+            WorkloadClass w = workloadOf(handler);
+            if (w == null) return true;
+            if (!bulkheads.tryEnter(w)) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", "1");
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                mapper.writeValue(response.getOutputStream(), Map.of(
+                        "error", "WORKLOAD_SATURATED",
+                        "workload", w.key()));
+                return false;
+            }
+            WorkloadContext.set(w);
+            request.setAttribute(ENTERED, w);
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            Object w = request.getAttribute(ENTERED);
+            if (w instanceof WorkloadClass entered) {
+                request.removeAttribute(ENTERED);
+                WorkloadContext.clear();
+                bulkheads.exit(entered);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.devops.config;
+
+import java.util.function.Supplier;
+
+/**
+ * ประเภทงานของ thread ปัจจุบัน (WorkloadRoutingDataSource อ่านค่านี้เลือก pool)
+ *   - request : interceptor ของ WorkloadConfig ตั้งจาก @Workload
+ *   - โค้ดอื่น : WorkloadContext.call(WorkloadClass.BATCH, () -> ...)
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /** ไม่ได้ตั้งไว้ = PUBLIC_READ */
+    public static WorkloadClass current() {
+        WorkloadClass w = CURRENT.get();
+        return w == null ? WorkloadClass.PUBLIC_READ : w;
+    }
+
+    public static <T> T call(WorkloadClass workload, Supplier<T> work) {
+        WorkloadClass prev = CURRENT.get();
+        CURRENT.set(workload);
+        try {
+            return work.get();
+        } finally {
+            if (prev == null) CURRENT.remove();
+            else CURRENT.set(prev);
+        }
+    }
+
+    public static void run(WorkloadClass workload, Runnable work) {
+        call(workload, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static void set(WorkloadClass workload) {
+        CURRENT.set(workload);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.devops.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * เลือก connection pool ตามประเภทงานของ thread (WorkloadContext)
+ * pool หนึ่งเต็ม (report ถือ connection ค้าง) ไม่กระทบ pool ของประเภทอื่น
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<WorkloadClass, HikariDataSource> pools;
+
+    public WorkloadRoutingDataSource(Map<WorkloadClass, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(WorkloadClass.PUBLIC_READ));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WorkloadContext.current();
+    }
+
+    public HikariDataSource pool(WorkloadClass workload) {
+        return pools.get(workload);
+    }
+
+    public Collection<HikariDataSource> pools() {
+        return pools.values();
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.devops.controller;
 
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
 import com.example.devops.dto.EventMapper;
 import com.example.devops.dto.EventResponse;
 import com.example.devops.model.EventsNam;
@@ -21,6 +23,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
+@Workload(WorkloadClass.BACK_OFFICE)
 @RequestMapping("/api/admin")
 @PreAuthorize("hasRole('ADMIN')")
 @CrossOrigin(
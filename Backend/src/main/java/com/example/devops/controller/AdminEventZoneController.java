@@ -1,5 +1,7 @@
 package com.example.devops.controller;
 
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
 import com.example.devops.model.SeatZones;
 import com.example.devops.repo.ReservedRepository;
 import com.example.devops.repo.SeatRowsRepository;
@@ -16,6 +18,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
+@Workload(WorkloadClass.BACK_OFFICE)
 @RequestMapping("/api/admin/events")
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminEventZoneController {
@@ -0,0 +1,39 @@
+package com.example.devops.controller;
+
+import com.example.devops.security.AuthenticatedUser;
+import com.example.devops.service.TokenRevocationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * ✅ admin บังคับ revoke token ทั้งหมดของบัญชี (เช่น บัญชีถูกขโมย / ระงับผู้ใช้)
+ * token ที่ถูก revoke จะใช้ไม่ได้ทันทีบน instance นี้ และบน instance อื่นหลังรอบ sync
+ */
+@RestController
+@RequestMapping("/api/admin/sessions")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminSessionController {
+
+    private final TokenRevocationService tokenRevocation;
+
+    public AdminSessionController(TokenRevocationService tokenRevocation) {
+        this.tokenRevocation = tokenRevocation;
+    }
+
+    /** POST /api/admin/sessions/users/{userId}/revoke */
+    @PostMapping("/users/{userId}/revoke")
+    public ResponseEntity<?> revokeUser(@PathVariable Long userId) {
+        int n = tokenRevocation.revokeAllFor(AuthenticatedUser.ACCOUNT_USER, userId);
+        return ResponseEntity.ok(Map.of("userId", userId, "revoked", n));
+    }
+
+    /** POST /api/admin/sessions/organizers/{organizerId}/revoke */
+    @PostMapping("/organizers/{organizerId}/revoke")
+    public ResponseEntity<?> revokeOrganizer(@PathVariable Long organizerId) {
+        int n = tokenRevocation.revokeAllFor(AuthenticatedUser.ACCOUNT_ORGANIZER, organizerId);
+        return ResponseEntity.ok(Map.of("organizerId", organizerId, "revoked", n));
+    }
+}
@@ -4,18 +4,25 @@ import com.example.devops.model.User;
 import com.example.devops.model.Organizer;
 import com.example.devops.repo.UserRepository;
 import com.example.devops.repo.OrganizerRepo;
+import com.example.devops.security.AuthenticatedUser;
 import com.example.devops.security.JwtTokenUtil;
-import com.example.devops.service.GuestClaimService;
+import com.example.devops.service.GuestClaimQueue;
+import com.example.devops.service.PasswordVerificationService;
+import com.example.devops.service.TokenRevocationService;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -26,63 +33,111 @@ public class AuthController {
     private final UserRepository userRepo;
     private final OrganizerRepo organizerRepo;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordVerificationService passwordVerifier;
     private final JwtTokenUtil jwtUtil;
-    private final GuestClaimService guestClaimService; // ✅ เพิ่ม
+    private final GuestClaimQueue guestClaimQueue; // ✅ เคลมใบจอง guest แบบ async
+    private final TokenRevocationService tokenRevocation;
 
+    private static final Pattern BEARER = Pattern.compile("(?i)^Bearer\\s+");
     private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).{8,}$");
 
     public AuthController(UserRepository userRepo,
                           OrganizerRepo organizerRepo,
                           PasswordEncoder passwordEncoder,
+                          PasswordVerificationService passwordVerifier,
                           JwtTokenUtil jwtUtil,
-                          GuestClaimService guestClaimService) { // ✅ เพิ่ม
+                          GuestClaimQueue guestClaimQueue,
+                          TokenRevocationService tokenRevocation) {
         this.userRepo = userRepo;
         this.organizerRepo = organizerRepo;
         this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
         this.jwtUtil = jwtUtil;
-        this.guestClaimService = guestClaimService;        // ✅ เพิ่ม
+        this.guestClaimQueue = guestClaimQueue;
+        this.tokenRevocation = tokenRevocation;
     }
 
     /* ==================== LOGIN ==================== */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req, BindingResult br) {
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest req, BindingResult br, HttpServletRequest http) {
         if (br.hasErrors()) {
             return ResponseEntity.badRequest().body(Map.of("error", "username and password are required"));
         }
 
+        long started = System.nanoTime();
         String identifier = trimSafe(req.getUsername());
 
-        // ลองค้นใน User ก่อน
-        var userOpt = userRepo.findByUsernameIgnoreCase(identifier);
-        if (userOpt.isEmpty()) userOpt = userRepo.findByEmailIgnoreCase(identifier);
+        // ✅ ดึง users + organizers ใน query เดียว (เรียงแบบเดิม: user ก่อน แล้วค่อย organizer)
+        List<UserRepository.LoginCandidate> candidates = userRepo.findLoginCandidates(identifier);
+        UserRepository.LoginCandidate user = firstOfType(candidates, AuthenticatedUser.ACCOUNT_USER);
+        UserRepository.LoginCandidate org = firstOfType(candidates, AuthenticatedUser.ACCOUNT_ORGANIZER);
 
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            if (passwordEncoder.matches(req.getPassword(), user.getPassword())) {
-                String token = jwtUtil.generateToken(user.getUsername(), user.getRole(), user.getEmail());
+        try {
+            if (user != null && passwordVerifier.matches(req.getPassword(), user.getPasswordHash())) {
+                String token = jwtUtil.generateToken(user.getAccountId(), AuthenticatedUser.ACCOUNT_USER,
+                        user.getUsername(), user.getRole(), user.getEmail());
 
-                // ✅ เคลมใบจอง guest ทั้งหมดด้วย email นี้
-                try { guestClaimService.linkGuestReservationsToUser(user.getId(), user.getEmail()); } catch (Exception ignore) {}
+                // ✅ เคลมใบจอง guest ด้วย email นี้ — แค่ enqueue, worker เคลมให้ภายในไม่กี่วินาที
+                try { guestClaimQueue.enqueue(user.getAccountId(), user.getEmail()); } catch (Exception ignore) {}
+                recordSession(token, http);
 
-                return ResponseEntity.ok(buildAuthResponse(token, user.getId().toString(), user.getUsername(), user.getRole(), user.getEmail()));
+                passwordVerifier.recordLogin(PasswordVerificationService.OUTCOME_SUCCESS, started);
+                return ResponseEntity.ok(buildAuthResponse(token, user.getAccountId().toString(), user.getUsername(), user.getRole(), user.getEmail()));
             }
-        }
 
-        // ถ้าไม่เจอ ลอง Organizer (ไม่เคลม guest สำหรับ organizer)
-        var orgOpt = organizerRepo.findByUsernameIgnoreCase(identifier);
-        if (orgOpt.isEmpty()) orgOpt = organizerRepo.findByEmailIgnoreCase(identifier);
-
-        if (orgOpt.isPresent()) {
-            Organizer org = orgOpt.get();
-            if (passwordEncoder.matches(req.getPassword(), org.getPasswordHash())) {
-                String token = jwtUtil.generateToken(org.getUsername(), "ORGANIZER", org.getEmail());
-                return ResponseEntity.ok(buildAuthResponse(token, org.getId().toString(), org.getUsername(), "ORGANIZER", org.getEmail()));
+            // ถ้าไม่เจอ ลอง Organizer (ไม่เคลม guest สำหรับ organizer)
+            if (org != null && passwordVerifier.matches(req.getPassword(), org.getPasswordHash())) {
+                String token = jwtUtil.generateToken(org.getAccountId(), AuthenticatedUser.ACCOUNT_ORGANIZER,
+                        org.getUsername(), "ORGANIZER", org.getEmail());
+                recordSession(token, http);
+                passwordVerifier.recordLogin(PasswordVerificationService.OUTCOME_SUCCESS, started);
+                return ResponseEntity.ok(buildAuthResponse(token, org.getAccountId().toString(), org.getUsername(), "ORGANIZER", org.getEmail()));
             }
+        } catch (PasswordVerificationService.Saturated e) {
+            // ⛔ BCrypt pool เต็ม → ให้ client ถอยแล้วลองใหม่
+            passwordVerifier.recordLogin(PasswordVerificationService.OUTCOME_THROTTLED, started);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", "Too many login attempts, please retry shortly"));
         }
 
+        passwordVerifier.recordLogin(PasswordVerificationService.OUTCOME_INVALID, started);
         return ResponseEntity.status(401).body(Map.of("error", "Invalid username/email or password"));
     }
 
+    /* ==================== LOGOUT ==================== */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        String token = authHeader == null ? "" : BEARER.matcher(authHeader).replaceFirst("").trim();
+        if (token.isEmpty()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Missing bearer token"));
+        }
+        try {
+            // ✅ jti เข้า revoked set ทันที → token นี้ใช้ต่อไม่ได้ (ทุก instance หลัง sync)
+            boolean revoked = tokenRevocation.revoke(token);
+            return ResponseEntity.ok(Map.of("message", "Logged out", "revoked", revoked));
+        } catch (Exception e) {
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid token"));
+        }
+    }
+
+    // บันทึก session (jti) ของ token ที่เพิ่งออก — ล้มเหลวก็ยัง login ได้ (แค่ revoke ผ่าน admin ไม่ได้)
+    private void recordSession(String token, HttpServletRequest http) {
+        try {
+            tokenRevocation.recordSession(token,
+                    http == null ? null : http.getRemoteAddr(),
+                    http == null ? null : http.getHeader(HttpHeaders.USER_AGENT));
+        } catch (Exception ignore) {}
+    }
+
+    private static UserRepository.LoginCandidate firstOfType(List<UserRepository.LoginCandidate> candidates, String type) {
+        if (candidates == null) return null;
+        for (UserRepository.LoginCandidate c : candidates) {
+            if (type.equals(c.getAccountType())) return c;
+        }
+        return null;
+    }
+
     /* ==================== USER SIGNUP ==================== */
     @PostMapping("/signup")
     public ResponseEntity<?> signupUser(@Valid @RequestBody UserSignupRequest req, BindingResult br) {
@@ -128,8 +183,8 @@ public class AuthController {
 
             userRepo.save(user);
 
-            // ✅ เคลมใบจอง guest ด้วย email นี้ทันที
-            try { guestClaimService.linkGuestReservationsToUser(user.getId(), user.getEmail()); } catch (Exception ignore) {}
+            // ✅ เคลมใบจอง guest ด้วย email นี้ (enqueue → GuestClaimQueue)
+            try { guestClaimQueue.enqueue(user.getId(), user.getEmail()); } catch (Exception ignore) {}
 
             return ResponseEntity.ok(Map.of("message", "User created successfully"));
 
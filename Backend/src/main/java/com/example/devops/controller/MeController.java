@@ -4,6 +4,7 @@ import com.example.devops.model.User;
 import com.example.devops.model.Organizer;
 import com.example.devops.repo.UserRepository;
 import com.example.devops.repo.OrganizerRepo;
+import com.example.devops.security.AuthenticatedUser;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +30,18 @@ public class MeController {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
 
+        // ✅ token มี id มาแล้ว → lookup ด้วย primary key ครั้งเดียว
+        if (auth.getPrincipal() instanceof AuthenticatedUser au && au.accountId() != null) {
+            if (au.isUser()) {
+                var u = userRepo.findById(au.accountId());
+                if (u.isPresent()) return ResponseEntity.ok(buildUserResponse(u.get()));
+            } else if (au.isOrganizer()) {
+                var o = organizerRepo.findById(au.accountId());
+                if (o.isPresent()) return ResponseEntity.ok(buildOrganizerResponse(o.get()));
+            }
+            return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+        }
+
         String username = auth.getName();
 
         // ลองหาใน User ก่อน
@@ -1,9 +1,13 @@
 package com.example.devops.controller;
 
+import com.example.devops.config.ReadFromPrimary;
 import com.example.devops.model.Organizer;
 import com.example.devops.model.User;
 import com.example.devops.repo.OrganizerRepo;
 import com.example.devops.repo.UserRepository;
+import com.example.devops.security.AuthenticatedUser;
+import com.example.devops.service.CacheInvalidationBus;
+import com.example.devops.service.IdentityCache;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
@@ -23,13 +27,19 @@ public class ProfileController {
     private final UserRepository userRepo;
     private final OrganizerRepo organizerRepo;
     private final JdbcTemplate jdbc;
+    private final IdentityCache identityCache;
+    private final CacheInvalidationBus invalidations;
 
     public ProfileController(UserRepository userRepo,
                              OrganizerRepo organizerRepo,
-                             JdbcTemplate jdbc) {
+                             JdbcTemplate jdbc,
+                             IdentityCache identityCache,
+                             CacheInvalidationBus invalidations) {
         this.userRepo = userRepo;
         this.organizerRepo = organizerRepo;
         this.jdbc = jdbc;
+        this.identityCache = identityCache;
+        this.invalidations = invalidations;
     }
 
     /* ==================== GET PROFILE ==================== */
@@ -38,6 +48,18 @@ public class ProfileController {
         if (auth == null || auth.getPrincipal() == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
+        // ✅ token มี id มาแล้ว → lookup ด้วย primary key ครั้งเดียว
+        if (auth.getPrincipal() instanceof AuthenticatedUser au && au.accountId() != null) {
+            if (au.isUser()) {
+                var u = userRepo.findById(au.accountId());
+                if (u.isPresent()) return ResponseEntity.ok(buildUserResponse(u.get()));
+            } else if (au.isOrganizer()) {
+                var o = organizerRepo.findById(au.accountId());
+                if (o.isPresent()) return ResponseEntity.ok(buildOrganizerResponse(o.get()));
+            }
+            return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+        }
+
         String username = auth.getName();
 
         var userOpt = userRepo.findByUsernameIgnoreCase(username);
@@ -51,13 +73,16 @@ public class ProfileController {
 
     /* ==================== MY TICKETS (seat-level) ==================== */
     @GetMapping("/my-tickets")
+    @ReadFromPrimary
     public ResponseEntity<?> getMyTickets(Authentication auth, HttpServletRequest request) {
         if (auth == null || auth.getPrincipal() == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
 
-        String username = auth.getName();
-        Long userId = userRepo.findByUsernameIgnoreCase(username).map(User::getId).orElse(null);
+        // ✅ user_id จาก token (ไม่มีก็ใช้ IdentityCache แทนการ query ทุกครั้ง)
+        Long userId = (auth.getPrincipal() instanceof AuthenticatedUser au && au.accountId() != null)
+                ? au.userId()
+                : identityCache.findUserId(auth.getName());
         if (userId == null) return ResponseEntity.ok(List.of());
 
         // แสดงเฉพาะ:
@@ -139,6 +164,7 @@ public class ProfileController {
         if (userOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error","User not found"));
 
         User user = userOpt.get();
+        String oldEmail = user.getEmail();
 
         if (!user.getEmail().equalsIgnoreCase(req.getEmail())) {
             if (userRepo.findByEmailIgnoreCase(req.getEmail()).isPresent())
@@ -155,6 +181,7 @@ public class ProfileController {
             user.setIdCardPassport(trim(req.getIdCard()));
         }
         userRepo.save(user);
+        invalidations.publish(IdentityCache.NAME, user.getUsername(), oldEmail, user.getEmail());
         return ResponseEntity.ok(Map.of("message","Profile updated successfully","user",buildUserResponse(user)));
     }
 
@@ -170,6 +197,7 @@ public class ProfileController {
         if (orgOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error","Organizer not found"));
 
         Organizer org = orgOpt.get();
+        String oldEmail = org.getEmail();
 
         if (!org.getEmail().equalsIgnoreCase(req.getEmail())) {
             if (organizerRepo.findByEmailIgnoreCase(req.getEmail()).isPresent())
@@ -186,6 +214,7 @@ public class ProfileController {
         org.setCompanyName(trim(req.getCompanyName()));
         org.setTaxId(trim(req.getTaxId()));
         organizerRepo.save(org);
+        invalidations.publish(IdentityCache.NAME, org.getUsername(), oldEmail, org.getEmail());
 
         return ResponseEntity.ok(Map.of("message","Profile updated successfully","organizer",buildOrganizerResponse(org)));
     }
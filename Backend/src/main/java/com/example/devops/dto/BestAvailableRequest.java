@@ -0,0 +1,25 @@
+package com.example.devops.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+/**
+ * DTO ขอที่นั่ง "ดีที่สุดที่ว่าง" N ที่ติดกัน (ไม่ต้องระบุ row/col เอง)
+ * เลือกโซนด้วย zoneId หรือช่วงราคา minPrice..maxPrice (ไม่ระบุ = ทุกโซนของอีเวนต์)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BestAvailableRequest {
+
+    private Long eventId;
+    private Integer quantity;
+    private Long zoneId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+
+    /** ✅ ใช้สำหรับโหมด Guest */
+    private String guestEmail;
+}
@@ -0,0 +1,21 @@
+package com.example.devops.dto;
+
+import lombok.*;
+
+/**
+ * DTO จอง N ที่นั่ง "ที่ไหนก็ได้ในโซน" (general admission) — ระบบเลือกที่นั่งให้
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ZoneReservationRequest {
+
+    private Long eventId;
+    private Long zoneId;
+    private Integer quantity;
+
+    /** ✅ ใช้สำหรับโหมด Guest */
+    private String guestEmail;
+}
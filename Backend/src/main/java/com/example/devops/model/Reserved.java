@@ -61,4 +61,8 @@ public class Reserved {
 
     @Column(name = "created_as_guest")
     private Boolean createdAsGuest;   // true ถ้าสร้างตอนเป็น guest
+
+    /** ✅ โซนยืน (GA) : จองเป็นจำนวน ไม่มี reserved_seats */
+    @Column(name = "standing_zone_id")
+    private Long standingZoneId;
 }
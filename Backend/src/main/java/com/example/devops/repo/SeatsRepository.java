@@ -64,6 +64,7 @@ public interface SeatsRepository extends JpaRepository<Seats, Long> {
        ครอบคลุม 2 แหล่ง:
        1) reserved_seats ที่ seat_status อยู่ใน ('PENDING','CONFIRMED')
        2) seat_locks สถานะ LOCKED ที่ยังไม่หมดอายุ
+       3) seat_range_holds สถานะ LOCKED ที่ยังไม่หมดอายุ (แตกช่วงเป็นที่นั่ง)
     */
     @Query(value = """
         WITH occ_rs AS (
@@ -88,10 +89,25 @@ public interface SeatsRepository extends JpaRepository<Seats, Long> {
              WHERE z2.event_id = :eventId
                AND UPPER(COALESCE(l.status,'LOCKED')) = 'LOCKED'
                AND (l.expires_at IS NULL OR l.expires_at > NOW())
+        ),
+        occ_ranges AS (
+            SELECT z3.zone_id,
+                   r3.sort_order AS row_number,
+                   s3.seat_number AS seat_number
+              FROM seat_range_holds h
+              JOIN seats      s3 ON s3.row_id = h.row_id
+                                AND s3.seat_number BETWEEN h.seat_from AND h.seat_to
+              JOIN seat_rows  r3 ON r3.row_id  = s3.row_id
+              JOIN seat_zones z3 ON z3.zone_id = r3.zone_id
+             WHERE h.event_id = :eventId
+               AND h.status = 'LOCKED'
+               AND h.expires_at > NOW()
         )
         SELECT * FROM occ_rs
         UNION
         SELECT * FROM occ_locks
+        UNION
+        SELECT * FROM occ_ranges
         """, nativeQuery = true)
     List<Object[]> findOccupiedWithZoneRowColByEventId(@Param("eventId") Long eventId);
 
@@ -131,6 +147,14 @@ public interface SeatsRepository extends JpaRepository<Seats, Long> {
          WHERE sz.event_id = :eventId
            AND UPPER(l.status) = 'LOCKED'
            AND (l.expires_at IS NULL OR l.expires_at > NOW())
+        UNION
+        SELECT s.seat_id
+          FROM seat_range_holds h
+          JOIN seats s ON s.row_id = h.row_id
+                      AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+         WHERE h.event_id = :eventId
+           AND h.status = 'LOCKED'
+           AND h.expires_at > NOW()
         """, nativeQuery = true)
     List<Long> findLockedSeatIdsByEvent(@Param("eventId") Long eventId);
 
@@ -200,6 +224,14 @@ public interface SeatsRepository extends JpaRepository<Seats, Long> {
              WHERE sr.zone_id = :zoneId
                AND UPPER(COALESCE(l.status,'LOCKED')) = 'LOCKED'
                AND (l.expires_at IS NULL OR l.expires_at > NOW())
+            UNION
+            SELECT s.seat_id
+              FROM seat_range_holds h
+              JOIN seats s ON s.row_id = h.row_id
+                          AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+             WHERE h.zone_id = :zoneId
+               AND h.status = 'LOCKED'
+               AND h.expires_at > NOW()
         ) x
         """, nativeQuery = true)
     int countReservedSeatsInZone(@Param("zoneId") Long zoneId);
@@ -246,6 +278,14 @@ public interface SeatsRepository extends JpaRepository<Seats, Long> {
              WHERE z.event_id = :eventId
                AND UPPER(COALESCE(l.status,'LOCKED')) = 'LOCKED'
                AND (l.expires_at IS NULL OR l.expires_at > NOW())
+            UNION
+            SELECT s.seat_id
+              FROM seat_range_holds h
+              JOIN seats s ON s.row_id = h.row_id
+                          AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+             WHERE h.event_id = :eventId
+               AND h.status = 'LOCKED'
+               AND h.expires_at > NOW()
         ) x
         """, nativeQuery = true)
     long countReservedSeatSlotsByEvent(@Param("eventId") Long eventId);
@@ -2,10 +2,53 @@ package com.example.devops.repo;
 
 import com.example.devops.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
     Optional<User> findByUsernameIgnoreCase(String username);
+
+    /** แถวที่ login ต้องใช้ (จาก users หรือ organizers) */
+    interface LoginCandidate {
+        String getAccountType();   // USER | ORGANIZER
+        Long getAccountId();
+        String getUsername();
+        String getEmail();
+        String getRole();
+        String getPasswordHash();
+    }
+
+    /**
+     * ✅ ใช้สำหรับ AuthController.login – หา users + organizers ใน round-trip เดียว
+     * ลำดับเหมือน flow เดิม: user(username) → user(email) → organizer(username) → organizer(email)
+     */
+    @Query(value = """
+        SELECT * FROM (
+            SELECT 'USER'          AS "accountType",
+                   u.user_id       AS "accountId",
+                   u.username      AS "username",
+                   u.email         AS "email",
+                   u.roles         AS "role",
+                   u.password_hash AS "passwordHash",
+                   CASE WHEN lower(u.username) = lower(:key) THEN 0 ELSE 1 END AS "rank"
+            FROM users u
+            WHERE lower(u.username) = lower(:key) OR lower(u.email) = lower(:key)
+            UNION ALL
+            SELECT 'ORGANIZER',
+                   o.organizer_id,
+                   o.username,
+                   o.email,
+                   'ORGANIZER',
+                   o.password_hash,
+                   CASE WHEN lower(o.username) = lower(:key) THEN 2 ELSE 3 END
+            FROM organizers o
+            WHERE lower(o.username) = lower(:key) OR lower(o.email) = lower(:key)
+        ) c
+        ORDER BY c."rank"
+        """, nativeQuery = true)
+    List<LoginCandidate> findLoginCandidates(@Param("key") String key);
 }
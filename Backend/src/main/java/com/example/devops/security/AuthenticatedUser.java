@@ -0,0 +1,50 @@
+package com.example.devops.security;
+
+import java.security.Principal;
+
+/**
+ * principal ที่ JwtFilter ใส่ลงใน SecurityContext
+ * มี id ของบัญชี (user_id หรือ organizer_id) มาจาก claim ใน token แล้ว
+ * → controller ไม่ต้อง query หา id จาก username ซ้ำทุก request
+ *
+ * getName() = username (ให้ Authentication.getName() ทำงานเหมือนเดิม)
+ *
+ * @param accountId   user_id / organizer_id (null ถ้า token รุ่นเก่าไม่มี claim "uid")
+ * @param accountType ACCOUNT_USER | ACCOUNT_ORGANIZER (null ถ้า token รุ่นเก่า)
+ */
+public record AuthenticatedUser(Long accountId,
+                                String accountType,
+                                String username,
+                                String role,
+                                String email) implements Principal {
+
+    public static final String ACCOUNT_USER = "USER";
+    public static final String ACCOUNT_ORGANIZER = "ORGANIZER";
+
+    public static AuthenticatedUser from(VerifiedToken t) {
+        return new AuthenticatedUser(t.accountId(), t.accountType(), t.subject(), t.role(), t.email());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isUser() {
+        return ACCOUNT_USER.equals(accountType);
+    }
+
+    public boolean isOrganizer() {
+        return ACCOUNT_ORGANIZER.equals(accountType);
+    }
+
+    /** user_id ถ้าเป็นบัญชี user และ token มี id, ไม่งั้น null */
+    public Long userId() {
+        return isUser() ? accountId : null;
+    }
+
+    /** organizer_id ถ้าเป็นบัญชี organizer และ token มี id, ไม่งั้น null */
+    public Long organizerId() {
+        return isOrganizer() ? accountId : null;
+    }
+}
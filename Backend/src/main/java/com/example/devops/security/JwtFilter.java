@@ -1,14 +1,10 @@
 // src/main/java/com/example/devops/security/JwtFilter.java
 package com.example.devops.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
@@ -18,7 +14,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -27,8 +22,17 @@ public class JwtFilter extends OncePerRequestFilter {
 
     private static final Pattern BEARER = Pattern.compile("(?i)^Bearer\\s+");
 
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    private final JwtVerifier jwtVerifier;
+    private final RevokedTokenSet revokedTokens;
+    private final SessionActivityRecorder activityRecorder;
+
+    public JwtFilter(JwtVerifier jwtVerifier,
+                     RevokedTokenSet revokedTokens,
+                     SessionActivityRecorder activityRecorder) {
+        this.jwtVerifier = jwtVerifier;
+        this.revokedTokens = revokedTokens;
+        this.activityRecorder = activityRecorder;
+    }
 
     // ถ้ามี path ที่อยากข้าม (public) ใส่ไว้ที่นี่ก็ได้
     private static final String[] EXCLUDED = new String[] {
@@ -67,28 +71,29 @@ public class JwtFilter extends OncePerRequestFilter {
             String token = BEARER.matcher(authHeader).replaceFirst(""); // ตัด "Bearer " ออกแบบยืดหยุ่น
             if (!token.isBlank()) {
                 try {
-                    // ✅ Verify HS512 ด้วย secret เดียวกับฝั่ง login
-                    Jws<Claims> jws = Jwts.parserBuilder()
-                            .setSigningKey(jwtSecret.getBytes(StandardCharsets.UTF_8))
-                            .build()
-                            .parseClaimsJws(token);
-
-                    Claims claims = jws.getBody();
+                    // ✅ Verify HS512 ด้วย secret เดียวกับฝั่ง login (parser ตัวเดียว + cache ตาม digest ของ token)
+                    VerifiedToken verified = jwtVerifier.verify(token);
 
                     // sub = username, role = "ORGANIZER" | "ADMIN" | "USER" เป็นต้น
-                    String username = claims.getSubject();
-                    String role = claims.get("role", String.class);
+                    String username = verified.subject();
+                    String role = verified.role();
 
-                    if (username != null && role != null) {
+                    // ✅ token ที่ logout/ถูก revoke แล้ว → ไม่ authenticate (probe Bloom filter ใน memory ไม่ query DB)
+                    if (username != null && role != null && !revokedTokens.isRevoked(verified.jti())) {
                         // ✅ map เป็น ROLE_XXX เพื่อให้ hasRole("ORGANIZER") ใช้ได้
                         List<GrantedAuthority> authorities = List.of(
                                 new SimpleGrantedAuthority("ROLE_" + role)
                         );
 
+                        // ✅ principal แบบ typed (มี user_id / organizer_id จาก token) — getName() ยังเป็น username
                         UsernamePasswordAuthenticationToken auth =
-                                new UsernamePasswordAuthenticationToken(username, null, authorities);
+                                new UsernamePasswordAuthenticationToken(AuthenticatedUser.from(verified), null, authorities);
 
                         SecurityContextHolder.getContext().setAuthentication(auth);
+
+                        // ✅ last_activity / ip / user-agent → buffer ใน memory (write-behind ไม่เขียน DB ทุก request)
+                        activityRecorder.record(verified, request.getRemoteAddr(),
+                                request.getHeader(HttpHeaders.USER_AGENT), System.currentTimeMillis());
                     }
                 } catch (Exception e) {
                     // verify ไม่ผ่าน -> ปล่อยผ่านไปให้ entry point ตอบ 401
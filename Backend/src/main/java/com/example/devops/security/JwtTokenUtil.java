@@ -13,10 +13,16 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 public class JwtTokenUtil {
 
+    /** claim: user_id / organizer_id */
+    public static final String CLAIM_ACCOUNT_ID = "uid";
+    /** claim: ประเภทบัญชี (AuthenticatedUser.ACCOUNT_USER | ACCOUNT_ORGANIZER) */
+    public static final String CLAIM_ACCOUNT_TYPE = "acct";
+
     // ต้องยาวอย่างน้อย 32 characters สำหรับ HS256/HS512
     @Value("${app.jwt.secret:my-super-secret-key-for-jwt-token-signing-minimum-32-chars}")
     private String secret;
@@ -25,13 +31,24 @@ public class JwtTokenUtil {
     @Value("${app.jwt.expiration:86400000}")
     private long expirationMs;
 
-    // เผื่อเวลาเคลื่อน (วินาที) ป้องกันกรณีเวลาคลาดเคลื่อนเล็กน้อยระหว่าง client/server
-    @Value("${app.jwt.allowedClockSkewSeconds:60}")
-    private long allowedClockSkewSeconds;
+    // ✅ verify ใช้ parser ตัวเดียวกับ JwtFilter (สร้างครั้งเดียว)
+    private final JwtVerifier jwtVerifier;
+
+    // key สำหรับ sign สร้างครั้งเดียวแล้วใช้ซ้ำ
+    private volatile SecretKey signingKey;
+
+    public JwtTokenUtil(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
 
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        SecretKey key = signingKey;
+        if (key == null) {
+            byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            key = Keys.hmacShaKeyFor(keyBytes);
+            signingKey = key;
+        }
+        return key;
     }
 
     private String buildToken(Map<String, Object> claims, String subject) {
@@ -42,6 +59,7 @@ public class JwtTokenUtil {
         String token = Jwts.builder()
                 .setClaims(claims == null ? new HashMap<>() : claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString()) // jti — ใช้ revoke token (logout)
                 .setIssuedAt(issuedAt)
                 .setExpiration(expiration)
                 .signWith(getSigningKey())
@@ -68,14 +86,22 @@ public class JwtTokenUtil {
         return buildToken(claims, username);
     }
 
+    /**
+     * ✅ ฝัง id ของบัญชีไว้ใน token ด้วย (uid + acct)
+     * → JwtFilter สร้าง AuthenticatedUser ที่รู้ id ได้เลย ไม่ต้อง query users/organizers ทุก request
+     */
+    public String generateToken(Long accountId, String accountType, String username, String role, String email) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        claims.put("email", email);
+        claims.put(CLAIM_ACCOUNT_ID, accountId);
+        claims.put(CLAIM_ACCOUNT_TYPE, accountType);
+        return buildToken(claims, username);
+    }
+
     public Claims parseClaims(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .setAllowedClockSkewSeconds(allowedClockSkewSeconds) // ✅ เผื่อเวลาเคลื่อน
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = jwtVerifier.parseClaims(token); // ✅ skew ตาม app.jwt.allowedClockSkewSeconds (default 0)
 
             Date now = new Date();
             Date expiry = claims.getExpiration();
@@ -0,0 +1,101 @@
+package com.example.devops.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * ============================================================
+ *  JwtVerifier
+ * ============================================================
+ * ✅ สร้าง JwtParser (HS512) ครั้งเดียวแล้วใช้ซ้ำ — parser ของ jjwt เป็น thread-safe
+ * ✅ verify(token) : ใช้ใน JwtFilter → เช็ค cache ก่อน ถ้า hit ไม่ต้อง verify ลายเซ็น/parse JSON ซ้ำ
+ * ✅ parseClaims(token) : verify เต็มรูปแบบ (ไม่ผ่าน cache) ให้ JwtTokenUtil ใช้
+ * ✅ clock skew ใช้ค่าเดียวทั้ง filter และ JwtTokenUtil : default 0 (token หมดอายุ = ใช้ไม่ได้ทันที)
+ *    เปิดผ่อนผันได้ด้วย app.jwt.allowedClockSkewSeconds
+ * ✅ export metrics: jwt.verification.cache{result=hit|miss}, jwt.verification.cache.size
+ * ============================================================
+ */
+@Component
+public class JwtVerifier implements MeterBinder {
+
+    private final JwtParser parser;
+    private final VerifiedTokenCache cache;
+
+    public JwtVerifier(@Value("${app.jwt.secret:my-super-secret-key-for-jwt-token-signing-minimum-32-chars}") String secret,
+                       @Value("${app.jwt.allowedClockSkewSeconds:0}") long allowedClockSkewSeconds,
+                       @Value("${app.jwt.cache.max-entries:10000}") int cacheMaxEntries,
+                       @Value("${app.jwt.cache.max-ttl-seconds:900}") long cacheMaxTtlSeconds) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secret.getBytes(StandardCharsets.UTF_8))
+                .setAllowedClockSkewSeconds(allowedClockSkewSeconds)
+                .build();
+        this.cache = new VerifiedTokenCache(cacheMaxEntries, cacheMaxTtlSeconds * 1000L);
+    }
+
+    /**
+     * verify token สำหรับ request path
+     * @throws io.jsonwebtoken.JwtException ถ้าลายเซ็นผิด/หมดอายุ/รูปแบบไม่ถูกต้อง
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        String key = VerifiedTokenCache.digest(token);
+
+        VerifiedToken cached = cache.get(key, now);
+        if (cached != null) return cached;
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date exp = claims.getExpiration();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("email", String.class),
+                toLong(claims.get(JwtTokenUtil.CLAIM_ACCOUNT_ID)),
+                claims.get(JwtTokenUtil.CLAIM_ACCOUNT_TYPE, String.class),
+                claims.getId(),
+                exp == null ? 0L : exp.getTime()
+        );
+        cache.put(key, verified, now);
+        return verified;
+    }
+
+    /** verify เต็มรูปแบบและคืน Claims (ไม่ใช้ cache) */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private static Long toLong(Object v) {
+        if (v instanceof Number n) return n.longValue();
+        if (v == null) return null;
+        try { return Long.parseLong(v.toString()); } catch (NumberFormatException e) { return null; }
+    }
+
+    VerifiedTokenCache cache() {
+        return cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.verification.cache", cache, VerifiedTokenCache::hitCount)
+                .tag("result", "hit")
+                .description("JWT verifications served from cache")
+                .register(registry);
+        FunctionCounter.builder("jwt.verification.cache", cache, VerifiedTokenCache::missCount)
+                .tag("result", "miss")
+                .description("JWT verifications that required signature check")
+                .register(registry);
+        FunctionCounter.builder("jwt.verification.cache.evictions", cache, VerifiedTokenCache::evictionCount)
+                .register(registry);
+        Gauge.builder("jwt.verification.cache.size", cache, VerifiedTokenCache::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.devops.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ============================================================
+ *  RevokedTokenSet
+ * ============================================================
+ * ✅ ชุดของ jti ที่ถูก revoke (logout / admin บังคับออก) — อยู่ใน memory ล้วน ๆ
+ * ✅ isRevoked(jti) : probe Bloom filter ก่อน (lock-free, ไม่มี false negative)
+ *    → ส่วนใหญ่ตอบ "ไม่ถูก revoke" ได้ทันที ; ถ้า Bloom บอกว่า "อาจจะ" ค่อยเช็ค exact set
+ * ✅ entry เก็บเวลาหมดอายุของ token — purgeExpired() ทิ้งตัวที่หมดอายุแล้วและสร้าง Bloom ใหม่
+ * ✅ ข้อมูลต้นทางอยู่ที่ user_sessions / organizer_sessions (TokenRevocationService โหลดให้)
+ * ============================================================
+ */
+@Component
+public class RevokedTokenSet implements MeterBinder {
+
+    private final double falsePositiveRate;
+    private final Map<String, Long> exact = new ConcurrentHashMap<>(); // jti -> expiresAtMillis (0 = ไม่มี exp)
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+
+    private volatile BloomFilter bloom;
+    private int capacity;
+
+    public RevokedTokenSet(@Value("${app.jwt.revocation.expected-entries:100000}") int expectedEntries,
+                           @Value("${app.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.capacity = Math.max(64, expectedEntries);
+        this.falsePositiveRate = Math.min(0.5, Math.max(1e-6, falsePositiveRate));
+        this.bloom = new BloomFilter(capacity, this.falsePositiveRate);
+    }
+
+    /** เช็คว่า jti ถูก revoke หรือไม่ (token ที่ไม่มี jti ถือว่าไม่ถูก revoke) */
+    public boolean isRevoked(String jti) {
+        if (jti == null) return false;
+        if (!bloom.mightContain(jti)) return false;
+        if (exact.containsKey(jti)) return true;
+        bloomFalsePositives.incrementAndGet();
+        return false;
+    }
+
+    public synchronized void revoke(String jti, long expiresAtMillis) {
+        if (jti == null || jti.isBlank()) return;
+        exact.put(jti, expiresAtMillis);
+        if (exact.size() > capacity) {
+            capacity *= 2;
+            rebuild();
+        } else {
+            bloom.put(jti);
+        }
+    }
+
+    /** แทนที่ทั้งชุด (ใช้ตอนโหลดจาก DB ครั้งแรก) */
+    public synchronized void replaceAll(Map<String, Long> revoked) {
+        exact.clear();
+        exact.putAll(revoked);
+        while (exact.size() > capacity) capacity *= 2;
+        rebuild();
+    }
+
+    /** ทิ้ง jti ของ token ที่หมดอายุแล้ว (หมดอายุแล้ว verify ก็ไม่ผ่านอยู่ดี) */
+    public synchronized int purgeExpired(long nowMillis) {
+        int before = exact.size();
+        exact.values().removeIf(exp -> exp > 0 && exp <= nowMillis);
+        int removed = before - exact.size();
+        if (removed > 0) rebuild();
+        return removed;
+    }
+
+    public int size() {
+        return exact.size();
+    }
+
+    long falsePositiveCount() {
+        return bloomFalsePositives.get();
+    }
+
+    private void rebuild() {
+        BloomFilter next = new BloomFilter(capacity, falsePositiveRate);
+        exact.keySet().forEach(next::put);
+        bloom = next;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocation.size", this, RevokedTokenSet::size)
+                .description("Revoked token ids held in memory")
+                .register(registry);
+        FunctionCounter.builder("jwt.revocation.bloom.false-positives", bloomFalsePositives, AtomicLong::get)
+                .description("Bloom filter hits that were not in the exact set")
+                .register(registry);
+    }
+
+    /* ==================== Bloom filter ==================== */
+
+    /** Bloom filter ขนาดคงที่ (bits เป็น AtomicLongArray → put/mightContain พร้อมกันได้) */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long numBits;
+        private final int numHashes;
+
+        BloomFilter(int expected, double fpp) {
+            long m = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (m + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.numBits = (long) words * 64;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / expected * Math.log(2)));
+        }
+
+        void put(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long cur;
+                do {
+                    cur = bits.get(word);
+                    if ((cur & mask) != 0) break;
+                } while (!bits.compareAndSet(word, cur, cur | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long h1 = hash(key);
+            long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        /** FNV-1a 64 บิต แล้วผสมด้วย fmix64 ของ murmur3 */
+        private static long hash(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.devops.security;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  SessionActivityRecorder (write-behind)
+ * ============================================================
+ * ✅ JwtFilter เรียก record(...) ทุก request ที่ authenticate ผ่าน — แค่ put ลง map ใน memory
+ * ✅ key = jti → request หลายครั้งของ session เดียวกันรวมเหลือ 1 แถว (เก็บค่าล่าสุด)
+ * ✅ ทุก app.session.activity.flush-ms : upsert แถวที่เปลี่ยนลง user_sessions / organizer_sessions
+ *    ด้วย batchUpdate ครั้งเดียวต่อ table (last_activity, ip_address, user_agent)
+ * ✅ memory มีขอบเขต: เกิน app.session.activity.max-pending ให้ทิ้ง session ใหม่ (นับใน metric)
+ * ✅ batch ถูกปฏิเสธด้วย constraint → ไล่ทีละแถว ทิ้งแถวที่เสียถาวร (ไม่ค้างทั้ง batch จนเต็ม max-pending)
+ * ✅ flush อีกรอบตอน shutdown (@PreDestroy)
+ * ============================================================
+ */
+@Component
+@Slf4j
+public class SessionActivityRecorder implements MeterBinder {
+
+    /** activity ล่าสุดของ session (immutable — flush ใช้ remove(key, value) กันทับค่าใหม่) */
+    record Activity(String accountType, Long accountId, long lastActivityMillis,
+                    long expiresAtMillis, String ipAddress, String userAgent) {}
+
+    private static final int MAX_IP = 50;
+    private static final int MAX_USER_AGENT = 500;
+
+    private final JdbcTemplate jdbc;
+    private final int maxPending;
+    private final ConcurrentHashMap<String, Activity> pending = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    public SessionActivityRecorder(JdbcTemplate jdbc,
+                                   @Value("${app.session.activity.max-pending:50000}") int maxPending) {
+        this.jdbc = jdbc;
+        this.maxPending = Math.max(1, maxPending);
+    }
+
+    /** บันทึก activity ของ token ที่ verify แล้ว (ไม่แตะ DB) */
+    public void record(VerifiedToken token, String ipAddress, String userAgent, long nowMillis) {
+        if (token == null || token.jti() == null || token.accountId() == null) return;
+        if (!AuthenticatedUser.ACCOUNT_USER.equals(token.accountType())
+                && !AuthenticatedUser.ACCOUNT_ORGANIZER.equals(token.accountType())) return;
+
+        Activity a = new Activity(token.accountType(), token.accountId(), nowMillis,
+                token.expiresAtMillis(), truncate(ipAddress, MAX_IP), truncate(userAgent, MAX_USER_AGENT));
+
+        if (pending.size() >= maxPending && !pending.containsKey(token.jti())) {
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.put(token.jti(), a);
+    }
+
+    /** เขียน activity ที่ค้างอยู่ลง DB (batch ต่อ table) — คืนจำนวนแถวที่ flush ; ใช้ pool ของ BATCH */
+    @Scheduled(fixedDelayString = "${app.session.activity.flush-ms:5000}")
+    public int flush() {
+        return WorkloadContext.call(WorkloadClass.BATCH, this::flushPending);
+    }
+
+    private int flushPending() {
+        if (pending.isEmpty()) return 0;
+
+        List<Map.Entry<String, Activity>> users = new ArrayList<>();
+        List<Map.Entry<String, Activity>> organizers = new ArrayList<>();
+        for (Map.Entry<String, Activity> e : pending.entrySet()) {
+            Map.Entry<String, Activity> snap = Map.entry(e.getKey(), e.getValue());
+            if (AuthenticatedUser.ACCOUNT_USER.equals(snap.getValue().accountType())) users.add(snap);
+            else organizers.add(snap);
+        }
+
+        int n = 0;
+        n += write("user_sessions", "user_id", users);
+        n += write("organizer_sessions", "organizer_id", organizers);
+        return n;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            int n = flush();
+            if (n > 0) log.info("💾 Flushed {} session activity rows on shutdown", n);
+        } catch (Exception e) {
+            log.warn("⚠️ Session activity flush on shutdown failed: {}", e.getMessage());
+        }
+    }
+
+    private int write(String table, String idColumn, List<Map.Entry<String, Activity>> rows) {
+        if (rows.isEmpty()) return 0;
+
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Map.Entry<String, Activity> e : rows) {
+            Activity a = e.getValue();
+            args.add(new Object[]{
+                    e.getKey(), a.accountId(),
+                    a.expiresAtMillis() > 0 ? new Timestamp(a.expiresAtMillis()) : null,
+                    new Timestamp(a.lastActivityMillis()), a.ipAddress(), a.userAgent()
+            });
+        }
+
+        String sql = upsertSql(table, idColumn);
+        try {
+            jdbc.batchUpdate(sql, args);
+        } catch (DataIntegrityViolationException ex) {
+            // แถวเดียวเสีย (เช่น FK หลัง user/organizer ถูกลบ) ไม่ควรค้างทั้ง batch ตลอดไป → ไล่ทีละแถว
+            log.warn("⚠️ Session activity batch to {} rejected, retrying row by row: {}", table, ex.getMessage());
+            return writeOneByOne(table, sql, rows, args);
+        } catch (Exception ex) {
+            // เก็บไว้ใน map ต่อ รอบหน้าลองใหม่
+            log.warn("⚠️ Session activity flush to {} failed: {}", table, ex.getMessage());
+            return 0;
+        }
+
+        // ลบเฉพาะ entry ที่ไม่ได้ถูกอัปเดตระหว่าง flush
+        for (Map.Entry<String, Activity> e : rows) pending.remove(e.getKey(), e.getValue());
+        flushed.addAndGet(rows.size());
+        return rows.size();
+    }
+
+    /** แถวที่ผิด constraint → ทิ้ง (นับ discarded) ; error อื่น (DB ล่ม) → หยุด เก็บแถวที่เหลือไว้รอบหน้า */
+    private int writeOneByOne(String table, String sql, List<Map.Entry<String, Activity>> rows, List<Object[]> args) {
+        int n = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Map.Entry<String, Activity> e = rows.get(i);
+            try {
+                jdbc.update(sql, args.get(i));
+                flushed.incrementAndGet();
+                n++;
+            } catch (DataIntegrityViolationException bad) {
+                discarded.incrementAndGet();
+                log.warn("⚠️ Discarding session activity {} for {}: {}", e.getKey(), table, bad.getMessage());
+            } catch (Exception ex) {
+                log.warn("⚠️ Session activity flush to {} failed: {}", table, ex.getMessage());
+                return n;
+            }
+            pending.remove(e.getKey(), e.getValue());
+        }
+        return n;
+    }
+
+    /** upsert: token ที่ออกก่อนมีการบันทึก session ก็ได้แถวใหม่ ; ไม่แตะ is_active (revoke แล้วยัง revoke) */
+    private static String upsertSql(String table, String idColumn) {
+        return """
+                INSERT INTO %1$s (session_id, %2$s, created_at, expires_at, is_active, last_activity, ip_address, user_agent)
+                VALUES (?, ?, NOW(), ?, TRUE, ?, ?, ?)
+                ON CONFLICT (session_id) DO UPDATE
+                   SET last_activity = GREATEST(COALESCE(%1$s.last_activity, EXCLUDED.last_activity), EXCLUDED.last_activity),
+                       ip_address    = EXCLUDED.ip_address,
+                       user_agent    = EXCLUDED.user_agent
+                """.formatted(table, idColumn);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    long droppedCount() {
+        return dropped.get();
+    }
+
+    long discardedCount() {
+        return discarded.get();
+    }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("session.activity.pending", pending, Map::size)
+                .description("Sessions with activity waiting to be flushed")
+                .register(registry);
+        FunctionCounter.builder("session.activity.flushed", flushed, AtomicLong::get)
+                .description("Session activity rows written")
+                .register(registry);
+        FunctionCounter.builder("session.activity.dropped", dropped, AtomicLong::get)
+                .description("Session activity updates dropped because the buffer was full")
+                .register(registry);
+        FunctionCounter.builder("session.activity.discarded", discarded, AtomicLong::get)
+                .description("Session activity rows discarded because the database rejected them")
+                .register(registry);
+    }
+}
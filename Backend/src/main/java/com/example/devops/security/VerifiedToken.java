@@ -0,0 +1,26 @@
+package com.example.devops.security;
+
+/**
+ * ผลลัพธ์ของการ verify JWT ที่ผ่านแล้ว (เก็บเฉพาะค่าที่ filter ต้องใช้)
+ * ใช้เป็น value ใน cache เพื่อไม่ต้อง parse JSON ซ้ำทุก request
+ *
+ * @param subject         sub (username)
+ * @param role            claim "role"
+ * @param email           claim "email"
+ * @param accountId       claim "uid" (user_id / organizer_id) — null ถ้า token รุ่นเก่า
+ * @param accountType     claim "acct" (USER | ORGANIZER) — null ถ้า token รุ่นเก่า
+ * @param jti             claim "jti" (ใช้ revoke token) — null ถ้า token รุ่นเก่า
+ * @param expiresAtMillis เวลาหมดอายุ (epoch millis) — 0 = ไม่มี exp ใน token
+ */
+public record VerifiedToken(String subject,
+                            String role,
+                            String email,
+                            Long accountId,
+                            String accountType,
+                            String jti,
+                            long expiresAtMillis) {
+
+    public boolean isExpiredAt(long nowMillis) {
+        return expiresAtMillis > 0 && nowMillis >= expiresAtMillis;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.devops.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ============================================================
+ *  VerifiedTokenCache
+ * ============================================================
+ * ✅ cache แบบมีขอบเขต: SHA-256(token) → VerifiedToken
+ * ✅ รู้จักวันหมดอายุ: entry จะถูกทิ้งเมื่อถึง exp ของ token
+ *    (token ที่ไม่มี exp จะอยู่ได้ไม่เกิน maxTtlMillis)
+ * ✅ เก็บเฉพาะ token ที่ verify ผ่านแล้วเท่านั้น (ไม่ cache ค่าที่ไม่ผ่าน)
+ * ✅ นับ hit / miss ไว้ให้ JwtVerifier export เป็น metrics
+ *
+ * ใช้ digest เป็น key เพื่อไม่ต้องเก็บ token ดิบไว้ใน heap
+ * ============================================================
+ */
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxTtlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record Entry(VerifiedToken token, long validUntilMillis) { }
+
+    public VerifiedTokenCache(int maxEntries, long maxTtlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxTtlMillis = Math.max(1, maxTtlMillis);
+    }
+
+    /** คืนค่าที่ verify แล้ว หรือ null ถ้าไม่มี/หมดอายุ */
+    public VerifiedToken get(String key, long nowMillis) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (nowMillis >= e.validUntilMillis()) {
+            entries.remove(key, e);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.token();
+    }
+
+    public void put(String key, VerifiedToken token, long nowMillis) {
+        if (token == null || token.isExpiredAt(nowMillis)) return;
+
+        long validUntil = nowMillis + maxTtlMillis;
+        if (token.expiresAtMillis() > 0) validUntil = Math.min(validUntil, token.expiresAtMillis());
+
+        if (entries.size() >= maxEntries) makeRoom(nowMillis);
+        entries.put(key, new Entry(token, validUntil));
+    }
+
+    /** ลบ entry เดียว (เช่นเมื่อ token ถูก revoke) */
+    public void invalidate(String key) {
+        if (entries.remove(key) != null) evictions.increment();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() { return entries.size(); }
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public long evictionCount() { return evictions.sum(); }
+
+    /** key ของ cache = SHA-256(token) แบบ base64url */
+    public static String digest(String token) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        byte[] d = md.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(d);
+    }
+
+    /**
+     * ทิ้งตัวที่หมดอายุก่อน ถ้ายังเต็มอยู่ค่อยทิ้งแบบไม่เลือก ~10% ของความจุ
+     * (ไม่ต้องแม่นแบบ LRU — ขอแค่ขนาดไม่โตเกิน maxEntries)
+     */
+    private void makeRoom(long nowMillis) {
+        int removed = 0;
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            if (nowMillis >= it.next().getValue().validUntilMillis()) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (entries.size() >= maxEntries) {
+            int toDrop = Math.max(1, maxEntries / 10);
+            for (Iterator<String> it = entries.keySet().iterator(); it.hasNext() && toDrop > 0; toDrop--) {
+                it.next();
+                it.remove();
+                removed++;
+            }
+        }
+        evictions.add(removed);
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.devops.service;
+
+import com.example.devops.dto.BestAvailableRequest;
+import com.example.devops.dto.ReservationRequest;
+import com.example.devops.dto.ReservedResponse;
+import com.example.devops.repo.SeatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ============================================================
+ *  BestAvailableService
+ * ============================================================
+ * ✅ จองที่นั่ง N ที่ "ติดกันในแถวเดียว" ที่ดีที่สุดที่ยังว่าง โดยไม่ต้องให้ FE เลือก row/col เอง
+ *    → ลดการแย่งที่นั่งยอดนิยมตัวเดียวกัน (collision storm)
+ * ✅ index ต่ออีเวนต์ใน memory : ต่อแถวเก็บ BitSet ที่นั่งว่าง + ความยาวช่วงว่างยาวสุด (maxRun)
+ *    แถวที่ maxRun < N ถูกข้ามทันที ; แถวเรียงตามความดี (โซน → แถวหน้า) จึงหยุดค้นได้เร็ว
+ * ✅ คะแนน = อันดับแถว × row-weight + ระยะจากกลางแถว × center-weight (น้อย = ดี)
+ * ✅ ที่นั่งที่เลือกถูกกันไว้ใน index (in-flight) ก่อนเรียก ReservationService.createReservation
+ *    (transaction เดียว : เช็ค + ล็อก + สร้าง reserved) ; ชนกับคนอื่น → sync index จาก DB แล้วลองใหม่
+ * ✅ index ตามทันการจอง/ยกเลิกจาก outbox และ sync occupancy จาก DB ทุก resync-seconds (lock หมดอายุ)
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class BestAvailableService implements OutboxHandler {
+
+    /** ผลการจอง + ที่นั่งที่ได้ (row/col เป็น 0-based แบบเดียวกับ SeatPick) */
+    public record Result(ReservedResponse reservation, Long zoneId, int row, List<Integer> cols) {}
+
+    /** แถวจาก DB ที่ใช้สร้าง index */
+    record SeatRecord(long seatId, long zoneId, int zoneOrder, BigDecimal price, long rowId, int rowNo, int seatNumber) {}
+
+    /** block ที่เลือกได้ */
+    record Block(Long zoneId, BigDecimal price, int rowNo, int[] seatNumbers, List<Long> seatIds, double score) {}
+
+    private final JdbcTemplate jdbc;
+    private final SeatsRepository seatsRepo;
+    private final ReservationService reservationService;
+    private final double rowWeight;
+    private final double centerWeight;
+    private final int maxQuantity;
+    private final int maxAttempts;
+    private final long resyncMillis;
+    private final long layoutTtlMillis;
+
+    private final ConcurrentHashMap<Long, EventIndex> indexes = new ConcurrentHashMap<>();
+
+    public BestAvailableService(JdbcTemplate jdbc,
+                                SeatsRepository seatsRepo,
+                                ReservationService reservationService,
+                                @Value("${app.seats.best-available.row-weight:10}") double rowWeight,
+                                @Value("${app.seats.best-available.center-weight:1}") double centerWeight,
+                                @Value("${app.seats.best-available.max-quantity:10}") int maxQuantity,
+                                @Value("${app.seats.best-available.max-attempts:3}") int maxAttempts,
+                                @Value("${app.seats.best-available.resync-seconds:5}") int resyncSeconds,
+                                @Value("${app.seats.best-available.layout-ttl-seconds:300}") int layoutTtlSeconds) {
+        this.jdbc = jdbc;
+        this.seatsRepo = seatsRepo;
+        this.reservationService = reservationService;
+        this.rowWeight = Math.max(0, rowWeight);
+        this.centerWeight = Math.max(0, centerWeight);
+        this.maxQuantity = Math.max(1, maxQuantity);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.resyncMillis = Math.max(0, resyncSeconds) * 1000L;
+        this.layoutTtlMillis = Math.max(1, layoutTtlSeconds) * 1000L;
+    }
+
+    /* ==================== RESERVE ==================== */
+
+    public Result reserveBest(Long userId, BestAvailableRequest req) {
+        if (req == null || req.getEventId() == null || req.getEventId() <= 0) {
+            throw new IllegalArgumentException("eventId is required");
+        }
+        int n = req.getQuantity() == null ? 0 : req.getQuantity();
+        if (n <= 0 || n > maxQuantity) {
+            throw new IllegalArgumentException("quantity must be between 1 and " + maxQuantity);
+        }
+        if (userId == null && (req.getGuestEmail() == null || req.getGuestEmail().isBlank())) {
+            throw new IllegalArgumentException("AUTH_REQUIRED_OR_GUEST_EMAIL: Provide Authorization/JWT or guestEmail for guest reservation.");
+        }
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            EventIndex idx = index(req.getEventId(), attempt > 1);
+            Block b = idx.allocate(n, req.getZoneId(), req.getMinPrice(), req.getMaxPrice(), rowWeight, centerWeight);
+            if (b == null) {
+                throw new IllegalArgumentException("No " + n + " adjacent seats available");
+            }
+
+            List<ReservationRequest.SeatPick> picks = new ArrayList<>(n);
+            List<Integer> cols = new ArrayList<>(n);
+            for (int seatNo : b.seatNumbers()) {
+                picks.add(new ReservationRequest.SeatPick(b.zoneId(), b.rowNo(), seatNo - 1));
+                cols.add(seatNo - 1);
+            }
+            ReservationRequest rr = ReservationRequest.builder()
+                    .eventId(req.getEventId())
+                    .quantity(n)
+                    .totalAmount(b.price() == null ? null : b.price().multiply(BigDecimal.valueOf(n)))
+                    .seats(picks)
+                    .guestEmail(req.getGuestEmail())
+                    .build();
+
+            try {
+                ReservedResponse r = reservationService.createReservation(userId, rr);
+                idx.commit(b.seatIds());
+                return new Result(r, b.zoneId(), b.rowNo(), cols);
+            } catch (ReservationService.SeatConflict conflict) {
+                // มีคนได้ที่นั่งบางที่ไปก่อน (index ยังไม่รู้) → รอบหน้า sync จาก DB แล้วเลือกใหม่
+                // error อื่น (validation / ticket ขายหมด / DB) ลองใหม่ก็ไม่ช่วย → โยนออกไปเลย
+                idx.forget(b.seatIds());
+                log.debug("Best-available hold conflicted on attempt {}: {}", attempt, conflict.getMessage());
+            } catch (RuntimeException e) {
+                idx.release(b.seatIds());
+                throw e;
+            }
+        }
+        throw new IllegalStateException("Seats are in high demand, please retry");
+    }
+
+    /* ==================== INDEX LOAD / SYNC ==================== */
+
+    EventIndex index(Long eventId, boolean forceResync) {
+        long now = System.currentTimeMillis();
+        EventIndex idx = indexes.compute(eventId, (k, cur) ->
+                cur != null && now - cur.layoutLoadedAt < layoutTtlMillis ? cur : loadLayout(k, cur));
+        if (forceResync || now - idx.occupancyLoadedAt >= resyncMillis) {
+            if (idx.syncing.compareAndSet(false, true)) {
+                try {
+                    Set<Long> occupied = new HashSet<>(seatsRepo.findPaidTakenSeatIdsByEvent(eventId));
+                    occupied.addAll(seatsRepo.findLockedSeatIdsByEvent(eventId));
+                    idx.resetOccupancy(occupied, now);
+                } finally {
+                    idx.syncing.set(false);
+                }
+            }
+        }
+        return idx;
+    }
+
+    private EventIndex loadLayout(Long eventId, EventIndex previous) {
+        List<SeatRecord> seats = jdbc.query("""
+                SELECT s.seat_id, z.zone_id, COALESCE(z.sort_order, 0) AS zone_order, z.price,
+                       r.row_id, COALESCE(r.sort_order, 0) AS row_no, s.seat_number
+                  FROM seats s
+                  JOIN seat_rows  r ON r.row_id  = s.row_id
+                  JOIN seat_zones z ON z.zone_id = r.zone_id
+                 WHERE z.event_id = ?
+                   AND COALESCE(z.is_active, TRUE)
+                   AND COALESCE(r.is_active, TRUE)
+                   AND COALESCE(s.is_active, TRUE)
+                   AND s.seat_number IS NOT NULL
+                 ORDER BY zone_order, z.zone_id, row_no, r.row_id, s.seat_number
+                """, (rs, i) -> new SeatRecord(
+                        rs.getLong("seat_id"), rs.getLong("zone_id"), rs.getInt("zone_order"), rs.getBigDecimal("price"),
+                        rs.getLong("row_id"), rs.getInt("row_no"), rs.getInt("seat_number")), eventId);
+        EventIndex idx = EventIndex.build(seats);
+        if (previous != null) idx.inheritInFlight(previous);
+        log.info("🪑 Built best-available index for event {} ({} seats, {} rows)", eventId, seats.size(), idx.rows.size());
+        return idx;
+    }
+
+    /* ==================== OUTBOX (ตามทันการจอง/ยกเลิก) ==================== */
+
+    @Override
+    public boolean supports(String eventType) {
+        return OutboxPublisher.RESERVATION_CREATED.equals(eventType)
+                || OutboxPublisher.RESERVATION_CANCELLED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Object ev = event.payload().get("eventId");
+        Object ids = event.payload().get("seatIds");
+        if (!(ev instanceof Number eventId) || !(ids instanceof Collection<?> seatIds)) return;
+        EventIndex idx = indexes.get(eventId.longValue());
+        if (idx == null) return;
+
+        List<Long> list = new ArrayList<>(seatIds.size());
+        for (Object o : seatIds) if (o instanceof Number num) list.add(num.longValue());
+        idx.setOccupied(list, OutboxPublisher.RESERVATION_CREATED.equals(event.eventType()));
+    }
+
+    /* ==================== in-memory index ==================== */
+
+    /** ที่นั่งของ 1 แถว เรียงตาม seat_number ; free = บิตของที่นั่งที่ว่าง */
+    static final class Row {
+        final Long zoneId;
+        final BigDecimal price;
+        final int rowNo;
+        final int rank;
+        final long[] seatIds;
+        final int[] seatNumbers;
+        final BitSet free;
+        int maxRun;
+
+        Row(Long zoneId, BigDecimal price, int rowNo, int rank, long[] seatIds, int[] seatNumbers) {
+            this.zoneId = zoneId;
+            this.price = price;
+            this.rowNo = rowNo;
+            this.rank = rank;
+            this.seatIds = seatIds;
+            this.seatNumbers = seatNumbers;
+            this.free = new BitSet(seatIds.length);
+            this.free.set(0, seatIds.length);
+            recompute();
+        }
+
+        /** ช่วงว่างที่ติดกันจริง (seat_number ต่อเนื่อง) : [start, end) ทีละช่วง */
+        interface RunVisitor { void visit(int start, int end); }
+
+        void forEachRun(RunVisitor v) {
+            int len = seatIds.length;
+            int i = free.nextSetBit(0);
+            while (i >= 0 && i < len) {
+                int j = i + 1;
+                while (j < len && free.get(j) && seatNumbers[j] == seatNumbers[j - 1] + 1) j++;
+                v.visit(i, j);
+                i = free.nextSetBit(j);
+            }
+        }
+
+        void recompute() {
+            int[] best = {0};
+            forEachRun((a, b) -> best[0] = Math.max(best[0], b - a));
+            maxRun = best[0];
+        }
+    }
+
+    static final class EventIndex {
+        final List<Row> rows;                     // เรียงตาม rank (โซน → แถว)
+        final Map<Long, int[]> position;          // seat_id → {row index, seat index}
+        final Set<Long> inFlight = new HashSet<>(); // ถูกเลือกไปแล้วแต่ยัง commit การจองไม่เสร็จ
+        final long layoutLoadedAt = System.currentTimeMillis();
+        final AtomicBoolean syncing = new AtomicBoolean();
+        volatile long occupancyLoadedAt;
+
+        private EventIndex(List<Row> rows, Map<Long, int[]> position) {
+            this.rows = rows;
+            this.position = position;
+        }
+
+        static EventIndex build(List<SeatRecord> seats) {
+            Map<Long, List<SeatRecord>> byRow = new LinkedHashMap<>();
+            for (SeatRecord s : seats) byRow.computeIfAbsent(s.rowId(), k -> new ArrayList<>()).add(s);
+
+            List<List<SeatRecord>> ordered = new ArrayList<>(byRow.values());
+            ordered.sort(Comparator.<List<SeatRecord>>comparingInt(l -> l.get(0).zoneOrder())
+                    .thenComparingLong(l -> l.get(0).zoneId())
+                    .thenComparingInt(l -> l.get(0).rowNo()));
+
+            List<Row> rows = new ArrayList<>(ordered.size());
+            Map<Long, int[]> position = new HashMap<>(seats.size() * 2);
+            for (List<SeatRecord> rs : ordered) {
+                rs.sort(Comparator.comparingInt(SeatRecord::seatNumber));
+                long[] ids = new long[rs.size()];
+                int[] nums = new int[rs.size()];
+                for (int i = 0; i < rs.size(); i++) {
+                    ids[i] = rs.get(i).seatId();
+                    nums[i] = rs.get(i).seatNumber();
+                    position.put(ids[i], new int[]{rows.size(), i});
+                }
+                SeatRecord first = rs.get(0);
+                rows.add(new Row(first.zoneId(), first.price(), first.rowNo(), rows.size(), ids, nums));
+            }
+            return new EventIndex(rows, position);
+        }
+
+        /** หา block ที่ดีที่สุดแล้วกันไว้ (in-flight) — null ถ้าไม่มี */
+        synchronized Block allocate(int n, Long zoneId, BigDecimal minPrice, BigDecimal maxPrice,
+                                    double rowWeight, double centerWeight) {
+            Row bestRow = null;
+            int bestStart = -1;
+            double bestScore = Double.MAX_VALUE;
+
+            for (Row row : rows) {
+                double base = row.rank * rowWeight;
+                if (base >= bestScore) break;            // แถวถัดไปแย่กว่าแน่นอน
+                if (row.maxRun < n || !matches(row, zoneId, minPrice, maxPrice)) continue;
+
+                double rowCenter = (row.seatIds.length - 1) / 2.0;
+                int[] start = {-1};
+                double[] score = {Double.MAX_VALUE};
+                row.forEachRun((a, b) -> {
+                    if (b - a < n) return;
+                    // ตำแหน่งใน run ที่ใกล้กลางแถวที่สุด
+                    int s = (int) Math.round(rowCenter - (n - 1) / 2.0);
+                    s = Math.max(a, Math.min(b - n, s));
+                    double sc = base + Math.abs(s + (n - 1) / 2.0 - rowCenter) * centerWeight;
+                    if (sc < score[0]) {
+                        score[0] = sc;
+                        start[0] = s;
+                    }
+                });
+                if (start[0] >= 0 && score[0] < bestScore) {
+                    bestScore = score[0];
+                    bestRow = row;
+                    bestStart = start[0];
+                }
+            }
+            if (bestRow == null) return null;
+
+            List<Long> ids = new ArrayList<>(n);
+            int[] nums = new int[n];
+            for (int i = 0; i < n; i++) {
+                bestRow.free.clear(bestStart + i);
+                ids.add(bestRow.seatIds[bestStart + i]);
+                nums[i] = bestRow.seatNumbers[bestStart + i];
+            }
+            bestRow.recompute();
+            inFlight.addAll(ids);
+            return new Block(bestRow.zoneId, bestRow.price, bestRow.rowNo, nums, ids, bestScore);
+        }
+
+        private static boolean matches(Row row, Long zoneId, BigDecimal minPrice, BigDecimal maxPrice) {
+            if (zoneId != null && !zoneId.equals(row.zoneId)) return false;
+            if (minPrice != null && (row.price == null || row.price.compareTo(minPrice) < 0)) return false;
+            if (maxPrice != null && (row.price == null || row.price.compareTo(maxPrice) > 0)) return false;
+            return true;
+        }
+
+        /** จองสำเร็จ : ที่นั่งยังไม่ว่าง แค่เลิกนับเป็น in-flight */
+        synchronized void commit(List<Long> seatIds) {
+            seatIds.forEach(inFlight::remove);
+        }
+
+        /** จองไม่สำเร็จเพราะ error อื่น : คืนที่นั่งให้ว่าง */
+        synchronized void release(List<Long> seatIds) {
+            seatIds.forEach(inFlight::remove);
+            mark(seatIds, true);
+        }
+
+        /** ชนกับคนอื่น : ไม่รู้ว่าที่ไหนว่างจริง → ปล่อยให้ resync ตัดสิน */
+        synchronized void forget(List<Long> seatIds) {
+            seatIds.forEach(inFlight::remove);
+        }
+
+        synchronized void setOccupied(Collection<Long> seatIds, boolean occupied) {
+            List<Long> ids = occupied ? List.copyOf(seatIds)
+                    : seatIds.stream().filter(id -> !inFlight.contains(id)).toList();
+            mark(ids, !occupied);
+        }
+
+        synchronized void resetOccupancy(Set<Long> occupied, long now) {
+            for (Row r : rows) {
+                r.free.set(0, r.seatIds.length);
+                for (int i = 0; i < r.seatIds.length; i++) {
+                    if (occupied.contains(r.seatIds[i]) || inFlight.contains(r.seatIds[i])) r.free.clear(i);
+                }
+                r.recompute();
+            }
+            occupancyLoadedAt = now;
+        }
+
+        synchronized void inheritInFlight(EventIndex previous) {
+            synchronized (previous) {
+                inFlight.addAll(previous.inFlight);
+            }
+        }
+
+        private void mark(Collection<Long> seatIds, boolean free) {
+            Set<Row> touched = new HashSet<>();
+            for (Long id : seatIds) {
+                int[] p = position.get(id);
+                if (p == null) continue;
+                Row r = rows.get(p[0]);
+                r.free.set(p[1], free);
+                touched.add(r);
+            }
+            touched.forEach(Row::recompute);
+        }
+    }
+}
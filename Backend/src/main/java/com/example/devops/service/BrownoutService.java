@@ -0,0 +1,243 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * ============================================================
+ *  BrownoutService (DB ตึงมือ → หน้า public อ่านจาก snapshot ล่าสุด)
+ * ============================================================
+ * ✅ เข้า brownout เมื่อ (ตรวจทุก check-ms)
+ *    - มี thread รอ connection จาก Hikari >= pool-wait-threshold  หรือ
+ *    - เวลาโหลดข้อมูลสด (EWMA) >= latency-threshold-ms
+ * ✅ ออกเมื่อสงบติดกัน recover-checks รอบ (ไม่มีใครรอ pool และ latency < ครึ่งของ threshold)
+ *    และอยู่ในโหมดมาแล้วอย่างน้อย min-duration-ms → ไม่สลับไปมา (hysteresis)
+ * ✅ read(key, loader)
+ *    - ปกติ : โหลดสด แล้วเก็บเป็น snapshot
+ *    - brownout + มี snapshot : คืน snapshot (stale) ; snapshot ไหนเก่ากว่า probe-ms ให้ request เดียวโหลดสด
+ *      (ได้ข้อมูลใหม่ + ได้ตัวอย่าง latency ไว้ตัดสินใจออกจากโหมด)
+ *    - loader ล้มแต่มี snapshot : คืน snapshot (stale) แทน error
+ *    ใช้กับหน้า public อ่านอย่างเดียวเท่านั้น : การจอง / จ่ายเงินยังเขียน DB ตามปกติ
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class BrownoutService implements MeterBinder {
+
+    public static final String STALE_HEADER = "X-Stale";
+
+    /** ผลการอ่าน : stale = มาจาก snapshot (ageSeconds = อายุของ snapshot) */
+    public record Read<T>(T value, boolean stale, long ageSeconds) {
+    }
+
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final boolean enabled;
+    private final IntSupplier poolWaiting;
+    private final LongSupplier clock;
+    private final int poolWaitThreshold;
+    private final long latencyThresholdMs;
+    private final int recoverChecks;
+    private final long minDurationMs;
+    private final long probeMs;
+    private final int maxEntries;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile boolean active;
+    private volatile long enteredAt;
+    private volatile double latencyMs;
+    private int calmChecks;
+
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong activations = new AtomicLong();
+
+    @Autowired
+    public BrownoutService(ObjectProvider<HikariDataSource> hikariPools,
+                           ObjectProvider<WorkloadRoutingDataSource> workloadPools,
+                           @Value("${app.brownout.enabled:true}") boolean enabled,
+                           @Value("${app.brownout.pool-wait-threshold:3}") int poolWaitThreshold,
+                           @Value("${app.brownout.latency-threshold-ms:800}") long latencyThresholdMs,
+                           @Value("${app.brownout.recover-checks:5}") int recoverChecks,
+                           @Value("${app.brownout.min-duration-ms:10000}") long minDurationMs,
+                           @Value("${app.brownout.probe-ms:5000}") long probeMs,
+                           @Value("${app.brownout.max-entries:2000}") int maxEntries) {
+        this(enabled, () -> waitingThreads(hikariPools, workloadPools), System::currentTimeMillis,
+                poolWaitThreshold, latencyThresholdMs, recoverChecks, minDurationMs, probeMs, maxEntries);
+    }
+
+    BrownoutService(boolean enabled, IntSupplier poolWaiting, LongSupplier clock,
+                    int poolWaitThreshold, long latencyThresholdMs, int recoverChecks,
+                    long minDurationMs, long probeMs, int maxEntries) {
+        this.enabled = enabled;
+        this.poolWaiting = poolWaiting;
+        this.clock = clock;
+        this.poolWaitThreshold = Math.max(1, poolWaitThreshold);
+        this.latencyThresholdMs = Math.max(1, latencyThresholdMs);
+        this.recoverChecks = Math.max(1, recoverChecks);
+        this.minDurationMs = Math.max(0, minDurationMs);
+        this.probeMs = Math.max(0, probeMs);
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** โหลดสดทุกครั้ง ไม่เก็บ snapshot (ใช้ตอน test / ประกอบ controller เอง) */
+    public static BrownoutService disabled() {
+        return new BrownoutService(false, () -> 0, System::currentTimeMillis, 1, 1, 1, 0, 0, 1);
+    }
+
+    private static int waitingThreads(ObjectProvider<HikariDataSource> hikariPools,
+                                      ObjectProvider<WorkloadRoutingDataSource> workloadPools) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        hikariPools.orderedStream().forEach(pools::add);
+        workloadPools.ifAvailable(w -> pools.addAll(w.pools()));
+        int waiting = 0;
+        for (HikariDataSource ds : pools) {
+            HikariPoolMXBean mx = ds.isRunning() ? ds.getHikariPoolMXBean() : null;
+            if (mx != null) waiting += mx.getThreadsAwaitingConnection();
+        }
+        return waiting;
+    }
+
+    /* ==================== READ ==================== */
+
+    /**
+     * @param loader คืน null = ไม่พบข้อมูล (ไม่เก็บ snapshot) ; throw = DB มีปัญหา
+     */
+    public <T> Read<T> read(String key, Supplier<T> loader) {
+        if (!enabled) return new Read<>(loader.get(), false, 0);
+
+        Snapshot snap = snapshots.get(key);
+        long now = clock.getAsLong();
+        if (active && snap != null && !(now - snap.at >= probeMs && snap.probing.compareAndSet(false, true))) {
+            return stale(snap, now);
+        }
+        try {
+            return new Read<>(loadFresh(key, loader), false, 0);
+        } catch (RuntimeException e) {
+            if (snap == null) throw e;
+            log.warn("⚠️ Fresh read {} failed, serving snapshot: {}", key, e.getMessage());
+            return stale(snap, now);
+        } finally {
+            if (snap != null) snap.probing.set(false);
+        }
+    }
+
+    private <T> T loadFresh(String key, Supplier<T> loader) {
+        long t0 = clock.getAsLong();
+        try {
+            T value = loader.get();
+            if (value != null) remember(key, value);
+            else snapshots.remove(key);
+            return value;
+        } finally {
+            sample(clock.getAsLong() - t0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Read<T> stale(Snapshot snap, long now) {
+        staleServed.incrementAndGet();
+        return new Read<>((T) snap.value, true, Math.max(0, (now - snap.at) / 1000));
+    }
+
+    private void remember(String key, Object value) {
+        snapshots.put(key, new Snapshot(value, clock.getAsLong()));
+        if (snapshots.size() > maxEntries) {
+            snapshots.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().at))
+                    .ifPresent(e -> snapshots.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private synchronized void sample(long elapsedMs) {
+        latencyMs += (elapsedMs - latencyMs) * LATENCY_ALPHA;
+    }
+
+    /* ==================== MODE ==================== */
+
+    @Scheduled(fixedDelayString = "${app.brownout.check-ms:1000}")
+    public synchronized void evaluate() {
+        if (!enabled) return;
+        int waiting = poolWaiting.getAsInt();
+        boolean over = waiting >= poolWaitThreshold || latencyMs >= latencyThresholdMs;
+        boolean calm = waiting == 0 && latencyMs < latencyThresholdMs / 2.0;
+        long now = clock.getAsLong();
+
+        if (!active) {
+            if (over) {
+                active = true;
+                enteredAt = now;
+                calmChecks = 0;
+                activations.incrementAndGet();
+                log.warn("🟠 Brownout ON (pool waiting={}, load latency={} ms) → public reads from snapshots",
+                        waiting, Math.round(latencyMs));
+            }
+            return;
+        }
+        calmChecks = calm ? calmChecks + 1 : 0;
+        if (calmChecks >= recoverChecks && now - enteredAt >= minDurationMs) {
+            active = false;
+            log.info("🟢 Brownout OFF after {} ms", now - enteredAt);
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    long latencyMs() {
+        return Math.round(latencyMs);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("brownout.active", this, s -> s.isActive() ? 1 : 0)
+                .description("1 while public reads are served from snapshots")
+                .register(registry);
+        Gauge.builder("brownout.load.latency", this, BrownoutService::latencyMs)
+                .baseUnit("milliseconds")
+                .description("Smoothed time to load public read data fresh from the database")
+                .register(registry);
+        Gauge.builder("brownout.snapshots", snapshots, Map::size)
+                .description("Public read snapshots held for brownout")
+                .register(registry);
+        FunctionCounter.builder("brownout.stale.served", staleServed, AtomicLong::get)
+                .description("Responses served from a stale snapshot")
+                .register(registry);
+        FunctionCounter.builder("brownout.activations", activations, AtomicLong::get)
+                .description("Times brownout mode was entered")
+                .register(registry);
+    }
+
+    private static final class Snapshot {
+        final Object value;
+        final long at;
+        final AtomicBoolean probing = new AtomicBoolean();
+
+        Snapshot(Object value, long at) {
+            this.value = value;
+            this.at = at;
+        }
+    }
+}
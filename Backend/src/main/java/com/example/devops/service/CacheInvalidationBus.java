@@ -0,0 +1,311 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  CacheInvalidationBus (PostgreSQL LISTEN/NOTIFY)
+ * ============================================================
+ * ✅ writer : publish(cache, keys...) ใน transaction เดียวกับการแก้ข้อมูล
+ *    - upsert cache_versions (cache_name, cache_key) → version + 1
+ *    - pg_notify('cache_invalidation', "cache \t version \t key") → ส่งถึงทุก node ตอน commit เท่านั้น
+ *      (rollback = ไม่มีใคร evict, version ก็ไม่ขยับ)
+ *    - evict ในเครื่องทันที + อีกครั้งหลัง commit (กันคนอ่านค่าเก่ากลับเข้า cache ระหว่างรอ commit)
+ * ✅ ทุก node : thread "cache-bus-listener" ถือ connection ของตัวเอง (ไม่ยืมจาก Hikari) → LISTEN
+ *    แล้วส่งต่อให้ InvalidatableCache ที่ cacheName ตรงกัน
+ * ✅ หลุด / พลาด notification : reconnect (backoff) → LISTEN ก่อน แล้วค่อย resync จาก cache_versions
+ *    - ครั้งแรก หรือหายไปนานเกิน retention → invalidateAll ทุก cache
+ *    - ไม่งั้น replay แถวที่ updated_at ≥ เวลา LISTEN ครั้งก่อน - resync-slack (transaction ยาวกว่านี้อาจหลุด)
+ *    evict ซ้ำไม่เป็นไร (idempotent) → ยอมส่งซ้ำดีกว่าพลาด
+ * ✅ app.cache-bus.enabled=false (default) : publish = evict ในเครื่องอย่างเดียว (deploy replica เดียว)
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class CacheInvalidationBus implements MeterBinder {
+
+    public static final String CHANNEL = "cache_invalidation";
+    /** NOTIFY payload จำกัด 8000 byte ; key ยาวกว่านี้ → invalidate ทั้ง cache */
+    static final int MAX_KEY_BYTES = 7000;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO cache_versions (cache_name, cache_key, version, updated_at)
+            VALUES (?, ?, 1, clock_timestamp())
+            ON CONFLICT (cache_name, cache_key)
+            DO UPDATE SET version = cache_versions.version + 1, updated_at = clock_timestamp()
+            RETURNING version
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final Map<String, List<InvalidatableCache>> caches = new HashMap<>();
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int pollMillis;
+    private final long reconnectMillis;
+    private final long resyncSlackMillis;
+    private final int retentionHours;
+
+    /** เวลา (นาฬิกา DB) ที่ LISTEN สำเร็จครั้งล่าสุด ; null = ยังไม่เคยต่อได้ */
+    private volatile Instant listeningSince;
+    private volatile Thread listener;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong resynced = new AtomicLong();
+
+    public CacheInvalidationBus(JdbcTemplate jdbc,
+                                List<InvalidatableCache> caches,
+                                @Value("${app.cache-bus.enabled:false}") boolean enabled,
+                                @Value("${spring.datasource.url:}") String url,
+                                @Value("${spring.datasource.username:}") String username,
+                                @Value("${spring.datasource.password:}") String password,
+                                @Value("${app.cache-bus.poll-ms:500}") int pollMillis,
+                                @Value("${app.cache-bus.reconnect-ms:2000}") long reconnectMillis,
+                                @Value("${app.cache-bus.resync-slack-ms:60000}") long resyncSlackMillis,
+                                @Value("${app.cache-bus.retention-hours:24}") int retentionHours) {
+        this.jdbc = jdbc;
+        for (InvalidatableCache c : caches) {
+            this.caches.computeIfAbsent(c.cacheName(), k -> new ArrayList<>()).add(c);
+        }
+        this.enabled = enabled;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.pollMillis = Math.max(50, pollMillis);
+        this.reconnectMillis = Math.max(100, reconnectMillis);
+        this.resyncSlackMillis = Math.max(0, resyncSlackMillis);
+        this.retentionHours = Math.max(1, retentionHours);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ==================== PUBLISH ==================== */
+
+    /** key null/ว่าง = ทั้ง cache ; เรียกใน transaction ของการแก้ข้อมูลได้เลย */
+    public void publish(String cache, String... keys) {
+        if (keys == null || keys.length == 0) keys = new String[]{""};
+        for (String key : keys) {
+            String k = key == null || key.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_BYTES ? "" : key;
+            long version = 0;
+            if (enabled) {
+                Long v = jdbc.queryForObject(UPSERT_SQL, Long.class, cache, k);
+                version = v == null ? 0 : v;
+                jdbc.query("SELECT pg_notify(?, ?)", rs -> { }, CHANNEL, payload(cache, version, k));
+                published.incrementAndGet();
+            }
+            deliverLocally(cache, k, version);
+        }
+    }
+
+    private void deliverLocally(String cache, String key, long version) {
+        deliver(cache, key, version);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(cache, key, version);
+                }
+            });
+        }
+    }
+
+    static String payload(String cache, long version, String key) {
+        return cache + '\t' + version + '\t' + key;
+    }
+
+    /* ==================== DELIVER ==================== */
+
+    /** payload จาก NOTIFY → cache ที่ชื่อตรงกัน ; payload เพี้ยนไม่ทำให้ listener ตาย */
+    void dispatch(String payload) {
+        if (payload == null) return;
+        String[] p = payload.split("\t", 3);
+        if (p.length < 2) {
+            log.warn("⚠️ Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        long version;
+        try {
+            version = Long.parseLong(p[1]);
+        } catch (NumberFormatException e) {
+            log.warn("⚠️ Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        received.incrementAndGet();
+        deliver(p[0], p.length > 2 ? p[2] : "", version);
+    }
+
+    private void deliver(String cache, String key, long version) {
+        for (InvalidatableCache c : caches.getOrDefault(cache, List.of())) {
+            try {
+                if (key == null || key.isEmpty()) c.invalidateAll();
+                else c.invalidate(key, version);
+            } catch (Exception e) {
+                log.warn("⚠️ Cache {} failed to invalidate {}: {}", cache, key, e.getMessage());
+            }
+        }
+    }
+
+    private void invalidateEverything() {
+        caches.values().forEach(list -> list.forEach(InvalidatableCache::invalidateAll));
+    }
+
+    /* ==================== RESYNC ==================== */
+
+    /**
+     * เรียกหลัง LISTEN สำเร็จทุกครั้ง (listenAt = นาฬิกา DB ตอน LISTEN)
+     * notification ที่ commit หลัง LISTEN มาทาง channel อยู่แล้ว → ที่ต้องเก็บคือช่วงที่หลุดไป
+     */
+    void resync(Instant listenAt) {
+        Instant since = listeningSince;
+        if (since == null || Duration.between(since, listenAt).toHours() >= retentionHours) {
+            invalidateEverything();
+        } else {
+            int[] n = {0};
+            jdbc.query("""
+                    SELECT cache_name, cache_key, version
+                      FROM cache_versions
+                     WHERE updated_at >= ?
+                    """, rs -> {
+                deliver(rs.getString("cache_name"), rs.getString("cache_key"), rs.getLong("version"));
+                n[0]++;
+            }, Timestamp.from(since.minusMillis(resyncSlackMillis)));
+            if (n[0] > 0) log.info("🔁 Cache bus resync replayed {} invalidations", n[0]);
+        }
+        listeningSince = listenAt;
+        resynced.incrementAndGet();
+    }
+
+    /* ==================== LISTENER ==================== */
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !running.compareAndSet(false, true)) return;
+        Thread t = new Thread(this::listenLoop, "cache-bus-listener");
+        t.setDaemon(true);
+        listener = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running.set(false);
+        Thread t = listener;
+        if (t != null) t.interrupt();
+    }
+
+    private void listenLoop() {
+        while (running.get()) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                Instant listenAt = jdbc.queryForObject("SELECT clock_timestamp()", Timestamp.class).toInstant();
+                resync(listenAt);
+                connected.set(true);
+                log.info("📡 Cache bus listening on {}", CHANNEL);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                long lastCheck = System.currentTimeMillis();
+                while (running.get()) {
+                    PGNotification[] batch = pg.getNotifications(pollMillis);
+                    if (batch != null) {
+                        for (PGNotification n : batch) dispatch(n.getParameter());
+                    }
+                    // TCP ตายเงียบ ๆ getNotifications ไม่ throw → ตรวจ connection เป็นระยะ
+                    long now = System.currentTimeMillis();
+                    if (now - lastCheck >= 30_000) {
+                        if (!conn.isValid(5)) throw new SQLException("listener connection is no longer valid");
+                        lastCheck = now;
+                    }
+                }
+            } catch (Exception e) {
+                if (!running.get()) break;
+                reconnects.incrementAndGet();
+                log.warn("⚠️ Cache bus listener disconnected ({}), retrying in {} ms", e.getMessage(), reconnectMillis);
+            } finally {
+                connected.set(false);
+            }
+            try {
+                Thread.sleep(reconnectMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /* ==================== HOUSEKEEPING ==================== */
+
+    /** แถวเก่ากว่า retention ไม่จำเป็นต่อ resync แล้ว (node ที่หายไปนานกว่านั้น invalidateAll เอง) */
+    @Scheduled(fixedDelayString = "${app.cache-bus.purge-ms:3600000}",
+               initialDelayString = "${app.cache-bus.purge-ms:3600000}")
+    public int purge() {
+        if (!enabled) return 0;
+        try {
+            return jdbc.update("""
+                    DELETE FROM cache_versions
+                     WHERE updated_at < NOW() - make_interval(hours => ?)
+                    """, retentionHours);
+        } catch (Exception e) {
+            log.warn("⚠️ Cache version purge failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /* ==================== METRICS ==================== */
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cache.bus.connected", connected, c -> c.get() ? 1 : 0)
+                .description("1 while the LISTEN connection is up")
+                .register(registry);
+        FunctionCounter.builder("cache.bus.published", published, AtomicLong::get)
+                .description("Cache invalidations published with pg_notify")
+                .register(registry);
+        FunctionCounter.builder("cache.bus.received", received, AtomicLong::get)
+                .description("Cache invalidations received from the channel")
+                .register(registry);
+        FunctionCounter.builder("cache.bus.reconnects", reconnects, AtomicLong::get)
+                .description("Listener reconnects after a dropped connection")
+                .register(registry);
+        FunctionCounter.builder("cache.bus.resyncs", resynced, AtomicLong::get)
+                .description("Resyncs from cache_versions after (re)connecting")
+                .register(registry);
+    }
+}
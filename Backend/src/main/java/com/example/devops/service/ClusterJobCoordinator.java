@@ -0,0 +1,175 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * ============================================================
+ *  ClusterJobCoordinator (งานเบื้องหลังที่ต้องรันที่เดียวทั้ง cluster)
+ * ============================================================
+ * ✅ ทุก replica ยังมี @Scheduled ของตัวเอง แต่ก่อนทำงานต้อง claim แถว job_runs (job, shard) ได้ก่อน
+ *    - claim ได้เมื่อ : ไม่มีใครถืออยู่ (locked_until ว่าง/หมดแล้ว) และรอบก่อนเริ่มไปแล้ว >= 90% ของ every
+ *      → รอบละครั้งทั้ง cluster ไม่ว่ามีกี่ replica / นาฬิกา tick ไม่ตรงกัน
+ *    - claim เป็น statement เดียว (INSERT ... ON CONFLICT DO UPDATE ... WHERE) : ไม่มี lock ค้างใน connection
+ *    - node ตายระหว่างรัน → locked_until (lease) หมด แล้ว node อื่น claim ต่อได้
+ * ✅ งานรันใน transaction ของตัวเอง (แยกจาก claim) แล้วบันทึก duration / rows / last_success / last_error
+ * ✅ runSharded : แบ่งงานเป็น N shard (แต่ละ shard claim แยกกัน) → หลาย node ช่วยกันทำรอบเดียวได้
+ *    แต่ละ node เริ่มไล่ shard จากตำแหน่งตาม node id ของตัวเอง (ไม่แย่ง shard แรกพร้อมกันหมด)
+ * ✅ app.jobs.coordination.enabled=false : รันทุกรอบในเครื่องเหมือน @Scheduled เดิม
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class ClusterJobCoordinator implements MeterBinder {
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO job_runs (job_name, shard, owner_node, locked_until, last_started_at)
+            VALUES (?, ?, ?, NOW() + make_interval(secs => ? / 1000.0), NOW())
+            ON CONFLICT (job_name, shard) DO UPDATE
+               SET owner_node      = EXCLUDED.owner_node,
+                   locked_until    = EXCLUDED.locked_until,
+                   last_started_at = EXCLUDED.last_started_at
+             WHERE (job_runs.locked_until IS NULL OR job_runs.locked_until < NOW())
+               AND (job_runs.last_started_at IS NULL
+                    OR job_runs.last_started_at <= NOW() - make_interval(secs => ? / 1000.0))
+            """;
+
+    private static final String SUCCESS_SQL = """
+            UPDATE job_runs
+               SET locked_until = NULL, last_finished_at = NOW(), last_success_at = NOW(),
+                   last_duration_ms = ?, last_rows = ?, last_error = NULL, run_count = run_count + 1
+             WHERE job_name = ? AND shard = ? AND owner_node = ?
+            """;
+
+    private static final String FAILURE_SQL = """
+            UPDATE job_runs
+               SET locked_until = NULL, last_finished_at = NOW(),
+                   last_duration_ms = ?, last_error = ?, failure_count = failure_count + 1
+             WHERE job_name = ? AND shard = ? AND owner_node = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final String nodeId;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public ClusterJobCoordinator(JdbcTemplate jdbc,
+                                 PlatformTransactionManager txManager,
+                                 @Value("${app.jobs.coordination.enabled:true}") boolean enabled,
+                                 @Value("${app.ownership.node-id:}") String nodeId) {
+        this.jdbc = jdbc;
+        this.tx = txManager == null ? null : new TransactionTemplate(txManager);
+        this.enabled = enabled && jdbc != null;
+        this.nodeId = EventOwnershipService.resolveNodeId(nodeId);
+    }
+
+    /** ไม่ประสานกับใคร : รันทุกครั้งในเครื่อง (ใช้ตอน test / ประกอบ service เอง) */
+    public static ClusterJobCoordinator uncoordinated() {
+        return new ClusterJobCoordinator(null, null, false, "local");
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /* ==================== RUN ==================== */
+
+    /**
+     * @param every รอบของ @Scheduled (ห้ามเริ่มซ้ำเร็วกว่านี้ทั้ง cluster)
+     * @param lease เวลานานสุดที่งานหนึ่งรอบควรใช้ (node ตาย → รอเท่านี้ก่อน node อื่นรับ)
+     * @return จำนวนแถวที่งานแก้ ; -1 = ไม่ได้รัน (node อื่นถืออยู่ / ยังไม่ถึงรอบ / error)
+     */
+    public int run(String job, Duration every, Duration lease, IntSupplier work) {
+        return runShard(job, 0, every, lease, shard -> work.getAsInt());
+    }
+
+    /** @return ผลรวมแถวของ shard ที่ node นี้ได้ทำ (-1 = ไม่ได้สัก shard) */
+    public int runSharded(String job, int shards, Duration every, Duration lease, IntUnaryOperator work) {
+        int n = Math.max(1, shards);
+        int start = Math.floorMod(nodeId.hashCode(), n);
+        int total = -1;
+        for (int i = 0; i < n; i++) {
+            int shard = (start + i) % n;
+            int rows = runShard(job, shard, every, lease, work);
+            if (rows >= 0) total = Math.max(total, 0) + rows;
+        }
+        return total;
+    }
+
+    /** claim + งาน ใช้ connection pool ของ BATCH (ไม่แย่ง pool ของการจองเมื่อเปิด app.bulkhead.pools.enabled) */
+    private int runShard(String job, int shard, Duration every, Duration lease, IntUnaryOperator work) {
+        return WorkloadContext.call(WorkloadClass.BATCH, () -> claimAndRun(job, shard, every, lease, work));
+    }
+
+    private int claimAndRun(String job, int shard, Duration every, Duration lease, IntUnaryOperator work) {
+        if (enabled && !claim(job, shard, every, lease)) {
+            skipped.incrementAndGet();
+            return -1;
+        }
+        long t0 = System.nanoTime();
+        try {
+            Integer rows = tx == null ? work.applyAsInt(shard) : tx.execute(s -> work.applyAsInt(shard));
+            int r = rows == null ? 0 : rows;
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            runs.incrementAndGet();
+            if (enabled) jdbc.update(SUCCESS_SQL, ms, r, job, shard, nodeId);
+            log.debug("⏱️ Job {}#{} on {} → rows={} in {} ms", job, shard, nodeId, r, ms);
+            return r;
+        } catch (Exception e) {
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            failures.incrementAndGet();
+            log.error("❌ Job {}#{} failed: {}", job, shard, e.getMessage(), e);
+            if (enabled) {
+                try {
+                    jdbc.update(FAILURE_SQL, ms, String.valueOf(e.getMessage()), job, shard, nodeId);
+                } catch (Exception ignore) {
+                    // lease หมดเองอยู่แล้ว
+                }
+            }
+            return -1;
+        }
+    }
+
+    private boolean claim(String job, int shard, Duration every, Duration lease) {
+        try {
+            long minGap = every.toMillis() * 9 / 10;
+            return jdbc.update(CLAIM_SQL, job, shard, nodeId, lease.toMillis(), minGap) == 1;
+        } catch (Exception e) {
+            log.warn("⚠️ Could not claim job {}#{}: {}", job, shard, e.getMessage());
+            return false;
+        }
+    }
+
+    /* ==================== METRICS ==================== */
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jobs.runs", runs, AtomicLong::get)
+                .description("Background job shards run on this node")
+                .register(registry);
+        FunctionCounter.builder("jobs.skipped", skipped, AtomicLong::get)
+                .description("Job ticks skipped because another node holds or recently ran the shard")
+                .register(registry);
+        FunctionCounter.builder("jobs.failures", failures, AtomicLong::get)
+                .description("Background job shards that threw")
+                .register(registry);
+    }
+}
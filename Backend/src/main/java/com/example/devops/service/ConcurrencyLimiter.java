@@ -0,0 +1,103 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  ConcurrencyLimiter (load shedding ต่อกลุ่ม endpoint)
+ * ============================================================
+ * ✅ แต่ละกลุ่ม (PURCHASE / PUBLIC_READ / BACK_OFFICE) มี GradientLimit ของตัวเอง
+ * ✅ ลำดับความสำคัญ : PURCHASE > PUBLIC_READ > BACK_OFFICE
+ *    กลุ่มที่สำคัญกว่ากำลัง congested → กลุ่มที่ต่ำกว่าใช้ได้แค่ low-priority-share ของ limit ตัวเอง
+ *    (browse / report ถูกตัดก่อน ให้ DB ว่างพอสำหรับการจอง)
+ * ✅ metrics : limiter.limit / limiter.inflight / limiter.rejected (tag group)
+ * ============================================================
+ */
+@Service
+public class ConcurrencyLimiter implements MeterBinder {
+
+    /** เรียงจากสำคัญมากไปน้อย */
+    static final WorkloadClass[] PRIORITY = {WorkloadClass.PURCHASE, WorkloadClass.PUBLIC_READ, WorkloadClass.BACK_OFFICE};
+
+    private final boolean enabled;
+    private final double lowPriorityShare;
+    private final Map<WorkloadClass, GradientLimit> limits = new EnumMap<>(WorkloadClass.class);
+    private final Map<WorkloadClass, AtomicLong> rejected = new EnumMap<>(WorkloadClass.class);
+
+    public ConcurrencyLimiter(@Value("${app.limiter.enabled:true}") boolean enabled,
+                              @Value("${app.limiter.initial-limit:20}") int initialLimit,
+                              @Value("${app.limiter.min-limit:4}") int minLimit,
+                              @Value("${app.limiter.max-limit:200}") int maxLimit,
+                              @Value("${app.limiter.rtt-tolerance:1.5}") double tolerance,
+                              @Value("${app.limiter.low-priority-share:0.5}") double lowPriorityShare) {
+        this.enabled = enabled;
+        this.lowPriorityShare = Math.max(0, Math.min(1, lowPriorityShare));
+        for (WorkloadClass w : PRIORITY) {
+            limits.put(w, new GradientLimit(initialLimit, minLimit, maxLimit, tolerance));
+            rejected.put(w, new AtomicLong());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** @return false = เกิน limit (ต้องตอบ 503 และไม่ต้องเรียก release) */
+    public boolean tryAcquire(WorkloadClass group) {
+        GradientLimit limit = limits.get(group);
+        if (limit == null) return true;
+        if (limit.tryAcquire(higherPriorityCongested(group) ? lowPriorityShare : 1.0)) return true;
+        rejected.get(group).incrementAndGet();
+        return false;
+    }
+
+    public void release(WorkloadClass group, long rttNanos, boolean dropped) {
+        GradientLimit limit = limits.get(group);
+        if (limit != null) limit.release(rttNanos, dropped);
+    }
+
+    private boolean higherPriorityCongested(WorkloadClass group) {
+        for (WorkloadClass w : PRIORITY) {
+            if (w == group) return false;
+            if (limits.get(w).congested()) return true;
+        }
+        return false;
+    }
+
+    GradientLimit limit(WorkloadClass group) {
+        return limits.get(group);
+    }
+
+    long rejected(WorkloadClass group) {
+        return rejected.get(group).get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (WorkloadClass w : PRIORITY) {
+            GradientLimit l = limits.get(w);
+            Gauge.builder("limiter.limit", l, GradientLimit::limit)
+                    .tag("group", w.key())
+                    .description("Current adaptive concurrency limit")
+                    .register(registry);
+            Gauge.builder("limiter.inflight", l, GradientLimit::inflight)
+                    .tag("group", w.key())
+                    .description("Requests currently admitted by the limiter")
+                    .register(registry);
+            FunctionCounter.builder("limiter.rejected", rejected.get(w), AtomicLong::get)
+                    .tag("group", w.key())
+                    .description("Requests shed with 503 by the adaptive limiter")
+                    .register(registry);
+        }
+    }
+}
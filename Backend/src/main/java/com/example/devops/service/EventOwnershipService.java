@@ -0,0 +1,329 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  EventOwnershipService (1 อีเวนต์ที่กำลังขาย = 1 replica เจ้าของ)
+ * ============================================================
+ * ✅ ทุก node heartbeat ลง backend_nodes ทุก app.ownership.heartbeat-ms
+ *    node ที่ heartbeat เก่ากว่า lease-ms = ตาย (ไม่ถูกนับตอนเลือกเจ้าของ)
+ * ✅ อีเวนต์ที่อยู่ในช่วงขาย (หรือจะเปิดภายใน prewarm-minutes) → เลือกเจ้าของด้วย rendezvous hashing
+ *    (node ที่ hash(node, event) สูงสุด) : node เข้า/ออก → ย้ายเฉพาะอีเวนต์ของ node นั้น
+ * ✅ เจ้าของจริง = แถวใน event_leases : ต่ออายุได้เฉพาะเจ้าของเดิม, แย่งได้เมื่อ lease_until ผ่านไปแล้ว
+ *    → ไม่มีช่วงที่สอง node คิดว่าตัวเองเป็นเจ้าของพร้อมกัน (เจ้าของเลิกเชื่อ lease ตัวเองก่อนหมดจริง 1 heartbeat)
+ *    → node ตาย : อีเวนต์ย้ายภายใน ~lease-ms + heartbeat-ms
+ *    → node ใหม่เข้ามา : เจ้าของเดิมปล่อย lease (DELETE) แล้วเจ้าของใหม่รับใน heartbeat ถัดไป
+ * ✅ ได้อีเวนต์ใหม่ → rebuild lock store ใน memory + reconcile โซนยืน จาก reserved (แหล่งความจริง)
+ *    เสียอีเวนต์ไป → ทิ้ง lock ของอีเวนต์นั้นใน store (สำเนาเก่าหมดอายุแล้วต้องไม่ไปยกเลิกใบจองของเจ้าของใหม่)
+ * ✅ route(eventId) : LOCAL (เราเป็นเจ้าของ / ไม่อยู่ในช่วงขาย) | REMOTE (ส่งต่อ) | PENDING (กำลังย้ายเจ้าของ)
+ * ✅ app.ownership.enabled=false (default) : ทุกอีเวนต์ LOCAL เหมือน deploy replica เดียว
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class EventOwnershipService implements MeterBinder {
+
+    public enum Kind { LOCAL, REMOTE, PENDING }
+
+    /** lease ที่เห็นล่าสุด ; validUntilMillis เป็นนาฬิกาเครื่องนี้ */
+    public record Lease(Long eventId, String nodeId, String baseUrl, long epoch, long validUntilMillis) {
+        boolean valid(long now) {
+            return validUntilMillis > now;
+        }
+    }
+
+    public record Route(Kind kind, Lease owner) {
+        static final Route LOCAL = new Route(Kind.LOCAL, null);
+        static final Route PENDING = new Route(Kind.PENDING, null);
+    }
+
+    private static final String RANDOM_NODE_ID = "node-" + UUID.randomUUID();
+
+    private static final String UPSERT_NODE_SQL = """
+            INSERT INTO backend_nodes (node_id, base_url, started_at, heartbeat_at)
+            VALUES (?, ?, NOW(), NOW())
+            ON CONFLICT (node_id) DO UPDATE SET base_url = EXCLUDED.base_url, heartbeat_at = NOW()
+            """;
+
+    private static final String LIVE_NODES_SQL = """
+            SELECT node_id
+              FROM backend_nodes
+             WHERE heartbeat_at > NOW() - make_interval(secs => ? / 1000.0)
+            """;
+
+    /** อีเวนต์ที่กำลังขาย (หรือใกล้เปิดขาย) ; sales_* ว่าง = ถือว่าขายตลอด */
+    private static final String ON_SALE_SQL = """
+            SELECT event_id
+              FROM events_nam
+             WHERE (sales_start_datetime IS NULL OR sales_start_datetime <= NOW() + make_interval(mins => ?))
+               AND (sales_end_datetime IS NULL OR sales_end_datetime > NOW())
+            """;
+
+    /** ได้ lease ใหม่ / ต่ออายุของตัวเอง ; ของคนอื่นที่ยังไม่หมดอายุ → ไม่แตะ */
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO event_leases (event_id, node_id, lease_until, epoch, acquired_at)
+            SELECT e, ?, NOW() + make_interval(secs => ? / 1000.0), 1, NOW()
+              FROM unnest(?::bigint[]) AS e
+            ON CONFLICT (event_id) DO UPDATE
+               SET node_id     = EXCLUDED.node_id,
+                   lease_until = EXCLUDED.lease_until,
+                   epoch       = event_leases.epoch
+                                 + CASE WHEN event_leases.node_id = EXCLUDED.node_id THEN 0 ELSE 1 END,
+                   acquired_at = CASE WHEN event_leases.node_id = EXCLUDED.node_id
+                                      THEN event_leases.acquired_at ELSE NOW() END
+             WHERE event_leases.node_id = EXCLUDED.node_id
+                OR event_leases.lease_until <= NOW()
+            """;
+
+    /** lease ของเราที่ไม่ควรเป็นของเราแล้ว (node ใหม่เข้ามา / หมดช่วงขาย) → ปล่อยทันที */
+    private static final String RELEASE_SQL = """
+            DELETE FROM event_leases
+             WHERE node_id = ?
+               AND event_id <> ALL (?::bigint[])
+            """;
+
+    private static final String LEASES_SQL = """
+            SELECT l.event_id, l.node_id, n.base_url, l.epoch,
+                   (EXTRACT(EPOCH FROM (l.lease_until - NOW())) * 1000)::bigint AS remaining_ms
+              FROM event_leases l
+              JOIN backend_nodes n ON n.node_id = l.node_id
+             WHERE l.lease_until > NOW()
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final SeatLockService seatLocks;
+    private final StandingInventoryService standing;
+    private final boolean enabled;
+    private final String nodeId;
+    private final String baseUrl;
+    private final long heartbeatMillis;
+    private final long leaseMillis;
+    private final int prewarmMinutes;
+
+    private volatile Map<Long, Lease> leases = Map.of();
+    private volatile Set<Long> managed = Set.of();
+    private volatile int liveNodes;
+    private final AtomicLong acquired = new AtomicLong();
+
+    public EventOwnershipService(JdbcTemplate jdbc,
+                                 SeatLockService seatLocks,
+                                 StandingInventoryService standing,
+                                 @Value("${app.ownership.enabled:false}") boolean enabled,
+                                 @Value("${app.ownership.node-id:}") String nodeId,
+                                 @Value("${app.ownership.advertise-url:}") String advertiseUrl,
+                                 @Value("${server.port:8080}") int serverPort,
+                                 @Value("${app.ownership.heartbeat-ms:1000}") long heartbeatMillis,
+                                 @Value("${app.ownership.lease-ms:5000}") long leaseMillis,
+                                 @Value("${app.ownership.prewarm-minutes:30}") int prewarmMinutes) {
+        this.jdbc = jdbc;
+        this.seatLocks = seatLocks;
+        this.standing = standing;
+        this.enabled = enabled;
+        this.nodeId = resolveNodeId(nodeId);
+        this.baseUrl = advertiseUrl == null || advertiseUrl.isBlank()
+                ? "http://" + localAddress() + ":" + serverPort
+                : advertiseUrl.trim().replaceAll("/+$", "");
+        this.heartbeatMillis = Math.max(100, heartbeatMillis);
+        this.leaseMillis = Math.max(this.heartbeatMillis * 3, leaseMillis);
+        this.prewarmMinutes = Math.max(0, prewarmMinutes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /* ==================== ROUTING ==================== */
+
+    public Route route(Long eventId) {
+        if (!enabled || eventId == null) return Route.LOCAL;
+        long now = System.currentTimeMillis();
+        Lease l = leases.get(eventId);
+        if (l != null && l.valid(now)) {
+            return nodeId.equals(l.nodeId()) ? Route.LOCAL : new Route(Kind.REMOTE, l);
+        }
+        // ไม่อยู่ในช่วงขาย → ไม่มีเจ้าของ ใครก็ทำได้ ; อยู่ในช่วงขายแต่ไม่มี lease ที่ใช้ได้ → รอย้ายเจ้าของ
+        return managed.contains(eventId) ? Route.PENDING : Route.LOCAL;
+    }
+
+    public boolean owns(Long eventId) {
+        return route(eventId).kind() == Kind.LOCAL;
+    }
+
+    /* ==================== HEARTBEAT ==================== */
+
+    @Scheduled(fixedDelayString = "${app.ownership.heartbeat-ms:1000}")
+    public void heartbeat() {
+        if (!enabled) return;
+        try {
+            jdbc.update(UPSERT_NODE_SQL, nodeId, baseUrl);
+            Set<String> live = new HashSet<>(jdbc.queryForList(LIVE_NODES_SQL, String.class, leaseMillis));
+            live.add(nodeId);
+            List<Long> onSale = jdbc.queryForList(ON_SALE_SQL, Long.class, prewarmMinutes);
+
+            Long[] mine = onSale.stream().filter(e -> nodeId.equals(ownerFor(e, live))).toArray(Long[]::new);
+            if (mine.length > 0) {
+                jdbc.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(ACQUIRE_SQL);
+                    ps.setString(1, nodeId);
+                    ps.setLong(2, leaseMillis);
+                    ps.setArray(3, con.createArrayOf("BIGINT", mine));
+                    return ps;
+                });
+            }
+            jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(RELEASE_SQL);
+                ps.setString(1, nodeId);
+                ps.setArray(2, con.createArrayOf("BIGINT", mine));
+                return ps;
+            });
+
+            managed = Set.copyOf(onSale);
+            liveNodes = live.size();
+            refreshLeases();
+        } catch (Exception e) {
+            // ต่อ DB ไม่ได้ : lease เดิมใน memory หมดอายุเอง (เลิกเป็นเจ้าของก่อน node อื่นแย่งได้)
+            log.warn("⚠️ Ownership heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void refreshLeases() {
+        long now = System.currentTimeMillis();
+        RowMapper<Lease> mapper = (rs, i) -> {
+            String owner = rs.getString("node_id");
+            long remaining = rs.getLong("remaining_ms");
+            // lease ของเราเองเชื่อสั้นกว่าจริง 1 heartbeat : กัน clock / GC pause ทำให้ทับกับเจ้าของใหม่
+            if (nodeId.equals(owner)) remaining -= heartbeatMillis;
+            return new Lease(rs.getLong("event_id"), owner, rs.getString("base_url"),
+                    rs.getLong("epoch"), now + remaining);
+        };
+        Map<Long, Lease> fresh = new HashMap<>();
+        for (Lease l : jdbc.query(LEASES_SQL, mapper)) fresh.put(l.eventId(), l);
+
+        Set<Long> gained = new HashSet<>();
+        fresh.forEach((eventId, l) -> {
+            Lease before = leases.get(eventId);
+            boolean wasMine = before != null && nodeId.equals(before.nodeId()) && before.epoch() == l.epoch();
+            if (nodeId.equals(l.nodeId()) && !wasMine) gained.add(eventId);
+        });
+        Set<Long> lost = new HashSet<>();
+        leases.forEach((eventId, before) -> {
+            Lease after = fresh.get(eventId);
+            if (nodeId.equals(before.nodeId()) && (after == null || !nodeId.equals(after.nodeId()))) lost.add(eventId);
+        });
+        // เติม state ก่อนประกาศ lease ใหม่ → route() ยังไม่ตอบ LOCAL จนกว่าจะ reconcile เสร็จ (ไม่มีการขายก่อน)
+        if (!gained.isEmpty()) onAcquired(gained);
+        leases = Map.copyOf(fresh);
+        if (!lost.isEmpty()) seatLocks.dropLockStore(lost);
+    }
+
+    /** state ใน memory ของอีเวนต์ที่เพิ่งได้มา อาจค้างจากรอบก่อน → เติมใหม่จาก DB (เฉพาะอีเวนต์เหล่านั้น) */
+    private void onAcquired(Set<Long> eventIds) {
+        acquired.addAndGet(eventIds.size());
+        log.info("📌 Node {} now owns events {}", nodeId, eventIds);
+        seatLocks.rebuildLockStore(eventIds);
+        standing.reconcile(eventIds);
+    }
+
+    /** ปิด node อย่างสุภาพ : ปล่อย lease + ลบ heartbeat → node อื่นรับต่อได้ทันทีไม่ต้องรอหมดอายุ */
+    @PreDestroy
+    public void resign() {
+        if (!enabled) return;
+        try {
+            jdbc.update("DELETE FROM event_leases WHERE node_id = ?", nodeId);
+            jdbc.update("DELETE FROM backend_nodes WHERE node_id = ?", nodeId);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not release event leases: {}", e.getMessage());
+        }
+        leases = Map.of();
+    }
+
+    /* ==================== RENDEZVOUS HASHING ==================== */
+
+    /** node ที่ weight(node, event) สูงสุด (เสมอกัน → node_id น้อยกว่า) */
+    static String ownerFor(long eventId, Collection<String> nodes) {
+        String best = null;
+        long bestWeight = 0;
+        for (String n : nodes) {
+            long w = mix(fnv64(n) ^ (eventId * 0x9E3779B97F4A7C15L));
+            if (best == null || Long.compareUnsigned(w, bestWeight) > 0
+                    || (w == bestWeight && n.compareTo(best) < 0)) {
+                best = n;
+                bestWeight = w;
+            }
+        }
+        return best;
+    }
+
+    private static long fnv64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** app.ownership.node-id → HOSTNAME (ชื่อ pod) → สุ่มครั้งเดียวต่อ process (ใช้ร่วมกับ ClusterJobCoordinator) */
+    static String resolveNodeId(String configured) {
+        if (configured != null && !configured.isBlank()) return configured.trim();
+        String host = System.getenv("HOSTNAME");
+        return host == null || host.isBlank() ? RANDOM_NODE_ID : host;
+    }
+
+    private static String localAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (Exception e) {
+            return "localhost";
+        }
+    }
+
+    /* ==================== METRICS ==================== */
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ownership.events.owned", this,
+                        s -> s.leases.values().stream().filter(l -> s.nodeId.equals(l.nodeId())).count())
+                .description("On-sale events whose lease this node holds")
+                .register(registry);
+        Gauge.builder("ownership.nodes.live", this, s -> s.liveNodes)
+                .description("Backend nodes with a fresh heartbeat")
+                .register(registry);
+        FunctionCounter.builder("ownership.events.acquired", acquired, AtomicLong::get)
+                .description("Event leases taken over by this node")
+                .register(registry);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.devops.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ============================================================
+ *  GradientLimit (ขีดจำกัด request พร้อมกันที่ปรับตาม latency)
+ * ============================================================
+ * ✅ เก็บ RTT สองระดับ : short (EWMA เร็ว ~10 ตัวล่าสุด) / long (EWMA ช้า ~600 ตัว = ค่าปกติของระบบ)
+ *    gradient = clamp(tolerance * long / short, 0.5, 1.0)
+ *      - short ไม่เกิน tolerance เท่าของ long → 1.0 → limit โตได้ทีละ ~sqrt(limit) (queue allowance)
+ *      - DB ช้าลง short พุ่ง → gradient < 1 → limit หดก่อนที่ thread จะไปกองรอ connection-timeout
+ * ✅ inflight ไม่ถึงครึ่งของ limit → ไม่ขยาย limit (ยังไม่ได้ลองใช้จริง)
+ * ✅ request ล้ม / timeout (dropped) → ลด limit 10% ทันที
+ * ✅ long ค้างสูงกว่า short มาก (หลังช่วงช้ายาว ๆ) → ค่อย ๆ ลด long ลงให้กลับมาสะท้อนค่าปกติ
+ * ============================================================
+ */
+public class GradientLimit {
+
+    private static final double SHORT_ALPHA = 0.2;
+    private static final double LONG_ALPHA = 1.0 / 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private volatile double lastGradient = 1.0;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        this.limit = clamp(initialLimit);
+    }
+
+    /** @param cap สัดส่วนของ limit ที่ยอมให้ใช้ (1.0 = เต็ม) */
+    public boolean tryAcquire(double cap) {
+        int allowed = Math.max(minLimit, (int) (limit() * cap));
+        while (true) {
+            int now = inflight.get();
+            if (now >= allowed) return false;
+            if (inflight.compareAndSet(now, now + 1)) return true;
+        }
+    }
+
+    /**
+     * @param rttNanos เวลาที่ request ใช้
+     * @param dropped  request ล้มเพราะระบบ (5xx / timeout) → นับเป็นสัญญาณ overload
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int before = inflight.getAndDecrement();
+        onSample(rttNanos, before, dropped);
+    }
+
+    synchronized void onSample(long rttNanos, int inflightAtSample, boolean dropped) {
+        if (dropped) {
+            limit = clamp(limit * 0.9);
+            lastGradient = 0.9;
+            return;
+        }
+        double rtt = Math.max(1, rttNanos);
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) * SHORT_ALPHA;
+            longRtt += (rtt - longRtt) * LONG_ALPHA;
+        }
+        if (longRtt / shortRtt > 2) longRtt *= 0.95;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        lastGradient = gradient;
+        if (gradient >= 1.0 && inflightAtSample < limit / 2) return;
+
+        double queue = Math.sqrt(limit);
+        double next = limit * gradient + queue;
+        limit = clamp(limit * (1 - SMOOTHING) + next * SMOOTHING);
+    }
+
+    private double clamp(double v) {
+        return Math.max(minLimit, Math.min(maxLimit, v));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    /** latency กำลังขึ้น / เพิ่งมี request ล้ม */
+    public boolean congested() {
+        return lastGradient < 1.0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  GuestClaimQueue
+ * ============================================================
+ * ✅ enqueue(userId, email) : เรียกจาก login/signup — INSERT งานลง guest_claim_jobs
+ *    เฉพาะเมื่อมีใบจอง guest ที่ยังไม่ถูกเคลมของ email นี้ (EXISTS ใช้ index lower(guest_email))
+ *    → เวลา login ไม่ขึ้นกับจำนวนใบจอง guest
+ * ✅ processBatch() : ทุก app.guest-claim.poll-ms หยิบงานทีละ batch ด้วย FOR UPDATE SKIP LOCKED
+ *    (หลาย instance รันพร้อมกันได้ ไม่แย่งงานกัน) แล้วเรียก GuestClaimService ทีละงาน
+ * ✅ ล้มเหลว → retry แบบ backoff ; เกิน max-attempts → FAILED
+ *    ถ้ามีงาน PENDING ของ (user, email) เดียวกันเข้าคิวระหว่างนั้น → ปิดแถวนี้เป็น DONE ให้งานนั้น retry แทน
+ * ✅ งาน RUNNING ที่ค้างนานเกิน stale-minutes (instance ตายกลางทาง) ถูกหยิบใหม่ได้
+ *    (claimAllByEmail เคลมเฉพาะแถวที่ user_id IS NULL → ทำซ้ำได้ปลอดภัย)
+ * ✅ retention : ลบงาน DONE / FAILED ที่จบเกิน app.guest-claim.retention-days (ทีละ chunk, node เดียวต่อรอบ)
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class GuestClaimQueue {
+
+    static final String PURGE_JOB = "guest-claim-purge";
+    static final int PURGE_CHUNK = 5000;
+
+    private final JdbcTemplate jdbc;
+    private final GuestClaimService guestClaimService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int staleMinutes;
+    private final ClusterJobCoordinator jobs;
+    private final int retentionDays;
+
+    public GuestClaimQueue(JdbcTemplate jdbc, GuestClaimService guestClaimService,
+                           int batchSize, int maxAttempts, int staleMinutes) {
+        this(jdbc, guestClaimService, batchSize, maxAttempts, staleMinutes, ClusterJobCoordinator.uncoordinated(), 7);
+    }
+
+    @Autowired
+    public GuestClaimQueue(JdbcTemplate jdbc,
+                           GuestClaimService guestClaimService,
+                           @Value("${app.guest-claim.batch-size:50}") int batchSize,
+                           @Value("${app.guest-claim.max-attempts:5}") int maxAttempts,
+                           @Value("${app.guest-claim.stale-minutes:5}") int staleMinutes,
+                           ClusterJobCoordinator jobs,
+                           @Value("${app.guest-claim.retention-days:7}") int retentionDays) {
+        this.jdbc = jdbc;
+        this.guestClaimService = guestClaimService;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.staleMinutes = Math.max(1, staleMinutes);
+        this.jobs = jobs;
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    /**
+     * ✅ ใส่งานเคลมใบจอง guest ลงคิว (ไม่เคลมตรงนี้)
+     * @return true ถ้ามีงานใหม่เข้าคิว
+     */
+    public boolean enqueue(Long userId, String email) {
+        if (userId == null || email == null || email.isBlank()) return false;
+        String e = email.trim();
+        int n = jdbc.update("""
+                INSERT INTO guest_claim_jobs (user_id, email)
+                SELECT ?, ?
+                 WHERE EXISTS (
+                       SELECT 1 FROM reserved
+                        WHERE user_id IS NULL
+                          AND created_as_guest = TRUE
+                          AND lower(guest_email) = lower(?)
+                 )
+                ON CONFLICT (user_id, lower(email)) WHERE status = 'PENDING' DO NOTHING
+                """, userId, e, e);
+        return n > 0;
+    }
+
+    /** ✅ worker: หยิบงานทีละ batch แล้วเคลมใบจอง — คืนจำนวนงานที่ทำสำเร็จ */
+    @Scheduled(fixedDelayString = "${app.guest-claim.poll-ms:2000}")
+    public int processBatch() {
+        return WorkloadContext.call(WorkloadClass.BATCH, this::claimBatch);
+    }
+
+    private int claimBatch() {
+        List<Map<String, Object>> jobs;
+        try {
+            // UPDATE ... RETURNING คำสั่งเดียว = จองงานแบบ atomic (SKIP LOCKED กันชนกับ instance อื่น)
+            jobs = jdbc.queryForList("""
+                    UPDATE guest_claim_jobs
+                       SET status = 'RUNNING', locked_at = NOW(), attempts = attempts + 1
+                     WHERE job_id IN (
+                           SELECT job_id FROM guest_claim_jobs
+                            WHERE (status = 'PENDING' AND next_attempt_at <= NOW())
+                               OR (status = 'RUNNING' AND locked_at < NOW() - make_interval(mins => ?))
+                            ORDER BY job_id
+                            LIMIT ?
+                            FOR UPDATE SKIP LOCKED
+                     )
+                    RETURNING job_id, user_id, email, attempts
+                    """, staleMinutes, batchSize);
+        } catch (Exception e) {
+            log.warn("⚠️ GuestClaimQueue poll failed: {}", e.getMessage());
+            return 0;
+        }
+
+        int done = 0;
+        for (Map<String, Object> job : jobs) {
+            long jobId = ((Number) job.get("job_id")).longValue();
+            long userId = ((Number) job.get("user_id")).longValue();
+            String email = (String) job.get("email");
+            int attempts = ((Number) job.get("attempts")).intValue();
+            try {
+                int claimed = guestClaimService.linkGuestReservationsToUser(userId, email);
+                jdbc.update("""
+                        UPDATE guest_claim_jobs
+                           SET status = 'DONE', claimed_count = ?, finished_at = NOW(), last_error = NULL
+                         WHERE job_id = ?
+                        """, claimed, jobId);
+                done++;
+            } catch (Exception e) {
+                fail(jobId, attempts, e);
+            }
+        }
+        if (!jobs.isEmpty()) log.debug("🎟️ GuestClaimQueue processed {}/{} jobs", done, jobs.size());
+        return done;
+    }
+
+    private void fail(long jobId, int attempts, Exception e) {
+        boolean giveUp = attempts >= maxAttempts;
+        log.warn("⚠️ Guest claim job {} failed (attempt {}): {}", jobId, attempts, e.getMessage());
+        try {
+            // backoff: 2^attempts วินาที
+            jdbc.update("""
+                    UPDATE guest_claim_jobs
+                       SET status = ?, last_error = ?, locked_at = NULL,
+                           next_attempt_at = NOW() + make_interval(secs => ?),
+                           finished_at = CASE WHEN ? THEN NOW() ELSE NULL END
+                     WHERE job_id = ?
+                    """, giveUp ? "FAILED" : "PENDING", String.valueOf(e.getMessage()),
+                    (double) (1L << Math.min(attempts, 10)), giveUp, jobId);
+        } catch (DuplicateKeyException dup) {
+            // ระหว่างรันมีงาน PENDING ของ (user, email) เดียวกันเข้าคิวแล้ว → งานนั้นเคลมแทน ปิดแถวนี้
+            supersede(jobId, e);
+        } catch (Exception ex) {
+            // ปล่อยไว้เป็น RUNNING → จะถูกหยิบใหม่เมื่อค้างเกิน stale-minutes
+            log.warn("⚠️ Could not record failure of guest claim job {}: {}", jobId, ex.getMessage());
+        }
+    }
+
+    private void supersede(long jobId, Exception e) {
+        try {
+            jdbc.update("""
+                    UPDATE guest_claim_jobs
+                       SET status = 'DONE', claimed_count = 0, locked_at = NULL, finished_at = NOW(),
+                           last_error = ?
+                     WHERE job_id = ?
+                    """, "superseded by pending job: " + e.getMessage(), jobId);
+        } catch (Exception ex) {
+            log.warn("⚠️ Could not close superseded guest claim job {}: {}", jobId, ex.getMessage());
+        }
+    }
+
+    /* ==================== RETENTION ==================== */
+
+    @Scheduled(fixedRate = 3_600_000, initialDelay = 60_000)
+    public void purgeFinished() {
+        jobs.run(PURGE_JOB, Duration.ofHours(1), Duration.ofMinutes(10), this::purgeOld);
+    }
+
+    /** ลบงานที่จบแล้ว (DONE / FAILED) เก่ากว่า retention ทีละ chunk */
+    int purgeOld() {
+        int total = 0;
+        int n;
+        do {
+            n = jdbc.update("""
+                    DELETE FROM guest_claim_jobs
+                     WHERE job_id IN (
+                           SELECT job_id FROM guest_claim_jobs
+                            WHERE status IN ('DONE', 'FAILED')
+                              AND finished_at < NOW() - make_interval(days => ?)
+                            LIMIT ?
+                     )
+                    """, retentionDays, PURGE_CHUNK);
+            total += n;
+        } while (n >= PURGE_CHUNK);
+        if (total > 0) log.info("🧹 GuestClaimQueue retention purged {} jobs", total);
+        return total;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.devops.service;
+
+import com.example.devops.model.Organizer;
+import com.example.devops.model.User;
+import com.example.devops.repo.OrganizerRepo;
+import com.example.devops.repo.UserRepository;
+import com.example.devops.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ============================================================
+ *  IdentityCache
+ * ============================================================
+ * ✅ cache เล็ก ๆ : username/email (lower-case) → (ประเภทบัญชี, id)
+ * ✅ ใช้กับ token รุ่นเก่าที่ยังไม่มี claim "uid" หรือ path ที่มีแค่ชื่อ
+ * ✅ เก็บเฉพาะผลที่หาเจอ (ไม่ cache ค่าว่าง) — signup ใหม่จึงไม่ต้อง invalidate
+ * ✅ write-invalidated : ทุกที่ที่แก้ username/email ต้อง publish ผ่าน CacheInvalidationBus (ชื่อ NAME)
+ *    → ทุก node evict key เดียวกัน (node เดียว / ปิด bus = evict ในเครื่องอย่างเดียว)
+ * ✅ มีขอบเขต: เกิน maxEntries จะล้างทั้งก้อน (id ไม่เปลี่ยน เติมกลับได้ถูก ๆ)
+ * ============================================================
+ */
+@Service
+public class IdentityCache implements InvalidatableCache {
+
+    public static final String NAME = "identity";
+
+    public record Identity(String accountType, Long id) {
+        public boolean isUser() { return AuthenticatedUser.ACCOUNT_USER.equals(accountType); }
+        public boolean isOrganizer() { return AuthenticatedUser.ACCOUNT_ORGANIZER.equals(accountType); }
+    }
+
+    private final UserRepository userRepo;
+    private final OrganizerRepo organizerRepo;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Identity> byKey = new ConcurrentHashMap<>();
+
+    public IdentityCache(UserRepository userRepo,
+                         OrganizerRepo organizerRepo,
+                         @Value("${app.identity-cache.max-entries:50000}") int maxEntries) {
+        this.userRepo = userRepo;
+        this.organizerRepo = organizerRepo;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** หา identity จาก username หรือ email (users ก่อน แล้วค่อย organizers) */
+    public Optional<Identity> resolve(String usernameOrEmail) {
+        String key = normalize(usernameOrEmail);
+        if (key == null) return Optional.empty();
+
+        Identity hit = byKey.get(key);
+        if (hit != null) return Optional.of(hit);
+
+        Optional<User> u = userRepo.findByUsernameIgnoreCase(key);
+        if (u.isEmpty()) u = userRepo.findByEmailIgnoreCase(key);
+        if (u.isPresent() && u.get().getId() != null) {
+            User user = u.get();
+            return Optional.of(remember(new Identity(AuthenticatedUser.ACCOUNT_USER, user.getId()),
+                    key, user.getUsername(), user.getEmail()));
+        }
+
+        Optional<Organizer> o = organizerRepo.findByUsernameIgnoreCase(key);
+        if (o.isEmpty()) o = organizerRepo.findByEmailIgnoreCase(key);
+        if (o.isPresent() && o.get().getId() != null) {
+            Organizer org = o.get();
+            return Optional.of(remember(new Identity(AuthenticatedUser.ACCOUNT_ORGANIZER, org.getId()),
+                    key, org.getUsername(), org.getEmail()));
+        }
+        return Optional.empty();
+    }
+
+    /** user_id จาก username/email (null ถ้าไม่ใช่บัญชี user) */
+    public Long findUserId(String usernameOrEmail) {
+        return resolve(usernameOrEmail).filter(Identity::isUser).map(Identity::id).orElse(null);
+    }
+
+    /** ลบ key ที่เกี่ยวข้องเมื่อ username/email ถูกแก้ */
+    public void evict(String... keys) {
+        if (keys == null) return;
+        for (String k : keys) {
+            String n = normalize(k);
+            if (n != null) byKey.remove(n);
+        }
+    }
+
+    public void evictAll() {
+        byKey.clear();
+    }
+
+    @Override
+    public String cacheName() {
+        return NAME;
+    }
+
+    @Override
+    public void invalidate(String key, long version) {
+        evict(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        evictAll();
+    }
+
+    int size() {
+        return byKey.size();
+    }
+
+    private Identity remember(Identity id, String... keys) {
+        if (byKey.size() >= maxEntries) byKey.clear();
+        for (String k : keys) {
+            String n = normalize(k);
+            if (n != null) byKey.put(n, id);
+        }
+        return id;
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        return t.isEmpty() ? null : t.toLowerCase(Locale.ROOT);
+    }
+}
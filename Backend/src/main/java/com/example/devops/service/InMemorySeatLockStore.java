@@ -0,0 +1,197 @@
+package com.example.devops.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ============================================================
+ *  InMemorySeatLockStore (app.seats.lock-store=memory)
+ * ============================================================
+ * ✅ lock อยู่ใน ConcurrentHashMap (seat_id → Hold) : compute ต่อที่นั่งเป็น atomic ไม่แตะ DB เลย
+ * ✅ ผูกกับ transaction ของผู้เรียกเหมือน seat_locks :
+ *    - lock แล้ว rollback → คืนค่าเดิมของที่นั่ง (afterCompletion)
+ *    - unlock ใน transaction → ปลดจริงหลัง commit
+ * ✅ ใช้ได้เฉพาะ deploy instance เดียว ; restart → rebuild จาก reserved_seats (PENDING ของใบจอง RESERVED)
+ * ============================================================
+ */
+public class InMemorySeatLockStore implements SeatLockStore {
+
+    /** lock หนึ่งที่นั่ง ; identity ของ object ใช้แยก "lock ครั้งนี้" ตอน rollback */
+    record Hold(Long eventId, Long userId, long expiresAtMillis) {
+        boolean live(long now) {
+            return expiresAtMillis > now;
+        }
+    }
+
+    /** lock ของใบจองที่ยังรอจ่าย (ใช้ rebuild store ที่ไม่อยู่ใน DB) ; ? = hold minutes [, event ids] */
+    static final String PENDING_HOLDS_SQL = """
+            SELECT rs.seat_id, r.event_id, r.user_id,
+                   r.registration_datetime + make_interval(mins => ?) AS expires_at
+              FROM reserved_seats rs
+              JOIN reserved r ON r.reserved_id = rs.reserved_id
+             WHERE UPPER(COALESCE(r.payment_status, '')) = 'RESERVED'
+               AND rs.seat_status = 'PENDING'%s
+            """;
+
+    /** eventIds = null → ทุกอีเวนต์ */
+    static void queryPendingHolds(JdbcTemplate jdbc, int holdMinutes, Collection<Long> eventIds, RowCallbackHandler rch) {
+        String sql = PENDING_HOLDS_SQL.formatted(eventIds == null ? "" : "\n               AND r.event_id = ANY (?)");
+        jdbc.query(sql, ps -> {
+            ps.setInt(1, holdMinutes);
+            if (eventIds != null) ps.setArray(2, ps.getConnection().createArrayOf("BIGINT", eventIds.toArray()));
+        }, rch);
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ConcurrentHashMap<Long, Hold> holds = new ConcurrentHashMap<>();
+
+    public InMemorySeatLockStore(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public boolean sharedWithSql() {
+        return false;
+    }
+
+    @Override
+    public List<Long> lock(Long eventId, Long userId, List<Long> seatIds, Instant expiresAt) {
+        if (seatIds == null || seatIds.isEmpty()) return List.of();
+        long now = System.currentTimeMillis();
+        Hold mine = new Hold(eventId, userId, expiresAt.toEpochMilli());
+        List<Long> got = new ArrayList<>(seatIds.size());
+        Map<Long, Hold> previous = new HashMap<>();
+        for (Long seatId : seatIds) {
+            Hold[] before = new Hold[1];
+            Hold after = holds.compute(seatId, (id, cur) -> {
+                before[0] = cur;
+                boolean free = cur == null || !cur.live(now) || Objects.equals(cur.userId(), userId);
+                return free ? mine : cur;
+            });
+            if (after == mine) {
+                got.add(seatId);
+                previous.put(seatId, before[0]);
+            }
+        }
+        if (!got.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) return;
+                    previous.forEach((seatId, prev) -> holds.computeIfPresent(seatId,
+                            (id, cur) -> cur == mine ? prev : cur));
+                }
+            });
+        }
+        return got;
+    }
+
+    @Override
+    public int unlock(Long userId, List<Long> seatIds) {
+        if (seatIds == null || seatIds.isEmpty()) return 0;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(seatIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(userId, ids);
+                }
+            });
+            return (int) seatIds.stream().filter(id -> heldBy(id, userId)).count();
+        }
+        return release(userId, seatIds);
+    }
+
+    private int release(Long userId, List<Long> seatIds) {
+        int n = 0;
+        for (Long seatId : seatIds) {
+            Hold cur = holds.get(seatId);
+            if (cur != null && Objects.equals(cur.userId(), userId) && holds.remove(seatId, cur)) n++;
+        }
+        return n;
+    }
+
+    private boolean heldBy(Long seatId, Long userId) {
+        Hold cur = holds.get(seatId);
+        return cur != null && cur.live(System.currentTimeMillis()) && Objects.equals(cur.userId(), userId);
+    }
+
+    @Override
+    public Map<Long, String> lockedBy(List<Long> seatIds) {
+        Map<Long, String> out = new HashMap<>();
+        if (seatIds == null) return out;
+        long now = System.currentTimeMillis();
+        for (Long seatId : seatIds) {
+            Hold h = holds.get(seatId);
+            if (h != null && h.live(now)) out.put(seatId, h.userId() == null ? "SYSTEM" : "USER_" + h.userId());
+        }
+        return out;
+    }
+
+    @Override
+    public List<Long> lockedSeatIds(Long eventId) {
+        long now = System.currentTimeMillis();
+        List<Long> out = new ArrayList<>();
+        holds.forEach((seatId, h) -> {
+            if (h.live(now) && Objects.equals(h.eventId(), eventId)) out.add(seatId);
+        });
+        return out;
+    }
+
+    @Override
+    public List<Long> expire() {
+        long now = System.currentTimeMillis();
+        List<Long> expired = new ArrayList<>();
+        holds.forEach((seatId, h) -> {
+            if (!h.live(now) && holds.remove(seatId, h)) expired.add(seatId);
+        });
+        return expired;
+    }
+
+    @Override
+    public int rebuild(int holdMinutes) {
+        return load(holdMinutes, null);
+    }
+
+    @Override
+    public int rebuild(int holdMinutes, Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) return 0;
+        drop(eventIds);
+        return load(holdMinutes, eventIds);
+    }
+
+    private int load(int holdMinutes, Collection<Long> eventIds) {
+        int[] n = {0};
+        queryPendingHolds(jdbc, holdMinutes, eventIds, rs -> {
+            long uid = rs.getLong("user_id");
+            Long userId = rs.wasNull() ? null : uid;
+            Timestamp exp = rs.getTimestamp("expires_at");
+            Hold h = new Hold(rs.getLong("event_id"), userId, exp == null ? 0 : exp.getTime());
+            if (holds.putIfAbsent(rs.getLong("seat_id"), h) == null) n[0]++;
+        });
+        return n[0];
+    }
+
+    @Override
+    public void drop(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) return;
+        holds.values().removeIf(h -> eventIds.contains(h.eventId()));
+    }
+}
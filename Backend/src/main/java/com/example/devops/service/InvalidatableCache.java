@@ -0,0 +1,16 @@
+package com.example.devops.service;
+
+/**
+ * cache ใน process ที่รับ invalidation จาก CacheInvalidationBus (ทุก node)
+ *   - cacheName() : ชื่อที่ writer ใช้ publish
+ *   - invalidate(key, version) : ทิ้ง key นี้ (หรือเทียบ version ถ้า cache เก็บ version ไว้)
+ *   - invalidateAll() : ทิ้งทั้งก้อน (resync ไม่รู้ว่าพลาดอะไรไป)
+ */
+public interface InvalidatableCache {
+
+    String cacheName();
+
+    void invalidate(String key, long version);
+
+    void invalidateAll();
+}
@@ -0,0 +1,169 @@
+package com.example.devops.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  JdbcSeatLockStore (seat_locks / seat_locks_unlogged)
+ * ============================================================
+ * ✅ lock ทั้งชุดใน statement เดียว : INSERT ... SELECT unnest(?) ON CONFLICT DO UPDATE
+ *    ทับได้เฉพาะ lock ที่ปลด/หมดอายุแล้ว หรือของ user เดิม ; RETURNING = ที่นั่งที่ได้จริง
+ * ✅ ตารางเดียวกันทั้งสองโหมด ต่างกันที่ชื่อ : table = seat_locks (durable), unlogged = seat_locks_unlogged
+ * ✅ rebuild : seat_locks ไม่ต้อง (รอด crash อยู่แล้ว) ; unlogged หลัง crash ว่าง → เติมจาก reserved_seats
+ * ============================================================
+ */
+public class JdbcSeatLockStore implements SeatLockStore {
+
+    public static final String TABLE = "seat_locks";
+    public static final String UNLOGGED = "seat_locks_unlogged";
+
+    private final JdbcTemplate jdbc;
+    private final String table;
+
+    public JdbcSeatLockStore(JdbcTemplate jdbc, String table) {
+        this.jdbc = jdbc;
+        this.table = table;
+    }
+
+    @Override
+    public String name() {
+        return sharedWithSql() ? "table" : "unlogged";
+    }
+
+    @Override
+    public boolean sharedWithSql() {
+        return TABLE.equals(table);
+    }
+
+    @Override
+    public List<Long> lock(Long eventId, Long userId, List<Long> seatIds, Instant expiresAt) {
+        if (seatIds == null || seatIds.isEmpty()) return List.of();
+        String sql = """
+                INSERT INTO %1$s (seat_id, event_id, user_id, locked_at, expires_at, status)
+                SELECT sid, ?, CAST(? AS BIGINT), NOW(), ?, 'LOCKED'
+                  FROM unnest(?) AS sid
+                ON CONFLICT (seat_id) DO UPDATE SET
+                    event_id   = EXCLUDED.event_id,
+                    user_id    = EXCLUDED.user_id,
+                    locked_at  = EXCLUDED.locked_at,
+                    expires_at = EXCLUDED.expires_at,
+                    status     = 'LOCKED'
+                 WHERE %1$s.status <> 'LOCKED'
+                    OR %1$s.expires_at <= NOW()
+                    OR %1$s.user_id IS NOT DISTINCT FROM EXCLUDED.user_id
+                RETURNING seat_id
+                """.formatted(table);
+        List<Long> got = jdbc.query(sql, ps -> {
+            ps.setLong(1, eventId);
+            if (userId == null) ps.setNull(2, Types.BIGINT); else ps.setLong(2, userId);
+            ps.setTimestamp(3, Timestamp.from(expiresAt));
+            ps.setArray(4, ps.getConnection().createArrayOf("BIGINT", seatIds.toArray()));
+        }, (rs, i) -> rs.getLong(1));
+        return seatIds.stream().filter(got::contains).toList();
+    }
+
+    @Override
+    public int unlock(Long userId, List<Long> seatIds) {
+        if (seatIds == null || seatIds.isEmpty()) return 0;
+        String sql = """
+                UPDATE %s
+                   SET status = 'UNLOCKED',
+                       expires_at = NOW()
+                 WHERE seat_id = ANY (?)
+                   AND status = 'LOCKED'
+                   AND user_id IS NOT DISTINCT FROM CAST(? AS BIGINT)
+                """.formatted(table);
+        return jdbc.update(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("BIGINT", seatIds.toArray()));
+            if (userId == null) ps.setNull(2, Types.BIGINT); else ps.setLong(2, userId);
+            return ps;
+        });
+    }
+
+    @Override
+    public Map<Long, String> lockedBy(List<Long> seatIds) {
+        Map<Long, String> out = new HashMap<>();
+        if (seatIds == null || seatIds.isEmpty()) return out;
+        jdbc.query("""
+                SELECT seat_id, user_id
+                  FROM %s
+                 WHERE seat_id = ANY (?)
+                   AND status = 'LOCKED'
+                   AND expires_at > NOW()
+                """.formatted(table),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", seatIds.toArray())),
+                rs -> {
+                    long uid = rs.getLong(2);
+                    boolean guest = rs.wasNull();
+                    out.put(rs.getLong(1), guest ? "SYSTEM" : "USER_" + uid);
+                });
+        return out;
+    }
+
+    @Override
+    public List<Long> lockedSeatIds(Long eventId) {
+        return jdbc.queryForList("""
+                SELECT seat_id
+                  FROM %s
+                 WHERE event_id = ?
+                   AND status = 'LOCKED'
+                   AND expires_at > NOW()
+                """.formatted(table), Long.class, eventId);
+    }
+
+    @Override
+    public List<Long> expire() {
+        return jdbc.queryForList("""
+                UPDATE %s
+                   SET status = 'EXPIRED'
+                 WHERE status = 'LOCKED'
+                   AND expires_at <= NOW()
+                RETURNING seat_id
+                """.formatted(table), Long.class);
+    }
+
+    @Override
+    public int rebuild(int holdMinutes) {
+        return load(holdMinutes, null);
+    }
+
+    /** ตารางแชร์ทุก node : lock ของอีเวนต์ไม่ค้างข้ามเจ้าของ → เติมเฉพาะที่ขาด (ไม่ลบของเดิม) */
+    @Override
+    public int rebuild(int holdMinutes, Collection<Long> eventIds) {
+        return eventIds.isEmpty() ? 0 : load(holdMinutes, eventIds);
+    }
+
+    private int load(int holdMinutes, Collection<Long> eventIds) {
+        if (sharedWithSql()) return 0;
+        String sql = """
+                INSERT INTO %s (seat_id, event_id, user_id, locked_at, expires_at, status)
+                SELECT rs.seat_id, r.event_id, r.user_id, r.registration_datetime,
+                       r.registration_datetime + make_interval(mins => ?), 'LOCKED'
+                  FROM reserved_seats rs
+                  JOIN reserved r ON r.reserved_id = rs.reserved_id
+                 WHERE UPPER(COALESCE(r.payment_status, '')) = 'RESERVED'
+                   AND rs.seat_status = 'PENDING'%s
+                ON CONFLICT (seat_id) DO NOTHING
+                """.formatted(table, eventIds == null ? "" : "\n                   AND r.event_id = ANY (?)");
+        return jdbc.update(con -> {
+            var ps = con.prepareStatement(sql);
+            ps.setInt(1, holdMinutes);
+            if (eventIds != null) ps.setArray(2, con.createArrayOf("BIGINT", eventIds.toArray()));
+            return ps;
+        });
+    }
+
+    /** lock อยู่ในตารางที่ทุก node เห็น → ไม่มีสำเนาค้างให้ทิ้ง */
+    @Override
+    public void drop(Collection<Long> eventIds) {
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  OutboxDispatcher
+ * ============================================================
+ * ✅ อ่าน outbox_events ทีละ batch แล้วส่งให้ OutboxHandler ทุกตัวที่ supports(eventType)
+ * ✅ at-least-once : แถวเป็น DONE หลัง handler ทุกตัวสำเร็จเท่านั้น ; ล้มเหลว → retry แบบ backoff
+ *    ครบ app.outbox.max-attempts → DEAD (เก็บ last_error ไว้ดู ; ไม่บล็อก aggregate อีกต่อไป)
+ * ✅ ordering ต่อ aggregate : หยิบเฉพาะ event ที่ "ไม่มี event ก่อนหน้าของ aggregate เดียวกันค้างอยู่"
+ *    → แต่ละ aggregate มีได้แค่ 1 event ต่อ batch และต้องส่งตามลำดับ event_id
+ * ✅ หลาย instance : จองแถวด้วย FOR UPDATE SKIP LOCKED + locked_until (lease) กันส่งซ้ำพร้อมกัน
+ * ✅ ตื่นเมื่อ OutboxPublisher commit (wakeUp) และ poll สำรองทุก app.outbox.poll-ms
+ * ✅ handler รันบน thread "outbox-dispatcher" ของตัวเอง ไม่ใช่ Tomcat thread
+ * ✅ retention : ลบแถว DONE เก่ากว่า app.outbox.retention.done-days และ DEAD เก่ากว่า dead-days
+ *    (ทีละ chunk, ชั่วโมงละครั้ง, node เดียวทั้ง cluster ผ่าน ClusterJobCoordinator)
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class OutboxDispatcher implements MeterBinder {
+
+    static final String PURGE_JOB = "outbox-purge";
+    static final int PURGE_CHUNK = 5000;
+
+    private final JdbcTemplate jdbc;
+    private final ObjectProvider<OutboxHandler> handlers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int leaseSeconds;
+    private final ClusterJobCoordinator jobs;
+    private final int doneRetentionDays;
+    private final int deadRetentionDays;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "outbox-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+
+    public OutboxDispatcher(JdbcTemplate jdbc, ObjectProvider<OutboxHandler> handlers,
+                            int batchSize, int maxAttempts, int leaseSeconds) {
+        this(jdbc, handlers, batchSize, maxAttempts, leaseSeconds, ClusterJobCoordinator.uncoordinated(), 7, 30);
+    }
+
+    @Autowired
+    public OutboxDispatcher(JdbcTemplate jdbc,
+                            ObjectProvider<OutboxHandler> handlers,
+                            @Value("${app.outbox.batch-size:100}") int batchSize,
+                            @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${app.outbox.lease-seconds:30}") int leaseSeconds,
+                            ClusterJobCoordinator jobs,
+                            @Value("${app.outbox.retention.done-days:7}") int doneRetentionDays,
+                            @Value("${app.outbox.retention.dead-days:30}") int deadRetentionDays) {
+        this.jdbc = jdbc;
+        this.handlers = handlers;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+        this.jobs = jobs;
+        this.doneRetentionDays = Math.max(1, doneRetentionDays);
+        this.deadRetentionDays = Math.max(1, deadRetentionDays);
+    }
+
+    /** ขอให้ drain outbox (รวมหลายคำขอเป็นรอบเดียว) */
+    public void wakeUp() {
+        if (drainRequested.compareAndSet(false, true)) {
+            try {
+                worker.execute(() -> WorkloadContext.run(WorkloadClass.BATCH, this::drain));
+            } catch (Exception e) {
+                drainRequested.set(false); // executor ปิดแล้ว (shutdown)
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:1000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    private void drain() {
+        drainRequested.set(false);
+        try {
+            // batch เต็ม = น่าจะมีค้างอีก → วนต่อทันที
+            while (dispatchBatch() >= batchSize) { /* continue */ }
+        } catch (Exception e) {
+            log.warn("⚠️ Outbox drain failed: {}", e.getMessage());
+        }
+    }
+
+    /** จองและส่ง event 1 batch — คืนจำนวน event ที่หยิบมา */
+    int dispatchBatch() {
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+                UPDATE outbox_events
+                   SET locked_until = NOW() + make_interval(secs => ?)
+                 WHERE event_id IN (
+                       SELECT e.event_id
+                         FROM outbox_events e
+                        WHERE e.status = 'PENDING'
+                          AND e.next_attempt_at <= NOW()
+                          AND (e.locked_until IS NULL OR e.locked_until < NOW())
+                          AND NOT EXISTS (
+                              SELECT 1 FROM outbox_events p
+                               WHERE p.aggregate_type = e.aggregate_type
+                                 AND p.aggregate_id   = e.aggregate_id
+                                 AND p.status = 'PENDING'
+                                 AND p.event_id < e.event_id
+                          )
+                        ORDER BY e.event_id
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                 )
+                RETURNING event_id, aggregate_type, aggregate_id, event_type,
+                          payload::text AS payload, created_at, attempts
+                """, (double) leaseSeconds, batchSize);
+        if (rows.isEmpty()) return 0;
+
+        List<OutboxEvent> events = new ArrayList<>(rows.size());
+        for (Map<String, Object> r : rows) events.add(toEvent(r));
+        events.sort(Comparator.comparingLong(OutboxEvent::eventId));
+
+        List<Object[]> done = new ArrayList<>();
+        for (OutboxEvent e : events) {
+            try {
+                deliver(e);
+                done.add(new Object[]{e.eventId()});
+            } catch (Exception ex) {
+                markFailed(e, ex);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            jdbc.batchUpdate("""
+                    UPDATE outbox_events
+                       SET status = 'DONE', dispatched_at = NOW(), locked_until = NULL
+                     WHERE event_id = ?
+                    """, done);
+            dispatched.addAndGet(done.size());
+        }
+        return rows.size();
+    }
+
+    private void deliver(OutboxEvent e) throws Exception {
+        for (OutboxHandler h : handlers.orderedStream().toList()) {
+            if (h.supports(e.eventType())) h.handle(e);
+        }
+    }
+
+    private void markFailed(OutboxEvent e, Exception ex) {
+        int attempts = e.attempts() + 1;
+        boolean giveUp = attempts >= maxAttempts;
+        failed.incrementAndGet();
+        if (giveUp) dead.incrementAndGet();
+        log.warn("⚠️ Outbox event {} ({}) failed, attempt {}{}: {}", e.eventId(), e.eventType(), attempts,
+                giveUp ? " → DEAD" : "", ex.getMessage());
+        try {
+            jdbc.update("""
+                    UPDATE outbox_events
+                       SET status = ?, attempts = ?, last_error = ?, locked_until = NULL,
+                           next_attempt_at = NOW() + make_interval(secs => ?)
+                     WHERE event_id = ?
+                    """, giveUp ? "DEAD" : "PENDING", attempts, String.valueOf(ex.getMessage()),
+                    (double) Math.min(300L, 1L << Math.min(attempts, 9)), e.eventId());
+        } catch (Exception dbEx) {
+            // lease หมดเมื่อไหร่ก็ถูกหยิบใหม่เอง
+            log.warn("⚠️ Could not record outbox failure for {}: {}", e.eventId(), dbEx.getMessage());
+        }
+    }
+
+    private OutboxEvent toEvent(Map<String, Object> r) {
+        Map<String, Object> payload;
+        try {
+            Object raw = r.get("payload");
+            payload = raw == null ? Map.of() : objectMapper.readValue(raw.toString(), new TypeReference<>() {});
+        } catch (Exception e) {
+            payload = Map.of();
+        }
+        Object created = r.get("created_at");
+        return new OutboxEvent(
+                ((Number) r.get("event_id")).longValue(),
+                (String) r.get("aggregate_type"),
+                ((Number) r.get("aggregate_id")).longValue(),
+                (String) r.get("event_type"),
+                payload,
+                created instanceof Timestamp ts ? ts.toInstant() : Instant.now(),
+                ((Number) r.get("attempts")).intValue());
+    }
+
+    /* ==================== RETENTION ==================== */
+
+    @Scheduled(fixedRate = 3_600_000, initialDelay = 60_000)
+    public void purgeDelivered() {
+        jobs.run(PURGE_JOB, Duration.ofHours(1), Duration.ofMinutes(10), this::purgeOld);
+    }
+
+    /** ลบ DONE / DEAD ที่เก่าเกิน retention ทีละ chunk (DEAD นับจาก created_at เพราะไม่มี dispatched_at) */
+    int purgeOld() {
+        int total = purgeChunks("""
+                DELETE FROM outbox_events
+                 WHERE event_id IN (
+                       SELECT event_id FROM outbox_events
+                        WHERE status = 'DONE'
+                          AND dispatched_at < NOW() - make_interval(days => ?)
+                        LIMIT ?
+                 )
+                """, doneRetentionDays);
+        total += purgeChunks("""
+                DELETE FROM outbox_events
+                 WHERE event_id IN (
+                       SELECT event_id FROM outbox_events
+                        WHERE status = 'DEAD'
+                          AND created_at < NOW() - make_interval(days => ?)
+                        LIMIT ?
+                 )
+                """, deadRetentionDays);
+        purged.addAndGet(total);
+        if (total > 0) log.info("🧹 Outbox retention purged {} rows", total);
+        return total;
+    }
+
+    private int purgeChunks(String sql, int days) {
+        int total = 0;
+        int n;
+        do {
+            n = jdbc.update(sql, days, PURGE_CHUNK);
+            total += n;
+        } while (n >= PURGE_CHUNK);
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("outbox.dispatched", dispatched, AtomicLong::get)
+                .description("Outbox events delivered to all handlers")
+                .register(registry);
+        FunctionCounter.builder("outbox.failed", failed, AtomicLong::get)
+                .description("Outbox delivery attempts that failed")
+                .register(registry);
+        FunctionCounter.builder("outbox.dead", dead, AtomicLong::get)
+                .description("Outbox events given up after max attempts")
+                .register(registry);
+        FunctionCounter.builder("outbox.purged", purged, AtomicLong::get)
+                .description("Delivered or dead outbox rows deleted by retention")
+                .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.devops.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * event ที่อ่านจาก outbox_events แล้วส่งให้ OutboxHandler
+ *
+ * @param eventId       ลำดับ global (BIGSERIAL) — ใช้เรียงภายใน aggregate เดียวกัน
+ * @param aggregateType เช่น "reservation"
+ * @param aggregateId   เช่น reserved_id
+ * @param eventType     เช่น ReservationCreated / ReservationPaid / ReservationCancelled
+ * @param payload       JSON ที่ parse แล้ว
+ * @param attempts      จำนวนครั้งที่พยายามส่ง (รวมครั้งนี้) — handler ต้อง idempotent
+ */
+public record OutboxEvent(long eventId,
+                          String aggregateType,
+                          long aggregateId,
+                          String eventType,
+                          Map<String, Object> payload,
+                          Instant createdAt,
+                          int attempts) {
+}
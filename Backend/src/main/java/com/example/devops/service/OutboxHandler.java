@@ -0,0 +1,13 @@
+package com.example.devops.service;
+
+/**
+ * handler ใน process ที่รับ event จาก OutboxDispatcher
+ * ✅ ส่งแบบ at-least-once → handle(...) ต้องทำซ้ำได้ (idempotent)
+ * ✅ โยน exception = ส่งไม่สำเร็จ → dispatcher retry แบบ backoff (event ถัดไปของ aggregate เดียวกันรอก่อน)
+ */
+public interface OutboxHandler {
+
+    boolean supports(String eventType);
+
+    void handle(OutboxEvent event) throws Exception;
+}
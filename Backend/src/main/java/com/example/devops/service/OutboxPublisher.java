@@ -0,0 +1,65 @@
+package com.example.devops.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  OutboxPublisher
+ * ============================================================
+ * ✅ publish(...) : INSERT แถวลง outbox_events ใน transaction ของผู้เรียก (Propagation.MANDATORY)
+ *    → event เกิดขึ้นก็ต่อเมื่อการจอง/จ่าย/ยกเลิก commit สำเร็จเท่านั้น
+ * ✅ หลัง commit ปลุก OutboxDispatcher ทันที (ไม่ต้องรอรอบ poll)
+ * ✅ งานหนัก (แจ้งเตือน / analytics / push seat map) ทำใน handler → ไม่อยู่ใน latency ของการซื้อ
+ * ============================================================
+ */
+@Service
+public class OutboxPublisher {
+
+    public static final String AGGREGATE_RESERVATION = "reservation";
+
+    public static final String RESERVATION_CREATED = "ReservationCreated";
+    public static final String RESERVATION_PAID = "ReservationPaid";
+    public static final String RESERVATION_CANCELLED = "ReservationCancelled";
+
+    private final JdbcTemplate jdbc;
+    private final OutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OutboxPublisher(JdbcTemplate jdbc, OutboxDispatcher dispatcher) {
+        this.jdbc = jdbc;
+        this.dispatcher = dispatcher;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, long aggregateId, String eventType, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload == null ? Map.of() : payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + e.getMessage(), e);
+        }
+
+        jdbc.update("""
+                INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload)
+                VALUES (?, ?, ?, CAST(? AS JSONB))
+                """, aggregateType, aggregateId, eventType, json);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  PasswordVerificationService
+ * ============================================================
+ * ✅ ย้าย BCrypt (passwordEncoder.matches) ออกจาก Tomcat thread ไปไว้ใน pool ของตัวเอง
+ *    → จำนวน BCrypt ที่กิน CPU พร้อมกันถูกจำกัดไว้ที่ app.auth.bcrypt.threads
+ * ✅ คิวมีขนาดจำกัด (app.auth.bcrypt.queue-capacity) — เต็มแล้วโยน Saturated ทันที
+ *    → controller ตอบ 429 + Retry-After แทนที่จะปล่อยให้ request กองกันจน reservation อด CPU
+ * ✅ รอผลไม่เกิน app.auth.bcrypt.wait-timeout-ms (หมดเวลา = Saturated เช่นกัน)
+ * ✅ export metrics:
+ *    auth.password.queue.depth / auth.password.active / auth.password.rejected
+ *    auth.login{outcome=success|invalid|throttled} (latency ทั้ง request)
+ * ============================================================
+ */
+@Service
+public class PasswordVerificationService implements MeterBinder {
+
+    /** pool/คิวเต็ม หรือรอเกินเวลา — ให้ผู้เรียกตอบ 429 */
+    public static class Saturated extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public Saturated(long retryAfterSeconds) {
+            super("Password verification is saturated, retry after " + retryAfterSeconds + "s");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_INVALID = "invalid";
+    public static final String OUTCOME_THROTTLED = "throttled";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+    private final long retryAfterSeconds;
+    private final AtomicLong rejected = new AtomicLong();
+    private final Map<String, Timer> loginTimers = new ConcurrentHashMap<>();
+
+    public PasswordVerificationService(PasswordEncoder passwordEncoder,
+                                       @Value("${app.auth.bcrypt.threads:0}") int threads,
+                                       @Value("${app.auth.bcrypt.queue-capacity:64}") int queueCapacity,
+                                       @Value("${app.auth.bcrypt.wait-timeout-ms:5000}") long waitTimeoutMs,
+                                       @Value("${app.auth.bcrypt.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        // 0 = ครึ่งหนึ่งของจำนวน core (เหลือ CPU ไว้ให้ reservation)
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    /**
+     * เทียบรหัสผ่านกับ hash บน pool ของ BCrypt
+     * @throws Saturated ถ้าคิวเต็มหรือรอผลเกิน wait-timeout
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) return false;
+
+        Future<Boolean> f;
+        try {
+            f = executor.submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new Saturated(retryAfterSeconds);
+        }
+
+        try {
+            return Boolean.TRUE.equals(f.get(waitTimeoutMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            rejected.incrementAndGet();
+            throw new Saturated(retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            f.cancel(true);
+            throw new Saturated(retryAfterSeconds);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** บันทึก latency ของ login ทั้ง request (ไม่ทำอะไรถ้ายังไม่ได้ bind registry) */
+    public void recordLogin(String outcome, long startNanos) {
+        Timer t = loginTimers.get(outcome);
+        if (t != null) t.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    long rejectedCount() {
+        return rejected.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password verifications waiting for a BCrypt worker")
+                .register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("BCrypt workers currently hashing")
+                .register(registry);
+        FunctionCounter.builder("auth.password.rejected", rejected, AtomicLong::get)
+                .description("Logins turned away with 429 because the BCrypt pool was saturated")
+                .register(registry);
+        for (String outcome : new String[]{OUTCOME_SUCCESS, OUTCOME_INVALID, OUTCOME_THROTTLED}) {
+            loginTimers.put(outcome, Timer.builder("auth.login")
+                    .tag("outcome", outcome)
+                    .description("End-to-end login latency")
+                    .register(registry));
+        }
+    }
+}
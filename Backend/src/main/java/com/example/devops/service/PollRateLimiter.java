@@ -0,0 +1,187 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ============================================================
+ *  PollRateLimiter (token bucket ต่อ client ต่อ endpoint)
+ * ============================================================
+ * ✅ policy ต่อ endpoint : app.poll-limit.<policy>.burst (ขนาดถัง) / .per-second (อัตราเติม)
+ * ✅ ถังหนึ่งใบ = AtomicLong เดียว (GCRA : เก็บ "เวลาที่ถังจะเต็มอีกครั้ง" แทนจำนวน token)
+ *    check = อ่าน + CAS ตัวเดียว : O(1) ไม่มี lock ; ผลเท่ากับ token bucket ทุกประการ
+ * ✅ map มีขอบเขต : ถังที่เต็มแล้ว (client เงียบไป) ถูกกวาดทิ้งทุก sweep-ms ;
+ *    client ใหม่เกิน max-clients → ใช้ถังรวม (overflow) ของ policy นั้นร่วมกัน
+ *    ถังรวมใหญ่กว่าถังปกติ overflow-factor เท่า (ทั้ง burst และอัตราเติม) → client ปกติหลายรายไม่แย่ง 10 token กัน
+ *    แต่ยังเป็นเพดานรวมที่ flood client ใหม่ ๆ ทะลุไม่ได้
+ * ✅ metrics : ratelimit.allowed / ratelimit.rejected (tag policy), ratelimit.clients
+ * ============================================================
+ */
+@Service
+public class PollRateLimiter implements MeterBinder {
+
+    /** ผลการตรวจ : remaining = token ที่เหลือ, resetNanos = อีกนานเท่าไรถังจะเต็ม / retryNanos = รอเท่าไรถึงมี token */
+    public record Decision(boolean allowed, int limit, int remaining, long resetNanos, long retryNanos) {
+
+        public long resetSeconds() {
+            return ceilSeconds(resetNanos);
+        }
+
+        public long retryAfterSeconds() {
+            return Math.max(1, ceilSeconds(retryNanos));
+        }
+
+        private static long ceilSeconds(long nanos) {
+            return (Math.max(0, nanos) + 999_999_999L) / 1_000_000_000L;
+        }
+    }
+
+    record Policy(String name, int burst, long intervalNanos) {
+        long capacityNanos() {
+            return intervalNanos * burst;
+        }
+    }
+
+    private static final String OVERFLOW = "~overflow";
+
+    private final Environment env;
+    private final boolean enabled;
+    private final int maxClients;
+    private final int overflowFactor;
+    private final LongSupplier clock;
+
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> allowed = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> rejected = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    @Autowired
+    public PollRateLimiter(Environment env,
+                           @Value("${app.poll-limit.enabled:true}") boolean enabled,
+                           @Value("${app.poll-limit.max-clients:100000}") int maxClients,
+                           @Value("${app.poll-limit.overflow-factor:100}") int overflowFactor) {
+        this(env, enabled, maxClients, overflowFactor, System::nanoTime);
+    }
+
+    PollRateLimiter(Environment env, boolean enabled, int maxClients, LongSupplier clock) {
+        this(env, enabled, maxClients, 100, clock);
+    }
+
+    PollRateLimiter(Environment env, boolean enabled, int maxClients, int overflowFactor, LongSupplier clock) {
+        this.env = env;
+        this.enabled = enabled;
+        this.maxClients = Math.max(1, maxClients);
+        this.overflowFactor = Math.max(1, overflowFactor);
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ==================== CHECK ==================== */
+
+    public Decision tryAcquire(String policyName, String client) {
+        Policy p = policy(policyName);
+        String key = p.name() + '|' + client;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                // map เต็ม : client ใหม่ใช้ถังรวมที่ขยายตาม overflow-factor
+                bucket = buckets.computeIfAbsent(p.name() + '|' + OVERFLOW, k -> new AtomicLong(Long.MIN_VALUE / 2));
+                p = overflow(p);
+            } else {
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE / 2));
+            }
+        }
+        long now = clock.getAsLong();
+        long cap = p.capacityNanos();
+        while (true) {
+            long fullAt = bucket.get();
+            // ถังเต็มที่เวลา fullAt ; ใช้ 1 token = เลื่อนออกไป interval
+            long next = Math.max(fullAt, now) + p.intervalNanos();
+            long debt = next - now;
+            if (debt > cap) {
+                counter(rejected, p.name()).incrementAndGet();
+                return new Decision(false, p.burst(), 0, Math.max(fullAt, now) - now, debt - cap);
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                counter(allowed, p.name()).incrementAndGet();
+                int remaining = (int) ((cap - debt) / p.intervalNanos());
+                return new Decision(true, p.burst(), remaining, debt, 0);
+            }
+        }
+    }
+
+    /** ถังรวมของ policy : burst × overflow-factor, เติมเร็วขึ้น overflow-factor เท่า (ชื่อ policy เดิม → metric เดิม) */
+    private Policy overflow(Policy p) {
+        return policies.computeIfAbsent(p.name() + '|' + OVERFLOW, k -> new Policy(p.name(),
+                (int) Math.min(Integer.MAX_VALUE, (long) p.burst() * overflowFactor),
+                Math.max(1, p.intervalNanos() / overflowFactor)));
+    }
+
+    Policy policy(String name) {
+        return policies.computeIfAbsent(name, n -> {
+            int burst = Math.max(1, env.getProperty("app.poll-limit." + n + ".burst", Integer.class, 10));
+            double perSecond = env.getProperty("app.poll-limit." + n + ".per-second", Double.class, 1.0);
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.001, perSecond));
+            bindPolicy(n);
+            return new Policy(n, burst, interval);
+        });
+    }
+
+    /* ==================== SWEEP ==================== */
+
+    /** ทิ้งถังที่เต็มแล้ว (ไม่มีผลต่อการตัดสิน : ถังใหม่ก็เริ่มจากเต็มเหมือนกัน) */
+    @Scheduled(fixedDelayString = "${app.poll-limit.sweep-ms:30000}")
+    public void sweep() {
+        long now = clock.getAsLong();
+        buckets.entrySet().removeIf(e -> e.getValue().get() <= now);
+    }
+
+    int clients() {
+        return buckets.size();
+    }
+
+    /* ==================== METRICS ==================== */
+
+    private static AtomicLong counter(Map<String, AtomicLong> m, String policy) {
+        return m.computeIfAbsent(policy, k -> new AtomicLong());
+    }
+
+    private void bindPolicy(String policy) {
+        MeterRegistry r = registry;
+        if (r == null) return;
+        FunctionCounter.builder("ratelimit.allowed", counter(allowed, policy), AtomicLong::get)
+                .tag("policy", policy)
+                .description("Polling requests admitted by the token bucket")
+                .register(r);
+        FunctionCounter.builder("ratelimit.rejected", counter(rejected, policy), AtomicLong::get)
+                .tag("policy", policy)
+                .description("Polling requests answered 429 by the token bucket")
+                .register(r);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        policies.values().stream().map(Policy::name).distinct().forEach(this::bindPolicy);
+        Gauge.builder("ratelimit.clients", buckets, Map::size)
+                .description("Client buckets currently tracked")
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.devops.service;
+
+import com.example.devops.config.Coalesced;
+import com.example.devops.model.EventsNam;
+import com.example.devops.repo.EventsNamRepository;
+import com.example.devops.repo.SeatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * ============================================================
+ *  PublicEventReads (query ร้อนของหน้าเลือกที่นั่ง ผ่าน single-flight)
+ * ============================================================
+ * ✅ เปิดขายแล้วคนนับพันโหลดหน้าเดียวกันพร้อมกัน → อีเวนต์เดียวกัน 1 query ต่อช่วงที่ยิงพร้อมกัน
+ * ✅ ผลแชร์ข้าม thread : List คืนแบบแก้ไม่ได้ ; EventsNam ใช้อ่านอย่างเดียว (ห้าม set / save)
+ * ✅ read(loader) : transaction readOnly เปิดเฉพาะตอน brownout เรียก loader จริง
+ *    → ตอบ snapshot เก่าไม่ต้องรอ connection จาก pool
+ * ============================================================
+ */
+@Service
+public class PublicEventReads {
+
+    private final EventsNamRepository eventsRepo;
+    private final SeatsRepository seatsRepo;
+
+    public PublicEventReads(EventsNamRepository eventsRepo, SeatsRepository seatsRepo) {
+        this.eventsRepo = eventsRepo;
+        this.seatsRepo = seatsRepo;
+    }
+
+    /** รัน loader ใน transaction readOnly (lazy field ของ entity โหลดได้ ; open-in-view ปิดอยู่) */
+    @Transactional(readOnly = true)
+    public <T> T read(Supplier<T> loader) {
+        return loader.get();
+    }
+
+    @Coalesced("event")
+    public Optional<EventsNam> event(Long eventId) {
+        return eventsRepo.findById(eventId);
+    }
+
+    @Coalesced("seats-taken")
+    public List<Long> takenSeatIds(Long eventId) {
+        return List.copyOf(seatsRepo.findPaidTakenSeatIdsByEvent(eventId));
+    }
+
+    @Coalesced("seats-locked")
+    public List<Long> lockedSeatIds(Long eventId) {
+        return List.copyOf(seatsRepo.findLockedSeatIdsByEvent(eventId));
+    }
+}
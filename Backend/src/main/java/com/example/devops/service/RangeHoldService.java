@@ -0,0 +1,191 @@
+package com.example.devops.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.Types;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * ============================================================
+ *  RangeHoldService (ล็อกที่นั่งติดกันเป็นช่วง)
+ * ============================================================
+ * ✅ การจองกลุ่มที่เป็นที่นั่งติดกันในแถวเดียว (>= app.seats.range-holds.min-seats)
+ *    → เขียน seat_range_holds 1 แถว (row_id, seat_from..seat_to) แทน seat_locks N แถว
+ * ✅ ช่วงทับกันกันด้วย EXCLUDE constraint (int4range + btree_gist) ; INSERT ... ON CONFLICT DO NOTHING
+ *    → ชน = ได้ 0 แถว ไม่ทำให้ transaction พัง
+ * ✅ กันชนกับ lock รายที่นั่ง : ทั้งสองทางล็อกแถว seats (FOR UPDATE เรียงตาม seat_id) ก่อนตรวจ
+ *    ZoneSeatClaimer (SKIP LOCKED) ข้ามที่นั่งที่ช่วงกำลังถือไว้เอง
+ * ✅ query occupancy / overlay / stats แตกช่วงเป็นที่นั่ง (seat_number BETWEEN seat_from AND seat_to)
+ * ✅ จ่าย/ยกเลิก → UNLOCKED ; หมดเวลา → EXPIRED + ยกเลิกใบจองที่ถือช่วง (แบบเดียวกับ SeatLockService)
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class RangeHoldService {
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final int minSeats;
+
+    public RangeHoldService(JdbcTemplate jdbc,
+                            @Value("${app.seats.range-holds.enabled:false}") boolean enabled,
+                            @Value("${app.seats.range-holds.min-seats:2}") int minSeats) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.minSeats = Math.max(1, minSeats);
+    }
+
+    /** ช่วงที่นั่งติดกันในแถวเดียว (seat_number 1-based ทั้งสองฝั่งรวม) */
+    public record SeatSpan(long zoneId, long rowId, int from, int to) {
+        public int size() { return to - from + 1; }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * seatIds เป็นที่นั่งติดกันในแถวเดียวและมากพอจะใช้ range hold หรือไม่
+     * @return empty = ใช้ lock รายที่นั่งตามเดิม
+     */
+    public Optional<SeatSpan> spanOf(List<Long> seatIds) {
+        if (!enabled || seatIds == null || seatIds.size() < minSeats) return Optional.empty();
+        List<long[]> groups = jdbc.query("""
+                SELECT r.zone_id, s.row_id, MIN(s.seat_number), MAX(s.seat_number), COUNT(DISTINCT s.seat_number)
+                  FROM seats s
+                  JOIN seat_rows r ON r.row_id = s.row_id
+                 WHERE s.seat_id = ANY (?)
+                 GROUP BY r.zone_id, s.row_id
+                """, ps -> {
+            Array array = ps.getConnection().createArrayOf("BIGINT", seatIds.toArray());
+            ps.setArray(1, array);
+        }, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)});
+        if (groups.size() != 1) return Optional.empty();
+        long[] g = groups.get(0);
+        boolean contiguous = g[4] == seatIds.size() && g[3] - g[2] + 1 == g[4];
+        return contiguous ? Optional.of(new SeatSpan(g[0], g[1], (int) g[2], (int) g[3])) : Optional.empty();
+    }
+
+    /**
+     * ล็อกทั้งช่วงใน transaction ของผู้เรียก
+     * @return hold_id หรือ null ถ้ามีที่นั่งในช่วงถูกจอง/ล็อกอยู่แล้ว
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Long hold(Long eventId, Long userId, SeatSpan span, int minutes) {
+        // 1) ล็อกแถว seats ของช่วง (ลำดับเดียวกับ lockSeats → ไม่ deadlock)
+        jdbc.query("""
+                SELECT seat_id FROM seats
+                 WHERE row_id = ? AND seat_number BETWEEN ? AND ?
+                 ORDER BY seat_id
+                   FOR UPDATE
+                """, (rs, i) -> rs.getLong(1), span.rowId(), span.from(), span.to());
+
+        // 2) ช่วงเก่าที่หมดเวลาแต่ยังไม่ถูกกวาด จะขวาง EXCLUDE → ปิดก่อน (พร้อมยกเลิกใบจองเจ้าของ)
+        cancelOwners(jdbc.queryForList("""
+                UPDATE seat_range_holds
+                   SET status = 'EXPIRED'
+                 WHERE row_id = ? AND status = 'LOCKED' AND expires_at <= NOW()
+                   AND seat_from <= ? AND seat_to >= ?
+                RETURNING reserved_id
+                """, Long.class, span.rowId(), span.to(), span.from()));
+
+        // 3) ที่นั่งในช่วงถูกจอง หรือถูกล็อกรายที่นั่งโดยคนอื่น
+        Integer busy = jdbc.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT COUNT(*)
+                      FROM seats s
+                     WHERE s.row_id = ? AND s.seat_number BETWEEN ? AND ?
+                       AND (EXISTS (SELECT 1 FROM reserved_seats rs
+                                     WHERE rs.seat_id = s.seat_id
+                                       AND rs.seat_status IN ('LOCKED','PENDING','CONFIRMED'))
+                         OR EXISTS (SELECT 1 FROM seat_locks sl
+                                     WHERE sl.seat_id = s.seat_id
+                                       AND sl.status = 'LOCKED'
+                                       AND sl.expires_at > NOW()
+                                       AND sl.user_id IS DISTINCT FROM ?))
+                    """);
+            ps.setLong(1, span.rowId());
+            ps.setInt(2, span.from());
+            ps.setInt(3, span.to());
+            if (userId == null) ps.setNull(4, Types.BIGINT); else ps.setLong(4, userId);
+            return ps;
+        }, rs -> rs.next() ? rs.getInt(1) : 0);
+        if (busy != null && busy > 0) return null;
+
+        // 4) เขียนช่วง ; ทับกับช่วงอื่นที่ยัง LOCKED → EXCLUDE → DO NOTHING
+        List<Long> ids = jdbc.queryForList("""
+                INSERT INTO seat_range_holds (event_id, zone_id, row_id, seat_from, seat_to, user_id, expires_at)
+                VALUES (?, ?, ?, ?, ?, CAST(? AS BIGINT), NOW() + make_interval(mins => ?))
+                ON CONFLICT DO NOTHING
+                RETURNING hold_id
+                """, Long.class, eventId, span.zoneId(), span.rowId(), span.from(), span.to(), userId, minutes);
+        if (ids.isEmpty()) return null;
+
+        log.info("🔒 Range hold {} row {} seats {}-{} ({} seats) for user {}",
+                ids.get(0), span.rowId(), span.from(), span.to(), span.size(), userId == null ? "GUEST(NULL)" : userId);
+        return ids.get(0);
+    }
+
+    /** ผูกช่วงกับใบจองที่เพิ่งสร้าง */
+    public void attach(Long holdId, Long reservedId) {
+        jdbc.update("UPDATE seat_range_holds SET reserved_id = ? WHERE hold_id = ?", reservedId, holdId);
+    }
+
+    /** ใบจองจ่ายแล้ว/ถูกยกเลิก → ปล่อยช่วง (occupancy หลังจากนี้มาจาก reserved_seats) */
+    public int release(Long reservedId) {
+        if (reservedId == null) return 0;
+        return jdbc.update("""
+                UPDATE seat_range_holds
+                   SET status = 'UNLOCKED', expires_at = NOW()
+                 WHERE reserved_id = ? AND status = 'LOCKED'
+                """, reservedId);
+    }
+
+    /** ช่วงที่หมดเวลา → EXPIRED และยกเลิกใบจองที่ยังไม่จ่าย */
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.seats.range-holds.expiry-ms:60000}")
+    public int expire() {
+        try {
+            List<Long> reservedIds = jdbc.queryForList("""
+                    UPDATE seat_range_holds
+                       SET status = 'EXPIRED'
+                     WHERE status = 'LOCKED' AND expires_at <= NOW()
+                    RETURNING reserved_id
+                    """, Long.class);
+            int cancelled = cancelOwners(reservedIds);
+            if (!reservedIds.isEmpty()) {
+                log.info("🧹 Range holds expired={}, cancelledReservations={}", reservedIds.size(), cancelled);
+            }
+            return reservedIds.size();
+        } catch (Exception e) {
+            log.error("❌ Range hold expiry failed: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /** ยกเลิกใบจองที่ยังไม่จ่ายของช่วงที่หมดเวลา (reserved_seats ถูกลบโดย SeatLockService รอบถัดไป) */
+    private int cancelOwners(List<Long> reservedIds) {
+        List<Long> owned = reservedIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (owned.isEmpty()) return 0;
+        return jdbc.update(con -> {
+            var ps = con.prepareStatement("""
+                    UPDATE reserved
+                       SET payment_status = 'CANCELLED',
+                           notes = 'Auto-cancelled due to timeout'
+                     WHERE UPPER(COALESCE(payment_status,'')) = 'RESERVED'
+                       AND reserved_id = ANY (?)
+                    """);
+            ps.setArray(1, con.createArrayOf("BIGINT", owned.toArray()));
+            return ps;
+        });
+    }
+}
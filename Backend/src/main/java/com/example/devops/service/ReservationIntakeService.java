@@ -0,0 +1,361 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import com.example.devops.dto.ReservationRequest;
+import com.example.devops.dto.ReservedResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  ReservationIntakeService (flash-sale mode)
+ * ============================================================
+ * ✅ เปิดด้วย app.reservations.intake.mode=batched (ค่าเริ่มต้น direct = จองทันทีแบบเดิม)
+ * ✅ submit(...) : ใส่คำขอลงคิวของอีเวนต์นั้น (bounded) แล้วคืน ticket ทันที → controller ตอบ 202
+ *    คิวเต็ม → Full (controller ตอบ 503 + Retry-After)
+ * ✅ worker ดึงคำขอของอีเวนต์เดียวกันทีละไม่เกิน batch-size (รอ linger-ms ให้ batch เต็มขึ้นได้)
+ *    แล้วเรียก ReservationService.createReservationBatch → 1 transaction ต่อ batch
+ *    ที่นั่งชนกันใน batch : คำขอที่เข้าคิวก่อนได้ไป (FIFO)
+ * ✅ batch ล้มทั้งก้อน (DB error) → fallback ทำทีละคำขอด้วย createReservation
+ * ✅ 1 อีเวนต์ drain ได้ทีละ worker เสมอ : lane ถูกสร้าง/เติม/ลบผ่าน lanes.compute (atomic ต่อ eventId)
+ *    → purge ลบ lane ได้เฉพาะตอนว่างและไม่มีคน drain ; submit ไม่มีทางใส่ลง lane ที่ถูกลบไปแล้ว
+ * ✅ fairness : drain ครบ fair-batches batch แล้วยังเหลือ → ต่อท้ายคิวของ worker (อีเวนต์อื่นได้คิวบ้าง)
+ * ✅ ผลลัพธ์เก็บใน ticket (memory) ให้ client poll ที่ GET /api/public/reservations/intake/{ticket}
+ *    ticket ที่จบแล้วถูกลบหลัง ticket-ttl-seconds
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class ReservationIntakeService implements MeterBinder {
+
+    public static final String MODE_BATCHED = "batched";
+
+    public enum Status { QUEUED, CONFIRMED, REJECTED, FAILED }
+
+    /** คิวเต็ม → ให้ client ลองใหม่ภายหลัง */
+    public static class Full extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public Full(int retryAfterSeconds) {
+            super("Reservation intake is full, retry later");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /** สถานะของคำขอ 1 รายการ (อ่านจาก thread ของ controller, เขียนจาก worker) */
+    public static final class Ticket {
+        private final String id;
+        private final Long eventId;
+        private volatile Status status = Status.QUEUED;
+        private volatile ReservedResponse reservation;
+        private volatile String message;
+        private volatile long completedAtMillis;
+
+        Ticket(String id, Long eventId) {
+            this.id = id;
+            this.eventId = eventId;
+        }
+
+        public String getId() { return id; }
+        public Long getEventId() { return eventId; }
+        public Status getStatus() { return status; }
+        public ReservedResponse getReservation() { return reservation; }
+        public String getMessage() { return message; }
+
+        void complete(Status s, ReservedResponse r, String msg) {
+            this.reservation = r;
+            this.message = msg;
+            this.completedAtMillis = System.currentTimeMillis();
+            this.status = s; // เขียนท้ายสุด: เห็น CONFIRMED = เห็น reservation แล้ว
+        }
+
+        public Map<String, Object> toBody() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("ticket", id);
+            m.put("eventId", eventId);
+            m.put("status", status.name());
+            if (reservation != null) m.put("reservation", reservation);
+            if (message != null) m.put("message", message);
+            return m;
+        }
+    }
+
+    private record Pending(Ticket ticket, Long userId, ReservationRequest request) {}
+
+    private static final class Lane {
+        final ArrayBlockingQueue<Pending> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private final ReservationService reservationService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final long lingerMillis;
+    private final long ticketTtlMillis;
+    private final int retryAfterSeconds;
+    private final int fairBatches;
+
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+
+    public ReservationIntakeService(ReservationService reservationService, String mode, int batchSize,
+                                    int queueCapacity, long lingerMillis, int workers,
+                                    long ticketTtlSeconds, int retryAfterSeconds) {
+        this(reservationService, mode, batchSize, queueCapacity, lingerMillis, workers,
+                ticketTtlSeconds, retryAfterSeconds, 4);
+    }
+
+    @Autowired
+    public ReservationIntakeService(ReservationService reservationService,
+                                    @Value("${app.reservations.intake.mode:direct}") String mode,
+                                    @Value("${app.reservations.intake.batch-size:50}") int batchSize,
+                                    @Value("${app.reservations.intake.queue-capacity:2000}") int queueCapacity,
+                                    @Value("${app.reservations.intake.linger-ms:5}") long lingerMillis,
+                                    @Value("${app.reservations.intake.workers:2}") int workers,
+                                    @Value("${app.reservations.intake.ticket-ttl-seconds:600}") long ticketTtlSeconds,
+                                    @Value("${app.reservations.intake.retry-after-seconds:2}") int retryAfterSeconds,
+                                    @Value("${app.reservations.intake.fair-batches:4}") int fairBatches) {
+        this.reservationService = reservationService;
+        this.fairBatches = Math.max(1, fairBatches);
+        this.enabled = MODE_BATCHED.equalsIgnoreCase(mode == null ? "" : mode.trim());
+        this.batchSize = Math.max(1, batchSize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.lingerMillis = Math.max(0, lingerMillis);
+        this.ticketTtlMillis = Math.max(1, ticketTtlSeconds) * 1000L;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "reservation-intake-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** ✅ รับคำขอเข้าคิว (ไม่แตะ DB) — คืน ticket ที่ใช้ poll ผลลัพธ์ */
+    public Ticket submit(Long userId, ReservationRequest req) {
+        Long eventId = req.getEventId();
+        Ticket t = new Ticket(UUID.randomUUID().toString(), eventId);
+        tickets.put(t.getId(), t);
+        queued.incrementAndGet();
+        // offer ภายใน compute : purgeExpired ลบ lane นี้แทรกระหว่างหยิบ lane กับใส่คำขอไม่ได้
+        Pending pending = new Pending(t, userId, req);
+        boolean[] accepted = new boolean[1];
+        Lane lane = lanes.compute(eventId, (k, l) -> {
+            Lane target = l != null ? l : new Lane(queueCapacity);
+            accepted[0] = target.queue.offer(pending);
+            return target;
+        });
+        if (!accepted[0]) {
+            tickets.remove(t.getId());
+            queued.decrementAndGet();
+            refused.incrementAndGet();
+            throw new Full(retryAfterSeconds);
+        }
+        schedule(eventId, lane);
+        return t;
+    }
+
+    public Optional<Ticket> find(String ticketId) {
+        return ticketId == null ? Optional.empty() : Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    /** ให้มี worker drain คิวของ event นี้ได้ครั้งละ 1 ตัว (รักษาลำดับ FIFO ต่อ event) */
+    private void schedule(Long eventId, Lane lane) {
+        if (lane.draining.compareAndSet(false, true)) {
+            try {
+                workers.execute(() -> drainAsPurchase(eventId, lane));
+            } catch (Exception e) {
+                lane.draining.set(false); // executor ปิดแล้ว (shutdown)
+            }
+        }
+    }
+
+    /** worker เป็นส่วนหนึ่งของการจอง → ใช้ pool / โควตาของ PURCHASE ไม่ใช่ค่า default PUBLIC_READ */
+    private void drainAsPurchase(Long eventId, Lane lane) {
+        WorkloadContext.run(WorkloadClass.PURCHASE, () -> drain(eventId, lane));
+    }
+
+    private void drain(Long eventId, Lane lane) {
+        boolean yielded = false;
+        try {
+            int turns = 0;
+            while (true) {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                lane.queue.drainTo(batch, batchSize);
+                if (!batch.isEmpty() && batch.size() < batchSize && lingerMillis > 0) {
+                    // รอให้คำขอที่ตามมาติดไปใน batch เดียวกัน
+                    Thread.sleep(lingerMillis);
+                    lane.queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.isEmpty()) break;
+                queued.addAndGet(-batch.size());
+                process(eventId, batch);
+                if (++turns >= fairBatches && !lane.queue.isEmpty()) {
+                    yielded = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (yielded) {
+                requeue(eventId, lane);
+            } else {
+                lane.draining.set(false);
+                // มีคำขอเข้ามาระหว่างปล่อย flag → drain ต่อ
+                if (!lane.queue.isEmpty()) schedule(eventId, lane);
+            }
+        }
+    }
+
+    /** ต่อท้ายคิว worker โดยยังถือ draining ไว้ (ยังเป็น drainer คนเดียวของ lane นี้) */
+    private void requeue(Long eventId, Lane lane) {
+        try {
+            workers.execute(() -> drainAsPurchase(eventId, lane));
+        } catch (Exception e) {
+            lane.draining.set(false); // executor ปิดแล้ว (shutdown)
+        }
+    }
+
+    void process(Long eventId, List<Pending> batch) {
+        batches.incrementAndGet();
+        List<ReservationService.BatchItem> items = new ArrayList<>(batch.size());
+        for (Pending p : batch) items.add(new ReservationService.BatchItem(p.userId(), p.request()));
+
+        List<ReservationService.BatchResult> results;
+        try {
+            results = reservationService.createReservationBatch(eventId, items);
+        } catch (Exception e) {
+            log.warn("⚠️ Reservation batch for event {} failed ({} requests), retrying one by one: {}",
+                    eventId, batch.size(), e.getMessage());
+            processOneByOne(batch);
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            ReservationService.BatchResult r = i < results.size() ? results.get(i) : null;
+            Ticket t = batch.get(i).ticket();
+            if (r != null && r.isSuccess()) {
+                t.complete(Status.CONFIRMED, r.reservation(), null);
+                confirmed.incrementAndGet();
+            } else {
+                t.complete(Status.REJECTED, null, r == null ? "No result" : r.error());
+                rejected.incrementAndGet();
+            }
+        }
+    }
+
+    private void processOneByOne(List<Pending> batch) {
+        for (Pending p : batch) {
+            try {
+                ReservedResponse r = reservationService.createReservation(p.userId(), p.request());
+                p.ticket().complete(Status.CONFIRMED, r, null);
+                confirmed.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                p.ticket().complete(Status.REJECTED, null, e.getMessage());
+                rejected.incrementAndGet();
+            } catch (Exception e) {
+                p.ticket().complete(Status.FAILED, null, "Reservation could not be processed, please try again");
+                rejected.incrementAndGet();
+                log.warn("⚠️ Reservation intake item failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** ลบ ticket ที่จบแล้วเกิน TTL + lane ที่ว่าง */
+    @Scheduled(fixedDelayString = "${app.reservations.intake.purge-ms:60000}")
+    public int purgeExpired() {
+        long cutoff = System.currentTimeMillis() - ticketTtlMillis;
+        int before = tickets.size();
+        tickets.values().removeIf(t -> t.getStatus() != Status.QUEUED && t.completedAtMillis < cutoff);
+        for (Long eventId : lanes.keySet()) {
+            // เช็คซ้ำภายใน compute (ล็อกเดียวกับ submit) ว่ายังว่างและไม่มีคน drain จริง
+            lanes.computeIfPresent(eventId, (k, l) -> l.queue.isEmpty() && !l.draining.get() ? null : l);
+        }
+        return before - tickets.size();
+    }
+
+    int laneCount() {
+        return lanes.size();
+    }
+
+    int queuedCount() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // ไม่รับงานใหม่ แต่ให้ batch ที่อยู่ในคิวแล้วทำให้จบ
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Reservation intake still had {} queued requests at shutdown", queued.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("reservation.intake.queued", queued, AtomicInteger::get)
+                .description("Reservation requests waiting in the intake queues")
+                .register(registry);
+        FunctionCounter.builder("reservation.intake.batches", batches, AtomicLong::get)
+                .description("Reservation batches committed by the intake workers")
+                .register(registry);
+        FunctionCounter.builder("reservation.intake.confirmed", confirmed, AtomicLong::get)
+                .description("Queued reservation requests that were confirmed")
+                .register(registry);
+        FunctionCounter.builder("reservation.intake.rejected", rejected, AtomicLong::get)
+                .description("Queued reservation requests that were rejected")
+                .register(registry);
+        FunctionCounter.builder("reservation.intake.refused", refused, AtomicLong::get)
+                .description("Reservation requests refused because the intake queue was full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ✅ OutboxHandler ตัวแรก: นับ event ของการจอง (analytics) → reservation.events{type=...}
+ * ทำงานบน outbox-dispatcher thread ไม่ใช่ใน transaction ของการซื้อ
+ * (นับซ้ำได้เมื่อ event ถูกส่งซ้ำ — at-least-once ยอมรับได้สำหรับ metric)
+ */
+@Component
+public class ReservationMetricsHandler implements OutboxHandler, MeterBinder {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    @Override
+    public boolean supports(String eventType) {
+        return OutboxPublisher.RESERVATION_CREATED.equals(eventType)
+                || OutboxPublisher.RESERVATION_PAID.equals(eventType)
+                || OutboxPublisher.RESERVATION_CANCELLED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        MeterRegistry r = registry;
+        if (r == null) return;
+        counters.computeIfAbsent(event.eventType(), t -> Counter.builder("reservation.events")
+                .tag("type", t)
+                .description("Reservation domain events delivered through the outbox")
+                .register(r)).increment();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+}
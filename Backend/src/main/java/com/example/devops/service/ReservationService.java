@@ -15,7 +15,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.sql.Array;
-import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Duration;
 import java.time.Instant;
@@ -28,24 +27,49 @@ public class ReservationService {
     private static final Set<String> ALLOWED_METHODS = Set.of("Credit Card", "Bank Transfer", "QR Payment", "MOCK");
     private static final int DEFAULT_LOCK_TIMEOUT_MINUTES = 5;
 
+    /** ที่นั่งถูกคนอื่นจอง/ล็อกไปก่อน (ไม่ใช่ request ผิด) → ผู้เรียกเลือกที่นั่งใหม่แล้วลองอีกได้ */
+    public static class SeatConflict extends IllegalArgumentException {
+        public SeatConflict(String message) {
+            super(message);
+        }
+    }
+
     private final ReservedRepository reservedRepo;
     private final ReservedSeatsRepository reservedSeatsRepo; // kept for compatibility
     private final SeatsRepository seatsRepo;
     private final PaymentsRepository paymentsRepo;
     private final JdbcTemplate jdbc;
+    private final OutboxPublisher outbox; // ✅ domain events เขียนใน transaction เดียวกัน
+    private final ZoneSeatClaimer zoneClaimer;
+    private final StandingInventoryService standing; // ✅ counter ความจุโซนยืน (GA)
+    private final TicketInventoryService ticketInventory; // ✅ ยอดขายต่อ ticket type (sharded)
+    private final RangeHoldService rangeHolds; // ✅ ล็อกที่นั่งติดกันเป็นช่วงเดียว
+    private final SeatLockStore lockStore;     // ✅ ที่เก็บ lock รายที่นั่ง (table / unlogged / memory)
 
     public ReservationService(
             ReservedRepository reservedRepo,
             ReservedSeatsRepository reservedSeatsRepo,
             SeatsRepository seatsRepo,
             PaymentsRepository paymentsRepo,
-            JdbcTemplate jdbc
+            JdbcTemplate jdbc,
+            OutboxPublisher outbox,
+            ZoneSeatClaimer zoneClaimer,
+            StandingInventoryService standing,
+            TicketInventoryService ticketInventory,
+            RangeHoldService rangeHolds,
+            SeatLockStore lockStore
     ) {
         this.reservedRepo = reservedRepo;
         this.reservedSeatsRepo = reservedSeatsRepo;
         this.seatsRepo = seatsRepo;
         this.paymentsRepo = paymentsRepo;
         this.jdbc = jdbc;
+        this.outbox = outbox;
+        this.zoneClaimer = zoneClaimer;
+        this.standing = standing;
+        this.ticketInventory = ticketInventory;
+        this.rangeHolds = rangeHolds;
+        this.lockStore = lockStore;
     }
 
     /* ===========================
@@ -53,6 +77,180 @@ public class ReservationService {
        =========================== */
     @Transactional
     public ReservedResponse createReservation(Long userId, ReservationRequest req) {
+        validateRequest(userId, req);
+        final boolean isGuest = (userId == null);
+
+        // === Map FE (row/col 0-based) -> DB seat_id (row sort_order 0-based, seat_number 1-based) และกัน seat ซ้ำ ===
+        List<Long> seatIdsToReserve = resolveSeatIds(req);
+
+        // === ตรวจที่นั่งว่าง: PAID / RESERVED + LOCKED โดยคนอื่น ===
+        if (!seatIdsToReserve.isEmpty()) {
+            List<Long> takenPaidOrReserved = seatsRepo.findPaidTakenAmong(req.getEventId(), seatIdsToReserve.toArray(Long[]::new));
+            if (!takenPaidOrReserved.isEmpty()) {
+                throw new SeatConflict("Some seats are already taken (paid/reserved): " + takenPaidOrReserved);
+            }
+            Set<Long> lockedNow = lockedSeatIds(req.getEventId());
+            for (Long sid : seatIdsToReserve) {
+                if (lockedNow.contains(sid)) {
+                    throw new SeatConflict("Some seats are currently locked by others: " + sid);
+                }
+            }
+        }
+
+        // 1) ล็อกที่นั่งทั้งหมด (ต้องได้ครบ) — guest = ส่ง NULL (ไม่ใช่ 0)
+        //    ที่นั่งติดกันในแถวเดียว → range hold แถวเดียวแทน seat_locks ทีละที่นั่ง
+        Long lockerUserId = isGuest ? null : userId;
+        Optional<RangeHoldService.SeatSpan> span = rangeHolds.spanOf(seatIdsToReserve);
+        Long holdId = null;
+        int locked;
+        if (span.isPresent()) {
+            holdId = rangeHolds.hold(req.getEventId(), lockerUserId, span.get(), DEFAULT_LOCK_TIMEOUT_MINUTES);
+            if (holdId == null) {
+                throw new SeatConflict("Some seats are currently locked by others: row " + span.get().rowId()
+                        + " seats " + span.get().from() + "-" + span.get().to());
+            }
+            locked = span.get().size();
+        } else {
+            locked = lockSeats(lockerUserId, req.getEventId(), seatIdsToReserve, DEFAULT_LOCK_TIMEOUT_MINUTES);
+        }
+        if (locked != seatIdsToReserve.size()) {
+            throw new SeatConflict("Requested " + seatIdsToReserve.size() + " seats but locked " + locked);
+        }
+
+        // 2) สร้าง reserved
+        Reserved r = newReserved(userId, req);
+
+        r = reservedRepo.save(r);
+        if (holdId != null) rangeHolds.attach(holdId, r.getReservedId());
+
+        // 3) map seats -> reserved_seats (seat_status = 'PENDING')
+        String insertRsSql = """
+            INSERT INTO reserved_seats (reserved_id, seat_id, seat_status)
+            VALUES (?, ?, 'PENDING')
+            ON CONFLICT (reserved_id, seat_id) DO NOTHING
+        """;
+        int mapped = 0;
+        for (Long seatId : seatIdsToReserve) {
+            mapped += jdbc.update(insertRsSql, r.getReservedId(), seatId);
+        }
+        ticketInventory.hold(r.getReservedId()); // ticket type ขายหมด → IllegalArgumentException, rollback ทั้งการจอง
+
+        Map<String, Object> evt = eventPayload(r, seatIdsToReserve);
+        evt.put("guest", isGuest);
+        outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, r.getReservedId(), OutboxPublisher.RESERVATION_CREATED, evt);
+
+        log.info("✅ Created reservation {} (guest?={}) with {} locked seats (expires in {} min), mapped {} seats",
+                r.getReservedId(), isGuest, locked, DEFAULT_LOCK_TIMEOUT_MINUTES, mapped);
+
+        return ReservedResponse.from(r);
+    }
+
+    /* ===========================
+       CREATE RESERVATION (any seat in zone)
+       =========================== */
+
+    /**
+     * ✅ จอง N ที่นั่งใดก็ได้ในโซน : ZoneSeatClaimer หยิบด้วย SKIP LOCKED (ไม่รอ / ไม่ชนกับผู้ซื้อคนอื่น)
+     * ที่นั่งเหลือไม่พอ → IllegalArgumentException (rollback คืน lock ที่หยิบมาแล้ว)
+     */
+    @Transactional
+    public ReservedResponse createZoneReservation(Long userId, Long eventId, Long zoneId, Integer quantity, String guestEmail) {
+        if (eventId == null || eventId <= 0 || zoneId == null || zoneId <= 0 || quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Invalid reservation payload");
+        }
+        final boolean isGuest = (userId == null);
+        if (isGuest && (guestEmail == null || guestEmail.isBlank())) {
+            throw new IllegalArgumentException("AUTH_REQUIRED_OR_GUEST_EMAIL: Provide Authorization/JWT or guestEmail for guest reservation.");
+        }
+
+        List<BigDecimal> prices = jdbc.queryForList(
+                "SELECT price FROM seat_zones WHERE zone_id = ? AND event_id = ? AND COALESCE(is_active, TRUE)",
+                BigDecimal.class, zoneId, eventId);
+        if (prices.isEmpty()) {
+            throw new IllegalArgumentException("Zone " + zoneId + " not found for event " + eventId);
+        }
+        BigDecimal price = prices.get(0) == null ? BigDecimal.ZERO : prices.get(0);
+
+        List<Long> seatIds = zoneClaimer.claim(eventId, zoneId, userId, quantity, DEFAULT_LOCK_TIMEOUT_MINUTES);
+        if (seatIds.size() < quantity) {
+            throw new IllegalArgumentException("Only " + seatIds.size() + " seats left in zone " + zoneId);
+        }
+
+        ReservationRequest req = ReservationRequest.builder()
+                .eventId(eventId)
+                .quantity(quantity)
+                .totalAmount(price.multiply(BigDecimal.valueOf(quantity)))
+                .guestEmail(guestEmail)
+                .build();
+        Reserved r = reservedRepo.save(newReserved(userId, req));
+
+        List<Object[]> rsArgs = new ArrayList<>(seatIds.size());
+        for (Long seatId : seatIds) rsArgs.add(new Object[]{r.getReservedId(), seatId});
+        jdbc.batchUpdate("""
+            INSERT INTO reserved_seats (reserved_id, seat_id, seat_status)
+            VALUES (?, ?, 'PENDING')
+            ON CONFLICT (reserved_id, seat_id) DO NOTHING
+        """, rsArgs);
+        ticketInventory.hold(r.getReservedId());
+
+        Map<String, Object> evt = eventPayload(r, seatIds);
+        evt.put("guest", isGuest);
+        evt.put("zoneId", zoneId);
+        outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, r.getReservedId(), OutboxPublisher.RESERVATION_CREATED, evt);
+
+        log.info("✅ Created zone reservation {} (zone {}, {} seats, guest?={})", r.getReservedId(), zoneId, seatIds.size(), isGuest);
+        return ReservedResponse.from(r);
+    }
+
+    /* ===========================
+       CREATE RESERVATION (standing / GA zone)
+       =========================== */
+
+    /**
+     * ✅ จองบัตรโซนยืนเป็นจำนวน : ตัด counter ใน memory (CAS) แทนการล็อกแถว seats
+     * ใบจองเก็บ standing_zone_id + quantity (ไม่มี reserved_seats) ; rollback → counter คืนเอง
+     */
+    @Transactional
+    public ReservedResponse createStandingReservation(Long userId, Long eventId, Long zoneId, Integer quantity, String guestEmail) {
+        if (eventId == null || eventId <= 0 || zoneId == null || zoneId <= 0 || quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Invalid reservation payload");
+        }
+        final boolean isGuest = (userId == null);
+        if (isGuest && (guestEmail == null || guestEmail.isBlank())) {
+            throw new IllegalArgumentException("AUTH_REQUIRED_OR_GUEST_EMAIL: Provide Authorization/JWT or guestEmail for guest reservation.");
+        }
+
+        if (!standing.tryHold(eventId, zoneId, quantity)) {
+            throw new IllegalArgumentException("SOLD_OUT: Not enough capacity left in standing zone " + zoneId);
+        }
+
+        List<BigDecimal> prices = jdbc.queryForList(
+                "SELECT price FROM seat_zones WHERE zone_id = ?", BigDecimal.class, zoneId);
+        BigDecimal price = prices.isEmpty() || prices.get(0) == null ? BigDecimal.ZERO : prices.get(0);
+
+        ReservationRequest req = ReservationRequest.builder()
+                .eventId(eventId)
+                .quantity(quantity)
+                .totalAmount(price.multiply(BigDecimal.valueOf(quantity)))
+                .guestEmail(guestEmail)
+                .build();
+        Reserved draft = newReserved(userId, req);
+        draft.setStandingZoneId(zoneId);
+        Reserved r = reservedRepo.save(draft);
+        ticketInventory.hold(r.getReservedId());
+
+        Map<String, Object> evt = eventPayload(r, List.of());
+        evt.put("guest", isGuest);
+        evt.put("zoneId", zoneId);
+        evt.put("quantity", quantity);
+        outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, r.getReservedId(), OutboxPublisher.RESERVATION_CREATED, evt);
+
+        log.info("✅ Created standing reservation {} (zone {}, qty {}, guest?={})", r.getReservedId(), zoneId, quantity, isGuest);
+        return ReservedResponse.from(r);
+    }
+
+    /** ตรวจ payload การจอง (ใช้ทั้งแบบทีละ request และแบบ batch) */
+    void validateRequest(Long userId, ReservationRequest req) {
         if (req == null || req.getEventId() == null || req.getEventId() <= 0 || req.getQuantity() == null || req.getQuantity() <= 0) {
             throw new IllegalArgumentException("Invalid reservation payload");
         }
@@ -60,18 +258,16 @@ public class ReservationService {
         if (picks.size() != req.getQuantity()) {
             throw new IllegalArgumentException("quantity and seats count mismatch");
         }
-
-        final boolean isGuest = (userId == null);
-        if (isGuest) {
-            if (req.getGuestEmail() == null || req.getGuestEmail().isBlank()) {
-                throw new IllegalArgumentException("AUTH_REQUIRED_OR_GUEST_EMAIL: Provide Authorization/JWT or guestEmail for guest reservation.");
-            }
+        if (userId == null && (req.getGuestEmail() == null || req.getGuestEmail().isBlank())) {
+            throw new IllegalArgumentException("AUTH_REQUIRED_OR_GUEST_EMAIL: Provide Authorization/JWT or guestEmail for guest reservation.");
         }
+    }
 
-        // === Map FE (row/col 0-based) -> DB seat_id (row sort_order 0-based, seat_number 1-based) และกัน seat ซ้ำ ===
-        List<Long> seatIdsToReserve = new ArrayList<>();
+    /** แปลง seat picks ของ FE (row/col 0-based) → seat_id ใน DB และกัน seat ซ้ำใน request เดียวกัน */
+    List<Long> resolveSeatIds(ReservationRequest req) {
+        List<Long> seatIds = new ArrayList<>();
         Set<String> dupGuard = new HashSet<>();
-        for (ReservationRequest.SeatPick sp : picks) {
+        for (ReservationRequest.SeatPick sp : Optional.ofNullable(req.getSeats()).orElse(List.of())) {
             if (sp == null || sp.getZoneId() == null || sp.getRow() == null || sp.getCol() == null) {
                 throw new IllegalArgumentException("Invalid seat pick");
             }
@@ -96,31 +292,159 @@ public class ReservationService {
             if (seatId == null) {
                 throw new IllegalArgumentException("Seat not found for zone=" + zoneId + " row=" + rowNo + " col=" + seatNo1);
             }
-            seatIdsToReserve.add(seatId);
+            seatIds.add(seatId);
         }
+        return seatIds;
+    }
 
-        // === ตรวจที่นั่งว่าง: PAID / RESERVED + LOCKED โดยคนอื่น ===
-        if (!seatIdsToReserve.isEmpty()) {
-            List<Long> takenPaidOrReserved = seatsRepo.findPaidTakenAmong(req.getEventId(), seatIdsToReserve.toArray(Long[]::new));
-            if (!takenPaidOrReserved.isEmpty()) {
-                throw new IllegalArgumentException("Some seats are already taken (paid/reserved): " + takenPaidOrReserved);
-            }
-            List<Long> lockedNow = seatsRepo.findLockedSeatIdsByEvent(req.getEventId());
-            for (Long sid : seatIdsToReserve) {
-                if (lockedNow.contains(sid)) {
-                    throw new IllegalArgumentException("Some seats are currently locked by others: " + sid);
+    /* ===========================
+       CREATE RESERVATION (micro-batch)
+       =========================== */
+
+    /** 1 รายการใน batch (userId = null → guest) */
+    public record BatchItem(Long userId, ReservationRequest request) {}
+
+    /** ผลของแต่ละรายการ: reservation != null = สำเร็จ, error != null = ถูกปฏิเสธ */
+    public record BatchResult(ReservedResponse reservation, String error) {
+        static BatchResult ok(ReservedResponse r) { return new BatchResult(r, null); }
+        static BatchResult rejected(String error) { return new BatchResult(null, error); }
+        public boolean isSuccess() { return reservation != null; }
+    }
+
+    /**
+     * ✅ สร้างการจองหลายรายการของอีเวนต์เดียวกันใน transaction เดียว (ใช้โดย ReservationIntakeService)
+     *   - เช็คที่นั่งที่ถูกจอง/ล็อกแล้วด้วย query ชุดเดียวสำหรับทั้ง batch
+     *   - ที่นั่งชนกันภายใน batch → รายการที่มาก่อน (FIFO) ได้ไป รายการหลังถูกปฏิเสธ (deterministic)
+     *   - lock ที่นั่งผ่าน SeatLockStore (เหมือน lockSeats) ; reserved_seats เขียนด้วย batchUpdate
+     *   - ticket type ขายหมด → ปฏิเสธเฉพาะรายการนั้น (TicketInventoryService.tryHold)
+     * ผลลัพธ์เรียงตาม items ; exception ที่ไม่ใช่ validation = rollback ทั้ง batch (ผู้เรียก fallback ทีละรายการ)
+     */
+    @Transactional
+    public List<BatchResult> createReservationBatch(Long eventId, List<BatchItem> items) {
+        int n = items.size();
+        BatchResult[] results = new BatchResult[n];
+        List<List<Long>> seatsOf = new ArrayList<>(Collections.nCopies(n, null));
+
+        // 1) validate + resolve seat ids ของแต่ละรายการ
+        Set<Long> union = new LinkedHashSet<>();
+        for (int i = 0; i < n; i++) {
+            BatchItem it = items.get(i);
+            try {
+                validateRequest(it.userId(), it.request());
+                if (!eventId.equals(it.request().getEventId())) {
+                    throw new IllegalArgumentException("eventId mismatch in batch");
                 }
+                List<Long> ids = resolveSeatIds(it.request());
+                seatsOf.set(i, ids);
+                union.addAll(ids);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchResult.rejected(e.getMessage());
             }
         }
 
-        // 1) ล็อกที่นั่งทั้งหมด (ต้องได้ครบ) — guest = ส่ง NULL (ไม่ใช่ 0)
-        Long lockerUserId = isGuest ? null : userId;
-        int locked = lockSeats(lockerUserId, req.getEventId(), seatIdsToReserve, DEFAULT_LOCK_TIMEOUT_MINUTES);
-        if (locked != seatIdsToReserve.size()) {
-            throw new IllegalStateException("Requested " + seatIdsToReserve.size() + " seats but locked " + locked);
+        // 2) ที่นั่งที่ไม่ว่าง (query ชุดเดียวทั้ง batch) ; range hold / lock-store นอก seat_locks → ล็อกแถว seats ก่อนตรวจ
+        if (needsSeatRowLocks() && !union.isEmpty()) {
+            lockSeatRows(new ArrayList<>(union));
+        }
+        Set<Long> taken = union.isEmpty() ? Set.of()
+                : new HashSet<>(seatsRepo.findPaidTakenAmong(eventId, union.toArray(Long[]::new)));
+        Set<Long> lockedNow = union.isEmpty() ? Set.of() : lockedSeatIds(eventId);
+
+        // 3) แก้ conflict ภายใน batch ตามลำดับ FIFO
+        Set<Long> claimed = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) continue;
+            List<Long> ids = seatsOf.get(i);
+            List<Long> paid = ids.stream().filter(taken::contains).toList();
+            if (!paid.isEmpty()) {
+                results[i] = BatchResult.rejected("Some seats are already taken (paid/reserved): " + paid);
+                continue;
+            }
+            Long lockedSeat = ids.stream().filter(sid -> lockedNow.contains(sid) || claimed.contains(sid)).findFirst().orElse(null);
+            if (lockedSeat != null) {
+                results[i] = BatchResult.rejected("Some seats are currently locked by others: " + lockedSeat);
+                continue;
+            }
+            claimed.addAll(ids);
+            accepted.add(i);
         }
 
-        // 2) สร้าง reserved
+        // 4) ล็อกที่นั่งของทุกรายการที่ผ่านผ่าน lock-store (ทางเดียวกับ lockSeats) — ไม่ทับ lock ของ instance อื่น
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(DEFAULT_LOCK_TIMEOUT_MINUTES));
+        for (Iterator<Integer> itr = accepted.iterator(); itr.hasNext(); ) {
+            int i = itr.next();
+            Long uid = items.get(i).userId();
+            List<Long> ids = seatsOf.get(i);
+            List<Long> got = lockStore.lock(eventId, uid, ids, expiresAt);
+            if (got.size() < ids.size()) {
+                // ได้ไม่ครบ (ชนกับ instance อื่น) → คืนเฉพาะที่นั่งที่เพิ่งล็อกได้ของรายการนี้
+                Set<Long> gotSet = new HashSet<>(got);
+                List<Long> lost = ids.stream().filter(sid -> !gotSet.contains(sid)).toList();
+                unlockSeatsNullableUser(uid, got);
+                results[i] = BatchResult.rejected("Some seats are currently locked by others: " + lost);
+                itr.remove();
+            }
+        }
+
+        // 5) สร้าง reserved + reserved_seats + outbox ของรายการที่ได้ที่นั่งครบ
+        List<Reserved> toSave = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            BatchItem it = items.get(i);
+            toSave.add(newReserved(it.userId(), it.request()));
+        }
+        List<Reserved> saved = toSave.isEmpty() ? List.of() : reservedRepo.saveAll(toSave);
+
+        List<Object[]> rsArgs = new ArrayList<>();
+        for (int a = 0; a < accepted.size(); a++) {
+            Reserved r = saved.get(a);
+            for (Long seatId : seatsOf.get(accepted.get(a))) rsArgs.add(new Object[]{r.getReservedId(), seatId});
+        }
+        if (!rsArgs.isEmpty()) {
+            jdbc.batchUpdate("""
+                INSERT INTO reserved_seats (reserved_id, seat_id, seat_status)
+                VALUES (?, ?, 'PENDING')
+                ON CONFLICT (reserved_id, seat_id) DO NOTHING
+            """, rsArgs);
+        }
+
+        // 6) ตัดยอด ticket type ตอน hold ; ขายหมด → ปฏิเสธเฉพาะรายการนั้น (ลบใบจอง + คืนที่นั่ง)
+        List<Reserved> soldOut = new ArrayList<>();
+        int reserved = 0;
+        for (int a = 0; a < accepted.size(); a++) {
+            int i = accepted.get(a);
+            Reserved r = saved.get(a);
+            if (!ticketInventory.tryHold(r.getReservedId())) {
+                soldOut.add(r);
+                unlockSeatsNullableUser(items.get(i).userId(), seatsOf.get(i));
+                results[i] = BatchResult.rejected("SOLD_OUT: Not enough tickets left for reservation");
+                continue;
+            }
+            Map<String, Object> evt = eventPayload(r, seatsOf.get(i));
+            evt.put("guest", items.get(i).userId() == null);
+            outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, r.getReservedId(), OutboxPublisher.RESERVATION_CREATED, evt);
+
+            results[i] = BatchResult.ok(ReservedResponse.from(r));
+            reserved++;
+        }
+        if (!soldOut.isEmpty()) {
+            Object[] ids = soldOut.stream().map(Reserved::getReservedId).toArray();
+            jdbc.update(con -> {
+                var ps = con.prepareStatement("DELETE FROM reserved_seats WHERE reserved_id = ANY (?)");
+                ps.setArray(1, con.createArrayOf("BIGINT", ids));
+                return ps;
+            });
+            reservedRepo.deleteAll(soldOut);
+        }
+
+        log.info("📦 Batch for event {}: {} requests, {} reserved, {} rejected",
+                eventId, n, reserved, n - reserved);
+        return Arrays.asList(results);
+    }
+
+    /** สร้าง entity reserved สถานะ RESERVED (ยังไม่ save) */
+    private static Reserved newReserved(Long userId, ReservationRequest req) {
+        final boolean isGuest = (userId == null);
         Reserved r = new Reserved();
         r.setUserId(isGuest ? null : userId);
         r.setEventId(req.getEventId());
@@ -143,24 +467,7 @@ public class ReservationService {
             r.setCreatedAsGuest(false);
             r.setGuestClaimedAt(null);
         }
-
-        r = reservedRepo.save(r);
-
-        // 3) map seats -> reserved_seats (seat_status = 'PENDING')
-        String insertRsSql = """
-            INSERT INTO reserved_seats (reserved_id, seat_id, seat_status)
-            VALUES (?, ?, 'PENDING')
-            ON CONFLICT (reserved_id, seat_id) DO NOTHING
-        """;
-        int mapped = 0;
-        for (Long seatId : seatIdsToReserve) {
-            mapped += jdbc.update(insertRsSql, r.getReservedId(), seatId);
-        }
-
-        log.info("✅ Created reservation {} (guest?={}) with {} locked seats (expires in {} min), mapped {} seats",
-                r.getReservedId(), isGuest, locked, DEFAULT_LOCK_TIMEOUT_MINUTES, mapped);
-
-        return ReservedResponse.from(r);
+        return r;
     }
 
     /* ===========================
@@ -186,7 +493,14 @@ public class ReservationService {
             throw new IllegalArgumentException("Unsupported payment method: " + normalized);
         }
 
+        if (r.getStandingZoneId() != null && "CANCELLED".equalsIgnoreCase(r.getPaymentStatus())) {
+            // โซนยืน : hold หมดเวลาแล้ว ที่ถูกคืนให้คนอื่นไปแล้ว
+            throw new IllegalArgumentException("Reservation expired: " + reservedId);
+        }
+
         if (!"PAID".equalsIgnoreCase(r.getPaymentStatus())) {
+            ticketInventory.recordSale(reservedId); // ยอดตัดไว้ตั้งแต่ hold ; ใบเก่าที่ไม่มี hold ตัดตอนนี้ (ขายหมด → rollback)
+
             r.setPaymentStatus("PAID");
             r.setPaymentDatetime(Instant.now());
             r.setConfirmationCode(("CONF-" + UUID.randomUUID().toString().replace("-", "")).substring(0, 12).toUpperCase());
@@ -207,6 +521,7 @@ public class ReservationService {
 
             // ปลดล็อค รองรับ user_id = NULL
             unlockSeatsNullableUser(r.getUserId(), seatIds);
+            rangeHolds.release(reservedId);
 
             Payments p = new Payments();
             p.setReservedId(r.getReservedId());
@@ -218,6 +533,11 @@ public class ReservationService {
             p.setGatewayResponse("{\"mock\":true}");
             paymentsRepo.save(p);
 
+            Map<String, Object> evt = eventPayload(r, seatIds);
+            evt.put("method", normalized);
+            evt.put("transactionId", p.getTransactionId());
+            outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, r.getReservedId(), OutboxPublisher.RESERVATION_PAID, evt);
+
             log.info("💰 Payment confirmed for reservation {} (method: {}, seats: {}, set CONFIRMED + unlocked)",
                     reservedId, normalized, seatIds.size());
         } else {
@@ -239,7 +559,12 @@ public class ReservationService {
         if (seatIds == null || seatIds.isEmpty()) return 0;
 
         Instant expiresAt = Instant.now().plus(Duration.ofMinutes(timeoutMinutes));
-        Instant lockedAt = Instant.now();
+
+        if (needsSeatRowLocks()) {
+            // ล็อกแถว seats ก่อนตรวจ (ลำดับเดียวกับ RangeHoldService.hold) → ไม่ชนกับ range hold ที่กำลังเขียน
+            // และกัน ZoneSeatClaimer (SKIP LOCKED) หยิบที่นั่งที่ lock-store นอก seat_locks ถืออยู่
+            lockSeatRows(seatIds);
+        }
 
         String checkSql = """
         SELECT s.seat_id
@@ -259,6 +584,14 @@ public class ReservationService {
                   AND sl.expires_at > NOW()
                   AND (sl.user_id IS DISTINCT FROM ?)
            )
+           AND NOT EXISTS (
+               SELECT 1
+                 FROM seat_range_holds h
+                WHERE h.row_id = s.row_id
+                  AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+                  AND h.status = 'LOCKED'
+                  AND h.expires_at > NOW()
+           )
         """;
 
         List<Long> availableSeats;
@@ -286,37 +619,12 @@ public class ReservationService {
             return 0;
         }
 
-        String lockSql = """
-        INSERT INTO seat_locks (seat_id, event_id, user_id, locked_at, expires_at, status)
-        VALUES (?, ?, ?, ?, ?, 'LOCKED')
-        ON CONFLICT (seat_id)
-        DO UPDATE SET
-            user_id    = EXCLUDED.user_id,
-            locked_at  = EXCLUDED.locked_at,
-            expires_at = EXCLUDED.expires_at,
-            status     = 'LOCKED'
-        """;
-
-        int locked = 0;
-        for (Long seatId : availableSeats) {
-            try {
-                jdbc.update(conn -> {
-                    var ps = conn.prepareStatement(lockSql);
-                    ps.setLong(1, seatId);
-                    ps.setLong(2, eventId);
-                    if (lockerUserId == null) {
-                        ps.setNull(3, Types.BIGINT); // guest = NULL
-                    } else {
-                        ps.setLong(3, lockerUserId);
-                    }
-                    ps.setTimestamp(4, Timestamp.from(lockedAt));
-                    ps.setTimestamp(5, Timestamp.from(expiresAt));
-                    return ps;
-                });
-                locked++;
-            } catch (Exception e) {
-                log.error("❌ Failed to lock seat {}: {}", seatId, e.getMessage());
-            }
+        int locked;
+        try {
+            locked = lockStore.lock(eventId, lockerUserId, availableSeats, expiresAt).size();
+        } catch (Exception e) {
+            log.error("❌ Failed to lock seats {} in store '{}': {}", availableSeats, lockStore.name(), e.getMessage());
+            return 0;
         }
 
         log.info("🔒 Locked {} seats for user {} (expires in {} min)", locked, (lockerUserId == null ? "GUEST(NULL)" : lockerUserId), timeoutMinutes);
@@ -331,6 +639,11 @@ public class ReservationService {
     public void unlockSeatsNullableUser(Long userId, List<Long> seatIds) {
         if (seatIds == null || seatIds.isEmpty()) return;
 
+        if (!lockStore.sharedWithSql()) {
+            lockStore.unlock(userId, seatIds);
+        }
+        // seat_locks : lock-store=table หรือ lock ที่ ZoneSeatClaimer เขียนลงตารางตรง ๆ
+
         final String sql = """
             UPDATE seat_locks
                SET status = 'UNLOCKED',
@@ -404,11 +717,22 @@ public class ReservationService {
              WHERE seat_id = ANY (?)
                AND status = 'LOCKED'
                AND expires_at > NOW()
+            UNION ALL
+            SELECT s.seat_id,
+                   CASE WHEN h.user_id IS NULL THEN 'SYSTEM'
+                        ELSE 'USER_' || h.user_id::text
+                   END AS locked_by
+              FROM seats s
+              JOIN seat_range_holds h ON h.row_id = s.row_id
+                                     AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+             WHERE s.seat_id = ANY (?)
+               AND h.status = 'LOCKED'
+               AND h.expires_at > NOW()
         """;
 
         try {
             Array array = jdbc.getDataSource().getConnection().createArrayOf("BIGINT", seatIds.toArray());
-            List<Map<String, Object>> rows = jdbc.queryForList(sql, array);
+            List<Map<String, Object>> rows = jdbc.queryForList(sql, array, array);
 
             Map<Long, String> locks = new HashMap<>();
             for (Map<String, Object> row : rows) {
@@ -416,6 +740,9 @@ public class ReservationService {
                 String lockedBy = (String) row.get("locked_by");
                 locks.put(seatId, lockedBy);
             }
+            if (!lockStore.sharedWithSql()) {
+                locks.putAll(lockStore.lockedBy(seatIds));
+            }
             return locks;
         } catch (Exception e) {
             log.error("❌ Failed to check seat locks: {}", e.getMessage());
@@ -426,11 +753,33 @@ public class ReservationService {
     /* ===========================
        CANCEL (update statuses)
        =========================== */
+
+    /**
+     * ยกเลิกแบบมีเงื่อนไข + ล็อกแถว : คืน payment_status เดิม ; ไม่มีแถว = ถูกยกเลิกไปแล้ว
+     * (expireHolds / cleanup ยกเลิกพร้อมกันได้ตัวเดียว → คืน counter / ยอด ticket type ครั้งเดียว)
+     */
+    private static final String CANCEL_SQL = """
+            UPDATE reserved r
+               SET payment_status = 'CANCELLED',
+                   notes = 'Cancelled by user/system'
+              FROM (SELECT reserved_id, payment_status FROM reserved WHERE reserved_id = ? FOR UPDATE) prev
+             WHERE r.reserved_id = prev.reserved_id
+               AND UPPER(COALESCE(prev.payment_status, '')) <> 'CANCELLED'
+            RETURNING prev.payment_status
+            """;
+
     @Transactional
     public void cancelReservation(Long reservedId) {
         Reserved r = reservedRepo.findById(reservedId)
                 .orElseThrow(() -> new IllegalArgumentException("Reservation not found: " + reservedId));
 
+        List<String> previous = jdbc.queryForList(CANCEL_SQL, String.class, reservedId);
+        if (previous.isEmpty()) {
+            log.info("↩️ Reservation {} already cancelled, nothing to release", reservedId);
+            return;
+        }
+        String previousStatus = previous.get(0);
+
         String sql = "SELECT seat_id FROM reserved_seats WHERE reserved_id = ?";
         List<Long> seatIds = jdbc.queryForList(sql, Long.class, reservedId);
 
@@ -442,10 +791,23 @@ public class ReservationService {
         jdbc.update(cancelSeatsSql, reservedId);
 
         unlockSeatsNullableUser(r.getUserId(), seatIds);
+        rangeHolds.release(reservedId);
+
+        if ("PAID".equalsIgnoreCase(previousStatus)) {
+            ticketInventory.recordRefund(reservedId);
+        } else {
+            ticketInventory.release(reservedId); // ยอดที่ hold ไว้ตั้งแต่ตอนจอง
+        }
+        if (r.getStandingZoneId() != null) {
+            standing.release(r.getStandingZoneId(), Optional.ofNullable(r.getQuantity()).orElse(0));
+        }
 
+        // แถวถูกแก้ด้วย CANCEL_SQL แล้ว ; entity ตั้งค่าให้ตรงสำหรับ payload
         r.setPaymentStatus("CANCELLED");
         r.setNotes("Cancelled by user/system");
-        reservedRepo.save(r);
+
+        outbox.publish(OutboxPublisher.AGGREGATE_RESERVATION, reservedId, OutboxPublisher.RESERVATION_CANCELLED,
+                eventPayload(r, seatIds));
 
         log.info("❌ Cancelled reservation {} (unlocked {} seats, set CANCELLED)", reservedId, seatIds.size());
     }
@@ -453,6 +815,36 @@ public class ReservationService {
     /* ===========================
        Helpers
        =========================== */
+
+    /** payload พื้นฐานของ event การจอง (LinkedHashMap เพราะ userId เป็น null ได้) */
+    private static Map<String, Object> eventPayload(Reserved r, List<Long> seatIds) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("reservedId", r.getReservedId());
+        m.put("eventId", r.getEventId());
+        m.put("userId", r.getUserId());
+        m.put("status", r.getPaymentStatus());
+        m.put("totalAmount", r.getTotalAmount());
+        m.put("seatIds", seatIds);
+        return m;
+    }
+    /** ที่นั่งที่ถูกล็อกอยู่ของอีเวนต์ : seat_locks (+ lock-store ถ้าไม่ได้เก็บใน seat_locks) */
+    private Set<Long> lockedSeatIds(Long eventId) {
+        Set<Long> ids = new HashSet<>(seatsRepo.findLockedSeatIdsByEvent(eventId));
+        if (!lockStore.sharedWithSql()) ids.addAll(lockStore.lockedSeatIds(eventId));
+        return ids;
+    }
+
+    private boolean needsSeatRowLocks() {
+        return rangeHolds.isEnabled() || !lockStore.sharedWithSql();
+    }
+
+    /** SELECT ... FOR UPDATE แถว seats เรียงตาม seat_id (ใช้ร่วมกับ range hold ให้ลำดับการล็อกตรงกัน) */
+    private void lockSeatRows(List<Long> seatIds) {
+        jdbc.query("SELECT seat_id FROM seats WHERE seat_id = ANY (?) ORDER BY seat_id FOR UPDATE",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", seatIds.toArray())),
+                (rs, i) -> rs.getLong(1));
+    }
+
     private List<Long> queryLongListANY(String sql, List<Long> ids) {
         try {
             return jdbc.query(
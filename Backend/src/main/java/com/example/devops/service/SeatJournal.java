@@ -0,0 +1,272 @@
+package com.example.devops.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ============================================================
+ *  SeatJournal (write-ahead journal ของ SequencedSeatLockStore)
+ * ============================================================
+ * ✅ บันทึกการเปลี่ยนแปลง lock รายที่นั่ง (PUT / DEL) ลงไฟล์ memory-mapped ขนาดคงที่
+ *    record ละ RECORD_BYTES ; type = 0 คือจบ journal
+ * ✅ group commit : append แค่เขียนลง mapped buffer แล้วปลุก thread flusher (ไม่ปลุกผู้รอคนอื่น)
+ *    flusher force() ทันทีที่มีของค้าง ; ระหว่าง force คำสั่งที่ตามมาสะสมไว้ → รอบถัดไป fsync ทีเดียวทั้งกอง
+ *    fsync-interval > 0 = หน่วงเพิ่มก่อน force เพื่อรวมกองให้ใหญ่ขึ้น (แลก latency) ; 0 = ไม่หน่วง
+ *    ผู้เรียก awaitDurable(offset) รอจนรอบ force ที่ครอบ offset ของตัวเองเสร็จ → fsync 1 ครั้งต่อหลายคำสั่ง
+ * ✅ journal ใกล้เต็ม → เขียน snapshot (state ปัจจุบันทั้งหมด) แบบ atomic แล้วเริ่ม journal ใหม่
+ *    snapshot / journal มี generation ตรงกัน ; crash ระหว่าง compact (journal ยังไม่ถูกล้าง) → ข้าม journal เก่า
+ * ✅ เปิดไฟล์ = snapshot + replay journal (entries())
+ * ============================================================
+ */
+@Slf4j
+public class SeatJournal implements AutoCloseable {
+
+    static final byte PUT = 1;
+    static final byte DEL = 2;
+    static final byte HEADER = 3;
+    static final int RECORD_BYTES = 1 + 5 * Long.BYTES;
+    static final long NO_USER = Long.MIN_VALUE;
+
+    /** สถานะล่าสุดของที่นั่ง 1 ที่ (ตามที่ journal รู้) */
+    public record Entry(long seatId, long eventId, Long userId, long expiresAtMillis, long seq) {
+    }
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long fsyncIntervalMillis;
+
+    /** state เงาของ journal (ใช้เขียน snapshot) — แก้ภายใต้ monitor ของ this เท่านั้น */
+    private final Map<Long, Entry> state = new HashMap<>();
+
+    /** offset สะสม (ไม่รีเซ็ตตอน compact) : appended = เขียนแล้ว, durable = force แล้ว */
+    private long appended;
+    private long durable;
+    private long generation;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    public SeatJournal(Path dir, int segmentBytes, long fsyncIntervalMillis) {
+        try {
+            Files.createDirectories(dir);
+            this.journalFile = dir.resolve("seat-locks.journal");
+            this.snapshotFile = dir.resolve("seat-locks.snapshot");
+            this.channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int size = Math.max(RECORD_BYTES * 64, segmentBytes / RECORD_BYTES * RECORD_BYTES);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open seat journal in " + dir, e);
+        }
+        this.fsyncIntervalMillis = Math.max(0, fsyncIntervalMillis);
+        this.flusher = new Thread(this::flushLoop, "seat-journal-fsync");
+        this.flusher.setDaemon(true);
+        recover();
+        this.flusher.start();
+    }
+
+    /* ==================== RECOVERY ==================== */
+
+    /** state ปัจจุบัน (หลังเปิด = snapshot + replay journal) */
+    public synchronized Map<Long, Entry> entries() {
+        return new HashMap<>(state);
+    }
+
+    /** โหลด snapshot แล้ว replay journal (ตอนเปิดไฟล์) */
+    private synchronized void recover() {
+        state.clear();
+        generation = 0;
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+                generation = in.readLong();
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    Entry e = new Entry(in.readLong(), in.readLong(), user(in.readLong()), in.readLong(), in.readLong());
+                    state.put(e.seatId(), e);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Corrupt seat journal snapshot " + snapshotFile, e);
+            }
+        }
+        int replayed = 0;
+        buffer.position(0);
+        if (buffer.get() == HEADER && buffer.getLong() == generation) {
+            buffer.position(RECORD_BYTES);
+            while (buffer.remaining() >= RECORD_BYTES) {
+                int at = buffer.position();
+                byte type = buffer.get();
+                if (type != PUT && type != DEL) {
+                    buffer.position(at);
+                    break;
+                }
+                Entry e = new Entry(buffer.getLong(), buffer.getLong(), user(buffer.getLong()), buffer.getLong(), buffer.getLong());
+                apply(type, e);
+                replayed++;
+            }
+        } else {
+            // ไฟล์ใหม่ หรือ journal ของ generation ก่อน snapshot (อยู่ใน snapshot แล้ว)
+            reset(buffer.capacity());
+        }
+        appended = durable = buffer.position();
+        log.info("📒 Seat journal recovered: {} holds (snapshot gen {} + {} journal records)",
+                state.size(), generation, replayed);
+    }
+
+    /** ล้าง journal (used ไบต์แรก) แล้วเขียน header ของ generation ปัจจุบัน */
+    private void reset(int used) {
+        buffer.position(0);
+        buffer.put(ByteBuffer.allocate(used));
+        buffer.position(0);
+        buffer.put(HEADER).putLong(generation);
+        buffer.position(RECORD_BYTES);
+        buffer.force();
+    }
+
+    private static Long user(long raw) {
+        return raw == NO_USER ? null : raw;
+    }
+
+    private void apply(byte type, Entry e) {
+        if (type == PUT) state.put(e.seatId(), e);
+        else state.remove(e.seatId());
+    }
+
+    /* ==================== APPEND ==================== */
+
+    public long put(Entry e) {
+        return append(PUT, e);
+    }
+
+    public long delete(long seatId) {
+        return append(DEL, new Entry(seatId, 0, null, 0, 0));
+    }
+
+    /** @return offset ที่ต้องรอให้ durable (ส่งให้ awaitDurable) */
+    private synchronized long append(byte type, Entry e) {
+        if (closed) throw new IllegalStateException("Seat journal is closed");
+        if (buffer.remaining() < RECORD_BYTES * 2) compact();
+        buffer.put(type)
+                .putLong(e.seatId())
+                .putLong(e.eventId())
+                .putLong(e.userId() == null ? NO_USER : e.userId())
+                .putLong(e.expiresAtMillis())
+                .putLong(e.seq());
+        apply(type, e);
+        appended += RECORD_BYTES;
+        LockSupport.unpark(flusher);
+        return appended;
+    }
+
+    /** snapshot state เงาทั้งหมด (fsync + atomic move) แล้วล้าง journal */
+    private void compact() {
+        generation++;
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream data = new DataOutputStream(Channels.newOutputStream(out))) {
+            data.writeLong(generation);
+            data.writeInt(state.size());
+            for (Entry e : state.values()) {
+                data.writeLong(e.seatId());
+                data.writeLong(e.eventId());
+                data.writeLong(e.userId() == null ? NO_USER : e.userId());
+                data.writeLong(e.expiresAtMillis());
+                data.writeLong(e.seq());
+            }
+            data.flush();
+            out.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write seat journal snapshot", ex);
+        }
+        try {
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot install seat journal snapshot", ex);
+        }
+        // journal เดิมอยู่ใน snapshot แล้ว → ล้าง (ต้องศูนย์ส่วนที่ใช้ ไม่งั้น replay จะอ่าน record เก่า)
+        reset(buffer.position());
+        durable = appended;
+        notifyAll();
+    }
+
+    /* ==================== GROUP FSYNC ==================== */
+
+    public synchronized void awaitDurable(long offset) {
+        while (durable < offset && !closed) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for seat journal fsync", e);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                if (!pending()) {
+                    LockSupport.parkNanos(100_000_000L);
+                    if (Thread.interrupted()) return;
+                    continue;
+                }
+                if (fsyncIntervalMillis > 0) Thread.sleep(fsyncIntervalMillis); // รวมคำสั่งที่ตามมาในรอบเดียวกัน
+                long target;
+                synchronized (this) {
+                    target = appended;
+                }
+                buffer.force(); // นอก monitor → append รอบถัดไปไม่ต้องรอ fsync
+                synchronized (this) {
+                    durable = Math.max(durable, target);
+                    notifyAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Seat journal fsync failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized boolean pending() {
+        return appended != durable && !closed;
+    }
+
+    public synchronized long appendedBytes() {
+        return appended;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            buffer.force();
+            durable = appended;
+            closed = true;
+            notifyAll();
+        }
+        flusher.interrupt();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("⚠️ Closing seat journal failed: {}", e.getMessage());
+        }
+    }
+}
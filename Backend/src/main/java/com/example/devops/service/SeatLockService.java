@@ -1,13 +1,17 @@
 package com.example.devops.service;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -21,15 +25,73 @@ import java.util.Map;
  *   - ยกเลิกใบจองที่ยังไม่ได้ชำระภายในเวลาที่กำหนด (5 นาที)
  *   - ลบ mapping reserved_seats ของใบจองที่ถูกยกเลิก
  *   - รันอัตโนมัติทุก 1 นาที
+ *   - lock-store ที่ไม่ใช่ seat_locks (unlogged / memory) : หมดอายุผ่าน SeatLockStore.expire()
+ *     และ rebuild ตอน start (lock ไม่รอด crash/restart)
+ *     ownership เปิด : ไม่ rebuild ทุกอีเวนต์ตอน start — EventOwnershipService เติม/ทิ้งรายอีเวนต์
+ *     ตอนได้/เสียความเป็นเจ้าของ → store ของแต่ละ node มีเฉพาะอีเวนต์ของตัวเอง
+ *   - ที่นั่งที่ store บอกว่าหมดเวลา → ยกเลิกเฉพาะใบจองที่ hold ของตัวเองหมดเวลาแล้วด้วย
+ *     (ใบจองใหม่ของที่นั่งเดียวกันไม่โดนยกเลิกเพราะสำเนา lock เก่า)
+ *   - หลาย replica : งาน SQL ของ cleanup รันผ่าน ClusterJobCoordinator (รอบละ node เดียว,
+ *     แบ่ง shard ได้ด้วย app.jobs.seat-lock-cleanup.shards) ; lock-store ใน memory ยัง expire ทุก node
  *
  * ============================================================
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SeatLockService {
 
+    static final String CLEANUP_JOB = "seat-lock-cleanup";
+    private static final int REBUILD_HOLD_MINUTES = 5;
+
     private final JdbcTemplate jdbc;
+    private final SeatLockStore lockStore;
+    private final ClusterJobCoordinator jobs;
+    private final int cleanupShards;
+    private final boolean ownershipEnabled;
+
+    public SeatLockService(JdbcTemplate jdbc, SeatLockStore lockStore) {
+        this(jdbc, lockStore, ClusterJobCoordinator.uncoordinated(), 1, false);
+    }
+
+    @Autowired
+    public SeatLockService(JdbcTemplate jdbc,
+                           SeatLockStore lockStore,
+                           ClusterJobCoordinator jobs,
+                           @Value("${app.jobs.seat-lock-cleanup.shards:1}") int cleanupShards,
+                           @Value("${app.ownership.enabled:false}") boolean ownershipEnabled) {
+        this.jdbc = jdbc;
+        this.lockStore = lockStore;
+        this.jobs = jobs;
+        this.cleanupShards = Math.max(1, cleanupShards);
+        this.ownershipEnabled = ownershipEnabled;
+    }
+
+    /** lock-store ไม่ durable → เติม lock ของใบจองที่ยังรอจ่ายกลับมาหลัง restart (ownership เปิด → รอได้อีเวนต์ก่อน) */
+    @PostConstruct
+    public void rebuildLockStore() {
+        if (ownershipEnabled) return;
+        try {
+            int n = lockStore.rebuild(REBUILD_HOLD_MINUTES);
+            if (n > 0) log.info("🔁 Seat lock store '{}' rebuilt {} holds", lockStore.name(), n);
+        } catch (Exception e) {
+            log.error("❌ Seat lock store '{}' rebuild failed: {}", lockStore.name(), e.getMessage(), e);
+        }
+    }
+
+    /** ได้อีเวนต์เหล่านี้มา → โหลด lock ของอีเวนต์จาก DB ใหม่ (ทิ้งสำเนาเก่าใน store) ; error โยนต่อ */
+    public void rebuildLockStore(Collection<Long> eventIds) {
+        int n = lockStore.rebuild(REBUILD_HOLD_MINUTES, eventIds);
+        if (n > 0) log.info("🔁 Seat lock store '{}' rebuilt {} holds for events {}", lockStore.name(), n, eventIds);
+    }
+
+    /** เสียอีเวนต์เหล่านี้ไป → ทิ้ง lock ใน store (ไม่ expire / ไม่ยกเลิกใบจองแทนเจ้าของใหม่) */
+    public void dropLockStore(Collection<Long> eventIds) {
+        try {
+            lockStore.drop(eventIds);
+        } catch (Exception e) {
+            log.error("❌ Seat lock store '{}' drop failed: {}", lockStore.name(), e.getMessage(), e);
+        }
+    }
 
     // ============================== 🧹 AUTO CLEANUP ==============================
 
@@ -38,54 +100,94 @@ public class SeatLockService {
      * 1. อัปเดต seat_locks ที่หมดเวลาเป็น EXPIRED
      * 2. ยกเลิก reserved ที่ยังไม่จ่ายและหมดเวลา
      * 3. ลบ reserved_seats ของใบจองที่ถูกยกเลิก
+     * ข้อ 1-3 ทำที่ node เดียวต่อรอบ (ClusterJobCoordinator) ; lock-store ใน memory ทำทุก node
      */
-    @Transactional
     @Scheduled(fixedRate = 60000) // 1 นาที
     public void cleanupExpiredLocks() {
         log.debug("⏰ SeatLockService cleanup job started at {}", Instant.now());
-        try {
-            // -------------------------------------------------
-            // 1️⃣ อัปเดต LOCK ที่หมดเวลา
-            // -------------------------------------------------
-            int expiredLocks = jdbc.update("""
-                UPDATE seat_locks
-                   SET status = 'EXPIRED'
-                 WHERE status = 'LOCKED'
-                   AND expires_at <= NOW()
-            """);
 
-            // -------------------------------------------------
-            // 2️⃣ ยกเลิกใบจองที่มีที่นั่งหมดเวลา (RESERVED → CANCELLED)
-            // -------------------------------------------------
-            int cancelledReservations = jdbc.update("""
-                UPDATE reserved 
+        // -------------------------------------------------
+        // 0️⃣ lock-store อื่น (unlogged / memory) → ยกเลิกใบจองของที่นั่งที่เพิ่งหมดเวลา
+        //     (memory อยู่ใน process ของแต่ละ node → ต้อง expire เองทุก node)
+        // -------------------------------------------------
+        if (!lockStore.sharedWithSql()) {
+            try {
+                int cancelled = cancelHoldersOf(lockStore.expire());
+                if (cancelled > 0) log.info("🧹 Seat lock store '{}' expired → cancelledReservations={}", lockStore.name(), cancelled);
+            } catch (Exception e) {
+                log.error("❌ Seat lock store '{}' expiry failed: {}", lockStore.name(), e.getMessage(), e);
+            }
+        }
+
+        jobs.runSharded(CLEANUP_JOB, cleanupShards, Duration.ofMinutes(1), Duration.ofMinutes(5), this::cleanupShard);
+    }
+
+    /** งาน SQL ของ cleanup เฉพาะ shard นี้ (shards = 1 → ทั้งตาราง) ; คืนจำนวนแถวที่แก้ทั้งหมด */
+    int cleanupShard(int shard) {
+        // -------------------------------------------------
+        // 1️⃣ อัปเดต LOCK ที่หมดเวลา
+        // -------------------------------------------------
+        int expiredLocks = jdbc.update("""
+            UPDATE seat_locks
+               SET status = 'EXPIRED'
+             WHERE status = 'LOCKED'
+               AND expires_at <= NOW()%s
+        """.formatted(shardFilter("seat_id", shard)));
+
+        // -------------------------------------------------
+        // 2️⃣ ยกเลิกใบจองที่มีที่นั่งหมดเวลา (RESERVED → CANCELLED)
+        // -------------------------------------------------
+        int cancelledReservations = jdbc.update("""
+            UPDATE reserved 
+               SET payment_status = 'CANCELLED',
+                   notes = 'Auto-cancelled due to timeout'
+             WHERE UPPER(COALESCE(payment_status,'')) = 'RESERVED'
+               AND reserved_id IN (
+                   SELECT DISTINCT rs.reserved_id
+                     FROM reserved_seats rs
+                     JOIN seat_locks sl ON sl.seat_id = rs.seat_id
+                    WHERE sl.status = 'EXPIRED'
+               )%s
+        """.formatted(shardFilter("reserved_id", shard)));
+
+        // -------------------------------------------------
+        // 3️⃣ ลบ mapping reserved_seats ที่เชื่อมกับใบจองที่ถูกยกเลิก
+        // -------------------------------------------------
+        int deletedSeats = jdbc.update("""
+            DELETE FROM reserved_seats
+             WHERE reserved_id IN (
+               SELECT reserved_id FROM reserved WHERE payment_status = 'CANCELLED'
+             )%s
+        """.formatted(shardFilter("reserved_id", shard)));
+
+        log.info("🧹 SeatLockService cleanup#{} → expiredLocks={}, cancelledReservations={}, deletedSeats={}",
+                shard, expiredLocks, cancelledReservations, deletedSeats);
+        return expiredLocks + cancelledReservations + deletedSeats;
+    }
+
+    /** shard ของแถว = column % shards (ค่าเป็นตัวเลขของเราเอง ไม่ใช่ input ผู้ใช้) */
+    private String shardFilter(String column, int shard) {
+        return cleanupShards == 1 ? "" : "\n               AND " + column + " % " + cleanupShards + " = " + shard;
+    }
+
+    /** ใบจองของที่นั่งที่หมดเวลา เฉพาะใบที่ hold ของตัวเองหมดแล้ว (registration + hold) — ใบใหม่ของที่นั่งเดิมไม่โดน */
+    private int cancelHoldersOf(List<Long> expiredSeatIds) {
+        if (expiredSeatIds.isEmpty()) return 0;
+        return jdbc.update(con -> {
+            var ps = con.prepareStatement("""
+                UPDATE reserved
                    SET payment_status = 'CANCELLED',
                        notes = 'Auto-cancelled due to timeout'
                  WHERE UPPER(COALESCE(payment_status,'')) = 'RESERVED'
+                   AND registration_datetime + make_interval(mins => ?) <= NOW()
                    AND reserved_id IN (
-                       SELECT DISTINCT rs.reserved_id
-                         FROM reserved_seats rs
-                         JOIN seat_locks sl ON sl.seat_id = rs.seat_id
-                        WHERE sl.status = 'EXPIRED'
+                       SELECT rs.reserved_id FROM reserved_seats rs WHERE rs.seat_id = ANY (?)
                    )
             """);
-
-            // -------------------------------------------------
-            // 3️⃣ ลบ mapping reserved_seats ที่เชื่อมกับใบจองที่ถูกยกเลิก
-            // -------------------------------------------------
-            int deletedSeats = jdbc.update("""
-                DELETE FROM reserved_seats
-                 WHERE reserved_id IN (
-                   SELECT reserved_id FROM reserved WHERE payment_status = 'CANCELLED'
-                 )
-            """);
-
-            log.info("🧹 SeatLockService cleanup → expiredLocks={}, cancelledReservations={}, deletedSeats={}",
-                    expiredLocks, cancelledReservations, deletedSeats);
-
-        } catch (Exception e) {
-            log.error("❌ SeatLockService cleanup failed: {}", e.getMessage(), e);
-        }
+            ps.setInt(1, REBUILD_HOLD_MINUTES);
+            ps.setArray(2, con.createArrayOf("BIGINT", expiredSeatIds.toArray()));
+            return ps;
+        });
     }
 
     // ============================== 🔍 MANUAL HELPERS ==============================
@@ -0,0 +1,55 @@
+package com.example.devops.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  SeatLockStore (ที่เก็บ lock ที่นั่งระหว่างรอจ่าย)
+ * ============================================================
+ * ✅ เลือกด้วย app.seats.lock-store (ดู SeatLockStoreConfig) :
+ *    - table    : seat_locks เดิม (durable, query SQL อื่น join ได้)
+ *    - unlogged : seat_locks_unlogged (UNLOGGED table → ไม่เขียน WAL)
+ *    - memory   : ConcurrentHashMap ใน process (instance เดียวเท่านั้น)
+ *    - sequencer: thread เดียวต่ออีเวนต์ + journal บนดิสก์ (SequencedSeatLockStore, instance เดียวเท่านั้น)
+ * ✅ semantics เดียวกันทุกแบบ (SeatLockStoreContract) :
+ *    - ที่นั่งว่าง / lock หมดอายุ / lock ของ user เดิม → ล็อกได้ (ต่ออายุ)
+ *    - lock ที่ยังไม่หมดอายุของ user อื่น → ข้าม
+ *    - guest = user_id NULL (guest ทุกคนถือเป็น holder เดียวกัน เหมือน seat_locks เดิม)
+ * ✅ lock ไม่ต้องรอด crash : rebuild() ตอน start เติมจากใบจอง RESERVED + reserved_seats PENDING
+ * ✅ หลาย replica (app.ownership.enabled) : store ถือเฉพาะอีเวนต์ที่ node นี้เป็นเจ้าของ
+ *    ได้อีเวนต์มา → rebuild(holdMinutes, eventIds) ; เสียไป → drop(eventIds)
+ * ============================================================
+ */
+public interface SeatLockStore {
+
+    String name();
+
+    /** true = lock อยู่ในตาราง seat_locks เอง (query ที่ join seat_locks เห็น lock นี้) */
+    boolean sharedWithSql();
+
+    /** @return seat_id ที่ล็อกได้ (ตามลำดับที่ส่งมา) */
+    List<Long> lock(Long eventId, Long userId, List<Long> seatIds, Instant expiresAt);
+
+    /** ปลด lock ที่ user นี้ถืออยู่ (userId = null → lock ของ guest) */
+    int unlock(Long userId, List<Long> seatIds);
+
+    /** lock ที่ยังไม่หมดอายุ : seat_id → "SYSTEM" (guest) / "USER_{id}" */
+    Map<Long, String> lockedBy(List<Long> seatIds);
+
+    List<Long> lockedSeatIds(Long eventId);
+
+    /** lock ที่หมดเวลา → EXPIRED ; คืน seat_id ที่เพิ่งหมด (รอบละครั้ง) */
+    List<Long> expire();
+
+    /** เติม lock ของใบจองที่ยังรอจ่าย (หมดอายุ = registration_datetime + holdMinutes) */
+    int rebuild(int holdMinutes);
+
+    /** เฉพาะอีเวนต์เหล่านี้ : ทิ้ง lock เดิมใน store (อาจค้างจากรอบที่เคยเป็นเจ้าของ) แล้วเติมจาก DB ใหม่ */
+    int rebuild(int holdMinutes, Collection<Long> eventIds);
+
+    /** ทิ้ง lock ของอีเวนต์ที่ไม่ได้เป็นเจ้าของแล้ว (ไม่ยกเลิกใบจอง : เจ้าของใหม่ดูแลต่อ) */
+    void drop(Collection<Long> eventIds);
+}
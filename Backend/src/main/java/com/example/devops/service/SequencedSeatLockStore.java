@@ -0,0 +1,339 @@
+package com.example.devops.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * ============================================================
+ *  SequencedSeatLockStore (app.seats.lock-store=sequencer)
+ * ============================================================
+ * ✅ 1 อีเวนต์ = 1 lane (thread เดียว) เป็นเจ้าของ state lock ของอีเวนต์นั้นใน HashMap ธรรมดา
+ *    hold / unlock / expire / rollback ของอีเวนต์เดียวกันถูก apply ตามลำดับ ไม่มี lock / CAS ระหว่างกัน
+ * ✅ ทุกการเปลี่ยนแปลงเขียนลง SeatJournal (memory-mapped) ; ผู้เรียกรอ group fsync ก่อนได้ผล
+ *    → restart แล้ว recover จาก snapshot + journal ได้ตรงกับที่ตอบผู้เรียกไป
+ * ✅ semantics เดียวกับ SeatLockStore อื่น (SeatLockStoreContract) รวมถึงคืนค่าเดิมเมื่อ transaction rollback
+ * ✅ instance เดียวต่ออีเวนต์ (journal อยู่บนดิสก์ของ node)
+ * ⚠️ opt-in เท่านั้น (default = table) : ยังไม่ถึงเป้าหลักแสน ops/s ต่ออีเวนต์
+ *    ทุกคำสั่งรอ fsync ก่อนตอบ → throughput ≈ จำนวนผู้เรียกพร้อมกัน / เวลา force() หนึ่งรอบ
+ *    SeatSequencerBenchmark (64 thread, fsync-interval 0) : ~60k ops/s เทียบกับ InMemorySeatLockStore ~900k ops/s
+ * ============================================================
+ */
+@Slf4j
+public class SequencedSeatLockStore implements SeatLockStore, AutoCloseable {
+
+    private final JdbcTemplate jdbc;
+    private final SeatJournal journal;
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    /** seat_id → event_id : ใช้หา lane ของคำสั่งที่ไม่มี eventId (unlock / lockedBy) */
+    private final ConcurrentHashMap<Long, Long> seatEvents = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+
+    /** state ของ 1 อีเวนต์ — แตะได้เฉพาะบน thread ของ lane */
+    private static final class Lane {
+        final ExecutorService thread;
+        final Map<Long, SeatJournal.Entry> holds = new HashMap<>();
+
+        Lane(Long eventId) {
+            this.thread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "seat-seq-" + eventId);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** ผลของคำสั่ง + offset journal ที่ต้อง durable ก่อนตอบ */
+    private record Applied<T>(T result, long offset) {
+    }
+
+    public SequencedSeatLockStore(JdbcTemplate jdbc, SeatJournal journal) {
+        this.jdbc = jdbc;
+        this.journal = journal;
+    }
+
+    @Override
+    public String name() {
+        return "sequencer";
+    }
+
+    @Override
+    public boolean sharedWithSql() {
+        return false;
+    }
+
+    /* ==================== LANE PLUMBING ==================== */
+
+    private Lane lane(Long eventId) {
+        return lanes.computeIfAbsent(eventId, Lane::new);
+    }
+
+    /** รันคำสั่งบน lane ของอีเวนต์ แล้วรอ journal durable */
+    private <T> T submit(Long eventId, Function<Lane, Applied<T>> command) {
+        Lane lane = lane(eventId);
+        Applied<T> applied;
+        try {
+            applied = CompletableFuture.supplyAsync(() -> command.apply(lane), lane.thread).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for seat sequencer", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Seat sequencer command failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (applied.offset() > 0) journal.awaitDurable(applied.offset());
+        return applied.result();
+    }
+
+    private long put(Lane lane, SeatJournal.Entry e) {
+        lane.holds.put(e.seatId(), e);
+        seatEvents.put(e.seatId(), e.eventId());
+        return journal.put(e);
+    }
+
+    private long remove(Lane lane, Long seatId) {
+        lane.holds.remove(seatId);
+        return journal.delete(seatId);
+    }
+
+    private static boolean live(SeatJournal.Entry e, long now) {
+        return e.expiresAtMillis() > now;
+    }
+
+    /** seat_ids จัดกลุ่มตามอีเวนต์ที่ถือ lock อยู่ (ที่นั่งที่ไม่เคยถูกล็อกไม่มี lane) */
+    private Map<Long, List<Long>> byEvent(List<Long> seatIds) {
+        Map<Long, List<Long>> out = new HashMap<>();
+        for (Long seatId : seatIds) {
+            Long eventId = seatEvents.get(seatId);
+            if (eventId != null) out.computeIfAbsent(eventId, k -> new ArrayList<>()).add(seatId);
+        }
+        return out;
+    }
+
+    /* ==================== COMMANDS ==================== */
+
+    @Override
+    public List<Long> lock(Long eventId, Long userId, List<Long> seatIds, Instant expiresAt) {
+        if (seatIds == null || seatIds.isEmpty()) return List.of();
+        long mine = seq.incrementAndGet();
+        Map<Long, SeatJournal.Entry> previous = new HashMap<>();
+        List<Long> got = submit(eventId, lane -> {
+            long now = System.currentTimeMillis();
+            long offset = 0;
+            List<Long> ok = new ArrayList<>(seatIds.size());
+            for (Long seatId : seatIds) {
+                SeatJournal.Entry cur = lane.holds.get(seatId);
+                if (cur != null && live(cur, now) && !Objects.equals(cur.userId(), userId)) continue;
+                offset = put(lane, new SeatJournal.Entry(seatId, eventId, userId, expiresAt.toEpochMilli(), mine));
+                previous.put(seatId, cur);
+                ok.add(seatId);
+            }
+            return new Applied<>(ok, offset);
+        });
+        if (!got.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) restore(eventId, mine, previous);
+                }
+            });
+        }
+        return got;
+    }
+
+    /** rollback : ที่นั่งที่ยังเป็น lock ครั้งนี้ (seq เดิม) → คืนค่าก่อนหน้า */
+    private void restore(Long eventId, long mine, Map<Long, SeatJournal.Entry> previous) {
+        submit(eventId, lane -> {
+            long offset = 0;
+            for (Map.Entry<Long, SeatJournal.Entry> p : previous.entrySet()) {
+                SeatJournal.Entry cur = lane.holds.get(p.getKey());
+                if (cur == null || cur.seq() != mine) continue;
+                offset = p.getValue() == null ? remove(lane, p.getKey()) : put(lane, p.getValue());
+            }
+            return new Applied<>(null, offset);
+        });
+    }
+
+    @Override
+    public int unlock(Long userId, List<Long> seatIds) {
+        if (seatIds == null || seatIds.isEmpty()) return 0;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(seatIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(userId, ids);
+                }
+            });
+            long now = System.currentTimeMillis();
+            return (int) byEvent(seatIds).entrySet().stream()
+                    .mapToLong(e -> submit(e.getKey(), lane -> new Applied<>(e.getValue().stream()
+                            .map(lane.holds::get)
+                            .filter(h -> h != null && live(h, now) && Objects.equals(h.userId(), userId))
+                            .count(), 0L)))
+                    .sum();
+        }
+        return release(userId, seatIds);
+    }
+
+    private int release(Long userId, List<Long> seatIds) {
+        int n = 0;
+        for (Map.Entry<Long, List<Long>> e : byEvent(seatIds).entrySet()) {
+            n += submit(e.getKey(), lane -> {
+                long offset = 0;
+                int released = 0;
+                for (Long seatId : e.getValue()) {
+                    SeatJournal.Entry cur = lane.holds.get(seatId);
+                    if (cur == null || !Objects.equals(cur.userId(), userId)) continue;
+                    offset = remove(lane, seatId);
+                    released++;
+                }
+                return new Applied<>(released, offset);
+            });
+        }
+        return n;
+    }
+
+    @Override
+    public Map<Long, String> lockedBy(List<Long> seatIds) {
+        Map<Long, String> out = new HashMap<>();
+        if (seatIds == null) return out;
+        long now = System.currentTimeMillis();
+        byEvent(seatIds).forEach((eventId, ids) -> out.putAll(submit(eventId, lane -> {
+            Map<Long, String> m = new HashMap<>();
+            for (Long seatId : ids) {
+                SeatJournal.Entry h = lane.holds.get(seatId);
+                if (h != null && live(h, now)) m.put(seatId, h.userId() == null ? "SYSTEM" : "USER_" + h.userId());
+            }
+            return new Applied<>(m, 0L);
+        })));
+        return out;
+    }
+
+    @Override
+    public List<Long> lockedSeatIds(Long eventId) {
+        if (!lanes.containsKey(eventId)) return List.of();
+        long now = System.currentTimeMillis();
+        return submit(eventId, lane -> new Applied<>(lane.holds.values().stream()
+                .filter(h -> live(h, now))
+                .map(SeatJournal.Entry::seatId)
+                .toList(), 0L));
+    }
+
+    @Override
+    public List<Long> expire() {
+        long now = System.currentTimeMillis();
+        List<Long> expired = new ArrayList<>();
+        for (Long eventId : lanes.keySet()) {
+            expired.addAll(submit(eventId, lane -> {
+                long offset = 0;
+                List<Long> ids = new ArrayList<>();
+                for (SeatJournal.Entry h : List.copyOf(lane.holds.values())) {
+                    if (live(h, now)) continue;
+                    offset = remove(lane, h.seatId());
+                    ids.add(h.seatId());
+                }
+                return new Applied<>(ids, offset);
+            }));
+        }
+        return expired;
+    }
+
+    /* ==================== RECOVERY ==================== */
+
+    /**
+     * snapshot + journal → lane ของแต่ละอีเวนต์ ; journal ว่าง (ครั้งแรก / ย้ายมาจาก store อื่น)
+     * → เติมจากใบจองที่ยังรอจ่ายแบบเดียวกับ InMemorySeatLockStore แล้วเขียนลง journal
+     */
+    @Override
+    public int rebuild(int holdMinutes) {
+        Map<Long, SeatJournal.Entry> recovered = journal.entries();
+        if (recovered.isEmpty()) {
+            recovered = pendingHolds(holdMinutes, null);
+            recovered.values().forEach(journal::put);
+        }
+        return install(recovered);
+    }
+
+    /**
+     * ได้อีเวนต์มา (ย้ายเจ้าของ) : journal ของอีเวนต์นั้นอาจค้างจากรอบที่เคยเป็นเจ้าของ
+     * → ทิ้ง lock เดิมของอีเวนต์ แล้วโหลดจากใบจองใน DB เสมอ (ไม่สนว่า journal ว่างหรือไม่)
+     */
+    @Override
+    public int rebuild(int holdMinutes, Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) return 0;
+        drop(eventIds);
+        Map<Long, SeatJournal.Entry> loaded = pendingHolds(holdMinutes, eventIds);
+        long offset = 0;
+        for (SeatJournal.Entry e : loaded.values()) offset = journal.put(e);
+        if (offset > 0) journal.awaitDurable(offset);
+        return install(loaded);
+    }
+
+    @Override
+    public void drop(Collection<Long> eventIds) {
+        for (Long eventId : eventIds) {
+            if (!lanes.containsKey(eventId)) continue;
+            submit(eventId, lane -> {
+                long offset = 0;
+                for (Long seatId : List.copyOf(lane.holds.keySet())) {
+                    offset = remove(lane, seatId);
+                    seatEvents.remove(seatId, eventId);
+                }
+                return new Applied<>(null, offset);
+            });
+        }
+    }
+
+    private Map<Long, SeatJournal.Entry> pendingHolds(int holdMinutes, Collection<Long> eventIds) {
+        Map<Long, SeatJournal.Entry> out = new HashMap<>();
+        InMemorySeatLockStore.queryPendingHolds(jdbc, holdMinutes, eventIds, rs -> {
+            long uid = rs.getLong("user_id");
+            Long userId = rs.wasNull() ? null : uid;
+            Timestamp exp = rs.getTimestamp("expires_at");
+            SeatJournal.Entry e = new SeatJournal.Entry(rs.getLong("seat_id"), rs.getLong("event_id"), userId,
+                    exp == null ? 0 : exp.getTime(), 0);
+            out.put(e.seatId(), e);
+        });
+        return out;
+    }
+
+    /** entry ที่ durable แล้ว → lane ของแต่ละอีเวนต์ */
+    private int install(Map<Long, SeatJournal.Entry> recovered) {
+        long maxSeq = 0;
+        Map<Long, List<SeatJournal.Entry>> perEvent = new HashMap<>();
+        for (SeatJournal.Entry e : recovered.values()) {
+            perEvent.computeIfAbsent(e.eventId(), k -> new ArrayList<>()).add(e);
+            seatEvents.put(e.seatId(), e.eventId());
+            maxSeq = Math.max(maxSeq, e.seq());
+        }
+        seq.accumulateAndGet(maxSeq, Math::max);
+        perEvent.forEach((eventId, entries) -> submit(eventId, lane -> {
+            entries.forEach(e -> lane.holds.put(e.seatId(), e));
+            return new Applied<>(null, 0L);
+        }));
+        return recovered.size();
+    }
+
+    @Override
+    public void close() {
+        lanes.values().forEach(l -> l.thread.shutdown());
+        journal.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ============================================================
+ *  SingleFlight (รวม request ที่ซ้ำกันระหว่างที่กำลังทำงาน)
+ * ============================================================
+ * ✅ caller แรกของ key (leader) ทำงานจริง ; caller ที่มาระหว่างนั้น (follower) รอผล/exception เดียวกัน
+ * ✅ leader เสร็จ → ลบ key ทันที : ไม่ใช่ cache (caller ที่มาทีหลังได้ข้อมูลสดรอบใหม่)
+ *    → DB เห็น 1 query ต่อ key ต่อช่วงที่ยิงพร้อมกัน
+ * ✅ metrics ต่อชื่อ : singleflight.calls / singleflight.shared / singleflight.coalescing.ratio (shared / calls)
+ * ============================================================
+ */
+public class SingleFlight implements MeterBinder {
+
+    /** งานที่อาจ throw checked exception (เช่น MethodInvocation.proceed) */
+    @FunctionalInterface
+    public interface Flight<T> {
+        T run() throws Throwable;
+    }
+
+    private record FlightKey(String name, Object key) {
+    }
+
+    private static final class Stats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong shared = new AtomicLong();
+
+        double ratio() {
+            long c = calls.get();
+            return c == 0 ? 0 : (double) shared.get() / c;
+        }
+    }
+
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public <T> T run(String name, Object key, Supplier<T> work) {
+        try {
+            return execute(name, key, work::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object key, Flight<T> work) throws Throwable {
+        Stats s = stats(name);
+        s.calls.incrementAndGet();
+
+        FlightKey k = new FlightKey(name, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(k, mine);
+        if (leader != null) {
+            s.shared.incrementAndGet();
+            try {
+                return (T) leader.join();
+            } catch (CompletionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+        try {
+            T value = work.run();
+            mine.complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(k, mine);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    double ratio(String name) {
+        return stats(name).ratio();
+    }
+
+    private Stats stats(String name) {
+        Stats s = stats.get(name);
+        if (s != null) return s;
+        Stats created = new Stats();
+        s = stats.putIfAbsent(name, created);
+        if (s != null) return s;
+        bind(name, created);
+        return created;
+    }
+
+    private void bind(String name, Stats s) {
+        MeterRegistry r = registry;
+        if (r == null) return;
+        FunctionCounter.builder("singleflight.calls", s.calls, AtomicLong::get)
+                .tag("name", name)
+                .description("Calls to a coalesced method")
+                .register(r);
+        FunctionCounter.builder("singleflight.shared", s.shared, AtomicLong::get)
+                .tag("name", name)
+                .description("Calls that waited for an identical in-flight call instead of running")
+                .register(r);
+        Gauge.builder("singleflight.coalescing.ratio", s, Stats::ratio)
+                .tag("name", name)
+                .description("Share of calls served by another caller's in-flight computation")
+                .register(r);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        stats.forEach(this::bind);
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  StandingInventoryService (โซนยืน / GA ไม่มีเก้าอี้)
+ * ============================================================
+ * ✅ ความจุของโซน STANDING = rows x cols ของโซน (row_start x row_end) ; ไม่จองผ่านแถว seats/seat_locks
+ * ✅ นับใน memory ต่อโซนด้วย CAS บน AtomicInteger (เพดานแข็ง : held + n > capacity → ปฏิเสธทันที)
+ *    ไม่ใช้ LongAdder เพราะต้องรู้ค่ารวมตอนตัดสินใจ ; CAS ตัวเดียวรับได้หลายล้านครั้ง/วินาทีอยู่แล้ว
+ * ✅ ใบจองจริงยังเป็นแถว reserved (standing_zone_id + quantity) ที่ commit พร้อม hold
+ *    → tx rollback : คืน counter อัตโนมัติ (afterCompletion)
+ * ✅ ตัวเลข held ถูก flush ลง standing_zone_inventory แบบ async ทุก app.standing.flush-ms (เฉพาะโซนที่เปลี่ยน)
+ * ✅ ตอนเริ่มระบบ reconcile จาก reserved (RESERVED/PAID) → crash ระหว่าง flush ไม่ทำให้ตัวเลขเพี้ยน
+ * ✅ hold ที่ไม่จ่ายภายใน app.standing.hold-minutes → CANCELLED แล้วคืน counter
+ *    เปิด event ownership → expire เฉพาะโซนของอีเวนต์ที่ node นี้เป็นเจ้าของ (counter อยู่ที่เจ้าของ)
+ * ✅ ได้อีเวนต์มาใหม่ (EventOwnershipService) → reconcile(eventIds) เฉพาะโซนของอีเวนต์นั้น
+ *    โซนของอีเวนต์ที่ขายอยู่แล้วไม่ถูกแตะ (tryHold ที่กำลังวิ่งไม่หาย)
+ * ⚠️ counter อยู่ใน process เดียว : รันหลาย instance ต้องให้โซนหนึ่งถูกขายจาก instance เดียว
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class StandingInventoryService implements MeterBinder {
+
+    private static final String ZONES_SQL = """
+            SELECT z.zone_id,
+                   z.event_id,
+                   COALESCE(z.row_start, 0) * COALESCE(z.row_end, 0) AS capacity,
+                   COALESCE((SELECT SUM(COALESCE(r.quantity, 0))
+                               FROM reserved r
+                              WHERE r.standing_zone_id = z.zone_id
+                                AND UPPER(COALESCE(r.payment_status, '')) IN ('RESERVED', 'PAID')), 0) AS held
+              FROM seat_zones z
+             WHERE UPPER(COALESCE(z.description, '')) = 'STANDING'
+               AND COALESCE(z.is_active, TRUE)
+            """;
+
+    private static final String EXPIRE_SQL = """
+            UPDATE reserved
+               SET payment_status = 'CANCELLED',
+                   notes = 'Auto-cancelled due to timeout'
+             WHERE standing_zone_id IS NOT NULL
+               AND UPPER(COALESCE(payment_status, '')) = 'RESERVED'
+               AND registration_datetime <= NOW() - make_interval(mins => ?)%s
+            RETURNING standing_zone_id, quantity
+            """;
+
+    private static final RowMapper<long[]> EXPIRED_ROW = (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)};
+
+    private static final RowMapper<long[]> ZONE_ROW = (rs, i) -> new long[]{
+            rs.getLong("zone_id"), rs.getLong("event_id"), rs.getLong("capacity"), rs.getLong("held")};
+
+    private final JdbcTemplate jdbc;
+    private final int holdMinutes;
+    private final ObjectProvider<EventOwnershipService> ownership;
+
+    private final Map<Long, ZoneCounter> zones = new ConcurrentHashMap<>();
+    private final AtomicLong holds = new AtomicLong();
+    private final AtomicLong soldOut = new AtomicLong();
+
+    public StandingInventoryService(JdbcTemplate jdbc, int holdMinutes) {
+        this(jdbc, holdMinutes, null);
+    }
+
+    /** ownership เป็น ObjectProvider : EventOwnershipService เองก็ขึ้นกับ service นี้ */
+    @Autowired
+    public StandingInventoryService(JdbcTemplate jdbc,
+                                    @Value("${app.standing.hold-minutes:5}") int holdMinutes,
+                                    ObjectProvider<EventOwnershipService> ownership) {
+        this.jdbc = jdbc;
+        this.holdMinutes = Math.max(1, holdMinutes);
+        this.ownership = ownership;
+    }
+
+    /** counter ของโซนหนึ่ง ; held แก้ด้วย CAS เท่านั้น */
+    static final class ZoneCounter {
+        final long zoneId;
+        final long eventId;
+        volatile int capacity;
+        final AtomicInteger held;
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        ZoneCounter(long zoneId, long eventId, int capacity, int held) {
+            this.zoneId = zoneId;
+            this.eventId = eventId;
+            this.capacity = capacity;
+            this.held = new AtomicInteger(held);
+        }
+
+        boolean tryAcquire(int n) {
+            for (;;) {
+                int cur = held.get();
+                if (cur + n > capacity) return false;
+                if (held.compareAndSet(cur, cur + n)) {
+                    markDirty();
+                    return true;
+                }
+            }
+        }
+
+        void release(int n) {
+            held.updateAndGet(v -> Math.max(0, v - n));
+            markDirty();
+        }
+
+        int available() {
+            return Math.max(0, capacity - held.get());
+        }
+
+        private void markDirty() {
+            if (!dirty.get()) dirty.set(true);
+        }
+    }
+
+    /* ==================== STARTUP RECONCILE ==================== */
+
+    /** สร้าง counter ทุกโซน STANDING ใหม่จาก reserved (แหล่งความจริง) แล้วเขียน inventory ทับ */
+    @PostConstruct
+    public void reconcile() {
+        try {
+            List<long[]> rows = jdbc.query(ZONES_SQL, ZONE_ROW);
+            zones.clear();
+            for (long[] r : rows) {
+                ZoneCounter c = new ZoneCounter(r[0], r[1], (int) r[2], (int) r[3]);
+                c.dirty.set(true);
+                zones.put(c.zoneId, c);
+            }
+            flush();
+            log.info("🎟️ Standing inventory reconciled: {} zones", rows.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not reconcile standing inventory: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * เติม counter ใหม่จาก reserved เฉพาะโซนของอีเวนต์ที่ระบุ (เพิ่งได้เป็นเจ้าของ)
+     * ต้องเรียกก่อน node นี้เริ่มขายอีเวนต์นั้น ; โซนของอีเวนต์อื่นคงเดิม
+     */
+    public void reconcile(Collection<Long> eventIds) {
+        if (eventIds == null || eventIds.isEmpty()) return;
+        try {
+            List<ZoneCounter> fresh = new ArrayList<>();
+            for (Long eventId : eventIds) {
+                for (long[] r : jdbc.query(ZONES_SQL + " AND z.event_id = ?", ZONE_ROW, eventId)) {
+                    ZoneCounter c = new ZoneCounter(r[0], r[1], (int) r[2], (int) r[3]);
+                    c.dirty.set(true);
+                    fresh.add(c);
+                }
+            }
+            zones.values().removeIf(c -> eventIds.contains(c.eventId));
+            fresh.forEach(c -> zones.put(c.zoneId, c));
+            flush();
+            log.info("🎟️ Standing inventory reconciled for events {}: {} zones", eventIds, fresh.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not reconcile standing inventory for events {}: {}", eventIds, e.getMessage());
+        }
+    }
+
+    /* ==================== HOLD / RELEASE ==================== */
+
+    /**
+     * กัน quantity ที่ในโซนยืน ต้องเรียกใน transaction ที่สร้างแถว reserved
+     * @return false = โซนเต็ม (counter ไม่เปลี่ยน)
+     * @throws IllegalArgumentException ถ้าไม่ใช่โซน STANDING ของอีเวนต์นี้
+     */
+    public boolean tryHold(Long eventId, Long zoneId, int quantity) {
+        ZoneCounter c = counter(zoneId);
+        if (c == null || eventId == null || c.eventId != eventId) {
+            throw new IllegalArgumentException("Zone " + zoneId + " is not a standing zone of event " + eventId);
+        }
+        if (!c.tryAcquire(quantity)) {
+            soldOut.incrementAndGet();
+            return false;
+        }
+        holds.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) c.release(quantity);
+                }
+            });
+        }
+        return true;
+    }
+
+    /** คืน quantity ที่ให้โซน (ยกเลิก) ; อยู่ใน tx → คืนหลัง commit เท่านั้น */
+    public void release(Long zoneId, int quantity) {
+        ZoneCounter c = zones.get(zoneId);
+        if (c == null || quantity <= 0) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    c.release(quantity);
+                }
+            });
+        } else {
+            c.release(quantity);
+        }
+    }
+
+    /** ที่ว่างคงเหลือของโซนยืน (null = ไม่ใช่โซนยืน) */
+    public Integer available(Long zoneId) {
+        ZoneCounter c = counter(zoneId);
+        return c == null ? null : c.available();
+    }
+
+    /** โซนที่ยังไม่รู้จัก (สร้างหลังเริ่มระบบ) → โหลดครั้งเดียวจาก DB */
+    private ZoneCounter counter(Long zoneId) {
+        if (zoneId == null) return null;
+        ZoneCounter c = zones.get(zoneId);
+        if (c != null) return c;
+        List<long[]> rows = jdbc.query(ZONES_SQL + " AND z.zone_id = ?", ZONE_ROW, zoneId);
+        if (rows.isEmpty()) return null;
+        long[] r = rows.get(0);
+        return zones.computeIfAbsent(zoneId, id -> new ZoneCounter(r[0], r[1], (int) r[2], (int) r[3]));
+    }
+
+    /* ==================== ASYNC PERSIST / EXPIRY ==================== */
+
+    /** เขียน held ของโซนที่เปลี่ยนลง standing_zone_inventory (ค่า snapshot ล่าสุด ไม่ใช่ทีละ delta) */
+    @Scheduled(fixedDelayString = "${app.standing.flush-ms:1000}")
+    public int flush() {
+        return WorkloadContext.call(WorkloadClass.BATCH, this::flushDirty);
+    }
+
+    private int flushDirty() {
+        List<Object[]> args = new ArrayList<>();
+        List<ZoneCounter> flushed = new ArrayList<>();
+        for (ZoneCounter c : zones.values()) {
+            if (c.dirty.compareAndSet(true, false)) {
+                args.add(new Object[]{c.zoneId, c.eventId, c.capacity, c.held.get()});
+                flushed.add(c);
+            }
+        }
+        if (args.isEmpty()) return 0;
+        try {
+            jdbc.batchUpdate("""
+                    INSERT INTO standing_zone_inventory (zone_id, event_id, capacity, held, updated_at)
+                    VALUES (?, ?, ?, ?, NOW())
+                    ON CONFLICT (zone_id) DO UPDATE SET
+                        capacity   = EXCLUDED.capacity,
+                        held       = EXCLUDED.held,
+                        updated_at = NOW()
+                    """, args);
+        } catch (Exception e) {
+            flushed.forEach(c -> c.dirty.set(true)); // ลองใหม่รอบหน้า
+            log.warn("⚠️ Standing inventory flush failed: {}", e.getMessage());
+            return 0;
+        }
+        return args.size();
+    }
+
+    /** hold ที่ไม่จ่ายภายในเวลา → CANCELLED แล้วคืน counter (statement เดียว commit เองแล้วค่อยคืน) */
+    @Scheduled(fixedDelayString = "${app.standing.expiry-ms:30000}")
+    public int expireHolds() {
+        return WorkloadContext.call(WorkloadClass.BATCH, this::expireUnpaid);
+    }
+
+    private int expireUnpaid() {
+        try {
+            EventOwnershipService owner = ownership == null ? null : ownership.getIfAvailable();
+            List<long[]> expired;
+            if (owner == null || !owner.isEnabled()) {
+                expired = jdbc.query(EXPIRE_SQL.formatted(""), EXPIRED_ROW, holdMinutes);
+            } else {
+                // counter ของโซนอยู่ที่เจ้าของอีเวนต์ → node อื่นไม่แตะ (ไม่งั้นคืนเข้า counter ผิดเครื่อง)
+                Object[] owned = zones.values().stream()
+                        .filter(c -> owner.owns(c.eventId))
+                        .map(c -> c.zoneId)
+                        .toArray();
+                if (owned.length == 0) return 0;
+                expired = jdbc.query(con -> {
+                    var ps = con.prepareStatement(EXPIRE_SQL.formatted("\n               AND standing_zone_id = ANY (?)"));
+                    ps.setInt(1, holdMinutes);
+                    ps.setArray(2, con.createArrayOf("BIGINT", owned));
+                    return ps;
+                }, EXPIRED_ROW);
+            }
+            for (long[] e : expired) release(e[0], (int) e[1]);
+            if (!expired.isEmpty()) log.info("🧹 Expired {} standing holds", expired.size());
+            return expired.size();
+        } catch (Exception e) {
+            log.error("❌ Standing hold expiry failed: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /** ความจุเปลี่ยนได้เมื่อ organizer แก้ขนาดโซน → อัปเดตเฉพาะ capacity (held ไม่แตะ) */
+    @Scheduled(fixedDelayString = "${app.standing.capacity-refresh-ms:30000}")
+    public void refreshCapacities() {
+        try {
+            for (long[] r : WorkloadContext.call(WorkloadClass.BATCH, () -> jdbc.query(ZONES_SQL, ZONE_ROW))) {
+                ZoneCounter c = zones.get(r[0]);
+                if (c != null && c.capacity != (int) r[2]) {
+                    c.capacity = (int) r[2];
+                    c.dirty.set(true);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Standing capacity refresh failed: {}", e.getMessage());
+        }
+    }
+
+    ZoneCounter zone(Long zoneId) {
+        return zones.get(zoneId);
+    }
+
+    /* ==================== METRICS ==================== */
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("standing.zones", zones, Map::size)
+                .description("Standing zones with an in-memory capacity counter")
+                .register(registry);
+        FunctionCounter.builder("standing.holds", holds, AtomicLong::get)
+                .description("Standing-zone holds granted")
+                .register(registry);
+        FunctionCounter.builder("standing.sold-out", soldOut, AtomicLong::get)
+                .description("Standing-zone holds refused because the zone was full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ============================================================
+ *  TicketInventoryService (ยอดขายต่อ ticket type แบบ sharded counter)
+ * ============================================================
+ * ✅ ticket type หนึ่งมี K แถวใน ticket_type_counter_shards (app.inventory.shards)
+ *    → การขายพร้อมกันกระจายไปคนละแถว ไม่ต่อคิวกันบนแถว ticket_types แถวเดียว
+ * ✅ take(...) : สุ่ม shard เริ่มต้นแล้ว UPDATE แบบมีเงื่อนไข (remaining >= n) ; ไม่พอ → ลอง shard ถัดไป
+ *    ไม่มี shard ไหนพอ แต่รวมกันพอ → ดึงจากหลาย shard (ชนกันระหว่างทาง = คืนของแล้วลองใหม่)
+ * ✅ เพดานแข็ง : remaining ของทุก shard ไม่ติดลบ (CHECK) และผลรวมตอนเริ่ม = quantity_available - quantity_sold
+ *    remaining = NULL = ticket type ไม่จำกัดจำนวน (quantity_available <= 0) นับแค่ยอดขาย
+ * ✅ shard ถูกสร้างครั้งแรกที่มีการขาย ; ticket_types.quantity_sold ถูก sync จากผลรวม shard เป็นรอบ
+ *    (ให้ view public_events_on_sale เห็นว่าขายหมด)
+ * ✅ ตัดยอดตั้งแต่ตอน hold (สร้างใบจอง) ใน transaction เดียวกับการจอง → เพดานไม่ถูกเช็คช้าไปถึงตอนจ่าย
+ *    ยอดที่ตัดไว้จดลง reserved_ticket_holds : จ่าย → ลบแถว (เป็นยอดขายจริง)
+ *    ยกเลิก → release ทันที ; หมดเวลา (ถูกยกเลิกโดย job อื่น) → releaseExpired คืนยอดเป็นรอบ
+ * ✅ ทุกใบจองแตะ ticket type เรียงตาม ticket_type_id เสมอ → การขายหลายประเภทพร้อมกันไม่ deadlock บนแถว shard
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class TicketInventoryService {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int shards;
+    private final int maxAttempts;
+
+    /** ticket type ที่สร้าง shard แล้ว (กัน INSERT ซ้ำทุกครั้ง) */
+    private final Set<Long> initialized = ConcurrentHashMap.newKeySet();
+
+    public TicketInventoryService(JdbcTemplate jdbc, int shards, int maxAttempts) {
+        this(jdbc, null, shards, maxAttempts);
+    }
+
+    @Autowired
+    public TicketInventoryService(JdbcTemplate jdbc,
+                                  PlatformTransactionManager txManager,
+                                  @Value("${app.inventory.shards:16}") int shards,
+                                  @Value("${app.inventory.max-attempts:3}") int maxAttempts) {
+        this.jdbc = jdbc;
+        this.tx = txManager == null ? null : new TransactionTemplate(txManager);
+        this.shards = Math.max(1, shards);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /** ยอดคงเหลือ (null = ไม่จำกัด) และยอดขายรวมจากทุก shard */
+    public record Snapshot(Long ticketTypeId, Integer available, int sold) {}
+
+    /* ==================== TAKE / GIVE BACK ==================== */
+
+    /**
+     * ตัดยอด n ใบของ ticket type ใน transaction ของผู้เรียก
+     * @return false = ขายหมด (ไม่มี shard ไหนถูกแก้ค้างไว้)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean take(Long ticketTypeId, int n) {
+        if (ticketTypeId == null || n <= 0) return true;
+        ensureShards(ticketTypeId);
+
+        // 1) shard เดียวพอ (ทางปกติ) : เริ่มสุ่ม แล้วไล่วน
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (takeFrom(ticketTypeId, (start + i) % shards, n) == 1) return true;
+        }
+
+        // 2) ยอดกระจายอยู่หลาย shard : ดึงทีละส่วน (เรียงตาม shard → ลำดับการล็อกเหมือนกันทุก tx)
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            List<int[]> rows = jdbc.query("""
+                    SELECT shard, remaining
+                      FROM ticket_type_counter_shards
+                     WHERE ticket_type_id = ? AND remaining > 0
+                     ORDER BY shard
+                    """, (rs, i) -> new int[]{rs.getInt(1), rs.getInt(2)}, ticketTypeId);
+            int total = rows.stream().mapToInt(r -> r[1]).sum();
+            if (total < n) return false;
+
+            List<int[]> taken = new ArrayList<>();
+            int need = n;
+            for (int[] r : rows) {
+                if (need == 0) break;
+                int part = Math.min(need, r[1]);
+                if (takeFrom(ticketTypeId, r[0], part) == 1) {
+                    taken.add(new int[]{r[0], part});
+                    need -= part;
+                }
+            }
+            if (need == 0) return true;
+            for (int[] t : taken) giveTo(ticketTypeId, t[0], t[1]); // ชนกับคนอื่นระหว่างทาง → คืนแล้วลองใหม่
+        }
+        return false;
+    }
+
+    /** คืนยอด n ใบ (ยกเลิกใบที่จ่ายแล้ว) ลง shard สุ่ม */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void giveBack(Long ticketTypeId, int n) {
+        if (ticketTypeId == null || n <= 0) return;
+        ensureShards(ticketTypeId);
+        giveTo(ticketTypeId, ThreadLocalRandom.current().nextInt(shards), n);
+    }
+
+    private int takeFrom(Long ticketTypeId, int shard, int n) {
+        return jdbc.update("""
+                UPDATE ticket_type_counter_shards
+                   SET remaining = remaining - ?,
+                       sold      = sold + ?
+                 WHERE ticket_type_id = ?
+                   AND shard = ?
+                   AND (remaining IS NULL OR remaining >= ?)
+                """, n, n, ticketTypeId, shard, n);
+    }
+
+    /** sold ของ shard เดียวติดลบได้ (ขายจาก shard หนึ่ง คืนเข้าอีก shard) — ผลรวมยังถูก */
+    private void giveTo(Long ticketTypeId, int shard, int n) {
+        jdbc.update("""
+                UPDATE ticket_type_counter_shards
+                   SET remaining = remaining + ?,
+                       sold      = sold - ?
+                 WHERE ticket_type_id = ? AND shard = ?
+                """, n, n, ticketTypeId, shard);
+    }
+
+    /** สร้าง K shard จากยอดใน ticket_types (กระจายคงเหลือเท่า ๆ กัน ; ยอดขายเดิมไว้ที่ shard 0) */
+    void ensureShards(Long ticketTypeId) {
+        if (initialized.contains(ticketTypeId)) return;
+        jdbc.update("""
+                INSERT INTO ticket_type_counter_shards (ticket_type_id, shard, remaining, sold)
+                SELECT t.ticket_type_id,
+                       g.shard,
+                       CASE WHEN COALESCE(t.quantity_available, 0) > 0
+                            THEN GREATEST(t.quantity_available - COALESCE(t.quantity_sold, 0), 0) / ?
+                               + CASE WHEN g.shard < GREATEST(t.quantity_available - COALESCE(t.quantity_sold, 0), 0) % ?
+                                      THEN 1 ELSE 0 END
+                       END,
+                       CASE WHEN g.shard = 0 THEN COALESCE(t.quantity_sold, 0) ELSE 0 END
+                  FROM ticket_types t
+                 CROSS JOIN generate_series(0, ? - 1) AS g(shard)
+                 WHERE t.ticket_type_id = ?
+                ON CONFLICT (ticket_type_id, shard) DO NOTHING
+                """, shards, shards, shards, ticketTypeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // tx rollback = INSERT หาย → จำว่าสร้างแล้วเฉพาะเมื่อ commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    initialized.add(ticketTypeId);
+                }
+            });
+        } else {
+            initialized.add(ticketTypeId);
+        }
+    }
+
+    /* ==================== RESERVATION HOOKS ==================== */
+
+    /** ตัดยอดตอนสร้างใบจอง ; ticket type ไหนขายหมด → IllegalArgumentException (การจองถูก rollback) */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void hold(Long reservedId) {
+        Long soldOut = takeAll(reservedId, true);
+        if (soldOut != null) {
+            throw new IllegalArgumentException("SOLD_OUT: ticket type " + soldOut + " has no tickets left");
+        }
+    }
+
+    /** แบบไม่โยน (ใช้ใน batch) : false = ขายหมด และไม่มียอดของใบนี้ค้างอยู่ */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryHold(Long reservedId) {
+        return takeAll(reservedId, true) == null;
+    }
+
+    /** คืน ticket type ที่ขายหมด (null = ได้ครบ) ; ไม่ได้ครบ → คืนยอดที่ตัดไปแล้วของใบนี้ */
+    private Long takeAll(Long reservedId, boolean recordHold) {
+        Map<Long, Integer> counts = ticketCounts(reservedId);
+        List<Object[]> taken = new ArrayList<>(counts.size());
+        for (Map.Entry<Long, Integer> e : counts.entrySet()) {
+            if (!take(e.getKey(), e.getValue())) {
+                for (Object[] t : taken) giveBack((Long) t[1], (Integer) t[2]);
+                return e.getKey();
+            }
+            taken.add(new Object[]{reservedId, e.getKey(), e.getValue()});
+        }
+        if (recordHold && !taken.isEmpty()) {
+            jdbc.batchUpdate("""
+                    INSERT INTO reserved_ticket_holds (reserved_id, ticket_type_id, quantity)
+                    VALUES (?, ?, ?)
+                    ON CONFLICT (reserved_id, ticket_type_id) DO UPDATE SET quantity = reserved_ticket_holds.quantity + EXCLUDED.quantity
+                    """, taken);
+        }
+        return null;
+    }
+
+    /**
+     * ใบจองที่เพิ่งจ่าย : ยอดถูกตัดไว้ตั้งแต่ hold แล้ว → แค่ลบบันทึก hold
+     * ไม่มี hold (ใบจองรุ่นก่อน / hold ถูกคืนไปแล้ว) → ตัดตอนนี้ ; ขายหมด → IllegalArgumentException (การจ่ายถูก rollback)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSale(Long reservedId) {
+        int held = jdbc.update("DELETE FROM reserved_ticket_holds WHERE reserved_id = ?", reservedId);
+        if (held > 0) return;
+        Long soldOut = takeAll(reservedId, false);
+        if (soldOut != null) {
+            throw new IllegalArgumentException("SOLD_OUT: ticket type " + soldOut + " has no tickets left");
+        }
+    }
+
+    /** คืนยอดของใบจองที่จ่ายแล้วแต่ถูกยกเลิก */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRefund(Long reservedId) {
+        ticketCounts(reservedId).forEach(this::giveBack);
+    }
+
+    /** คืนยอดที่ hold ไว้ของใบจองที่ยังไม่จ่ายแต่ถูกยกเลิก */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long reservedId) {
+        giveBackAll(jdbc.query("""
+                DELETE FROM reserved_ticket_holds
+                 WHERE reserved_id = ?
+                RETURNING ticket_type_id, quantity
+                """, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}, reservedId));
+    }
+
+    /**
+     * hold ของใบจองที่ถูกยกเลิก (หมดเวลา) / หายไปแล้ว → คืนยอด ; DELETE ... RETURNING กันคืนซ้ำข้าม instance
+     * transaction เปิดหลังตั้ง WorkloadContext (connection มาจาก pool ของ BATCH)
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.release-ms:30000}")
+    public int releaseExpired() {
+        return WorkloadContext.call(WorkloadClass.BATCH, () -> {
+            try {
+                return tx == null ? releaseCancelled() : tx.execute(s -> releaseCancelled());
+            } catch (Exception e) {
+                log.error("❌ Ticket hold release failed: {}", e.getMessage(), e);
+                return 0;
+            }
+        });
+    }
+
+    private int releaseCancelled() {
+        List<long[]> released = jdbc.query("""
+                DELETE FROM reserved_ticket_holds h
+                 WHERE NOT EXISTS (SELECT 1 FROM reserved r
+                                    WHERE r.reserved_id = h.reserved_id
+                                      AND UPPER(COALESCE(r.payment_status, '')) <> 'CANCELLED')
+                RETURNING h.ticket_type_id, h.quantity
+                """, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        giveBackAll(released);
+        if (!released.isEmpty()) log.info("🧹 Released {} expired ticket type holds", released.size());
+        return released.size();
+    }
+
+    /** รวมตาม ticket type แล้วคืนเรียงตาม ticket_type_id (ลำดับการล็อกเดียวกับ take) */
+    private void giveBackAll(List<long[]> rows) {
+        Map<Long, Integer> byType = new TreeMap<>();
+        for (long[] r : rows) byType.merge(r[0], (int) r[1], Integer::sum);
+        byType.forEach(this::giveBack);
+    }
+
+    /**
+     * จำนวนบัตรต่อ ticket type ของใบจอง : ticket_type_id ตรง ๆ / โซนยืน / โซนของที่นั่ง (ticket type แรกของโซน)
+     * เรียงตาม ticket_type_id (TreeMap) → ลำดับการล็อก shard เหมือนกันทุก transaction
+     */
+    Map<Long, Integer> ticketCounts(Long reservedId) {
+        Map<Long, Integer> out = new TreeMap<>();
+        jdbc.query("""
+                SELECT ticket_type_id, SUM(qty) AS qty FROM (
+                    SELECT r.ticket_type_id, COALESCE(r.quantity, 0) AS qty
+                      FROM reserved r
+                     WHERE r.reserved_id = ? AND r.ticket_type_id IS NOT NULL
+                    UNION ALL
+                    SELECT (SELECT MIN(ztt.ticket_type_id) FROM zone_ticket_types ztt WHERE ztt.zone_id = r.standing_zone_id),
+                           COALESCE(r.quantity, 0)
+                      FROM reserved r
+                     WHERE r.reserved_id = ? AND r.ticket_type_id IS NULL AND r.standing_zone_id IS NOT NULL
+                    UNION ALL
+                    SELECT (SELECT MIN(ztt.ticket_type_id) FROM zone_ticket_types ztt WHERE ztt.zone_id = sr.zone_id), 1
+                      FROM reserved r
+                      JOIN reserved_seats rs ON rs.reserved_id = r.reserved_id
+                      JOIN seats s           ON s.seat_id = rs.seat_id
+                      JOIN seat_rows sr      ON sr.row_id = s.row_id
+                     WHERE r.reserved_id = ? AND r.ticket_type_id IS NULL
+                ) x
+                 WHERE ticket_type_id IS NOT NULL
+                 GROUP BY ticket_type_id
+                """, rs -> {
+            out.put(rs.getLong(1), rs.getInt(2));
+        }, reservedId, reservedId, reservedId);
+        return out;
+    }
+
+    /* ==================== READ ==================== */
+
+    /** รวมทุก shard ; ยังไม่เคยขาย → อ่านจาก ticket_types */
+    @Transactional(readOnly = true)
+    public Snapshot snapshot(Long ticketTypeId) {
+        List<Snapshot> rows = jdbc.query("""
+                SELECT t.ticket_type_id,
+                       CASE WHEN COUNT(s.shard) = 0
+                            THEN CASE WHEN COALESCE(t.quantity_available, 0) > 0
+                                      THEN GREATEST(t.quantity_available - COALESCE(t.quantity_sold, 0), 0) END
+                            WHEN COUNT(s.remaining) = 0 THEN NULL
+                            ELSE SUM(s.remaining) END                                AS available,
+                       CASE WHEN COUNT(s.shard) = 0 THEN COALESCE(t.quantity_sold, 0)
+                            ELSE SUM(s.sold) END                                     AS sold
+                  FROM ticket_types t
+                  LEFT JOIN ticket_type_counter_shards s ON s.ticket_type_id = t.ticket_type_id
+                 WHERE t.ticket_type_id = ?
+                 GROUP BY t.ticket_type_id, t.quantity_available, t.quantity_sold
+                """, (rs, i) -> new Snapshot(rs.getLong(1), rs.getObject(2, Integer.class), rs.getInt(3)),
+                ticketTypeId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /** เขียนผลรวม sold กลับลง ticket_types.quantity_sold (เฉพาะที่เปลี่ยน) */
+    @Scheduled(fixedDelayString = "${app.inventory.sync-ms:5000}")
+    public int syncTicketTypes() {
+        return WorkloadContext.call(WorkloadClass.BATCH, this::syncSold);
+    }
+
+    private int syncSold() {
+        try {
+            return jdbc.update("""
+                    UPDATE ticket_types t
+                       SET quantity_sold = s.sold,
+                           updated_at    = NOW()
+                      FROM (SELECT ticket_type_id, SUM(sold) AS sold
+                              FROM ticket_type_counter_shards
+                             GROUP BY ticket_type_id) s
+                     WHERE t.ticket_type_id = s.ticket_type_id
+                       AND t.quantity_sold IS DISTINCT FROM s.sold
+                    """);
+        } catch (Exception e) {
+            log.warn("⚠️ Ticket inventory sync failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
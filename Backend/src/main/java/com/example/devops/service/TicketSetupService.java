@@ -1,5 +1,6 @@
 package com.example.devops.service;
 
+import com.example.devops.config.Coalesced;
 import com.example.devops.dto.TicketSetupRequest;
 import com.example.devops.model.*;
 import com.example.devops.repo.*;
@@ -31,177 +32,162 @@ public class TicketSetupService {
     /* ===========================
        PUBLIC SETUP (for SeatMap)
        =========================== */
+    /** ❗ @Coalesced : Map ที่คืนอาจแชร์กับ caller อื่น → copy ก่อนแก้ */
+    @Coalesced("ticket-setup")
     @Transactional(readOnly = true)
     public Map<String, Object> getSetup(Long eventId) {
-        try {
-            List<SeatZones> zones = safeList(() -> seatZonesRepo.findByEventIdOrderBySortOrderAsc(eventId));
-            List<Seats> seats = safeList(() -> seatsRepo.findAllSeatsByEventId(eventId));
-            if (zones.isEmpty() && seats.isEmpty()) return null;
-
-            int seatRows = 0;
-            int seatColumns = 0;
-
-            // ค่ากลางจาก seat_zones (ใช้ค่าสูงสุดเพื่อ prefill)
-            if (!zones.isEmpty()) {
-                seatRows = zones.stream()
-                        .map(SeatZones::getRowStart).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
-                seatColumns = zones.stream()
-                        .map(SeatZones::getRowEnd).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
-            }
+        List<SeatZones> zones = orEmpty(seatZonesRepo.findByEventIdOrderBySortOrderAsc(eventId));
+        List<Seats> seats = orEmpty(seatsRepo.findAllSeatsByEventId(eventId));
+        if (zones.isEmpty() && seats.isEmpty()) return null;
+
+        int seatRows = 0;
+        int seatColumns = 0;
+
+        // ค่ากลางจาก seat_zones (ใช้ค่าสูงสุดเพื่อ prefill)
+        if (!zones.isEmpty()) {
+            seatRows = zones.stream()
+                    .map(SeatZones::getRowStart).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
+            seatColumns = zones.stream()
+                    .map(SeatZones::getRowEnd).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
+        }
 
-            // fallback
-            if (seatRows == 0) {
-                List<SeatRows> rows = safeList(() -> seatRowsRepo.findAllRowsByEventId(eventId));
-                if (!rows.isEmpty()) {
-                    seatRows = rows.stream()
-                            .collect(Collectors.groupingBy(SeatRows::getZoneId))
-                            .values().stream().mapToInt(List::size).max().orElse(0);
-                }
-            }
-            if (seatColumns == 0 && !seats.isEmpty()) {
-                seatColumns = seats.stream()
-                        .map(Seats::getSeatNumber).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
+        // fallback
+        if (seatRows == 0) {
+            List<SeatRows> rows = orEmpty(seatRowsRepo.findAllRowsByEventId(eventId));
+            if (!rows.isEmpty()) {
+                seatRows = rows.stream()
+                        .collect(Collectors.groupingBy(SeatRows::getZoneId))
+                        .values().stream().mapToInt(List::size).max().orElse(0);
             }
+        }
+        if (seatColumns == 0 && !seats.isEmpty()) {
+            seatColumns = seats.stream()
+                    .map(Seats::getSeatNumber).filter(Objects::nonNull).mapToInt(Integer::intValue).max().orElse(0);
+        }
 
-            /*
-             * occupied map ต่อโซน
-             *   r = row.sort_order (0-based, A=0, B=1, ...)
-             *   c = seats.seat_number - 1 (0-based, ที่นั่ง 1 → c=0)
-             */
-            Map<Long, List<Map<String, Integer>>> occupiedByZone = new HashMap<>();
-            // ใช้ set ป้องกัน duplicate กรณี seat เดียวถูกเพิ่มมาจากหลาย query
-            Map<Long, Set<String>> occDedup = new HashMap<>();
-
-            // helper: ใส่พิกัดลง map พร้อมกันซ้ำ
-            final var addOcc = new Object() {
-                void add(long zoneId, int r0, int c0) {
-                    if (r0 < 0 || c0 < 0) return;
-                    String key = r0 + ":" + c0;
-                    occDedup.computeIfAbsent(zoneId, k -> new LinkedHashSet<>());
-                    if (occDedup.get(zoneId).add(key)) {
-                        occupiedByZone.computeIfAbsent(zoneId, k -> new ArrayList<>()).add(Map.of("r", r0, "c", c0));
-                    }
+        /*
+         * occupied map ต่อโซน
+         *   r = row.sort_order (0-based, A=0, B=1, ...)
+         *   c = seats.seat_number - 1 (0-based, ที่นั่ง 1 → c=0)
+         */
+        Map<Long, List<Map<String, Integer>>> occupiedByZone = new HashMap<>();
+        // ใช้ set ป้องกัน duplicate กรณี seat เดียวถูกเพิ่มมาจากหลาย query
+        Map<Long, Set<String>> occDedup = new HashMap<>();
+
+        // helper: ใส่พิกัดลง map พร้อมกันซ้ำ
+        final var addOcc = new Object() {
+            void add(long zoneId, int r0, int c0) {
+                if (r0 < 0 || c0 < 0) return;
+                String key = r0 + ":" + c0;
+                occDedup.computeIfAbsent(zoneId, k -> new LinkedHashSet<>());
+                if (occDedup.get(zoneId).add(key)) {
+                    occupiedByZone.computeIfAbsent(zoneId, k -> new ArrayList<>()).add(Map.of("r", r0, "c", c0));
                 }
-            };
-
-            try {
-                // ที่นั่งที่ถูกระบุ occupied จากสถานะในตาราง (เช่น CONFIRMED/PENDING/RESERVED เป็นต้น) → แปลงเป็น r/c
-                List<Object[]> occ = seatsRepo.findOccupiedWithZoneRowColByEventId(eventId);
-                for (Object[] row : occ) {
-                    Long zoneId = ((Number) row[0]).longValue();
-                    int r0 = ((Number) row[1]).intValue(); // 0-based sort_order
-                    int c1 = ((Number) row[2]).intValue(); // 1-based seat_number
-                    int c0 = Math.max(0, c1 - 1);         // -> 0-based
-                    addOcc.add(zoneId, r0, c0);
-                }
-            } catch (Exception ex) {
-                log.warn("occupiedSeats query failed: {}", ex.getMessage());
             }
+        };
+
+        // ที่นั่งที่ถูกระบุ occupied จากสถานะในตาราง (เช่น CONFIRMED/PENDING/RESERVED เป็นต้น) → แปลงเป็น r/c
+        List<Object[]> occ = seatsRepo.findOccupiedWithZoneRowColByEventId(eventId);
+        for (Object[] row : occ) {
+            Long zoneId = ((Number) row[0]).longValue();
+            int r0 = ((Number) row[1]).intValue(); // 0-based sort_order
+            int c1 = ((Number) row[2]).intValue(); // 1-based seat_number
+            int c0 = Math.max(0, c1 - 1);         // -> 0-based
+            addOcc.add(zoneId, r0, c0);
+        }
 
-            try {
-                // รวม PAID + LOCKED ปัจจุบัน แล้ว map ไปยังพิกัด r/c 0-based
-                List<Long> paidIds   = safeList(() -> seatsRepo.findPaidTakenSeatIdsByEvent(eventId));
-                List<Long> lockedIds = safeList(() -> seatsRepo.findLockedSeatIdsByEvent(eventId));
-                Set<Long> union = new LinkedHashSet<>();
-                union.addAll(paidIds);
-                union.addAll(lockedIds);
-
-                if (!union.isEmpty()) {
-                    List<Object[]> mapped = seatsRepo.findZoneRowColForSeatIds(eventId, union.toArray(Long[]::new));
-                    for (Object[] r : mapped) {
-                        Long zoneId = ((Number) r[1]).longValue();
-                        int r0 = ((Number) r[2]).intValue(); // 0-based sort_order
-                        int c1 = ((Number) r[3]).intValue(); // 1-based seat_number
-                        int c0 = Math.max(0, c1 - 1);
-                        addOcc.add(zoneId, r0, c0);
-                    }
-                }
-            } catch (Exception ex) {
-                log.warn("map seatIds to coords failed: {}", ex.getMessage());
+        // รวม PAID + LOCKED ปัจจุบัน แล้ว map ไปยังพิกัด r/c 0-based
+        List<Long> paidIds   = orEmpty(seatsRepo.findPaidTakenSeatIdsByEvent(eventId));
+        List<Long> lockedIds = orEmpty(seatsRepo.findLockedSeatIdsByEvent(eventId));
+        Set<Long> union = new LinkedHashSet<>();
+        union.addAll(paidIds);
+        union.addAll(lockedIds);
+
+        if (!union.isEmpty()) {
+            List<Object[]> mapped = seatsRepo.findZoneRowColForSeatIds(eventId, union.toArray(Long[]::new));
+            for (Object[] r : mapped) {
+                Long zoneId = ((Number) r[1]).longValue();
+                int r0 = ((Number) r[2]).intValue(); // 0-based sort_order
+                int c1 = ((Number) r[3]).intValue(); // 1-based seat_number
+                int c0 = Math.max(0, c1 - 1);
+                addOcc.add(zoneId, r0, c0);
             }
+        }
 
-            // zone DTOs (ส่ง rows/cols ต่อโซนจริงกลับไปให้ FE ด้วย)
-            List<Map<String, Object>> zoneDtos = new ArrayList<>();
-            for (SeatZones z : zones) {
-                Long zoneId = z.getZoneId();
-
-                Long ticketTypeId = null;
-                try {
-                    List<Long> tts = zoneTicketTypesRepo.findTicketTypeIdsByZoneId(zoneId);
-                    if (tts != null && !tts.isEmpty()) ticketTypeId = tts.get(0);
-                } catch (Throwable ignore) {}
-
-                Integer price = null;
-                try {
-                    if (z.getPrice() != null) {
-                        price = z.getPrice().intValue();
-                    } else {
-                        BigDecimal p = zoneTicketTypesRepo.findFirstPriceByZoneId(zoneId);
-                        if (p != null) price = p.intValue();
-                        else {
-                            String typeKey = safeUpper(firstNonEmpty(z.getDescription(), z.getZoneName(), "GENERAL"));
-                            BigDecimal p2 = zoneTicketTypesRepo.findPriceByEventAndTypeKey(eventId, typeKey);
-                            if (p2 != null) price = p2.intValue();
-                        }
-                    }
-                } catch (Throwable ignore) {}
+        // zone DTOs (ส่ง rows/cols ต่อโซนจริงกลับไปให้ FE ด้วย)
+        List<Map<String, Object>> zoneDtos = new ArrayList<>();
+        for (SeatZones z : zones) {
+            Long zoneId = z.getZoneId();
 
-                String code = safe(z.getDescription());
-                String name = safe(z.getZoneName());
-                String aliasZone = code.isBlank() ? name : code;
-
-                Map<String, Object> m = new LinkedHashMap<>();
-                m.put("id", zoneId);
-                m.put("zoneId", zoneId);
-                m.put("code", code);
-                m.put("name", name);
-                m.put("zone", aliasZone);
-                m.put("price", price);
-                m.put("ticketTypeId", ticketTypeId);
-                m.put("hasSeats", !"STANDING".equalsIgnoreCase(code));
-                m.put("sortOrder", z.getSortOrder() == null ? 0 : z.getSortOrder());
-                m.put("rows", z.getRowStart());
-                m.put("cols", z.getRowEnd());
-                m.put("occupiedSeats", occupiedByZone.getOrDefault(zoneId, List.of()));
-                zoneDtos.add(m);
-            }
+            Long ticketTypeId = null;
+            List<Long> tts = zoneTicketTypesRepo.findTicketTypeIdsByZoneId(zoneId);
+            if (tts != null && !tts.isEmpty()) ticketTypeId = tts.get(0);
 
-            // ticket types defaults
-            Integer minPer = null, maxPer = null;
-            Boolean active = null;
-            Instant saleStart = null, saleEnd = null;
-
-            List<TicketTypes> types = ticketTypesRepo.findByEventId(eventId);
-            if (!types.isEmpty()) {
-                TicketTypes t0 = types.get(0);
-                minPer = t0.getMinPerOrder();
-                maxPer = t0.getMaxPerOrder();
-                active = t0.getIsActive();
-                saleStart = t0.getSaleStartDatetime();
-                saleEnd = t0.getSaleEndDatetime();
-            }
-            if (saleStart == null || saleEnd == null) {
-                var ev = eventsRepo.findById(eventId).orElse(null);
-                if (ev != null) {
-                    if (saleStart == null) saleStart = ev.getSalesStartDatetime();
-                    if (saleEnd == null)   saleEnd   = ev.getSalesEndDatetime();
+            Integer price = null;
+            if (z.getPrice() != null) {
+                price = z.getPrice().intValue();
+            } else {
+                BigDecimal p = zoneTicketTypesRepo.findFirstPriceByZoneId(zoneId);
+                if (p != null) price = p.intValue();
+                else {
+                    String typeKey = safeUpper(firstNonEmpty(z.getDescription(), z.getZoneName(), "GENERAL"));
+                    BigDecimal p2 = zoneTicketTypesRepo.findPriceByEventAndTypeKey(eventId, typeKey);
+                    if (p2 != null) price = p2.intValue();
                 }
             }
 
-            Map<String, Object> out = new LinkedHashMap<>();
-            out.put("seatRows", seatRows);
-            out.put("seatColumns", seatColumns);
-            out.put("zones", zoneDtos);
-            out.put("minPerOrder", minPer);
-            out.put("maxPerOrder", maxPer);
-            out.put("active", active);
-            out.put("salesStartDatetime", saleStart);
-            out.put("salesEndDatetime", saleEnd);
-            return out;
-        } catch (Exception ex) {
-            log.error("getSetup error: {}", ex.getMessage(), ex);
-            return emptySetup();
+            String code = safe(z.getDescription());
+            String name = safe(z.getZoneName());
+            String aliasZone = code.isBlank() ? name : code;
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", zoneId);
+            m.put("zoneId", zoneId);
+            m.put("code", code);
+            m.put("name", name);
+            m.put("zone", aliasZone);
+            m.put("price", price);
+            m.put("ticketTypeId", ticketTypeId);
+            m.put("hasSeats", !"STANDING".equalsIgnoreCase(code));
+            m.put("sortOrder", z.getSortOrder() == null ? 0 : z.getSortOrder());
+            m.put("rows", z.getRowStart());
+            m.put("cols", z.getRowEnd());
+            m.put("occupiedSeats", occupiedByZone.getOrDefault(zoneId, List.of()));
+            zoneDtos.add(m);
+        }
+
+        // ticket types defaults
+        Integer minPer = null, maxPer = null;
+        Boolean active = null;
+        Instant saleStart = null, saleEnd = null;
+
+        List<TicketTypes> types = ticketTypesRepo.findByEventId(eventId);
+        if (!types.isEmpty()) {
+            TicketTypes t0 = types.get(0);
+            minPer = t0.getMinPerOrder();
+            maxPer = t0.getMaxPerOrder();
+            active = t0.getIsActive();
+            saleStart = t0.getSaleStartDatetime();
+            saleEnd = t0.getSaleEndDatetime();
+        }
+        if (saleStart == null || saleEnd == null) {
+            var ev = eventsRepo.findById(eventId).orElse(null);
+            if (ev != null) {
+                if (saleStart == null) saleStart = ev.getSalesStartDatetime();
+                if (saleEnd == null)   saleEnd   = ev.getSalesEndDatetime();
+            }
         }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("seatRows", seatRows);
+        out.put("seatColumns", seatColumns);
+        out.put("zones", zoneDtos);
+        out.put("minPerOrder", minPer);
+        out.put("maxPerOrder", maxPer);
+        out.put("active", active);
+        out.put("salesStartDatetime", saleStart);
+        out.put("salesEndDatetime", saleEnd);
+        return out;
     }
 
     /* ================
@@ -539,22 +525,11 @@ public class TicketSetupService {
         try { return Optional.ofNullable(supplier.get()).orElse(List.of()); }
         catch (Throwable ignore) { return List.of(); }
     }
+    private static <T> List<T> orEmpty(List<T> list) { return list == null ? List.of() : list; }
     private static <T> T orElse(T v, T def) { return v != null ? v : def; }
     private static String firstNonEmpty(String... arr) {
         if (arr == null) return "";
         for (String s : arr) if (s != null && !s.isBlank()) return s;
         return "";
     }
-    private static Map<String, Object> emptySetup() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        m.put("seatRows", 0);
-        m.put("seatColumns", 0);
-        m.put("zones", List.of());
-        m.put("minPerOrder", null);
-        m.put("maxPerOrder", null);
-        m.put("active", null);
-        m.put("salesStartDatetime", null);
-        m.put("salesEndDatetime", null);
-        return m;
-    }
 }
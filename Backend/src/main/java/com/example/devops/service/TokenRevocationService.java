@@ -0,0 +1,263 @@
+package com.example.devops.service;
+
+import com.example.devops.security.AuthenticatedUser;
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.security.RevokedTokenSet;
+import com.example.devops.security.VerifiedToken;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ============================================================
+ *  TokenRevocationService
+ * ============================================================
+ * ✅ ใช้ตาราง user_sessions / organizer_sessions เป็นที่เก็บถาวร (session_id = jti ของ token)
+ *   - login  : recordSession(...) บันทึก session ที่ออก token ให้
+ *   - logout : revoke(token) → is_active = FALSE, revoked_at = NOW()
+ *              ไม่มีแถว session (token เก่า / บันทึก session ไม่สำเร็จ) → INSERT revoked_tokens แทน
+ *   - admin  : revokeAllFor(acct, id) → บังคับ revoke ทุก session ที่ยังไม่หมดอายุ
+ * ✅ ทุกครั้งที่ revoke จะใส่ jti ลง RevokedTokenSet ด้วย → JwtFilter เช็คใน memory ไม่ query DB
+ * ✅ ตอนเริ่มระบบ โหลด jti ที่ถูก revoke (และยังไม่หมดอายุ) กลับเข้า memory
+ * ✅ ทุก ๆ app.jwt.revocation.sync-ms : ดึง revoke ใหม่จาก instance อื่น + ทิ้ง jti ที่หมดอายุ
+ *    cursor = max(revoked_at) ที่เห็นแล้ว (เวลาของ DB ไม่ใช่นาฬิกาของ instance) ถอยหลัง 5 วินาทีกัน commit ช้า
+ * ✅ app.session.idle-timeout-minutes > 0 : revoke session ที่ไม่มี activity นานเกินกำหนด
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private final JdbcTemplate jdbc;
+    private final JwtVerifier jwtVerifier;
+    private final RevokedTokenSet revokedTokens;
+    private final int idleTimeoutMinutes;
+
+    /** revoke ทุกแหล่ง : session ที่ถูก revoke + revoked_tokens (token ที่ไม่มีแถว session) ; %s = เงื่อนไข */
+    private static final String REVOKED_SQL = """
+            SELECT jti, expires_at, revoked_at
+              FROM (
+                    SELECT session_id AS jti, expires_at, revoked_at FROM user_sessions      WHERE is_active = FALSE
+                    UNION ALL
+                    SELECT session_id,        expires_at, revoked_at FROM organizer_sessions WHERE is_active = FALSE
+                    UNION ALL
+                    SELECT jti,               expires_at, revoked_at FROM revoked_tokens
+                   ) r
+             WHERE %s
+            """;
+
+    // max(revoked_at) ที่ sync แล้ว — เวลาของ DB (query ถอยหลัง 5 วินาทีกัน transaction ที่ commit ช้า)
+    private volatile Timestamp syncCursor = new Timestamp(0);
+
+    public TokenRevocationService(JdbcTemplate jdbc,
+                                  JwtVerifier jwtVerifier,
+                                  RevokedTokenSet revokedTokens,
+                                  @Value("${app.session.idle-timeout-minutes:0}") int idleTimeoutMinutes) {
+        this.jdbc = jdbc;
+        this.jwtVerifier = jwtVerifier;
+        this.revokedTokens = revokedTokens;
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+    }
+
+    /* ==================== STARTUP LOAD ==================== */
+
+    @PostConstruct
+    public void loadFromDatabase() {
+        try {
+            Map<String, Long> revoked = new HashMap<>();
+            Timestamp[] cursor = {syncCursor};
+            jdbc.query(REVOKED_SQL.formatted("(expires_at IS NULL OR expires_at > NOW())"), rs -> {
+                Timestamp exp = rs.getTimestamp("expires_at");
+                revoked.put(rs.getString("jti"), exp == null ? 0L : exp.getTime());
+                cursor[0] = later(cursor[0], rs.getTimestamp("revoked_at"));
+            });
+            revokedTokens.replaceAll(revoked);
+            syncCursor = cursor[0];
+            log.info("🔒 Loaded {} revoked token ids", revoked.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not load revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    /* ==================== LOGIN ==================== */
+
+    /** บันทึก session ของ token ที่เพิ่งออกให้ (verify ที่นี่ = prime cache ของ JwtVerifier ไปด้วย) */
+    public void recordSession(String token, String ipAddress, String userAgent) {
+        VerifiedToken t = jwtVerifier.verify(token);
+        if (t.jti() == null || t.accountId() == null) return;
+        Table tbl = Table.of(t.accountType());
+        if (tbl == null) return;
+
+        jdbc.update("""
+                INSERT INTO %s (session_id, %s, created_at, expires_at, is_active, ip_address, user_agent)
+                VALUES (?, ?, NOW(), ?, TRUE, ?, ?)
+                """.formatted(tbl.name, tbl.idColumn),
+                t.jti(), t.accountId(),
+                t.expiresAtMillis() > 0 ? new Timestamp(t.expiresAtMillis()) : null,
+                truncate(ipAddress, 50), userAgent);
+    }
+
+    /* ==================== LOGOUT / REVOKE ==================== */
+
+    /**
+     * revoke token ที่ส่งมา (ใช้ตอน logout)
+     * @return true ถ้า token มี jti และถูก revoke แล้ว
+     */
+    public boolean revoke(String token) {
+        VerifiedToken t = jwtVerifier.verify(token);
+        if (t.jti() == null) return false;
+
+        Table tbl = Table.of(t.accountType());
+        int sessions = tbl == null ? 0 : jdbc.update("""
+                UPDATE %s
+                   SET is_active = FALSE, revoked_at = NOW()
+                 WHERE session_id = ?
+                """.formatted(tbl.name), t.jti());
+        if (sessions == 0) {
+            // ไม่มีแถว session → เก็บ jti ไว้เองให้ instance อื่น sync เห็น
+            jdbc.update("""
+                    INSERT INTO revoked_tokens (jti, expires_at, revoked_at)
+                    VALUES (?, ?, NOW())
+                    ON CONFLICT (jti) DO NOTHING
+                    """, t.jti(), t.expiresAtMillis() > 0 ? new Timestamp(t.expiresAtMillis()) : null);
+        }
+        revokedTokens.revoke(t.jti(), t.expiresAtMillis());
+        return true;
+    }
+
+    /** บังคับ revoke ทุก session ที่ยังใช้ได้ของบัญชีนี้ — คืนจำนวน token ที่ถูก revoke */
+    @Transactional
+    public int revokeAllFor(String accountType, Long accountId) {
+        Table tbl = Table.of(accountType);
+        if (tbl == null || accountId == null) return 0;
+
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+                SELECT session_id, expires_at
+                  FROM %s
+                 WHERE %s = ?
+                   AND is_active = TRUE
+                   AND (expires_at IS NULL OR expires_at > NOW())
+                """.formatted(tbl.name, tbl.idColumn), accountId);
+        if (rows.isEmpty()) return 0;
+
+        jdbc.update("""
+                UPDATE %s
+                   SET is_active = FALSE, revoked_at = NOW()
+                 WHERE %s = ?
+                   AND is_active = TRUE
+                """.formatted(tbl.name, tbl.idColumn), accountId);
+
+        for (Map<String, Object> r : rows) {
+            Object exp = r.get("expires_at");
+            revokedTokens.revoke(String.valueOf(r.get("session_id")),
+                    exp instanceof Timestamp ts ? ts.getTime() : 0L);
+        }
+        return rows.size();
+    }
+
+    /* ==================== PERIODIC SYNC ==================== */
+
+    /** ดึง revoke ที่เกิดบน instance อื่น + ทิ้ง jti ที่หมดอายุ */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-ms:30000}",
+               initialDelayString = "${app.jwt.revocation.sync-ms:30000}")
+    public void sync() {
+        try {
+            Timestamp[] cursor = {syncCursor};
+            jdbc.query(REVOKED_SQL.formatted("revoked_at >= CAST(? AS TIMESTAMPTZ) - INTERVAL '5 seconds'"), rs -> {
+                Timestamp exp = rs.getTimestamp("expires_at");
+                revokedTokens.revoke(rs.getString("jti"), exp == null ? 0L : exp.getTime());
+                cursor[0] = later(cursor[0], rs.getTimestamp("revoked_at"));
+            }, syncCursor);
+            syncCursor = cursor[0];
+        } catch (Exception e) {
+            log.warn("⚠️ Revoked token sync failed: {}", e.getMessage());
+        }
+        revokedTokens.purgeExpired(Instant.now().toEpochMilli());
+    }
+
+    /** revoked_tokens ของ token ที่หมดอายุแล้วไม่ต้องเก็บ (JwtFilter ปฏิเสธจาก exp อยู่แล้ว) */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.purge-ms:3600000}",
+               initialDelayString = "${app.jwt.revocation.purge-ms:3600000}")
+    public int purgeExpired() {
+        try {
+            return jdbc.update("DELETE FROM revoked_tokens WHERE expires_at < NOW()");
+        } catch (Exception e) {
+            log.warn("⚠️ Revoked token purge failed: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /* ==================== IDLE TIMEOUT ==================== */
+
+    /**
+     * revoke session ที่ไม่มี activity เกิน app.session.idle-timeout-minutes (0 = ปิด)
+     * last_activity มาจาก SessionActivityRecorder (write-behind) — ยังไม่เคยมี ใช้ created_at แทน
+     */
+    @Scheduled(fixedDelayString = "${app.session.idle-check-ms:60000}",
+               initialDelayString = "${app.session.idle-check-ms:60000}")
+    public int revokeIdleSessions() {
+        if (idleTimeoutMinutes <= 0) return 0;
+        int n = 0;
+        try {
+            for (Table tbl : Table.values()) {
+                List<Map<String, Object>> rows = jdbc.queryForList("""
+                        UPDATE %s
+                           SET is_active = FALSE, revoked_at = NOW()
+                         WHERE is_active = TRUE
+                           AND COALESCE(last_activity, created_at) < NOW() - make_interval(mins => ?)
+                           AND (expires_at IS NULL OR expires_at > NOW())
+                        RETURNING session_id, expires_at
+                        """.formatted(tbl.name), idleTimeoutMinutes);
+                for (Map<String, Object> r : rows) {
+                    Object exp = r.get("expires_at");
+                    revokedTokens.revoke(String.valueOf(r.get("session_id")),
+                            exp instanceof Timestamp ts ? ts.getTime() : 0L);
+                }
+                n += rows.size();
+            }
+            if (n > 0) log.info("⏳ Revoked {} idle sessions", n);
+        } catch (Exception e) {
+            log.warn("⚠️ Idle session check failed: {}", e.getMessage());
+        }
+        return n;
+    }
+
+    /* ==================== helpers ==================== */
+
+    private enum Table {
+        USER("user_sessions", "user_id"),
+        ORGANIZER("organizer_sessions", "organizer_id");
+
+        final String name;
+        final String idColumn;
+
+        Table(String name, String idColumn) {
+            this.name = name;
+            this.idColumn = idColumn;
+        }
+
+        static Table of(String accountType) {
+            if (AuthenticatedUser.ACCOUNT_USER.equals(accountType)) return USER;
+            if (AuthenticatedUser.ACCOUNT_ORGANIZER.equals(accountType)) return ORGANIZER;
+            return null;
+        }
+    }
+
+    private static Timestamp later(Timestamp a, Timestamp b) {
+        return b != null && b.after(a) ? b : a;
+    }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  WaitingRoomService (virtual queue ต่ออีเวนต์)
+ * ============================================================
+ * ✅ เปิดด้วย app.waiting-room.enabled=true
+ * ✅ join(eventId, holder) : แจกลำดับคิว + token ที่ sign ด้วย HMAC-SHA256 (v2.eventId.position.issuedAt.sig)
+ *    → ปลอม/แก้ลำดับไม่ได้ ไม่ต้องเก็บ token ไว้ฝั่ง server
+ *    sig ผูกกับผู้ถือ (subject ที่ login ถ้ามี ไม่งั้น IP ของ client) แต่ไม่ใส่ไว้ใน token
+ *    → เอา token ที่ถึงคิวแล้วไปแจกคนอื่น/บอทใช้ต่อไม่ได้
+ *    ตอนตรวจยอมรับทั้ง subject และ IP ของ request → join ตอนยังไม่ login แล้ว login ทีหลังยังใช้ได้
+ * ✅ ทุก app.waiting-room.tick-ms ปล่อยคิวเพิ่มตาม "อัตรา" ต่อวินาที
+ *    อัตรา = throughput การจองที่วัดได้ (EWMA) × headroom จำกัดอยู่ใน [min, max]-admit-per-second
+ *    throughput นับจาก ReservationCreated ที่มาทาง outbox (ครอบคลุมทั้งจองตรงและแบบ batched)
+ * ✅ token ที่ position <= admittedUpTo เท่านั้นที่เข้า seat map / จองได้ (ตรวจใน WaitingRoomGate)
+ * ✅ app.waiting-room.store :
+ *    - memory   : สถานะคิวอยู่ใน memory (instance เดียว)
+ *    - postgres : ตาราง waiting_room_events ใช้ร่วมกันหลาย instance ;
+ *                 การปล่อยคิวคิดจากเวลาที่ผ่านไปตั้งแต่ admitted_at → ไม่เร็วขึ้นตามจำนวน instance
+ * ============================================================
+ */
+@Service
+@Slf4j
+public class WaitingRoomService implements OutboxHandler, MeterBinder {
+
+    public static final String HEADER = "X-Queue-Token";
+
+    private static final String TOKEN_VERSION = "v2";
+    private static final double EWMA_ALPHA = 0.3;
+
+    /** สถานะคิวของผู้ถือ token */
+    public record Pass(String token, Long eventId, long position, long admittedUpTo,
+                       boolean valid, boolean admitted, long estimatedWaitSeconds) {
+
+        public long aheadOfYou() {
+            return Math.max(0, position - admittedUpTo - 1);
+        }
+
+        public Map<String, Object> toBody() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            if (token != null) m.put("token", token);
+            m.put("eventId", eventId);
+            m.put("position", position);
+            m.put("admitted", admitted);
+            m.put("aheadOfYou", aheadOfYou());
+            m.put("estimatedWaitSeconds", estimatedWaitSeconds);
+            return m;
+        }
+    }
+
+    /** ผู้ถือ token : subject ที่ verify แล้ว (null = ไม่ได้ login) + IP ของ client */
+    public record Holder(String subject, String ip) {
+
+        /** key ที่ใช้ตอน sign : subject ถ้ามี ไม่งั้น IP */
+        String bindKey() {
+            return subject != null ? "sub:" + subject : "ip:" + ip;
+        }
+
+        /** key ที่ยอมรับตอนตรวจ */
+        List<String> keys() {
+            return subject != null ? List.of("sub:" + subject, "ip:" + ip) : List.of("ip:" + ip);
+        }
+    }
+
+    /** สถานะต่ออีเวนต์บน instance นี้ (postgres mode = snapshot ล่าสุดจาก DB) */
+    static final class Room {
+        final AtomicLong issued = new AtomicLong();
+        volatile long admittedUpTo;
+        double credit;                                   // memory mode: เศษของการปล่อยที่สะสมไว้
+        long lastTickNanos = System.nanoTime();
+        final AtomicLong completedLocal = new AtomicLong(); // ยังไม่ได้รายงานลง DB / ยังไม่ได้นับเข้า EWMA
+        long lastCompletedTotal = -1;
+        volatile double throughputPerSecond;
+    }
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final boolean postgres;
+    private final byte[] secret;
+    private final double minRate;
+    private final double maxRate;
+    private final double headroom;
+    private final long tokenTtlMillis;
+
+    private final ConcurrentHashMap<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong admittedTotal = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+
+    public WaitingRoomService(JdbcTemplate jdbc,
+                              @Value("${app.waiting-room.enabled:false}") boolean enabled,
+                              @Value("${app.waiting-room.store:memory}") String store,
+                              @Value("${app.waiting-room.secret:${app.jwt.secret:my-super-secret-key-for-jwt-token-signing-minimum-32-chars}}") String secret,
+                              @Value("${app.waiting-room.min-admit-per-second:20}") double minRate,
+                              @Value("${app.waiting-room.max-admit-per-second:500}") double maxRate,
+                              @Value("${app.waiting-room.headroom:1.2}") double headroom,
+                              @Value("${app.waiting-room.token-ttl-minutes:120}") long tokenTtlMinutes) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.postgres = "postgres".equalsIgnoreCase(store == null ? "" : store.trim());
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.minRate = Math.max(0.1, minRate);
+        this.maxRate = Math.max(this.minRate, maxRate);
+        this.headroom = Math.max(1.0, headroom);
+        this.tokenTtlMillis = Math.max(1, tokenTtlMinutes) * 60_000L;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ==================== JOIN / STATUS ==================== */
+
+    /** ✅ ต่อคิว : คืน Pass พร้อม token ใหม่ */
+    public Pass join(Long eventId, Holder holder) {
+        Room room = room(eventId);
+        long position;
+        if (postgres) {
+            Map<String, Object> row = jdbc.queryForMap("""
+                    INSERT INTO waiting_room_events (event_id, issued, admitted_up_to, admitted_at)
+                    VALUES (?, 1, 0, NOW())
+                    ON CONFLICT (event_id) DO UPDATE SET issued = waiting_room_events.issued + 1
+                    RETURNING issued, admitted_up_to
+                    """, eventId);
+            position = ((Number) row.get("issued")).longValue();
+            room.admittedUpTo = Math.max(room.admittedUpTo, ((Number) row.get("admitted_up_to")).longValue());
+            room.issued.accumulateAndGet(position, Math::max);
+        } else {
+            position = room.issued.incrementAndGet();
+        }
+        joined.incrementAndGet();
+        String token = sign(eventId, position, System.currentTimeMillis(), holder);
+        return pass(token, eventId, position, room);
+    }
+
+    /** ✅ ตรวจ token : valid=false ถ้า token ผิด/หมดอายุ/ไม่ใช่อีเวนต์นี้/ไม่ใช่ของผู้ถือคนนี้ */
+    public Pass status(Long eventId, String token, Holder holder) {
+        long position = verify(eventId, token, holder);
+        if (position <= 0) {
+            return new Pass(null, eventId, -1, 0, false, false, 0);
+        }
+        return pass(null, eventId, position, room(eventId));
+    }
+
+    /** ใช้โดย WaitingRoomGate : admitted = ผ่านเข้า seat map / จองได้ (นับ denied ใน metric) */
+    public Pass admission(Long eventId, String token, Holder holder) {
+        Pass p = status(eventId, token, holder);
+        if (!p.admitted()) denied.incrementAndGet();
+        return p;
+    }
+
+    private Pass pass(String token, Long eventId, long position, Room room) {
+        long head = room.admittedUpTo;
+        boolean admitted = position <= head;
+        double rate = rate(room);
+        long wait = admitted ? 0 : (long) Math.ceil((position - head) / rate);
+        return new Pass(token, eventId, position, head, true, admitted, wait);
+    }
+
+    /* ==================== ADMISSION TICK ==================== */
+
+    @Scheduled(fixedDelayString = "${app.waiting-room.tick-ms:500}")
+    public void tick() {
+        if (!enabled) return;
+        for (Map.Entry<Long, Room> e : rooms.entrySet()) {
+            try {
+                if (postgres) tickPostgres(e.getKey(), e.getValue());
+                else tickMemory(e.getValue());
+            } catch (Exception ex) {
+                log.warn("⚠️ Waiting room tick failed for event {}: {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    void tickMemory(Room room) {
+        long now = System.nanoTime();
+        double elapsed = (now - room.lastTickNanos) / 1e9;
+        room.lastTickNanos = now;
+        observe(room, room.completedLocal.getAndSet(0), elapsed);
+
+        double rate = rate(room);
+        long issued = room.issued.get();
+        long head = room.admittedUpTo;
+        if (head >= issued) {
+            // ไม่มีคนรอ: เก็บ credit ไว้ไม่เกิน 1 วินาที (burst) ไม่สะสมตอนว่าง
+            room.credit = Math.min(rate, room.credit + rate * elapsed);
+            return;
+        }
+        room.credit += rate * elapsed;
+        long n = Math.min((long) Math.floor(room.credit), issued - head);
+        if (n > 0) {
+            room.credit -= n;
+            room.admittedUpTo = head + n;
+            admittedTotal.addAndGet(n);
+        }
+    }
+
+    private void tickPostgres(Long eventId, Room room) {
+        long now = System.nanoTime();
+        double elapsed = (now - room.lastTickNanos) / 1e9;
+        room.lastTickNanos = now;
+
+        long localDone = room.completedLocal.getAndSet(0);
+        double rate = rate(room);
+        List<Map<String, Object>> rows;
+        try {
+            rows = jdbc.queryForList("""
+                    UPDATE waiting_room_events w
+                       SET completed      = w.completed + ?,
+                           admitted_up_to = LEAST(w.issued,
+                                 w.admitted_up_to + FLOOR(? * EXTRACT(EPOCH FROM (NOW() - w.admitted_at)))::BIGINT),
+                           admitted_at    = CASE
+                                 WHEN w.admitted_up_to >= w.issued
+                                   OR FLOOR(? * EXTRACT(EPOCH FROM (NOW() - w.admitted_at))) >= 1 THEN NOW()
+                                 ELSE w.admitted_at END
+                     WHERE w.event_id = ?
+                    RETURNING w.issued, w.admitted_up_to, w.completed
+                    """, localDone, rate, rate, eventId);
+        } catch (Exception e) {
+            room.completedLocal.addAndGet(localDone); // รอบหน้ารายงานใหม่
+            throw e;
+        }
+        if (rows.isEmpty()) return; // ยังไม่มีใครต่อคิวอีเวนต์นี้
+
+        Map<String, Object> r = rows.get(0);
+        long head = ((Number) r.get("admitted_up_to")).longValue();
+        long completedTotal = ((Number) r.get("completed")).longValue();
+        if (head > room.admittedUpTo) admittedTotal.addAndGet(head - room.admittedUpTo);
+        room.admittedUpTo = head;
+        room.issued.accumulateAndGet(((Number) r.get("issued")).longValue(), Math::max);
+
+        // throughput รวมทุก instance = ส่วนต่างของ completed ระหว่างรอบ
+        long delta = room.lastCompletedTotal < 0 ? 0 : completedTotal - room.lastCompletedTotal;
+        room.lastCompletedTotal = completedTotal;
+        observe(room, Math.max(0, delta), elapsed);
+    }
+
+    private void observe(Room room, long completed, double elapsedSeconds) {
+        if (elapsedSeconds <= 0) return;
+        double instant = completed / elapsedSeconds;
+        room.throughputPerSecond = EWMA_ALPHA * instant + (1 - EWMA_ALPHA) * room.throughputPerSecond;
+    }
+
+    double rate(Room room) {
+        return Math.max(minRate, Math.min(maxRate, room.throughputPerSecond * headroom));
+    }
+
+    /* ==================== THROUGHPUT (outbox) ==================== */
+
+    @Override
+    public boolean supports(String eventType) {
+        return enabled && OutboxPublisher.RESERVATION_CREATED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Object ev = event.payload().get("eventId");
+        if (ev instanceof Number n) room(n.longValue()).completedLocal.incrementAndGet();
+    }
+
+    /* ==================== TOKEN ==================== */
+
+    String sign(Long eventId, long position, long issuedAtMillis, Holder holder) {
+        String body = TOKEN_VERSION + "." + eventId + "." + position + "." + issuedAtMillis;
+        return body + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(body + "|" + holder.bindKey()));
+    }
+
+    /** คืน position ถ้า token ถูกต้อง เป็นของ eventId นี้ และออกให้ holder นี้ ; ไม่งั้น -1 */
+    long verify(Long eventId, String token, Holder holder) {
+        if (token == null || eventId == null || holder == null) return -1;
+        int cut = token.lastIndexOf('.');
+        if (cut <= 0) return -1;
+        String body = token.substring(0, cut);
+        String[] parts = body.split("\\.");
+        if (parts.length != 4 || !TOKEN_VERSION.equals(parts[0])) return -1;
+        try {
+            byte[] sig = Base64.getUrlDecoder().decode(token.substring(cut + 1));
+            boolean bound = false;
+            for (String key : holder.keys()) {
+                bound |= MessageDigest.isEqual(sig, hmac(body + "|" + key));
+            }
+            if (!bound) return -1;
+            if (Long.parseLong(parts[1]) != eventId) return -1;
+            long issuedAt = Long.parseLong(parts[3]);
+            if (System.currentTimeMillis() - issuedAt > tokenTtlMillis) return -1;
+            return Long.parseLong(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private byte[] hmac(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    Room room(Long eventId) {
+        return rooms.computeIfAbsent(eventId, k -> new Room());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("waiting.room.queued", rooms,
+                        m -> m.values().stream().mapToLong(r -> Math.max(0, r.issued.get() - r.admittedUpTo)).sum())
+                .description("Clients queued in waiting rooms and not yet admitted")
+                .register(registry);
+        FunctionCounter.builder("waiting.room.joined", joined, AtomicLong::get)
+                .description("Waiting room positions issued")
+                .register(registry);
+        FunctionCounter.builder("waiting.room.admitted", admittedTotal, AtomicLong::get)
+                .description("Waiting room positions admitted")
+                .register(registry);
+        FunctionCounter.builder("waiting.room.denied", denied, AtomicLong::get)
+                .description("Requests blocked because the token was missing, invalid or not yet admitted")
+                .register(registry);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.devops.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ============================================================
+ *  ZoneSeatClaimer ("ที่นั่งไหนก็ได้ในโซน")
+ * ============================================================
+ * ✅ claim(...) : หยิบที่นั่งว่าง N ที่ในโซนด้วย SELECT ... FOR UPDATE SKIP LOCKED LIMIT N
+ *    แล้ว INSERT ลง seat_locks ใน statement เดียว
+ *    → ผู้ซื้อพร้อมกันข้ามแถวที่คนอื่นกำลังหยิบ ไม่รอกัน ไม่ต้อง retry เพราะชนที่นั่งเดียวกัน
+ * ✅ upsert ของ seat_locks ทับได้เฉพาะ lock ที่หมดอายุ/ปลดแล้ว ; ถ้าได้ไม่ครบ (แถวที่เพิ่ง commit
+ *    หลัง snapshot ของ statement) หยิบเพิ่มใน transaction เดิม ไม่เกิน MAX_ROUNDS รอบ
+ * ✅ ต้องเรียกใน transaction ของผู้เรียก (MANDATORY) → lock ถูกยกเลิกพร้อมการจองเมื่อ rollback
+ * ✅ ข้ามที่นั่งที่ range hold ถือไว้ ; เปิด range hold → ตรวจซ้ำหลังหยิบ (ช่วงที่ commit ระหว่าง statement
+ *    มองไม่เห็นใน snapshot เดิม) แล้วคืนที่นั่งที่ชนก่อนหยิบรอบถัดไป
+ * ============================================================
+ */
+@Component
+public class ZoneSeatClaimer {
+
+    private static final int MAX_ROUNDS = 3;
+
+    static final String CLAIM_SQL = """
+            WITH picked AS (
+                SELECT s.seat_id
+                  FROM seats s
+                  JOIN seat_rows  r ON r.row_id  = s.row_id
+                  JOIN seat_zones z ON z.zone_id = r.zone_id
+                 WHERE z.zone_id  = ?
+                   AND z.event_id = ?
+                   AND COALESCE(s.is_active, TRUE)
+                   AND NOT EXISTS (
+                       SELECT 1
+                         FROM reserved_seats rs
+                         JOIN reserved rv ON rv.reserved_id = rs.reserved_id
+                        WHERE rs.seat_id = s.seat_id
+                          AND UPPER(COALESCE(rv.payment_status, 'UNPAID')) IN ('RESERVED', 'PAID')
+                   )
+                   AND NOT EXISTS (
+                       SELECT 1
+                         FROM seat_locks l
+                        WHERE l.seat_id = s.seat_id
+                          AND l.status = 'LOCKED'
+                          AND l.expires_at > NOW()
+                   )
+                   AND NOT EXISTS (
+                       SELECT 1
+                         FROM seat_range_holds h
+                        WHERE h.row_id = s.row_id
+                          AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+                          AND h.status = 'LOCKED'
+                          AND h.expires_at > NOW()
+                   )
+                 ORDER BY r.sort_order, s.seat_number
+                 LIMIT ?
+                 FOR UPDATE OF s SKIP LOCKED
+            )
+            INSERT INTO seat_locks (seat_id, event_id, user_id, locked_at, expires_at, status)
+            SELECT p.seat_id, ?, CAST(? AS BIGINT), NOW(), NOW() + make_interval(mins => ?), 'LOCKED'
+              FROM picked p
+            ON CONFLICT (seat_id) DO UPDATE SET
+                event_id   = EXCLUDED.event_id,
+                user_id    = EXCLUDED.user_id,
+                locked_at  = EXCLUDED.locked_at,
+                expires_at = EXCLUDED.expires_at,
+                status     = 'LOCKED'
+             WHERE seat_locks.status <> 'LOCKED' OR seat_locks.expires_at <= NOW()
+            RETURNING seat_id
+            """;
+
+    static final String RANGE_CONFLICT_SQL = """
+            SELECT s.seat_id
+              FROM seats s
+              JOIN seat_range_holds h ON h.row_id = s.row_id
+                                     AND s.seat_number BETWEEN h.seat_from AND h.seat_to
+             WHERE s.seat_id = ANY (?)
+               AND h.status = 'LOCKED'
+               AND h.expires_at > NOW()
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final boolean rangeHoldsEnabled;
+
+    public ZoneSeatClaimer(JdbcTemplate jdbc) {
+        this(jdbc, false);
+    }
+
+    @Autowired
+    public ZoneSeatClaimer(JdbcTemplate jdbc,
+                           @Value("${app.seats.range-holds.enabled:false}") boolean rangeHoldsEnabled) {
+        this.jdbc = jdbc;
+        this.rangeHoldsEnabled = rangeHoldsEnabled;
+    }
+
+    /**
+     * ล็อกที่นั่งว่างในโซนให้ได้ quantity ที่
+     * @return seat_id ที่ล็อกได้ (อาจน้อยกว่า quantity ถ้าที่นั่งในโซนเหลือไม่พอ)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> claim(Long eventId, Long zoneId, Long userId, int quantity, int lockMinutes) {
+        List<Long> claimed = new ArrayList<>(quantity);
+        for (int round = 0; round < MAX_ROUNDS && claimed.size() < quantity; round++) {
+            int want = quantity - claimed.size();
+            List<Long> got = jdbc.queryForList(CLAIM_SQL, Long.class,
+                    zoneId, eventId, want, eventId, userId, lockMinutes);
+            if (rangeHoldsEnabled && !got.isEmpty()) got = dropRangeConflicts(got);
+            claimed.addAll(got);
+            if (got.isEmpty()) break; // โซนเต็ม (หรือทุกที่ที่เหลือกำลังถูกคนอื่นหยิบ)
+        }
+        return claimed;
+    }
+
+    /** ที่นั่งที่หยิบได้แต่ตกอยู่ในช่วงที่เพิ่ง commit → ปลด lock ของเราคืน แล้วเหลือเฉพาะที่ไม่ชน */
+    private List<Long> dropRangeConflicts(List<Long> got) {
+        List<Long> conflicts = jdbc.query(RANGE_CONFLICT_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("BIGINT", got.toArray())),
+                (rs, i) -> rs.getLong(1));
+        if (conflicts.isEmpty()) return got;
+        jdbc.update(con -> {
+            var ps = con.prepareStatement("DELETE FROM seat_locks WHERE seat_id = ANY (?)");
+            ps.setArray(1, con.createArrayOf("BIGINT", conflicts.toArray()));
+            return ps;
+        });
+        return got.stream().filter(id -> !conflicts.contains(id)).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.devops.web;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadConfig;
+import com.example.devops.service.ConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.io.IOException;
+
+/**
+ * ============================================================
+ *  ConcurrencyLimitFilter (ตัด load ส่วนเกินตั้งแต่หน้าประตู)
+ * ============================================================
+ * ✅ อยู่หน้า security filter : request ที่เกิน limit ไม่ต้อง verify JWT / ไม่ถือ thread รอ DB
+ * ✅ จัดกลุ่มตาม @Workload ของ handler (หาจาก RequestMappingHandlerMapping ชุดเดียวกับ WorkloadConfig)
+ *    handler ไม่มี @Workload / หา handler ไม่เจอ → ตาม path
+ *    /api/public/reservations/**          → PURCHASE (จอง / จ่าย / ดูใบจอง)
+ *    /api/admin/**, /api/organizer/**     → BACK_OFFICE
+ *    อื่น ๆ                                → PUBLIC_READ
+ *    /actuator/** และ OPTIONS ไม่ถูกจำกัด
+ * ✅ เกิน limit → 503 {"error":"OVERLOADED"} + Retry-After
+ * ✅ exception / 500 / 504 (timeout) → ส่งเป็น dropped ให้ limit หดเร็วขึ้น
+ *    503 ที่ตั้งใจตัด load (INTAKE_FULL, EVENT_OWNER_*, WORKLOAD_SATURATED, SEAT_MAP_UNAVAILABLE) ไม่นับ
+ * ============================================================
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    private final ConcurrencyLimiter limiter;
+    private final ObjectProvider<HandlerMapping> handlers;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter) {
+        this(limiter, null);
+    }
+
+    @Autowired
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter,
+                                  @Qualifier("requestMappingHandlerMapping") ObjectProvider<HandlerMapping> handlers) {
+        this.limiter = limiter;
+        this.handlers = handlers;
+    }
+
+    /** @Workload ของ handler ที่ DispatcherServlet จะเลือก ; ไม่มี → ตาม path */
+    WorkloadClass groupOf(HttpServletRequest request) {
+        HandlerMapping mapping = handlers == null ? null : handlers.getIfAvailable();
+        if (mapping != null) {
+            boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+            try {
+                if (!parsed) ServletRequestPathUtils.parseAndCache(request);
+                HandlerExecutionChain chain = mapping.getHandler(request);
+                WorkloadClass w = chain == null ? null : WorkloadConfig.workloadOf(chain.getHandler());
+                if (w != null) return w;
+            } catch (Exception e) {
+                // หา handler ไม่ได้ (เช่น 405) → ใช้ path ; DispatcherServlet ตอบ error เอง
+            } finally {
+                if (!parsed) ServletRequestPathUtils.clearParsedRequestPath(request);
+            }
+        }
+        return groupOf(request.getRequestURI());
+    }
+
+    static WorkloadClass groupOf(String path) {
+        if (path.startsWith("/api/public/reservations")) return WorkloadClass.PURCHASE;
+        if (path.startsWith("/api/admin/") || path.startsWith("/api/organizer/")) return WorkloadClass.BACK_OFFICE;
+        return WorkloadClass.PUBLIC_READ;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limiter.isEnabled()
+                || "OPTIONS".equalsIgnoreCase(request.getMethod())
+                || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        WorkloadClass group = groupOf(request);
+        if (!limiter.tryAcquire(group)) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"OVERLOADED\",\"group\":\"" + group.key() + "\"}");
+            return;
+        }
+        long t0 = System.nanoTime();
+        boolean dropped = true;
+        try {
+            chain.doFilter(request, response);
+            dropped = isDrop(response.getStatus());
+        } finally {
+            limiter.release(group, System.nanoTime() - t0, dropped);
+        }
+    }
+
+    /** ล้มจริง (500) / หมดเวลา (504) ; 503 คือเราตัด load เอง ไม่ใช่สัญญาณว่าระบบหลังบ้านพัง */
+    static boolean isDrop(int status) {
+        return status == HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                || status == HttpServletResponse.SC_GATEWAY_TIMEOUT;
+    }
+}
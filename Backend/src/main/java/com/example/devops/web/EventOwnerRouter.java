@@ -0,0 +1,133 @@
+package com.example.devops.web;
+
+import com.example.devops.config.ClientIdentity;
+import com.example.devops.service.EventOwnershipService;
+import com.example.devops.service.WaitingRoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ✅ ด่านหน้าการจอง เมื่อเปิด app.ownership.enabled (ดู EventOwnershipService)
+ *   - เราเป็นเจ้าของอีเวนต์ / อีเวนต์ไม่อยู่ในช่วงขาย → Optional.empty() (ทำต่อในเครื่อง)
+ *   - node อื่นเป็นเจ้าของ → ส่ง request เดิม (body + header ที่ใช้ยืนยันตัวตน/คิว) ไปที่เจ้าของ แล้วตอบผลนั้นกลับ
+ *   - กำลังย้ายเจ้าของ / เจ้าของติดต่อไม่ได้ → 503 + Retry-After (ไม่จองเองเพื่อคง single writer)
+ *   - request ที่ถูกส่งต่อมาแล้วแต่เราไม่ใช่เจ้าของ (lease เพิ่งย้าย) → 503 ไม่ส่งต่อซ้ำ (กันวนลูป)
+ *   - ส่ง IP ของ client ที่ resolve แล้ว (ClientIdentity) ไปใน X-Event-Owner-Client-Ip ; ไม่ต่อ hop ของเราใน X-Forwarded-For
+ *     → เจ้าของเห็น client เดิม (token คิวผูก IP ยังตรง, poll-limit ไม่รวม bucket เป็น node ต้นทาง)
+ */
+@Component
+public class EventOwnerRouter {
+
+    static final String FORWARDED_HEADER = ClientIdentity.FORWARDED_BY_HEADER;
+    private static final List<String> COPIED_HEADERS = List.of(
+            HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, WaitingRoomService.HEADER);
+
+    private static final Logger log = LoggerFactory.getLogger(EventOwnerRouter.class);
+
+    private final EventOwnershipService ownership;
+    private final ObjectMapper objectMapper;
+    private final ClientIdentity identity;
+    private final HttpClient http;
+    private final Duration forwardTimeout;
+
+    public EventOwnerRouter(EventOwnershipService ownership, ObjectMapper objectMapper,
+                            long connectTimeoutMs, long forwardTimeoutMs) {
+        this(ownership, objectMapper, new ClientIdentity(0), connectTimeoutMs, forwardTimeoutMs);
+    }
+
+    @Autowired
+    public EventOwnerRouter(EventOwnershipService ownership,
+                            ObjectMapper objectMapper,
+                            ClientIdentity identity,
+                            @Value("${app.ownership.connect-timeout-ms:1000}") long connectTimeoutMs,
+                            @Value("${app.ownership.forward-timeout-ms:10000}") long forwardTimeoutMs) {
+        this.ownership = ownership;
+        this.objectMapper = objectMapper;
+        this.identity = identity;
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(Math.max(100, connectTimeoutMs)))
+                .build();
+        this.forwardTimeout = Duration.ofMillis(Math.max(100, forwardTimeoutMs));
+    }
+
+    public Optional<ResponseEntity<?>> route(Long eventId, Object body) {
+        if (ownership == null || !ownership.isEnabled()) return Optional.empty();
+
+        EventOwnershipService.Route r = ownership.route(eventId);
+        if (r.kind() == EventOwnershipService.Kind.LOCAL) return Optional.empty();
+        if (r.kind() == EventOwnershipService.Kind.PENDING) {
+            return Optional.of(unavailable("EVENT_OWNER_PENDING", "Event " + eventId + " is moving to another node, retry shortly"));
+        }
+
+        HttpServletRequest req = currentRequest();
+        if (req == null || req.getHeader(FORWARDED_HEADER) != null) {
+            return Optional.of(unavailable("EVENT_OWNER_MOVED", "Event " + eventId + " is owned by another node, retry shortly"));
+        }
+        return Optional.of(forward(r.owner(), req, body));
+    }
+
+    private ResponseEntity<?> forward(EventOwnershipService.Lease owner, HttpServletRequest req, Object body) {
+        try {
+            String path = req.getRequestURI() + (req.getQueryString() == null ? "" : "?" + req.getQueryString());
+            HttpRequest.Builder out = HttpRequest.newBuilder(URI.create(owner.baseUrl() + path))
+                    .timeout(forwardTimeout)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .header(FORWARDED_HEADER, ownership.nodeId())
+                    .method(req.getMethod(), HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            for (String h : COPIED_HEADERS) {
+                String v = req.getHeader(h);
+                if (v != null) out.header(h, v);
+            }
+            out.header(ClientIdentity.FORWARDED_CLIENT_IP_HEADER, identity.clientIp(req));
+
+            HttpResponse<byte[]> res = http.send(out.build(), HttpResponse.BodyHandlers.ofByteArray());
+            ResponseEntity.BodyBuilder in = ResponseEntity.status(res.statusCode())
+                    .contentType(MediaType.APPLICATION_JSON);
+            res.headers().firstValue(HttpHeaders.RETRY_AFTER).ifPresent(v -> in.header(HttpHeaders.RETRY_AFTER, v));
+            res.headers().firstValue(HttpHeaders.LOCATION).ifPresent(v -> in.header(HttpHeaders.LOCATION, v));
+            return in.body(res.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return unavailable("EVENT_OWNER_UNAVAILABLE", "Interrupted while forwarding");
+        } catch (Exception e) {
+            // เจ้าของตาย/ช้า : lease จะหมดแล้วย้ายเจ้าของเอง → ให้ client ลองใหม่
+            log.warn("⚠️ Forward to event owner {} ({}) failed: {}", owner.nodeId(), owner.baseUrl(), e.getMessage());
+            return unavailable("EVENT_OWNER_UNAVAILABLE", "Owner of event " + owner.eventId() + " is unreachable, retry shortly");
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a ? a.getRequest() : null;
+    }
+
+    private static ResponseEntity<Map<String, Object>> unavailable(String code, String msg) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", code);
+        m.put("message", msg);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(m);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.devops.web;
 import com.example.devops.model.EventsNam;
 import com.example.devops.repo.EventsNamRepository;
 import com.example.devops.repo.OrganizerRepo;
+import com.example.devops.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -37,8 +38,10 @@ public class EventQueryController {
             return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         }
 
-        String key = auth.getName().trim();
-        Long orgId = organizerRepo.findIdByEmailOrUsernameIgnoreCase(key).orElse(null);
+        // ✅ token รุ่นใหม่มี organizer_id มาแล้ว → ไม่ต้อง query หา id จากชื่อ
+        Long orgId = (auth.getPrincipal() instanceof AuthenticatedUser au && au.accountId() != null)
+                ? au.organizerId()
+                : organizerRepo.findIdByEmailOrUsernameIgnoreCase(auth.getName().trim()).orElse(null);
         if (orgId == null) {
             // ไม่มีสิทธิ์เป็น organizer หรือไม่พบ -> คืนลิสต์ว่าง
             return ResponseEntity.ok(List.of());
@@ -1,5 +1,7 @@
 package com.example.devops.web;
 
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
 import com.example.devops.model.EventsNam;
 import com.example.devops.repo.EventsNamRepository;
 import com.example.devops.repo.ReservedRepository;
@@ -19,6 +21,7 @@ import java.util.Map;
 
 @Slf4j
 @RestController
+@Workload(WorkloadClass.BACK_OFFICE)
 @RequestMapping("/api/organizer/events")
 @CrossOrigin(
         origins = {"http://localhost:5173", "http://localhost:3000"},
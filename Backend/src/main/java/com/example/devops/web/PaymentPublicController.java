@@ -1,5 +1,9 @@
 package com.example.devops.web;
 
+import com.example.devops.config.RateLimited;
+import com.example.devops.config.ReadFromPrimary;
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
 import com.example.devops.dto.ReservedResponse;
 import com.example.devops.model.Reserved;
 import com.example.devops.model.ReservedSeats;
@@ -19,6 +23,7 @@ import java.util.*;
 
 @Slf4j
 @RestController
+@Workload(WorkloadClass.PURCHASE)
 @RequestMapping("/api/public")
 @CrossOrigin(
         origins = {"http://localhost:5173", "http://localhost:3000"},
@@ -109,6 +114,7 @@ public class PaymentPublicController {
        ========================================================= */
     @GetMapping("/reservations/{id}")
     @Transactional(readOnly = true)
+    @ReadFromPrimary
     public ResponseEntity<?> getReservation(@PathVariable Long id) {
         log.info("Fetching reservation: {}", id);
 
@@ -154,6 +160,7 @@ public class PaymentPublicController {
        SEAT STATUS สำหรับหน้าแผนผัง
        ========================================================= */
     @GetMapping("/events/{eventId}/seats/status")
+    @RateLimited("seats-status")
     @Transactional(readOnly = true)
     public ResponseEntity<?> getSeatStatus(@PathVariable Long eventId) {
         List<Long> soldSeatIds = reservedSeatsRepo.findSoldSeatIdsByEvent(eventId);
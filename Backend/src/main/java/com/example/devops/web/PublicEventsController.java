@@ -1,10 +1,17 @@
 package com.example.devops.web;
 
+import com.example.devops.config.RateLimited;
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
 import com.example.devops.dto.EventCardResponse;
 import com.example.devops.model.EventsNam;
 import com.example.devops.repo.EventsNamRepository;
 import com.example.devops.repo.SeatsRepository;
+import com.example.devops.service.BrownoutService;
+import com.example.devops.service.PublicEventReads;
 import com.example.devops.service.TicketSetupService;
+import com.example.devops.service.WaitingRoomService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -16,7 +23,9 @@ import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
+@Workload(WorkloadClass.PUBLIC_READ)
 @RequestMapping("/api/public/events")
 @CrossOrigin(
         origins = {"http://localhost:5173", "http://localhost:3000"},
@@ -27,27 +36,38 @@ public class PublicEventsController {
     private final EventsNamRepository eventsRepo;
     private final TicketSetupService ticketSetupService;
     private final SeatsRepository seatsRepo;
+    private final WaitingRoomGate waitingRoomGate;
+    private final BrownoutService brownout;
+    private final PublicEventReads reads;
 
     public PublicEventsController(EventsNamRepository eventsRepo,
                                   TicketSetupService ticketSetupService,
-                                  SeatsRepository seatsRepo) {
+                                  SeatsRepository seatsRepo,
+                                  WaitingRoomGate waitingRoomGate,
+                                  BrownoutService brownout,
+                                  PublicEventReads reads) {
         this.eventsRepo = eventsRepo;
         this.ticketSetupService = ticketSetupService;
         this.seatsRepo = seatsRepo;
+        this.waitingRoomGate = waitingRoomGate;
+        this.brownout = brownout != null ? brownout : BrownoutService.disabled();
+        this.reads = reads != null ? reads : new PublicEventReads(eventsRepo, seatsRepo);
     }
 
     /* ========= NEW: GET /api/public/events (root) =========
        รองรับพารามิเตอร์ ?section=onSale|upcoming|all (default=onSale) */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<EventCardResponse> list(@RequestParam(defaultValue = "onSale") String section) {
-        return pickEventsBySection(section).stream()
-                .map(EventCardResponse::from)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<EventCardResponse>> list(@RequestParam(defaultValue = "onSale") String section) {
+        return served(brownout.read("catalog:" + section, () -> reads.read(() -> cards(section))));
     }
 
     /* เดิม: /landing (คงไว้ได้) */
     @GetMapping(value = "/landing", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<EventCardResponse> landing(@RequestParam(defaultValue = "onSale") String section) {
+    public ResponseEntity<List<EventCardResponse>> landing(@RequestParam(defaultValue = "onSale") String section) {
+        return served(brownout.read("catalog:" + section, () -> reads.read(() -> cards(section))));
+    }
+
+    private List<EventCardResponse> cards(String section) {
         return pickEventsBySection(section).stream()
                 .map(EventCardResponse::from)
                 .collect(Collectors.toList());
@@ -56,103 +76,122 @@ public class PublicEventsController {
     /* Event public info */
     @GetMapping(value = "/{eventId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> getEventPublic(@PathVariable Long eventId) {
-        return eventsRepo.findById(eventId)
-                .<ResponseEntity<?>>map(e -> ResponseEntity.ok(EventPublicResponse.from(e)))
-                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(jsonError(
-                        "EVENT_NOT_FOUND",
-                        "Event " + eventId + " not found"
-                )));
+        var read = brownout.read("event:" + eventId,
+                () -> reads.read(() -> reads.event(eventId).map(EventPublicResponse::from).orElse(null)));
+        if (read.value() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(jsonError(
+                    "EVENT_NOT_FOUND",
+                    "Event " + eventId + " not found"
+            ));
+        }
+        return served(read);
     }
 
     /* ✅ ผังที่นั่ง (public) — เห็นที่นั่งที่ถูกจอง/จ่ายแล้วเป็น X */
     @GetMapping(value = "/{eventId}/tickets/setup", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> getPublicSeatSetup(@PathVariable("eventId") Long eventId) {
+    @RateLimited("tickets-setup")
+    public ResponseEntity<?> getPublicSeatSetup(
+            @PathVariable("eventId") Long eventId,
+            @RequestHeader(value = WaitingRoomService.HEADER, required = false) String queueToken) {
+        // 🚦 waiting room: seat map เปิดให้เฉพาะ token ที่ถึงคิวแล้ว
+        if (waitingRoomGate != null) {
+            var blocked = waitingRoomGate.check(eventId, queueToken);
+            if (blocked.isPresent()) return blocked.get();
+        }
+        BrownoutService.Read<Map<String, Object>> read;
         try {
-            var evOpt = eventsRepo.findById(eventId);
-            if (evOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(jsonError(
-                        "EVENT_NOT_FOUND",
-                        "Event " + eventId + " not found"
-                ));
-            }
-
-            Map<String, Object> setup = null;
-            try {
-                setup = ticketSetupService.getSetup(eventId);
-            } catch (Exception ex) {
-                System.err.println("[WARN] getSetup failed: " + ex.getMessage());
-            }
-
-            if (setup == null) {
-                return ResponseEntity.ok(emptySeatSetup(
-                        0, 0, null, null, null,
-                        evOpt.get().getSalesStartDatetime(),
-                        evOpt.get().getSalesEndDatetime()
-                ));
-            }
+            read = brownout.read("seat-setup:" + eventId, () -> reads.read(() -> loadSeatSetup(eventId)));
+        } catch (Exception e) {
+            // ❗ ไม่ตอบผังว่าง (ดูเหมือนขายหมด / อีเวนต์พัง) : บอกให้ลองใหม่
+            log.warn("Seat setup for event {} unavailable: {}", eventId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body(jsonError("SEAT_MAP_UNAVAILABLE", "Seat map is temporarily unavailable"));
+        }
+        if (read.value() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(jsonError(
+                    "EVENT_NOT_FOUND",
+                    "Event " + eventId + " not found"
+            ));
+        }
+        return served(read);
+    }
 
-            setup.putIfAbsent("zones", List.of());
-            setup.putIfAbsent("seatRows", 0);
-            setup.putIfAbsent("seatColumns", 0);
-            setup.putIfAbsent("minPerOrder", null);
-            setup.putIfAbsent("maxPerOrder", null);
-            setup.putIfAbsent("salesStartDatetime", evOpt.get().getSalesStartDatetime());
-            setup.putIfAbsent("salesEndDatetime", evOpt.get().getSalesEndDatetime());
+    /** ผังที่นั่ง + ที่นั่งที่จ่ายแล้ว/ล็อกอยู่ ; null = ไม่มีอีเวนต์ ; DB error → throw (ให้ brownout ใช้ snapshot) */
+    private Map<String, Object> loadSeatSetup(Long eventId) {
+        var evOpt = reads.event(eventId);
+        if (evOpt.isEmpty()) return null;
 
-            // ✅ ที่นั่งที่จองแล้ว/ชำระแล้ว และล็อกอยู่
-            List<Long> takenSeatIds = seatsRepo.findPaidTakenSeatIdsByEvent(eventId);
-            List<Long> lockedSeatIds = seatsRepo.findLockedSeatIdsByEvent(eventId);
+        // getSetup เป็น @Coalesced : Map อาจแชร์กับ request อื่น → copy ก่อนเติมค่า
+        // ❗ ไม่ catch : DB error ต้องหลุดออกไปให้ brownout ใช้ snapshot เดิม (ไม่เก็บผังว่างเป็น snapshot ใหม่)
+        var shared = ticketSetupService.getSetup(eventId);
+        Map<String, Object> setup = shared == null ? null : new LinkedHashMap<>(shared);
 
-            Set<Long> allIds = new LinkedHashSet<>();
-            allIds.addAll(takenSeatIds);
-            allIds.addAll(lockedSeatIds);
+        if (setup == null) {
+            return emptySeatSetup(
+                    0, 0, null, null, null,
+                    evOpt.get().getSalesStartDatetime(),
+                    evOpt.get().getSalesEndDatetime()
+            );
+        }
 
-            List<Map<String, Object>> occupiedMap = new ArrayList<>();
-            if (!allIds.isEmpty()) {
-                try {
-                    List<Object[]> rows = seatsRepo.findZoneRowColForSeatIds(eventId, allIds.toArray(Long[]::new));
-                    for (Object[] r : rows) {
-                        Long seatId = ((Number) r[0]).longValue();
-                        Long zoneId = ((Number) r[1]).longValue();
-                        int row = ((Number) r[2]).intValue();      // sort_order = 0-based
-                        int col = ((Number) r[3]).intValue() - 1;  // seat_number = 1-based
-                        occupiedMap.add(Map.of(
-                                "seatId", seatId,
-                                "zoneId", zoneId,
-                                "r", row,
-                                "c", col
-                        ));
-                    }
-                } catch (Exception ex) {
-                    System.err.println("[WARN] findZoneRowColForSeatIds failed: " + ex.getMessage());
-                }
-            }
+        setup.putIfAbsent("zones", List.of());
+        setup.putIfAbsent("seatRows", 0);
+        setup.putIfAbsent("seatColumns", 0);
+        setup.putIfAbsent("minPerOrder", null);
+        setup.putIfAbsent("maxPerOrder", null);
+        setup.putIfAbsent("salesStartDatetime", evOpt.get().getSalesStartDatetime());
+        setup.putIfAbsent("salesEndDatetime", evOpt.get().getSalesEndDatetime());
 
-            setup.put("takenSeatIds", takenSeatIds);
-            setup.put("lockedSeatIds", lockedSeatIds);
-            setup.put("occupiedSeatMap", occupiedMap);
+        // ✅ ที่นั่งที่จองแล้ว/ชำระแล้ว และล็อกอยู่
+        List<Long> takenSeatIds = reads.takenSeatIds(eventId);
+        List<Long> lockedSeatIds = reads.lockedSeatIds(eventId);
 
-            return ResponseEntity.ok(setup);
+        Set<Long> allIds = new LinkedHashSet<>();
+        allIds.addAll(takenSeatIds);
+        allIds.addAll(lockedSeatIds);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(emptySeatSetup(0, 0, null, null, null, null, null));
+        List<Map<String, Object>> occupiedMap = new ArrayList<>();
+        if (!allIds.isEmpty()) {
+            List<Object[]> rows = seatsRepo.findZoneRowColForSeatIds(eventId, allIds.toArray(Long[]::new));
+            for (Object[] r : rows) {
+                Long seatId = ((Number) r[0]).longValue();
+                Long zoneId = ((Number) r[1]).longValue();
+                int row = ((Number) r[2]).intValue();      // sort_order = 0-based
+                int col = ((Number) r[3]).intValue() - 1;  // seat_number = 1-based
+                occupiedMap.add(Map.of(
+                        "seatId", seatId,
+                        "zoneId", zoneId,
+                        "r", row,
+                        "c", col
+                ));
+            }
         }
+
+        setup.put("takenSeatIds", takenSeatIds);
+        setup.put("lockedSeatIds", lockedSeatIds);
+        setup.put("occupiedSeatMap", occupiedMap);
+        return setup;
     }
 
     /* endpoint เบา ๆ ให้ FE รีเฟรชสถานะที่นั่งอย่างเดียว */
     @GetMapping(value = "/{eventId}/seats/taken", produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimited("seats-taken")
     public ResponseEntity<?> seatsTaken(@PathVariable Long eventId) {
-        if (eventsRepo.findById(eventId).isEmpty()) {
+        var read = brownout.read("seats-taken:" + eventId, () -> {
+            if (reads.event(eventId).isEmpty()) return null;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("takenSeatIds", reads.takenSeatIds(eventId));
+            m.put("lockedSeatIds", reads.lockedSeatIds(eventId));
+            return m;
+        });
+        if (read.value() == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(jsonError(
                     "EVENT_NOT_FOUND",
                     "Event " + eventId + " not found"
             ));
         }
-        Map<String, Object> m = new LinkedHashMap<>();
-        m.put("takenSeatIds", seatsRepo.findPaidTakenSeatIdsByEvent(eventId));
-        m.put("lockedSeatIds", seatsRepo.findLockedSeatIdsByEvent(eventId));
-        return ResponseEntity.ok(m);
+        return served(read);
     }
 
     /* Cover */
@@ -181,6 +220,23 @@ public class PublicEventsController {
 
     /* ========= helpers ========= */
 
+    /** snapshot (brownout) → header Age + X-Stale ; body ที่เป็น Map ได้ stale/staleAgeSeconds เพิ่ม */
+    @SuppressWarnings("unchecked")
+    private static <T> ResponseEntity<T> served(BrownoutService.Read<T> read) {
+        if (!read.stale()) return ResponseEntity.ok(read.value());
+        T body = read.value();
+        if (body instanceof Map<?, ?> m) {
+            Map<String, Object> flagged = new LinkedHashMap<>((Map<String, Object>) m);
+            flagged.put("stale", true);
+            flagged.put("staleAgeSeconds", read.ageSeconds());
+            body = (T) flagged;
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(read.ageSeconds()))
+                .header(BrownoutService.STALE_HEADER, "true")
+                .body(body);
+    }
+
     private List<EventsNam> pickEventsBySection(String sectionRaw) {
         String section = sectionRaw == null ? "onSale" : sectionRaw.toLowerCase();
         try {
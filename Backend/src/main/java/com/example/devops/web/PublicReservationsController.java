@@ -1,25 +1,35 @@
 package com.example.devops.web;
 
+import com.example.devops.config.ReadFromPrimary;
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.dto.BestAvailableRequest;
 import com.example.devops.dto.ReservationRequest;
 import com.example.devops.dto.ReservedResponse;
-import com.example.devops.model.User;
+import com.example.devops.dto.ZoneReservationRequest;
 import com.example.devops.repo.EventsNamRepository;
-import com.example.devops.repo.UserRepository;
+import com.example.devops.security.AuthenticatedUser;
+import com.example.devops.service.BestAvailableService;
+import com.example.devops.service.IdentityCache;
+import com.example.devops.service.ReservationIntakeService;
 import com.example.devops.service.ReservationService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.devops.service.WaitingRoomService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Supplier;
 
 @RestController
+@Workload(WorkloadClass.PURCHASE)
 @RequestMapping("/api/public/reservations")
 @CrossOrigin(
         origins = { "http://localhost:5173", "http://localhost:3000", "http://localhost:4173" },
@@ -31,48 +41,41 @@ public class PublicReservationsController {
 
     private final ReservationService reservationService;
     private final EventsNamRepository eventsRepo;
-    private final UserRepository userRepo;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IdentityCache identityCache;
+    private final ReservationIntakeService intake;
+    private final WaitingRoomGate waitingRoomGate;
+    private final BestAvailableService bestAvailable;
+    private final EventOwnerRouter ownerRouter;
 
     public PublicReservationsController(ReservationService reservationService,
                                         EventsNamRepository eventsRepo,
-                                        UserRepository userRepo) {
+                                        IdentityCache identityCache,
+                                        ReservationIntakeService intake,
+                                        WaitingRoomGate waitingRoomGate,
+                                        BestAvailableService bestAvailable,
+                                        EventOwnerRouter ownerRouter) {
         this.reservationService = reservationService;
         this.eventsRepo = eventsRepo;
-        this.userRepo = userRepo;
+        this.identityCache = identityCache;
+        this.intake = intake;
+        this.waitingRoomGate = waitingRoomGate;
+        this.bestAvailable = bestAvailable;
+        this.ownerRouter = ownerRouter;
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> createReservation(
             @RequestBody ReservationRequest req,
-            @RequestHeader(value = "X-User-Id", required = false) Long userIdHeader,
-            @RequestHeader(value = "Authorization", required = false) String authHeader
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = WaitingRoomService.HEADER, required = false) String queueToken
     ) {
         if (req == null) return bad("BAD_REQUEST", "Body is required");
         if (req.getEventId() == null || req.getEventId() <= 0)
             return bad("BAD_REQUEST", "eventId is required");
-        if (!eventsRepo.existsById(req.getEventId()))
-            return notFound("EVENT_NOT_FOUND", "Event " + req.getEventId() + " not found");
-        if (req.getQuantity() == null || req.getQuantity() <= 0)
-            return bad("BAD_REQUEST", "quantity must be > 0");
-
-        final List<ReservationRequest.SeatPick> picks = Optional.ofNullable(req.getSeats()).orElseGet(List::of);
-        if (picks.size() != req.getQuantity())
-            return bad("BAD_REQUEST", "quantity and seats count mismatch");
-
-        // 🔐 validate picks (no negative, no duplicates)
-        Set<String> uniq = new HashSet<>();
-        for (ReservationRequest.SeatPick p : picks) {
-            if (p == null || p.getZoneId() == null)
-                return bad("BAD_REQUEST", "each seat requires zoneId,row,col");
-            if (p.getRow() == null || p.getCol() == null || p.getRow() < 0 || p.getCol() < 0)
-                return bad("BAD_REQUEST", "row/col must be >= 0");
-            String key = p.getZoneId() + ":" + p.getRow() + ":" + p.getCol();
-            if (!uniq.add(key))
-                return bad("BAD_REQUEST", "duplicate seat in request: " + key);
-        }
 
-        Long userId = resolveUserId(userIdHeader, authHeader);
+        Caller caller = admit(req.getEventId(), req, authHeader, queueToken, () -> checkSeatPicks(req));
+        if (caller.response() != null) return caller.response();
+        Long userId = caller.userId();
 
         // ✅ โหมด Guest ก็อนุญาต (ต้องส่ง guestEmail)
         if (userId == null) {
@@ -84,6 +87,26 @@ public class PublicReservationsController {
             log.info("[USER RESERVATION] eventId={}, qty={}, userId={}", req.getEventId(), req.getQuantity(), userId);
         }
 
+        // ⚡ flash-sale mode: เข้าคิวแล้วตอบ 202 + ticket (ผลจริงดูที่ /intake/{ticket})
+        if (intake != null && intake.isEnabled()) {
+            try {
+                ReservationIntakeService.Ticket t = intake.submit(userId, req);
+                Map<String, Object> body = t.toBody();
+                String statusUrl = "/api/public/reservations/intake/" + t.getId();
+                body.put("statusUrl", statusUrl);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .header(HttpHeaders.LOCATION, statusUrl)
+                        .body(body);
+            } catch (ReservationIntakeService.Full full) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("error", "INTAKE_FULL");
+                m.put("message", full.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(full.getRetryAfterSeconds()))
+                        .body(m);
+            }
+        }
+
         try {
             ReservedResponse created = reservationService.createReservation(userId, req);
             return ResponseEntity.status(HttpStatus.CREATED).body(created);
@@ -92,7 +115,108 @@ public class PublicReservationsController {
         }
     }
 
+    /** ✅ ขอ N ที่นั่งติดกันที่ดีที่สุดที่ว่าง (ระบบเลือก row/col ให้) แล้วจองทันที */
+    @PostMapping(value = "/best-available", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> reserveBestAvailable(
+            @RequestBody BestAvailableRequest req,
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = WaitingRoomService.HEADER, required = false) String queueToken
+    ) {
+        if (req == null) return bad("BAD_REQUEST", "Body is required");
+        if (req.getEventId() == null || req.getEventId() <= 0)
+            return bad("BAD_REQUEST", "eventId is required");
+
+        Caller caller = admit(req.getEventId(), req, authHeader, queueToken, () -> checkEventExists(req.getEventId()));
+        if (caller.response() != null) return caller.response();
+        try {
+            BestAvailableService.Result r = bestAvailable.reserveBest(caller.userId(), req);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("reservation", r.reservation());
+            body.put("zoneId", r.zoneId());
+            body.put("row", r.row());
+            body.put("cols", r.cols());
+            return ResponseEntity.status(HttpStatus.CREATED).body(body);
+        } catch (IllegalArgumentException iae) {
+            return bad("BAD_REQUEST", iae.getMessage());
+        } catch (IllegalStateException busy) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("error", "SEATS_CONTENDED");
+            m.put("message", busy.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(m);
+        }
+    }
+
+    /** ✅ จอง N ที่นั่งใดก็ได้ในโซน (SKIP LOCKED — ไม่ชน/ไม่รอผู้ซื้อคนอื่น) */
+    @PostMapping(value = "/zone", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> reserveAnyInZone(
+            @RequestBody ZoneReservationRequest req,
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = WaitingRoomService.HEADER, required = false) String queueToken
+    ) {
+        if (req == null) return bad("BAD_REQUEST", "Body is required");
+        if (req.getEventId() == null || req.getEventId() <= 0)
+            return bad("BAD_REQUEST", "eventId is required");
+        if (req.getZoneId() == null || req.getZoneId() <= 0)
+            return bad("BAD_REQUEST", "zoneId is required");
+        if (req.getQuantity() == null || req.getQuantity() <= 0)
+            return bad("BAD_REQUEST", "quantity must be > 0");
+
+        Caller caller = admit(req.getEventId(), req, authHeader, queueToken, () -> null);
+        if (caller.response() != null) return caller.response();
+        Long userId = caller.userId();
+        try {
+            ReservedResponse created = reservationService.createZoneReservation(
+                    userId, req.getEventId(), req.getZoneId(), req.getQuantity(), req.getGuestEmail());
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (IllegalArgumentException iae) {
+            return bad("BAD_REQUEST", iae.getMessage());
+        }
+    }
+
+    /** ✅ จองบัตรโซนยืน (GA) เป็นจำนวน — ตัด counter ความจุใน memory ไม่ล็อกแถว seats */
+    @PostMapping(value = "/standing", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> reserveStanding(
+            @RequestBody ZoneReservationRequest req,
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = WaitingRoomService.HEADER, required = false) String queueToken
+    ) {
+        if (req == null) return bad("BAD_REQUEST", "Body is required");
+        if (req.getEventId() == null || req.getEventId() <= 0)
+            return bad("BAD_REQUEST", "eventId is required");
+        if (req.getZoneId() == null || req.getZoneId() <= 0)
+            return bad("BAD_REQUEST", "zoneId is required");
+        if (req.getQuantity() == null || req.getQuantity() <= 0)
+            return bad("BAD_REQUEST", "quantity must be > 0");
+
+        Caller caller = admit(req.getEventId(), req, authHeader, queueToken, () -> null);
+        if (caller.response() != null) return caller.response();
+        Long userId = caller.userId();
+        try {
+            ReservedResponse created = reservationService.createStandingReservation(
+                    userId, req.getEventId(), req.getZoneId(), req.getQuantity(), req.getGuestEmail());
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (IllegalArgumentException iae) {
+            if (iae.getMessage() != null && iae.getMessage().startsWith("SOLD_OUT")) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("error", "SOLD_OUT");
+                m.put("message", iae.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(m);
+            }
+            return bad("BAD_REQUEST", iae.getMessage());
+        }
+    }
+
+    /** ผลของคำขอที่เข้าคิว (QUEUED / CONFIRMED / REJECTED / FAILED) */
+    @GetMapping(value = "/intake/{ticket}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getIntakeStatus(@PathVariable String ticket) {
+        if (intake == null) return notFound("TICKET_NOT_FOUND", "Ticket " + ticket + " not found");
+        return intake.find(ticket)
+                .<ResponseEntity<?>>map(t -> ResponseEntity.ok(t.toBody()))
+                .orElseGet(() -> notFound("TICKET_NOT_FOUND", "Ticket " + ticket + " not found"));
+    }
+
     @GetMapping(value = "/{reservedId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ReadFromPrimary
     public ResponseEntity<?> getReservation(@PathVariable Long reservedId) {
         if (reservedId == null || reservedId <= 0)
             return bad("BAD_REQUEST", "reservedId is invalid");
@@ -130,6 +254,65 @@ public class PublicReservationsController {
     }
 
     // ===== helpers =====
+
+    /** ผลของ admit : response != null = ตอบกลับทันที (ส่งต่อ / ยังไม่ถึงคิว / body ผิด / token ผิด) */
+    private record Caller(ResponseEntity<?> response, Long userId) {}
+
+    /**
+     * preamble ร่วมของทุก endpoint ที่จอง (ลำดับสำคัญ) :
+     *   1) 📌 หลาย replica : อีเวนต์ที่กำลังขายมีเจ้าของ node เดียว → ส่งต่อให้เจ้าของ
+     *   2) 🚦 waiting room : ต้องถึงคิวก่อนถึงจะจองได้ (ก่อนแตะ DB)
+     *   3) localCheck ของ endpoint (แตะ DB ได้) ; คืน null = ผ่าน
+     *   4) token ที่ verify ไม่ผ่าน → 401 ; แล้ว resolve userId (null = guest)
+     */
+    private Caller admit(Long eventId, Object body, String authHeader, String queueToken,
+                         Supplier<ResponseEntity<?>> localCheck) {
+        if (ownerRouter != null) {
+            var routed = ownerRouter.route(eventId, body);
+            if (routed.isPresent()) return new Caller(routed.get(), null);
+        }
+        if (waitingRoomGate != null) {
+            var blocked = waitingRoomGate.check(eventId, queueToken);
+            if (blocked.isPresent()) return new Caller(blocked.get(), null);
+        }
+        ResponseEntity<?> invalid = localCheck.get();
+        if (invalid != null) return new Caller(invalid, null);
+
+        var unverified = rejectUnverifiedToken(authHeader);
+        if (unverified != null) return new Caller(unverified, null);
+        return new Caller(null, resolveUserId());
+    }
+
+    private ResponseEntity<?> checkEventExists(Long eventId) {
+        if (!eventsRepo.existsById(eventId))
+            return notFound("EVENT_NOT_FOUND", "Event " + eventId + " not found");
+        return null;
+    }
+
+    /** 🔐 validate picks (no negative, no duplicates) */
+    private ResponseEntity<?> checkSeatPicks(ReservationRequest req) {
+        ResponseEntity<?> missing = checkEventExists(req.getEventId());
+        if (missing != null) return missing;
+        if (req.getQuantity() == null || req.getQuantity() <= 0)
+            return bad("BAD_REQUEST", "quantity must be > 0");
+
+        final List<ReservationRequest.SeatPick> picks = Optional.ofNullable(req.getSeats()).orElseGet(List::of);
+        if (picks.size() != req.getQuantity())
+            return bad("BAD_REQUEST", "quantity and seats count mismatch");
+
+        Set<String> uniq = new HashSet<>();
+        for (ReservationRequest.SeatPick p : picks) {
+            if (p == null || p.getZoneId() == null)
+                return bad("BAD_REQUEST", "each seat requires zoneId,row,col");
+            if (p.getRow() == null || p.getCol() == null || p.getRow() < 0 || p.getCol() < 0)
+                return bad("BAD_REQUEST", "row/col must be >= 0");
+            String key = p.getZoneId() + ":" + p.getRow() + ":" + p.getCol();
+            if (!uniq.add(key))
+                return bad("BAD_REQUEST", "duplicate seat in request: " + key);
+        }
+        return null;
+    }
+
     private ResponseEntity<Map<String, Object>> bad(String code, String msg) {
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("error", code);
@@ -144,25 +327,42 @@ public class PublicReservationsController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(m);
     }
 
-    private Long resolveUserId(Long userIdHeader, String authHeader) {
+    /**
+     * ส่ง Bearer token มาแต่ JwtFilter ไม่ authenticate (ลายเซ็นผิด / หมดอายุ / ถูก revoke)
+     * → 401 ทันที : ไม่ถอด payload เอง และไม่ตกไปเป็น guest
+     */
+    private ResponseEntity<Map<String, Object>> rejectUnverifiedToken(String authHeader) {
+        if (authHeader == null || authHeader.isBlank() || authenticated() != null) return null;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", "INVALID_TOKEN");
+        m.put("message", "Token is invalid, expired or revoked");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(m);
+    }
+
+    private static Authentication authenticated() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) return null;
+        return auth;
+    }
+
+    /** account id มาจาก principal ที่ JwtFilter verify แล้ว (ผ่าน revocation) เท่านั้น ; ไม่เชื่อ header จาก client */
+    private Long resolveUserId() {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated()) {
+            Authentication auth = authenticated();
+            if (auth != null) {
+                // ✅ token รุ่นใหม่มี user_id มาใน principal แล้ว → ไม่ต้อง query
+                if (auth.getPrincipal() instanceof AuthenticatedUser au && au.userId() != null) {
+                    return au.userId();
+                }
                 String principal = safeTrim(auth.getName());
                 if (principal != null) {
-                    Optional<User> uByName = userRepo.findByUsernameIgnoreCase(principal);
-                    if (uByName.isPresent()) return uByName.get().getId();
-                    Optional<User> uByEmail = userRepo.findByEmailIgnoreCase(principal);
-                    if (uByEmail.isPresent()) return uByEmail.get().getId();
+                    Long id = identityCache.findUserId(principal);
+                    if (id != null) return id;
                 }
             }
         } catch (Exception e) {
             // ignore
         }
-
-        Long fromJwt = resolveFromJwt(authHeader);
-        if (fromJwt != null) return fromJwt;
-        if (userIdHeader != null) return userIdHeader;
         return null;
     }
 
@@ -171,38 +371,4 @@ public class PublicReservationsController {
         String s = String.valueOf(o).trim();
         return s.isEmpty() ? null : s;
     }
-
-    private Long resolveFromJwt(String authHeader) {
-        try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) return null;
-            String token = authHeader.substring(7);
-            String[] parts = token.split("\\.");
-            if (parts.length < 2) return null;
-
-            String payloadJson = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
-            @SuppressWarnings("unchecked")
-            Map<String, Object> claims = objectMapper.readValue(payloadJson, Map.class);
-
-            Object userIdClaim = claims.get("userId");
-            if (userIdClaim != null) {
-                try { return Long.parseLong(String.valueOf(userIdClaim)); } catch (NumberFormatException ignore) {}
-            }
-
-            String email = safeTrim(claims.get("email"));
-            if (email != null) {
-                Optional<User> u = userRepo.findByEmailIgnoreCase(email);
-                if (u.isPresent()) return u.get().getId();
-            }
-
-            String username = safeTrim(claims.get("sub"));
-            if (username == null) username = safeTrim(claims.get("username"));
-            if (username != null) {
-                Optional<User> u = userRepo.findByUsernameIgnoreCase(username);
-                if (u.isPresent()) return u.get().getId();
-            }
-        } catch (Exception e) {
-            // ignore
-        }
-        return null;
-    }
 }
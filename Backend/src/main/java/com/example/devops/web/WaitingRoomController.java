@@ -0,0 +1,83 @@
+package com.example.devops.web;
+
+import com.example.devops.config.ClientIdentity;
+import com.example.devops.config.RateLimited;
+import com.example.devops.repo.EventsNamRepository;
+import com.example.devops.service.WaitingRoomService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ✅ Virtual waiting room
+ *   POST /api/public/waiting-room/{eventId}  → ต่อคิว ได้ token + ลำดับคิว
+ *   GET  /api/public/waiting-room/{eventId}  → เช็คสถานะด้วย header X-Queue-Token
+ * client ส่ง token เดิมใน X-Queue-Token ตอนเรียก seat map / จอง
+ * token ผูกกับผู้ถือ (subject / IP จาก ClientIdentity) ; join จำกัดอัตราด้วย policy waiting-room-join
+ */
+@RestController
+@RequestMapping("/api/public/waiting-room")
+@CrossOrigin(
+        origins = { "http://localhost:5173", "http://localhost:3000", "http://localhost:4173" },
+        allowCredentials = "true"
+)
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoom;
+    private final EventsNamRepository eventsRepo;
+    private final ClientIdentity identity;
+
+    public WaitingRoomController(WaitingRoomService waitingRoom, EventsNamRepository eventsRepo, ClientIdentity identity) {
+        this.waitingRoom = waitingRoom;
+        this.eventsRepo = eventsRepo;
+        this.identity = identity;
+    }
+
+    @RateLimited("waiting-room-join")
+    @PostMapping(value = "/{eventId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> join(@PathVariable Long eventId,
+                                  @RequestHeader(value = WaitingRoomService.HEADER, required = false) String token,
+                                  HttpServletRequest request) {
+        if (!waitingRoom.isEnabled()) {
+            return ResponseEntity.ok(Map.of("eventId", eventId, "admitted", true, "enabled", false));
+        }
+        if (eventId == null || !eventsRepo.existsById(eventId)) {
+            return error(HttpStatus.NOT_FOUND, "EVENT_NOT_FOUND", "Event " + eventId + " not found");
+        }
+        // join ซ้ำด้วย token ที่ยังใช้ได้ → คงลำดับเดิม ไม่ไปต่อท้ายคิว
+        WaitingRoomService.Holder holder = identity.holder(request);
+        WaitingRoomService.Pass existing = waitingRoom.status(eventId, token, holder);
+        if (existing.valid()) {
+            Map<String, Object> body = existing.toBody();
+            body.put("token", token);
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(waitingRoom.join(eventId, holder).toBody());
+    }
+
+    @GetMapping(value = "/{eventId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> status(@PathVariable Long eventId,
+                                    @RequestHeader(value = WaitingRoomService.HEADER, required = false) String token,
+                                    HttpServletRequest request) {
+        if (!waitingRoom.isEnabled()) {
+            return ResponseEntity.ok(Map.of("eventId", eventId, "admitted", true, "enabled", false));
+        }
+        WaitingRoomService.Pass p = waitingRoom.status(eventId, token, identity.holder(request));
+        if (!p.valid()) {
+            return error(HttpStatus.NOT_FOUND, "WAITING_ROOM_TOKEN_INVALID", "Token is missing, invalid or expired");
+        }
+        return ResponseEntity.ok(p.toBody());
+    }
+
+    private ResponseEntity<Map<String, Object>> error(HttpStatus status, String code, String msg) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", code);
+        m.put("message", msg);
+        return ResponseEntity.status(status).body(m);
+    }
+}
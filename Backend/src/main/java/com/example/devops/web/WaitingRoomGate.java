@@ -0,0 +1,55 @@
+package com.example.devops.web;
+
+import com.example.devops.config.ClientIdentity;
+import com.example.devops.service.WaitingRoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ✅ ด่านหน้า seat map / การจอง เมื่อเปิด waiting room
+ *   - ไม่มี token / token ผิด / token ของคนอื่น → 403 WAITING_ROOM_TOKEN_REQUIRED (ต้องไป join ก่อน)
+ *   - ยังไม่ถึงคิว             → 429 WAITING_ROOM_NOT_ADMITTED + Retry-After
+ *   - ปิด waiting room / ถึงคิวแล้ว → Optional.empty() (ผ่าน)
+ */
+@Component
+public class WaitingRoomGate {
+
+    private final WaitingRoomService waitingRoom;
+    private final ClientIdentity identity;
+
+    public WaitingRoomGate(WaitingRoomService waitingRoom) {
+        this(waitingRoom, new ClientIdentity(0));
+    }
+
+    @Autowired
+    public WaitingRoomGate(WaitingRoomService waitingRoom, ClientIdentity identity) {
+        this.waitingRoom = waitingRoom;
+        this.identity = identity;
+    }
+
+    public Optional<ResponseEntity<Map<String, Object>>> check(Long eventId, String token) {
+        if (waitingRoom == null || !waitingRoom.isEnabled()) return Optional.empty();
+
+        WaitingRoomService.Pass p = waitingRoom.admission(eventId, token, identity.holder());
+        if (p.admitted()) return Optional.empty();
+
+        Map<String, Object> body = p.toBody();
+        body.put("joinUrl", "/api/public/waiting-room/" + eventId);
+        if (!p.valid()) {
+            body.put("error", "WAITING_ROOM_TOKEN_REQUIRED");
+            body.put("message", "Join the waiting room and send its token in " + WaitingRoomService.HEADER);
+            return Optional.of(ResponseEntity.status(HttpStatus.FORBIDDEN).body(body));
+        }
+        body.put("error", "WAITING_ROOM_NOT_ADMITTED");
+        body.put("message", "Not admitted yet, please wait for your turn");
+        return Optional.of(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, p.estimatedWaitSeconds())))
+                .body(body));
+    }
+}
@@ -0,0 +1,6 @@
+-- index แบบ lower(...) ให้ query login (UserRepository.findLoginCandidates)
+-- ใช้ index ได้แทนการ scan ทั้งตาราง (UNIQUE เดิมเป็นแบบ case-sensitive)
+CREATE INDEX IF NOT EXISTS idx_users_lower_username      ON users      (lower(username));
+CREATE INDEX IF NOT EXISTS idx_users_lower_email         ON users      (lower(email));
+CREATE INDEX IF NOT EXISTS idx_organizers_lower_username ON organizers (lower(username));
+CREATE INDEX IF NOT EXISTS idx_organizers_lower_email    ON organizers (lower(email));
@@ -0,0 +1,13 @@
+-- session_id = jti ของ JWT ; revoke = is_active FALSE + revoked_at
+-- revoked_at ใช้ให้แต่ละ instance sync รายการ revoke ใหม่ ๆ (TokenRevocationService.sync)
+ALTER TABLE user_sessions      ADD COLUMN IF NOT EXISTS revoked_at TIMESTAMPTZ;
+ALTER TABLE organizer_sessions ADD COLUMN IF NOT EXISTS revoked_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_user_sessions_revoked_at
+    ON user_sessions (revoked_at) WHERE is_active = FALSE;
+CREATE INDEX IF NOT EXISTS idx_organizer_sessions_revoked_at
+    ON organizer_sessions (revoked_at) WHERE is_active = FALSE;
+CREATE INDEX IF NOT EXISTS idx_user_sessions_user_active
+    ON user_sessions (user_id) WHERE is_active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_organizer_sessions_org_active
+    ON organizer_sessions (organizer_id) WHERE is_active = TRUE;
@@ -0,0 +1,9 @@
+-- last_activity ถูกเขียนแบบ write-behind โดย SessionActivityRecorder (batch ทุกไม่กี่วินาที)
+ALTER TABLE user_sessions      ADD COLUMN IF NOT EXISTS last_activity TIMESTAMPTZ;
+ALTER TABLE organizer_sessions ADD COLUMN IF NOT EXISTS last_activity TIMESTAMPTZ;
+
+-- ให้ idle-timeout scan เฉพาะ session ที่ยัง active
+CREATE INDEX IF NOT EXISTS idx_user_sessions_active_activity
+    ON user_sessions (COALESCE(last_activity, created_at)) WHERE is_active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_organizer_sessions_active_activity
+    ON organizer_sessions (COALESCE(last_activity, created_at)) WHERE is_active = TRUE;
@@ -0,0 +1,31 @@
+-- =========================================================
+-- คิวงาน "เคลมใบจอง guest" (login/signup แค่ enqueue, GuestClaimQueue ทำงานเบื้องหลัง)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS guest_claim_jobs (
+    job_id          BIGSERIAL PRIMARY KEY,
+    user_id         BIGINT       NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    email           VARCHAR(255) NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',   -- PENDING | RUNNING | DONE | FAILED
+    attempts        INT          NOT NULL DEFAULT 0,
+    claimed_count   INT,
+    last_error      TEXT,
+    next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    locked_at       TIMESTAMPTZ,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    finished_at     TIMESTAMPTZ
+);
+
+-- ไม่ให้มีงานค้างซ้ำของ user+email เดียวกัน (login ถี่ ๆ ไม่ทำให้คิวบวม)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_guest_claim_jobs_pending
+    ON guest_claim_jobs (user_id, lower(email))
+    WHERE status = 'PENDING';
+
+-- worker หยิบงานตามลำดับ job_id
+CREATE INDEX IF NOT EXISTS idx_guest_claim_jobs_runnable
+    ON guest_claim_jobs (job_id)
+    WHERE status IN ('PENDING', 'RUNNING');
+
+-- index แบบ lower(...) ตรงกับ predicate ของ claimAllByEmail / enqueue (index เดิมเป็น guest_email ดิบ)
+CREATE INDEX IF NOT EXISTS idx_reserved_guest_email_lower_unclaimed
+    ON reserved (lower(guest_email))
+    WHERE user_id IS NULL AND created_as_guest = TRUE;
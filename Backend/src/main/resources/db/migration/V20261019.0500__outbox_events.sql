@@ -0,0 +1,28 @@
+-- =========================================================
+-- Transactional outbox: ReservationService เขียน event ใน transaction เดียวกับการจอง/จ่าย/ยกเลิก
+-- OutboxDispatcher อ่านแล้วส่งให้ handler ใน process (at-least-once, เรียงตาม aggregate)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS outbox_events (
+    event_id        BIGSERIAL PRIMARY KEY,
+    aggregate_type  VARCHAR(50)  NOT NULL,
+    aggregate_id    BIGINT       NOT NULL,
+    event_type      VARCHAR(100) NOT NULL,
+    payload         JSONB        NOT NULL DEFAULT '{}'::jsonb,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',   -- PENDING | DONE | DEAD
+    attempts        INT          NOT NULL DEFAULT 0,
+    last_error      TEXT,
+    next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    locked_until    TIMESTAMPTZ,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    dispatched_at   TIMESTAMPTZ
+);
+
+-- dispatcher สแกนเฉพาะแถวที่ยังไม่ส่ง
+CREATE INDEX IF NOT EXISTS idx_outbox_events_pending
+    ON outbox_events (event_id)
+    WHERE status = 'PENDING';
+
+-- เช็ค "มี event ก่อนหน้าของ aggregate เดียวกันค้างอยู่ไหม" (ordering ต่อ aggregate)
+CREATE INDEX IF NOT EXISTS idx_outbox_events_aggregate_pending
+    ON outbox_events (aggregate_type, aggregate_id, event_id)
+    WHERE status = 'PENDING';
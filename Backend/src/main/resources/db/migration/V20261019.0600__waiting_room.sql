@@ -0,0 +1,15 @@
+-- =========================================================
+-- Virtual waiting room (app.waiting-room.store=postgres) — สถานะคิวต่ออีเวนต์ที่ทุก instance ใช้ร่วมกัน
+--   issued         : ลำดับคิวล่าสุดที่แจกไป
+--   admitted_up_to : ลำดับสูงสุดที่ถูกปล่อยเข้าแล้ว
+--   admitted_at    : เวลาที่คำนวณการปล่อยรอบล่าสุด (ปล่อยตามเวลาที่ผ่านไป ไม่ขึ้นกับจำนวน instance)
+--   completed      : จำนวนการจองสำเร็จที่ทุก instance รายงาน (ใช้วัด throughput)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS waiting_room_events (
+    event_id        BIGINT       PRIMARY KEY REFERENCES events_nam(event_id) ON DELETE CASCADE,
+    issued          BIGINT       NOT NULL DEFAULT 0,
+    admitted_up_to  BIGINT       NOT NULL DEFAULT 0,
+    admitted_at     TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    completed       BIGINT       NOT NULL DEFAULT 0,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
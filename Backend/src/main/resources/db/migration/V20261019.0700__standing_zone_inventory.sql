@@ -0,0 +1,19 @@
+-- =========================================================
+-- Standing (GA) zones : จองเป็นจำนวน ไม่ผูกกับแถว seats
+--   reserved.standing_zone_id : โซนยืนของใบจอง (quantity = จำนวนบัตร) ; ใช้ reconcile counter ตอนเริ่มระบบ
+--   standing_zone_inventory   : snapshot ของ counter ใน memory (flush แบบ async) ไว้ดู/รายงาน
+-- =========================================================
+ALTER TABLE reserved
+    ADD COLUMN IF NOT EXISTS standing_zone_id BIGINT REFERENCES seat_zones(zone_id) ON DELETE SET NULL;
+
+CREATE INDEX IF NOT EXISTS idx_reserved_standing_zone
+    ON reserved (standing_zone_id, payment_status)
+    WHERE standing_zone_id IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS standing_zone_inventory (
+    zone_id     BIGINT       PRIMARY KEY REFERENCES seat_zones(zone_id) ON DELETE CASCADE,
+    event_id    BIGINT       NOT NULL REFERENCES events_nam(event_id) ON DELETE CASCADE,
+    capacity    INT          NOT NULL,
+    held        INT          NOT NULL,
+    updated_at  TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,12 @@
+-- =========================================================
+-- Sharded counter ของยอดขายต่อ ticket type (K แถวต่อ ticket type)
+--   remaining : คงเหลือของ shard นี้ (NULL = ไม่จำกัดจำนวน) ; ห้ามติดลบ → เพดานรวมไม่มีทางเกิน
+--   sold      : ยอดขายที่ผ่าน shard นี้ (ผลรวมทุก shard = ticket_types.quantity_sold)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS ticket_type_counter_shards (
+    ticket_type_id  BIGINT       NOT NULL REFERENCES ticket_types(ticket_type_id) ON DELETE CASCADE,
+    shard           SMALLINT     NOT NULL,
+    remaining       INT          CHECK (remaining IS NULL OR remaining >= 0),
+    sold            INT          NOT NULL DEFAULT 0,
+    PRIMARY KEY (ticket_type_id, shard)
+);
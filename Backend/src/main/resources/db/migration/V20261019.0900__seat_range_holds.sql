@@ -0,0 +1,34 @@
+-- =========================================================
+-- Range holds : ล็อกที่นั่งติดกันในแถวเดียวเป็นแถวเดียว (row_id, seat_from..seat_to)
+--   แทนการเขียน seat_locks ทีละที่นั่งสำหรับการจองเป็นกลุ่ม (app.seats.range-holds.enabled)
+--   EXCLUDE (gist) : ช่วงที่ยัง LOCKED ในแถวเดียวกันห้ามทับกัน (ต้องใช้ btree_gist สำหรับ row_id WITH =)
+--   reserved_id    : ใบจองที่ถือช่วงนี้ (ผูกหลังสร้าง reserved ; จ่าย/ยกเลิก → UNLOCKED)
+-- =========================================================
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+CREATE TABLE IF NOT EXISTS seat_range_holds (
+    hold_id      BIGSERIAL    PRIMARY KEY,
+    event_id     BIGINT       NOT NULL REFERENCES events_nam(event_id) ON DELETE CASCADE,
+    zone_id      BIGINT       NOT NULL REFERENCES seat_zones(zone_id) ON DELETE CASCADE,
+    row_id       BIGINT       NOT NULL REFERENCES seat_rows(row_id) ON DELETE CASCADE,
+    seat_from    INT          NOT NULL,
+    seat_to      INT          NOT NULL,
+    user_id      BIGINT,
+    reserved_id  BIGINT       REFERENCES reserved(reserved_id) ON DELETE CASCADE,
+    status       VARCHAR(20)  NOT NULL DEFAULT 'LOCKED',
+    locked_at    TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    expires_at   TIMESTAMPTZ  NOT NULL,
+    CHECK (seat_from <= seat_to),
+    CONSTRAINT ex_seat_range_holds_overlap EXCLUDE USING gist (
+        row_id WITH =,
+        int4range(seat_from, seat_to, '[]') WITH &&
+    ) WHERE (status = 'LOCKED')
+);
+
+CREATE INDEX IF NOT EXISTS idx_seat_range_holds_event_live
+    ON seat_range_holds (event_id, expires_at)
+    WHERE status = 'LOCKED';
+
+CREATE INDEX IF NOT EXISTS idx_seat_range_holds_reserved
+    ON seat_range_holds (reserved_id)
+    WHERE reserved_id IS NOT NULL;
@@ -0,0 +1,22 @@
+-- =========================================================
+-- seat_locks_unlogged : ที่เก็บ lock ที่นั่งแบบไม่เขียน WAL (app.seats.lock-store=unlogged)
+--   lock อายุไม่กี่นาที ไม่ต้องรอด crash → UNLOGGED (insert/update เร็วขึ้น, ไม่ไป replica)
+--   หลัง crash ตารางถูก truncate อัตโนมัติ → SeatLockService.rebuild ตอน start เติมกลับจาก reserved_seats
+--   ไม่มี FK : lock เป็นข้อมูลชั่วคราว (ที่นั่งถูกลบ = lock ค้างหมดอายุเอง)
+-- =========================================================
+CREATE UNLOGGED TABLE IF NOT EXISTS seat_locks_unlogged (
+    lock_id     BIGSERIAL    PRIMARY KEY,
+    seat_id     BIGINT       NOT NULL,
+    event_id    BIGINT       NOT NULL,
+    user_id     BIGINT,
+    locked_at   TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    expires_at  TIMESTAMPTZ  NOT NULL,
+    status      VARCHAR(20)  NOT NULL DEFAULT 'LOCKED'
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_seat_locks_unlogged_seat
+    ON seat_locks_unlogged (seat_id);
+
+CREATE INDEX IF NOT EXISTS idx_seat_locks_unlogged_event_live
+    ON seat_locks_unlogged (event_id, expires_at)
+    WHERE status = 'LOCKED';
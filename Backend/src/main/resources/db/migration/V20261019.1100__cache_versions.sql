@@ -0,0 +1,16 @@
+-- =========================================================
+-- cache_versions : version ล่าสุดของแต่ละ key ที่ถูก invalidate (CacheInvalidationBus)
+--   writer upsert แถวนี้ + pg_notify ใน transaction เดียวกัน
+--   node ที่ LISTEN หลุดไป → reconnect แล้ว replay แถวที่ updated_at ใหม่กว่าตอนหลุด
+--   cache_key = '' หมายถึงทั้ง cache ; แถวเก่ากว่า retention ถูกลบเป็นระยะ
+-- =========================================================
+CREATE TABLE IF NOT EXISTS cache_versions (
+    cache_name  VARCHAR(64)  NOT NULL,
+    cache_key   TEXT         NOT NULL,
+    version     BIGINT       NOT NULL,
+    updated_at  TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (cache_name, cache_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_cache_versions_updated
+    ON cache_versions (updated_at);
@@ -0,0 +1,24 @@
+-- =========================================================
+-- backend_nodes / event_leases : เจ้าของอีเวนต์ที่กำลังขายต่อ replica (EventOwnershipService)
+--   backend_nodes : ทุก node upsert heartbeat_at ทุก app.ownership.heartbeat-ms
+--                   node ที่ heartbeat เก่ากว่า lease-ms ถือว่าตาย
+--   event_leases  : 1 อีเวนต์ = 1 เจ้าของ ; ต่ออายุได้เฉพาะเจ้าของเดิม
+--                   แย่งได้เมื่อ lease_until ผ่านไปแล้ว (epoch + 1 ทุกครั้งที่เปลี่ยนเจ้าของ)
+-- =========================================================
+CREATE TABLE IF NOT EXISTS backend_nodes (
+    node_id       VARCHAR(128)  PRIMARY KEY,
+    base_url      VARCHAR(512)  NOT NULL,
+    started_at    TIMESTAMPTZ   NOT NULL DEFAULT NOW(),
+    heartbeat_at  TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS event_leases (
+    event_id     BIGINT        PRIMARY KEY,
+    node_id      VARCHAR(128)  NOT NULL,
+    lease_until  TIMESTAMPTZ   NOT NULL,
+    epoch        BIGINT        NOT NULL DEFAULT 1,
+    acquired_at  TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_event_leases_node
+    ON event_leases (node_id);
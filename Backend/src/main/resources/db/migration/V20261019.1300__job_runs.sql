@@ -0,0 +1,21 @@
+-- =========================================================
+-- job_runs : งานเบื้องหลังที่ต้องรันที่เดียวทั้ง cluster (ClusterJobCoordinator)
+--   1 แถว = 1 job x 1 shard ; node ที่ claim ได้ = owner_node จนกว่าจะเสร็จหรือ locked_until หมด
+--   claim ได้เมื่อไม่มีใครถืออยู่ และรอบก่อนเริ่มนานพอแล้ว (กันทุก replica รันซ้ำในรอบเดียวกัน)
+--   เก็บสถิติรอบล่าสุด : เวลาที่ใช้, จำนวนแถวที่แก้, สำเร็จล่าสุดเมื่อไร, error ล่าสุด
+-- =========================================================
+CREATE TABLE IF NOT EXISTS job_runs (
+    job_name          VARCHAR(100)  NOT NULL,
+    shard             INT           NOT NULL DEFAULT 0,
+    owner_node        VARCHAR(128),
+    locked_until      TIMESTAMPTZ,
+    last_started_at   TIMESTAMPTZ,
+    last_finished_at  TIMESTAMPTZ,
+    last_success_at   TIMESTAMPTZ,
+    last_duration_ms  BIGINT,
+    last_rows         BIGINT,
+    last_error        TEXT,
+    run_count         BIGINT        NOT NULL DEFAULT 0,
+    failure_count     BIGINT        NOT NULL DEFAULT 0,
+    PRIMARY KEY (job_name, shard)
+);
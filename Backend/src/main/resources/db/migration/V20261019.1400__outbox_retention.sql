@@ -0,0 +1,11 @@
+-- =========================================================
+-- retention ของ outbox_events : OutboxDispatcher.purgeOld ลบ DONE / DEAD ที่เก่าเกินกำหนดทีละ chunk
+-- index บางส่วนให้ DELETE ... LIMIT หาแถวเก่าได้โดยไม่สแกนทั้งตาราง
+-- =========================================================
+CREATE INDEX IF NOT EXISTS idx_outbox_events_done_dispatched
+    ON outbox_events (dispatched_at)
+    WHERE status = 'DONE';
+
+CREATE INDEX IF NOT EXISTS idx_outbox_events_dead_created
+    ON outbox_events (created_at)
+    WHERE status = 'DEAD';
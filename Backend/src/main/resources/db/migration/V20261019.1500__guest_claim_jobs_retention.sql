@@ -0,0 +1,6 @@
+-- =========================================================
+-- retention ของ guest_claim_jobs : GuestClaimQueue.purgeOld ลบงาน DONE / FAILED ที่จบนานแล้วทีละ chunk
+-- =========================================================
+CREATE INDEX IF NOT EXISTS idx_guest_claim_jobs_finished
+    ON guest_claim_jobs (finished_at)
+    WHERE status IN ('DONE', 'FAILED');
@@ -0,0 +1,12 @@
+-- =========================================================
+-- reserved_ticket_holds : ยอด ticket type ที่ใบจองตัดไว้ตั้งแต่ตอน hold (TicketInventoryService.hold)
+--   จ่ายเงิน → ลบแถว (ยอดกลายเป็นขายจริง) ; ยกเลิก / หมดเวลา → ลบแถวแล้วคืนยอดเข้า shard
+--   เก็บจำนวนไว้เองเพราะ reserved_seats ของใบที่หมดเวลาถูก SeatLockService ลบทิ้ง
+-- =========================================================
+CREATE TABLE IF NOT EXISTS reserved_ticket_holds (
+    reserved_id     BIGINT      NOT NULL,
+    ticket_type_id  BIGINT      NOT NULL,
+    quantity        INT         NOT NULL CHECK (quantity > 0),
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (reserved_id, ticket_type_id)
+);
@@ -0,0 +1,15 @@
+-- =========================================================
+-- revoked_tokens : revoke ของ token ที่ไม่มีแถว session (login ก่อนมี user_sessions / บันทึก session ไม่สำเร็จ)
+--   TokenRevocationService.revoke เขียนที่นี่เมื่อ UPDATE *_sessions ไม่เจอแถว → ทุก instance sync เห็นเหมือนกัน
+--   แถวที่ token หมดอายุแล้วไม่จำเป็น → purgeExpired ลบทิ้ง
+-- =========================================================
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti         VARCHAR(100) PRIMARY KEY,
+    expires_at  TIMESTAMPTZ,
+    revoked_at  TIMESTAMPTZ  NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at
+    ON revoked_tokens (revoked_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at
+    ON revoked_tokens (expires_at);
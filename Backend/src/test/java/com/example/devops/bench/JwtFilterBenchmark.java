@@ -0,0 +1,102 @@
+package com.example.devops.bench;
+
+import com.example.devops.security.JwtFilter;
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.security.RevokedTokenSet;
+import com.example.devops.security.SessionActivityRecorder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ============================================================
+ *  JwtFilterBenchmark (JMH)
+ * ============================================================
+ * วัด overhead ของ JwtFilter ต่อ 1 request:
+ *   - legacyParserPerRequest : แบบเดิม (สร้าง parserBuilder ใหม่ทุก request)
+ *   - singletonParserNoCache : parser ตัวเดียว แต่ verify ลายเซ็น + parse JSON ทุกครั้ง
+ *   - filterWithCache        : JwtFilter จริง (token เดิมซ้ำ → cache hit)
+ *
+ * รัน:
+ *   ./mvnw -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.devops.bench.JwtFilterBenchmark
+ * ============================================================
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET =
+            "1234567890123456789012345678901234567890123456789012345678901234";
+
+    private String token;
+    private JwtVerifier verifier;
+    private JwtFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private final FilterChain chain = (req, res) -> { };
+
+    @Setup
+    public void setup() {
+        token = Jwts.builder()
+                .setSubject("alice")
+                .claim("role", "USER")
+                .claim("email", "alice@mail.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+
+        verifier = new JwtVerifier(SECRET, 60, 10_000, 900);
+        filter = new JwtFilter(verifier, new RevokedTokenSet(100_000, 0.01),
+                new SessionActivityRecorder(new JdbcTemplate(), 100_000));
+
+        request = new MockHttpServletRequest("GET", "/api/profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object legacyParserPerRequest() {
+        return Jwts.parserBuilder()
+                .setSigningKey(SECRET.getBytes(StandardCharsets.UTF_8))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public Object singletonParserNoCache() {
+        return verifier.parseClaims(token);
+    }
+
+    @Benchmark
+    public void filterWithCache(Blackhole bh) throws Exception {
+        filter.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.devops.bench;
+
+import com.example.devops.service.InMemorySeatLockStore;
+import com.example.devops.service.SeatJournal;
+import com.example.devops.service.SeatLockStore;
+import com.example.devops.service.SequencedSeatLockStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  SeatSequencerBenchmark (ไม่ต้องใช้ DB)
+ * ============================================================
+ * ผู้ซื้อ N thread แย่งที่นั่งของอีเวนต์เดียว : lock 2 ที่นั่งสุ่ม → unlock ทันที (วนจนครบ ops)
+ *   - memory    : InMemorySeatLockStore (ConcurrentHashMap)
+ *   - sequencer : SequencedSeatLockStore (lane เดียว + journal memory-mapped, group fsync)
+ * รายงาน : ops/s, p50/p99 ต่อคำสั่ง lock, จำนวน lock ที่ได้
+ *
+ * ผลล่าสุด (1 vCPU, overlay fs, threads=64 ops=3000) :
+ *   memory                      ~900k ops/s  p50 0.6us
+ *   sequencer fsync-interval 2  ~25k  ops/s  p50 2.5ms
+ *   sequencer fsync-interval 0  ~60k  ops/s  p50 0.76ms  (group commit ไม่หน่วง = default)
+ *   → ยังไม่ถึงเป้าหลักแสน : คำสั่งต้องรอ fsync ก่อนตอบ จึงจำกัดที่ผู้เรียกพร้อมกัน / เวลา force() ; sequencer คง opt-in
+ * (table / unlogged วัดด้วย PostgreSQL จริงผ่าน ZoneClaimBenchmark / pgbench)
+ *
+ * รัน:
+ *   ./mvnw -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.devops.bench.SeatSequencerBenchmark
+ * ตัวเลือก: -Dbench.threads=64 -Dbench.ops=20000 -Dbench.seats=5000 -Dbench.fsyncMs=0
+ * ============================================================
+ */
+public class SeatSequencerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("bench.threads", 64);
+        int opsPerThread = Integer.getInteger("bench.ops", 20_000);
+        int seats = Integer.getInteger("bench.seats", 5_000);
+        long fsyncMs = Long.getLong("bench.fsyncMs", 0);
+
+        run("memory", new InMemorySeatLockStore(null), threads, opsPerThread, seats);
+
+        Path dir = Files.createTempDirectory("seat-journal-bench");
+        SequencedSeatLockStore sequencer = new SequencedSeatLockStore(null, new SeatJournal(dir, 64 << 20, fsyncMs));
+        try {
+            run("sequencer", sequencer, threads, opsPerThread, seats);
+        } finally {
+            sequencer.close();
+        }
+    }
+
+    private static void run(String name, SeatLockStore store, int threads, int opsPerThread, int seats) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong acquired = new AtomicLong();
+        List<Future<long[]>> futures = new ArrayList<>(threads);
+        Instant expires = Instant.now().plusSeconds(600);
+
+        for (int t = 0; t < threads; t++) {
+            long userId = t + 1;
+            futures.add(pool.submit(() -> {
+                start.await();
+                long[] lat = new long[opsPerThread];
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < opsPerThread; i++) {
+                    List<Long> pick = List.of((long) rnd.nextInt(seats), (long) rnd.nextInt(seats));
+                    long t0 = System.nanoTime();
+                    List<Long> got = store.lock(1L, userId, pick, expires);
+                    lat[i] = System.nanoTime() - t0;
+                    acquired.addAndGet(got.size());
+                    store.unlock(userId, got);
+                }
+                return lat;
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        long[] all = new long[threads * opsPerThread];
+        int k = 0;
+        for (Future<long[]> f : futures) {
+            for (long v : f.get()) all[k++] = v;
+        }
+        double wallSec = (System.nanoTime() - t0) / 1e9;
+        pool.shutdown();
+
+        java.util.Arrays.sort(all);
+        System.out.printf("%-10s threads=%d ops=%d wall=%.2fs ops/s=%.0f p50=%.1fus p99=%.1fus acquired=%d%n",
+                name, threads, all.length, wallSec, all.length * 2 / wallSec,
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3, acquired.get());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.devops.bench;
+
+import com.example.devops.service.TicketInventoryService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  TicketCounterBenchmark (contention, ต้องใช้ PostgreSQL จริง)
+ * ============================================================
+ * ผู้ซื้อพร้อมกันตัดยอด ticket type เดียวกัน ทีละ 1 ใบต่อ transaction
+ *   - shards=1  : ทุก transaction ต่อคิวบนแถวเดียว (เหมือน UPDATE ticket_types SET quantity_sold = quantity_sold + 1)
+ *   - shards=16 : TicketInventoryService กระจายไป 16 แถว
+ * จำนวนครั้งที่พยายามซื้อ > ความจุ 10% → ยืนยันว่าขายได้พอดีความจุ ไม่เกิน
+ *
+ * รัน (สร้างอีเวนต์ทดสอบชั่วคราวแล้วลบทิ้งเอง):
+ *   ./mvnw -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.devops.bench.TicketCounterBenchmark \
+ *       -Dbench.db.url=jdbc:postgresql://localhost:5432/devops \
+ *       -Dbench.db.user=postgres -Dbench.db.password=postgres
+ * ตัวเลือก: -Dbench.threads=64 -Dbench.capacity=20000 -Dbench.pool=64
+ * ============================================================
+ */
+public class TicketCounterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("bench.threads", 64);
+        int capacity = Integer.getInteger("bench.capacity", 20_000);
+
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/devops"));
+        cfg.setUsername(System.getProperty("bench.db.user", "postgres"));
+        cfg.setPassword(System.getProperty("bench.db.password", "postgres"));
+        cfg.setMaximumPoolSize(Integer.getInteger("bench.pool", threads));
+
+        try (HikariDataSource ds = new HikariDataSource(cfg)) {
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+
+            for (int shards : new int[]{1, 16}) {
+                Long eventId = jdbc.queryForObject(
+                        "INSERT INTO events_nam (event_name, status) VALUES ('ticket-counter-bench', 'DRAFT') RETURNING event_id",
+                        Long.class);
+                try {
+                    Long ticketTypeId = jdbc.queryForObject("""
+                            INSERT INTO ticket_types (event_id, type_name, price, quantity_available, quantity_sold)
+                            VALUES (?, 'GA', 100, ?, 0) RETURNING ticket_type_id
+                            """, Long.class, eventId, capacity);
+                    run(shards, threads, capacity, ticketTypeId, jdbc, tx);
+                } finally {
+                    jdbc.update("DELETE FROM events_nam WHERE event_id = ?", eventId);
+                }
+            }
+        }
+    }
+
+    private static void run(int shards, int threads, int capacity, long ticketTypeId,
+                            JdbcTemplate jdbc, TransactionTemplate tx) throws Exception {
+        TicketInventoryService inventory = new TicketInventoryService(jdbc, shards, 3);
+        int attempts = capacity + capacity / 10;
+        AtomicInteger remainingAttempts = new AtomicInteger(attempts);
+        AtomicLong granted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                while (remainingAttempts.getAndDecrement() > 0) {
+                    if (Boolean.TRUE.equals(tx.execute(st -> inventory.take(ticketTypeId, 1)))) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(30, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - t0) / 1e9;
+
+        Long sold = jdbc.queryForObject(
+                "SELECT SUM(sold) FROM ticket_type_counter_shards WHERE ticket_type_id = ?", Long.class, ticketTypeId);
+        System.out.printf("shards=%-3d threads=%d attempts=%d time=%.2fs throughput=%.0f tx/s granted=%d sold=%d capacity=%d%s%n",
+                shards, threads, attempts, seconds, attempts / seconds, granted.get(), sold, capacity,
+                sold != null && sold > capacity ? "  ❌ OVERSOLD" : "");
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.devops.bench;
+
+import com.example.devops.service.ZoneSeatClaimer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================================
+ *  ZoneClaimBenchmark (concurrency, ต้องใช้ PostgreSQL จริง)
+ * ============================================================
+ * ผู้ซื้อ 500 คนพร้อมกันในโซนเดียว (คนละ 2 ที่นั่ง, โซนมี 1,000 ที่นั่ง = ขายหมดพอดี)
+ *   - skipLocked : ZoneSeatClaimer (FOR UPDATE SKIP LOCKED LIMIT N)
+ *   - pickThenLock : แบบเดิม — อ่านที่นั่งว่างก่อน แล้วค่อย INSERT lock ; ชน → rollback แล้วลองใหม่
+ * รายงาน : เวลารวม, p50/p99 ต่อผู้ซื้อ, จำนวน retry, ที่นั่งที่ถูกจองซ้ำ (ต้องเป็น 0)
+ *
+ * รัน (สร้างอีเวนต์ทดสอบชั่วคราวแล้วลบทิ้งเอง):
+ *   ./mvnw -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.devops.bench.ZoneClaimBenchmark \
+ *       -Dbench.db.url=jdbc:postgresql://localhost:5432/devops \
+ *       -Dbench.db.user=postgres -Dbench.db.password=postgres
+ * ตัวเลือก: -Dbench.buyers=500 -Dbench.quantity=2 -Dbench.pool=50
+ * ============================================================
+ */
+public class ZoneClaimBenchmark {
+
+    private static final int ROWS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int buyers = Integer.getInteger("bench.buyers", 500);
+        int quantity = Integer.getInteger("bench.quantity", 2);
+        int seatsPerRow = Math.max(1, buyers * quantity / ROWS);
+
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/devops"));
+        cfg.setUsername(System.getProperty("bench.db.user", "postgres"));
+        cfg.setPassword(System.getProperty("bench.db.password", "postgres"));
+        cfg.setMaximumPoolSize(Integer.getInteger("bench.pool", 50));
+
+        try (HikariDataSource ds = new HikariDataSource(cfg)) {
+            JdbcTemplate jdbc = new JdbcTemplate(ds);
+            TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+            ZoneSeatClaimer claimer = new ZoneSeatClaimer(jdbc);
+
+            for (String mode : new String[]{"skipLocked", "pickThenLock"}) {
+                long[] ids = setup(jdbc, seatsPerRow);
+                try {
+                    run(mode, buyers, quantity, ids[0], ids[1], jdbc, tx, claimer);
+                } finally {
+                    jdbc.update("DELETE FROM seat_locks WHERE event_id = ?", ids[0]);
+                    jdbc.update("DELETE FROM events_nam WHERE event_id = ?", ids[0]);
+                }
+            }
+        }
+    }
+
+    private static void run(String mode, int buyers, int quantity, long eventId, long zoneId,
+                            JdbcTemplate jdbc, TransactionTemplate tx, ZoneSeatClaimer claimer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong retries = new AtomicLong();
+        AtomicLong soldOut = new AtomicLong();
+        List<Future<Long>> futures = new ArrayList<>(buyers);
+
+        for (int b = 0; b < buyers; b++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                long t0 = System.nanoTime();
+                boolean ok;
+                if ("skipLocked".equals(mode)) {
+                    ok = Boolean.TRUE.equals(tx.execute(st -> {
+                        List<Long> got = claimer.claim(eventId, zoneId, null, quantity, 5);
+                        if (got.size() < quantity) st.setRollbackOnly();
+                        return got.size() == quantity;
+                    }));
+                } else {
+                    ok = pickThenLock(jdbc, tx, eventId, zoneId, quantity, retries);
+                }
+                if (!ok) soldOut.incrementAndGet();
+                return System.nanoTime() - t0;
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        long[] lat = new long[buyers];
+        for (int i = 0; i < buyers; i++) lat[i] = futures.get(i).get();
+        long wallMs = (System.nanoTime() - t0) / 1_000_000;
+        pool.shutdown();
+
+        Arrays.sort(lat);
+        Long locked = jdbc.queryForObject("SELECT COUNT(*) FROM seat_locks WHERE event_id = ? AND status = 'LOCKED'",
+                Long.class, eventId);
+        Long distinct = jdbc.queryForObject("SELECT COUNT(DISTINCT seat_id) FROM seat_locks WHERE event_id = ? AND status = 'LOCKED'",
+                Long.class, eventId);
+        System.out.printf("%-13s buyers=%d wall=%dms p50=%.1fms p99=%.1fms retries=%d unserved=%d seatsLocked=%d duplicates=%d%n",
+                mode, buyers, wallMs, lat[buyers / 2] / 1e6, lat[(int) (buyers * 0.99)] / 1e6,
+                retries.get(), soldOut.get(), locked, locked - distinct);
+    }
+
+    /** แบบเดิม: เลือกที่นั่งที่เห็นว่าว่างก่อน → INSERT lock ; ได้ไม่ครบ = ชน → rollback แล้วลองใหม่ */
+    private static boolean pickThenLock(JdbcTemplate jdbc, TransactionTemplate tx, long eventId, long zoneId,
+                                        int quantity, AtomicLong retries) {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            Integer result = tx.execute(st -> {
+                List<Long> free = jdbc.queryForList("""
+                        SELECT s.seat_id
+                          FROM seats s JOIN seat_rows r ON r.row_id = s.row_id
+                         WHERE r.zone_id = ?
+                           AND NOT EXISTS (SELECT 1 FROM seat_locks l
+                                            WHERE l.seat_id = s.seat_id AND l.status = 'LOCKED' AND l.expires_at > NOW())
+                         ORDER BY r.sort_order, s.seat_number
+                         LIMIT ?
+                        """, Long.class, zoneId, quantity);
+                if (free.size() < quantity) return -1;
+                int n = 0;
+                for (Long seatId : free) {
+                    n += jdbc.update("""
+                            INSERT INTO seat_locks (seat_id, event_id, user_id, locked_at, expires_at, status)
+                            VALUES (?, ?, NULL, NOW(), NOW() + INTERVAL '5 minutes', 'LOCKED')
+                            ON CONFLICT (seat_id) DO NOTHING
+                            """, seatId, eventId);
+                }
+                if (n < quantity) {
+                    st.setRollbackOnly();
+                    return 0;
+                }
+                return 1;
+            });
+            if (result != null && result == 1) return true;
+            if (result != null && result == -1) return false;
+            retries.incrementAndGet();
+        }
+        return false;
+    }
+
+    /** อีเวนต์ชั่วคราว 1 โซน ROWS แถว ; คืน {eventId, zoneId} */
+    private static long[] setup(JdbcTemplate jdbc, int seatsPerRow) {
+        Long eventId = jdbc.queryForObject(
+                "INSERT INTO events_nam (event_name, status) VALUES ('zone-claim-bench', 'DRAFT') RETURNING event_id", Long.class);
+        Long zoneId = jdbc.queryForObject(
+                "INSERT INTO seat_zones (event_id, zone_code, zone_name, price) VALUES (?, 'GA', 'GA', 100) RETURNING zone_id",
+                Long.class, eventId);
+        for (int r = 0; r < ROWS; r++) {
+            Long rowId = jdbc.queryForObject(
+                    "INSERT INTO seat_rows (zone_id, row_label, sort_order) VALUES (?, ?, ?) RETURNING row_id",
+                    Long.class, zoneId, "R" + r, r);
+            List<Object[]> seats = new ArrayList<>(seatsPerRow);
+            for (int s = 1; s <= seatsPerRow; s++) seats.add(new Object[]{rowId, s, String.valueOf(s)});
+            jdbc.batchUpdate("INSERT INTO seats (row_id, seat_number, seat_label) VALUES (?, ?, ?)", seats);
+        }
+        return new long[]{eventId, zoneId};
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.devops.config;
+
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.security.VerifiedToken;
+import com.example.devops.service.PollRateLimiter;
+import com.example.devops.web.WaitingRoomController;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PollRateLimitInterceptorTest {
+
+    static class SeatController {
+        @RateLimited("seats-taken")
+        public void taken() {
+        }
+
+        public void other() {
+        }
+    }
+
+    private final PollRateLimiter limiter = mock(PollRateLimiter.class);
+    private final JwtVerifier jwt = mock(JwtVerifier.class);
+    private final PollRateLimitConfig.PollRateLimitInterceptor interceptor =
+            new PollRateLimitConfig.PollRateLimitInterceptor(limiter, jwt, 1);
+
+    private static HandlerMethod handler(String method) throws Exception {
+        SeatController c = new SeatController();
+        return new HandlerMethod(c, SeatController.class.getMethod(method));
+    }
+
+    @Test
+    void keysByForwardedClientIpAndVerifiedSubjectAndSetsHeaders() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(jwt.verify("tok")).thenReturn(new VerifiedToken("alice", "USER", null, null, null, null, 0));
+        when(limiter.tryAcquire(anyString(), anyString()))
+                .thenReturn(new PollRateLimiter.Decision(true, 20, 19, 1_000_000_000L, 0));
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/public/events/1/seats/taken");
+        req.addHeader("X-Forwarded-For", "6.6.6.6, 10.0.0.9");
+        req.addHeader("Authorization", "Bearer tok");
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(req, res, handler("taken"))).isTrue();
+
+        verify(limiter).tryAcquire("seats-taken", "10.0.0.9/alice");
+        assertThat(res.getHeader("RateLimit-Limit")).isEqualTo("20");
+        assertThat(res.getHeader("RateLimit-Remaining")).isEqualTo("19");
+        assertThat(res.getHeader("RateLimit-Reset")).isEqualTo("1");
+    }
+
+    @Test
+    void forwardedClientIpIsTrustedOnlyFromAnotherNode() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(limiter.tryAcquire(anyString(), anyString()))
+                .thenReturn(new PollRateLimiter.Decision(true, 20, 19, 1_000_000_000L, 0));
+        MockHttpServletRequest spoofed = new MockHttpServletRequest("GET", "/api/public/events/1/seats/taken");
+        spoofed.addHeader("X-Forwarded-For", "10.0.0.9");
+        spoofed.addHeader(ClientIdentity.FORWARDED_CLIENT_IP_HEADER, "1.2.3.4");
+        MockHttpServletRequest forwarded = new MockHttpServletRequest("GET", "/api/public/events/1/seats/taken");
+        forwarded.addHeader("X-Forwarded-For", "10.0.0.7");
+        forwarded.addHeader(ClientIdentity.FORWARDED_BY_HEADER, "node-a");
+        forwarded.addHeader(ClientIdentity.FORWARDED_CLIENT_IP_HEADER, "203.0.113.9");
+
+        interceptor.preHandle(spoofed, new MockHttpServletResponse(), handler("taken"));
+        interceptor.preHandle(forwarded, new MockHttpServletResponse(), handler("taken"));
+
+        verify(limiter).tryAcquire("seats-taken", "10.0.0.9/anon");
+        verify(limiter).tryAcquire("seats-taken", "203.0.113.9/anon");
+    }
+
+    @Test
+    void overLimitGets429WithRetryAfter() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(limiter.tryAcquire(anyString(), anyString()))
+                .thenReturn(new PollRateLimiter.Decision(false, 20, 0, 20_000_000_000L, 1_500_000_000L));
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/x");
+        req.setRemoteAddr("1.2.3.4");
+        req.addHeader("Authorization", "Bearer forged");
+        when(jwt.verify("forged")).thenThrow(new io.jsonwebtoken.JwtException("bad"));
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(req, res, handler("taken"))).isFalse();
+
+        verify(limiter).tryAcquire("seats-taken", "1.2.3.4/anon");
+        assertThat(res.getStatus()).isEqualTo(429);
+        assertThat(res.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(res.getContentAsString()).contains("RATE_LIMITED");
+    }
+
+    @Test
+    void unannotatedHandlersAreNotLimited() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("other"))).isTrue();
+
+        verify(limiter, never()).tryAcquire(anyString(), anyString());
+    }
+
+    @Test
+    void waitingRoomJoinIsRateLimited() throws Exception {
+        RateLimited rl = WaitingRoomController.class.getMethod("join", Long.class, String.class, HttpServletRequest.class)
+                .getAnnotation(RateLimited.class);
+        assertThat(rl).isNotNull();
+        assertThat(rl.value()).isEqualTo("waiting-room-join");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.devops.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final JdbcTemplate lagQuery = mock(JdbcTemplate.class);
+    private final ReplicaLagMonitor lag = new ReplicaLagMonitor(lagQuery, 2000);
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, lag);
+
+    private final DataSource app = new LazyConnectionDataSourceProxy(routing);
+
+    private TransactionTemplate tx;
+    private TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    void setup() throws Exception {
+        stubConnection(primary);
+        stubConnection(replica);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(app);
+        tx = new TransactionTemplate(tm);
+        readOnlyTx = new TransactionTemplate(tm);
+        readOnlyTx.setReadOnly(true);
+        replicaLag(100L);
+    }
+
+    @AfterEach
+    void teardown() {
+        while (PrimaryRouting.isPinned()) PrimaryRouting.unpin();
+    }
+
+    private static void stubConnection(DataSource ds) throws Exception {
+        Connection con = mock(Connection.class);
+        when(con.createStatement()).thenReturn(mock(Statement.class));
+        when(con.getAutoCommit()).thenReturn(true);
+        when(ds.getConnection()).thenReturn(con);
+    }
+
+    private void replicaLag(Long ms) {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(ms);
+        lag.check();
+    }
+
+    /** เปิด transaction แล้วยิง statement หนึ่งครั้ง (ตอนนี้ lazy proxy ถึงจะขอ connection จริง) */
+    private void touch(TransactionTemplate t) {
+        t.executeWithoutResult(s -> new JdbcTemplate(app).execute((Connection c) -> c.createStatement()));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaOnceBeginHasSetTheFlag() throws Exception {
+        touch(readOnlyTx);
+
+        verify(replica).getConnection();
+        assertThat(routing.replicaRoutes()).isEqualTo(1);
+    }
+
+    @Test
+    void writesAndNonTransactionalWorkStayOnPrimary() throws Exception {
+        touch(tx);
+        assertThat(routing.route()).isEqualTo(ReplicaRoutingDataSource.Target.PRIMARY);
+
+        verify(replica, never()).getConnection();
+        assertThat(routing.replicaRoutes()).isZero();
+    }
+
+    @Test
+    void pinnedThreadReadsFromPrimary() throws Exception {
+        PrimaryRouting.onPrimary(() -> {
+            touch(readOnlyTx);
+            return null;
+        });
+
+        verify(replica, never()).getConnection();
+        assertThat(PrimaryRouting.isPinned()).isFalse();
+    }
+
+    @Test
+    void laggingOrUnreachableReplicaFallsBackToPrimary() throws Exception {
+        replicaLag(5000L);
+        touch(readOnlyTx);
+        assertThat(lag.healthy()).isFalse();
+
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenThrow(new RuntimeException("down"));
+        lag.check();
+        touch(readOnlyTx);
+
+        verify(replica, never()).getConnection();
+        assertThat(routing.primaryFallbacks()).isEqualTo(2);
+        assertThat(lag.lagMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    void replicaIsUsedAgainOnceItCatchesUp() throws Exception {
+        replicaLag(5000L);
+        replicaLag(0L);
+
+        touch(readOnlyTx);
+
+        verify(replica).getConnection();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.devops.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * routing กับ PostgreSQL สองตัวจริง (ไม่ต้อง replicate กัน : ดูแค่ว่า statement ไปโดน instance ไหน)
+ * รัน: ./mvnw test -Dtest=ReplicaRoutingPostgresTest
+ *        -Dreplica.db.primary-url=jdbc:postgresql://localhost:5432/devops
+ *        -Dreplica.db.replica-url=jdbc:postgresql://localhost:5433/devops
+ *      (-Dreplica.db.user=postgres -Dreplica.db.password=postgres)
+ */
+@EnabledIfSystemProperty(named = "replica.db.replica-url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingPostgresTest {
+
+    private static final String WHO = "SELECT current_setting('port') || '/' || pg_postmaster_start_time()";
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaLagMonitor lag;
+    private JdbcTemplate app;
+    private TransactionTemplate tx;
+    private TransactionTemplate readOnlyTx;
+    private String primaryId;
+    private String replicaId;
+
+    @BeforeAll
+    void setup() {
+        primary = pool(System.getProperty("replica.db.primary-url"));
+        replica = pool(System.getProperty("replica.db.replica-url"));
+        primaryId = new JdbcTemplate(primary).queryForObject(WHO, String.class);
+        replicaId = new JdbcTemplate(replica).queryForObject(WHO, String.class);
+        assertThat(replicaId).as("primary/replica must be different instances").isNotEqualTo(primaryId);
+
+        lag = new ReplicaLagMonitor(replica, 2000);
+        LazyConnectionDataSourceProxy ds = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, lag));
+        app = new JdbcTemplate(ds);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(ds);
+        tx = new TransactionTemplate(tm);
+        readOnlyTx = new TransactionTemplate(tm);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @AfterAll
+    void teardown() {
+        primary.close();
+        replica.close();
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(url);
+        cfg.setUsername(System.getProperty("replica.db.user", "postgres"));
+        cfg.setPassword(System.getProperty("replica.db.password", "postgres"));
+        cfg.setMaximumPoolSize(2);
+        return new HikariDataSource(cfg);
+    }
+
+    private String who(TransactionTemplate t) {
+        return t.execute(s -> app.queryForObject(WHO, String.class));
+    }
+
+    @Test
+    void routesByTransactionModePinAndLag() {
+        lag.check();
+        assertThat(lag.healthy()).isTrue();
+
+        assertThat(who(readOnlyTx)).isEqualTo(replicaId);
+        assertThat(who(tx)).isEqualTo(primaryId);
+        assertThat(app.queryForObject(WHO, String.class)).isEqualTo(primaryId);
+        String pinned = PrimaryRouting.onPrimary(() -> who(readOnlyTx));
+        assertThat(pinned).isEqualTo(primaryId);
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        HikariDataSource nowhere = new HikariDataSource();
+        nowhere.setJdbcUrl("jdbc:postgresql://127.0.0.1:1/none?connectTimeout=1");
+        nowhere.setConnectionTimeout(1000);
+        ReplicaLagMonitor down = new ReplicaLagMonitor(nowhere, 2000);
+        down.check();
+        LazyConnectionDataSourceProxy ds = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, down));
+        TransactionTemplate ro = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        ro.setReadOnly(true);
+
+        String served = ro.execute(s -> new JdbcTemplate(ds).queryForObject(WHO, String.class));
+        assertThat(served).isEqualTo(primaryId);
+        nowhere.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.devops.config;
+
+import com.example.devops.service.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightConfigTest {
+
+    public static class SeatReads {
+        final AtomicInteger queries = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced
+        public String seats(Long eventId) throws InterruptedException {
+            queries.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return "seats-" + eventId;
+        }
+
+        public int uncoalesced() {
+            return queries.incrementAndGet();
+        }
+    }
+
+    public static class Plain {
+    }
+
+    private final SingleFlight flights = new SingleFlight();
+
+    private Object process(Object bean) {
+        SingleFlightConfig.CoalescingPostProcessor pp = new SingleFlightConfig.CoalescingPostProcessor(flights);
+        pp.setBeanFactory(new DefaultListableBeanFactory());
+        return pp.postProcessAfterInitialization(bean, "bean");
+    }
+
+    @Test
+    void onlyBeansWithCoalescedMethodsAreProxied() {
+        assertThat(AopUtils.isAopProxy(process(new SeatReads()))).isTrue();
+        assertThat(AopUtils.isAopProxy(process(new Plain()))).isFalse();
+    }
+
+    @Test
+    void annotatedMethodCoalescesByArguments() throws Exception {
+        SeatReads target = new SeatReads();
+        SeatReads proxy = (SeatReads) process(target);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        flights.bindTo(registry);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> a = pool.submit(() -> proxy.seats(7L));
+            Future<String> b = pool.submit(() -> proxy.seats(7L));
+            Future<String> c = pool.submit(() -> proxy.seats(7L));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            // follower 2 ตัวต่อคิวอยู่ที่ flight ของ leader แล้ว
+            while (registry.find("singleflight.shared").tag("name", "SeatReads.seats").functionCounter() == null
+                    || registry.get("singleflight.shared").tag("name", "SeatReads.seats").functionCounter().count() < 2) {
+                if (System.nanoTime() > deadline) break;
+                Thread.sleep(5);
+            }
+            target.release.countDown();
+
+            assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo("seats-7");
+            assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo("seats-7");
+            assertThat(c.get(5, TimeUnit.SECONDS)).isEqualTo("seats-7");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(target.queries.get()).isEqualTo(1);
+        assertThat(proxy.seats(8L)).isEqualTo("seats-8");
+        assertThat(target.queries.get()).isEqualTo(2);
+        assertThat(proxy.uncoalesced()).isEqualTo(3);
+    }
+}
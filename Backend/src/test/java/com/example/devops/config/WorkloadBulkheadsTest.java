@@ -0,0 +1,122 @@
+package com.example.devops.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.sql.Connection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class WorkloadBulkheadsTest {
+
+    @Workload(WorkloadClass.BACK_OFFICE)
+    static class ReportController {
+        public void export() {
+        }
+
+        @Workload(WorkloadClass.PUBLIC_READ)
+        public void summary() {
+        }
+    }
+
+    static class PlainController {
+        public void hello() {
+        }
+    }
+
+    private final WorkloadBulkheads bulkheads = new WorkloadBulkheads(
+            Map.of(WorkloadClass.BACK_OFFICE, 2, WorkloadClass.PURCHASE, 0),
+            Map.of(WorkloadClass.BACK_OFFICE, 10));
+    private final WorkloadConfig.WorkloadInterceptor interceptor =
+            new WorkloadConfig.WorkloadInterceptor(bulkheads, new ObjectMapper());
+
+    @AfterEach
+    void teardown() {
+        WorkloadContext.clear();
+    }
+
+    private static HandlerMethod handler(Object bean, String method) throws Exception {
+        return new HandlerMethod(bean, bean.getClass().getMethod(method));
+    }
+
+    @Test
+    void methodAnnotationWinsOverClassAndUntaggedHandlersAreNotLimited() throws Exception {
+        assertThat(WorkloadConfig.workloadOf(handler(new ReportController(), "export")))
+                .isEqualTo(WorkloadClass.BACK_OFFICE);
+        assertThat(WorkloadConfig.workloadOf(handler(new ReportController(), "summary")))
+                .isEqualTo(WorkloadClass.PUBLIC_READ);
+        assertThat(WorkloadConfig.workloadOf(handler(new PlainController(), "hello"))).isNull();
+
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(req, new MockHttpServletResponse(), handler(new PlainController(), "hello"))).isTrue();
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @Test
+    void interceptorSetsContextAndReleasesTheSlot() throws Exception {
+        HandlerMethod export = handler(new ReportController(), "export");
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(req, res, export)).isTrue();
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.BACK_OFFICE);
+        assertThat(bulkheads.active(WorkloadClass.BACK_OFFICE)).isEqualTo(1);
+
+        interceptor.afterCompletion(req, res, export, null);
+        assertThat(bulkheads.active(WorkloadClass.BACK_OFFICE)).isZero();
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @Test
+    void fullBackOfficeCompartmentRejectsReportsButNotPurchases() throws Exception {
+        HandlerMethod export = handler(new ReportController(), "export");
+        // รายงานช้า 2 ตัวถือที่ไว้เต็มโควตา
+        assertThat(bulkheads.tryEnter(WorkloadClass.BACK_OFFICE)).isTrue();
+        assertThat(bulkheads.tryEnter(WorkloadClass.BACK_OFFICE)).isTrue();
+
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), res, export)).isFalse();
+        assertThat(res.getStatus()).isEqualTo(503);
+        assertThat(res.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(res.getContentAsString()).contains("WORKLOAD_SATURATED").contains("back-office");
+        assertThat(bulkheads.rejected(WorkloadClass.BACK_OFFICE)).isEqualTo(1);
+
+        for (int i = 0; i < 100; i++) assertThat(bulkheads.tryEnter(WorkloadClass.PURCHASE)).isTrue();
+        assertThat(bulkheads.rejected(WorkloadClass.PURCHASE)).isZero();
+    }
+
+    @Test
+    void routingDataSourcePicksThePoolOfTheCurrentWorkload() throws Exception {
+        Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass w : WorkloadClass.values()) {
+            HikariDataSource ds = mock(HikariDataSource.class);
+            when(ds.getConnection()).thenReturn(mock(Connection.class));
+            pools.put(w, ds);
+        }
+        WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource(pools);
+
+        WorkloadContext.call(WorkloadClass.BATCH, () -> {
+            try {
+                return routing.getConnection();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        routing.getConnection();
+
+        verify(pools.get(WorkloadClass.BATCH)).getConnection();
+        verify(pools.get(WorkloadClass.PUBLIC_READ)).getConnection();
+        verify(pools.get(WorkloadClass.PURCHASE), never()).getConnection();
+
+        routing.close();
+        pools.values().forEach(ds -> verify(ds).close());
+    }
+}
@@ -6,6 +6,8 @@ import com.example.devops.model.User;
 import com.example.devops.repo.EventsNamRepository;
 import com.example.devops.repo.OrganizerRepo;
 import com.example.devops.repo.UserRepository;
+import com.example.devops.security.JwtFilter;
+import com.example.devops.service.ConcurrencyLimiter;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,9 @@ import org.mockito.Mockito;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
@@ -28,7 +33,10 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(AdminController.class)
+// JwtFilter ไม่เกี่ยวกับ slice นี้ (ไม่มี Authorization header) — ตัดออกเพื่อไม่ต้อง mock dependency ของมัน
+@Import(ConcurrencyLimiter.class)
+@WebMvcTest(controllers = AdminController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JwtFilter.class))
 @WithMockUser(roles = "ADMIN")
 class AdminControllerTest {
 
@@ -2,11 +2,16 @@ package com.example.devops.controller;
 
 import com.example.devops.model.SeatZones;
 import com.example.devops.repo.*;
+import com.example.devops.security.JwtFilter;
+import com.example.devops.service.ConcurrencyLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -30,7 +35,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *
  * ใช้ @WebMvcTest โหลดเฉพาะ controller layer
  */
-@WebMvcTest(AdminEventZoneController.class)
+// JwtFilter ไม่เกี่ยวกับ slice นี้ (ไม่มี Authorization header) — ตัดออกเพื่อไม่ต้อง mock dependency ของมัน
+@Import(ConcurrencyLimiter.class)
+@WebMvcTest(controllers = AdminEventZoneController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JwtFilter.class))
 @WithMockUser(roles = "ADMIN") // จำลอง Admin ที่ผ่าน Security
 class AdminEventZoneControllerTest {
 
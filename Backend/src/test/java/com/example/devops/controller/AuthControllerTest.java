@@ -5,11 +5,15 @@ import com.example.devops.model.Organizer;
 import com.example.devops.repo.UserRepository;
 import com.example.devops.repo.OrganizerRepo;
 import com.example.devops.security.JwtTokenUtil;
-import com.example.devops.service.GuestClaimService;
+import com.example.devops.service.GuestClaimQueue;
+import com.example.devops.service.PasswordVerificationService;
+import com.example.devops.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 
@@ -24,16 +28,38 @@ public class AuthControllerTest {
     @Mock private OrganizerRepo organizerRepo;
     @Mock private PasswordEncoder passwordEncoder;
     @Mock private JwtTokenUtil jwtUtil;
-    @Mock private GuestClaimService guestClaimService;
+    @Mock private GuestClaimQueue guestClaimQueue;
+    @Mock private TokenRevocationService tokenRevocation;
     @Mock private BindingResult br;   // ⭐ สำคัญมาก — mock ไม่ให้เป็น null
 
-    @InjectMocks
+    private PasswordVerificationService passwordVerifier;
     private AuthController authController;
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
         when(br.hasErrors()).thenReturn(false);  // ⭐ ป้องกัน NPE
+        // ⭐ pool จริง แต่ใช้ passwordEncoder ที่ mock ไว้
+        passwordVerifier = new PasswordVerificationService(passwordEncoder, 1, 4, 5000, 2);
+        authController = new AuthController(userRepo, organizerRepo, passwordEncoder,
+                passwordVerifier, jwtUtil, guestClaimQueue, tokenRevocation);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordVerifier.shutdown();
+    }
+
+    private static UserRepository.LoginCandidate candidate(String type, Long id, String username,
+                                                           String email, String role, String hash) {
+        return new UserRepository.LoginCandidate() {
+            public String getAccountType() { return type; }
+            public Long getAccountId() { return id; }
+            public String getUsername() { return username; }
+            public String getEmail() { return email; }
+            public String getRole() { return role; }
+            public String getPasswordHash() { return hash; }
+        };
     }
 
     /* ======================== LOGIN TEST ======================== */
@@ -44,21 +70,16 @@ public class AuthControllerTest {
         req.setUsername("testuser");
         req.setPassword("Password123");
 
-        User mockUser = new User();
-        mockUser.setId(1L);
-        mockUser.setUsername("testuser");
-        mockUser.setEmail("user@test.com");
-        mockUser.setPassword("encodedPass");
-        mockUser.setRole("USER");
-
-        when(userRepo.findByUsernameIgnoreCase("testuser")).thenReturn(Optional.of(mockUser));
+        when(userRepo.findLoginCandidates("testuser")).thenReturn(List.of(
+                candidate("USER", 1L, "testuser", "user@test.com", "USER", "encodedPass")));
         when(passwordEncoder.matches("Password123", "encodedPass")).thenReturn(true);
-        when(jwtUtil.generateToken("testuser", "USER", "user@test.com")).thenReturn("mockToken");
+        when(jwtUtil.generateToken(1L, "USER", "testuser", "USER", "user@test.com")).thenReturn("mockToken");
 
-        ResponseEntity<?> result = authController.login(req, br);
+        ResponseEntity<?> result = authController.login(req, br, new MockHttpServletRequest());
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        verify(guestClaimService).linkGuestReservationsToUser(1L, "user@test.com");
+        verify(guestClaimQueue).enqueue(1L, "user@test.com");
+        verify(tokenRevocation).recordSession(eq("mockToken"), any(), any());
     }
 
     @Test
@@ -67,16 +88,75 @@ public class AuthControllerTest {
         req.setUsername("wrong");
         req.setPassword("pass");
 
-        User mockUser = new User();
-        mockUser.setUsername("wrong");
-        mockUser.setPassword("encoded");
-
-        when(userRepo.findByUsernameIgnoreCase("wrong")).thenReturn(Optional.of(mockUser));
+        when(userRepo.findLoginCandidates("wrong")).thenReturn(List.of(
+                candidate("USER", 2L, "wrong", "wrong@test.com", "USER", "encoded")));
         when(passwordEncoder.matches("pass", "encoded")).thenReturn(false);
 
-        ResponseEntity<?> result = authController.login(req, br);
+        ResponseEntity<?> result = authController.login(req, br, new MockHttpServletRequest());
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(401);
+    }
+
+    @Test
+    void testLoginSuccess_OrganizerFallback() {
+        AuthController.LoginRequest req = new AuthController.LoginRequest();
+        req.setUsername("shared");
+        req.setPassword("Password123");
+
+        when(userRepo.findLoginCandidates("shared")).thenReturn(List.of(
+                candidate("USER", 3L, "shared", "u@test.com", "USER", "userHash"),
+                candidate("ORGANIZER", 7L, "shared", "o@test.com", "ORGANIZER", "orgHash")));
+        when(passwordEncoder.matches("Password123", "userHash")).thenReturn(false);
+        when(passwordEncoder.matches("Password123", "orgHash")).thenReturn(true);
+        when(jwtUtil.generateToken(7L, "ORGANIZER", "shared", "ORGANIZER", "o@test.com")).thenReturn("orgToken");
+
+        ResponseEntity<?> result = authController.login(req, br, new MockHttpServletRequest());
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        verify(guestClaimQueue, never()).enqueue(anyLong(), anyString());
+        verify(userRepo, never()).findByUsernameIgnoreCase(anyString());
+        verify(organizerRepo, never()).findByUsernameIgnoreCase(anyString());
+    }
+
+    @Test
+    void testLoginThrottled_WhenPasswordPoolSaturated() {
+        PasswordVerificationService saturated = mock(PasswordVerificationService.class);
+        when(saturated.matches(anyString(), anyString()))
+                .thenThrow(new PasswordVerificationService.Saturated(3));
+        AuthController controller = new AuthController(userRepo, organizerRepo, passwordEncoder,
+                saturated, jwtUtil, guestClaimQueue, tokenRevocation);
+
+        AuthController.LoginRequest req = new AuthController.LoginRequest();
+        req.setUsername("testuser");
+        req.setPassword("Password123");
+        when(userRepo.findLoginCandidates("testuser")).thenReturn(List.of(
+                candidate("USER", 1L, "testuser", "user@test.com", "USER", "encodedPass")));
+
+        ResponseEntity<?> result = controller.login(req, br, new MockHttpServletRequest());
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(429);
+        assertThat(result.getHeaders().getFirst("Retry-After")).isEqualTo("3");
+        verifyNoInteractions(jwtUtil);
+    }
+
+    /* ======================== LOGOUT TEST ======================== */
+
+    @Test
+    void testLogout_RevokesBearerToken() {
+        when(tokenRevocation.revoke("abc.def.ghi")).thenReturn(true);
+
+        ResponseEntity<?> result = authController.logout("Bearer abc.def.ghi");
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        verify(tokenRevocation).revoke("abc.def.ghi");
+    }
+
+    @Test
+    void testLogout_MissingToken() {
+        ResponseEntity<?> result = authController.logout(null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(401);
+        verifyNoInteractions(tokenRevocation);
     }
 
     /* ======================== USER SIGNUP TEST ======================== */
@@ -110,7 +190,7 @@ public class AuthControllerTest {
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
 
         // ⭐ ตอนนี้ user.getId() = 1L ไม่ใช่ null แล้ว
-        verify(guestClaimService).linkGuestReservationsToUser(1L, "test@test.com");
+        verify(guestClaimQueue).enqueue(1L, "test@test.com");
     }
 
 
@@ -4,9 +4,14 @@ import com.example.devops.model.User;
 import com.example.devops.model.Organizer;
 import com.example.devops.repo.UserRepository;
 import com.example.devops.repo.OrganizerRepo;
+import com.example.devops.security.JwtFilter;
+import com.example.devops.service.ConcurrencyLimiter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
@@ -21,7 +26,10 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(MeController.class)
+// JwtFilter ไม่เกี่ยวกับ slice นี้ (ไม่มี Authorization header) — ตัดออกเพื่อไม่ต้อง mock dependency ของมัน
+@Import(ConcurrencyLimiter.class)
+@WebMvcTest(controllers = MeController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JwtFilter.class))
 @AutoConfigureMockMvc(addFilters = false)   // ⭐ ปิด Security Filter เพื่อไม่ให้โดน 401
 public class MeControllerTest {
 
@@ -4,10 +4,17 @@ import com.example.devops.model.Organizer;
 import com.example.devops.model.User;
 import com.example.devops.repo.OrganizerRepo;
 import com.example.devops.repo.UserRepository;
+import com.example.devops.security.JwtFilter;
+import com.example.devops.service.CacheInvalidationBus;
+import com.example.devops.service.ConcurrencyLimiter;
+import com.example.devops.service.IdentityCache;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -25,7 +32,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(ProfileController.class)
+// JwtFilter ไม่เกี่ยวกับ slice นี้ (ไม่มี Authorization header) — ตัดออกเพื่อไม่ต้อง mock dependency ของมัน
+@Import({IdentityCache.class, CacheInvalidationBus.class, ConcurrencyLimiter.class})
+@WebMvcTest(controllers = ProfileController.class,
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = JwtFilter.class))
 @AutoConfigureMockMvc(addFilters = false)   // ⭐ ปิด Security Filter ให้เทสผ่าน
 public class ProfileControllerTest {
 
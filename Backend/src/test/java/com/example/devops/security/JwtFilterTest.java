@@ -6,12 +6,12 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
@@ -25,12 +25,9 @@ public class JwtFilterTest {
 
     @BeforeEach
     void setup() throws Exception {
-        filter = new JwtFilter();
-
-        // 🔥 ใช้ Reflection เพื่อ set jwtSecret แบบถูกต้อง (ไม่ใช้ Mockito)
-        Field f = JwtFilter.class.getDeclaredField("jwtSecret");
-        f.setAccessible(true);
-        f.set(filter, secret);
+        // secret ส่งผ่าน JwtVerifier (parser ตัวเดียว + cache)
+        filter = new JwtFilter(new JwtVerifier(secret, 0, 1000, 900), new RevokedTokenSet(1000, 0.01),
+                new SessionActivityRecorder(mock(JdbcTemplate.class), 1000));
 
         SecurityContextHolder.clearContext();
     }
@@ -91,4 +88,31 @@ public class JwtFilterTest {
 
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
     }
+
+    // 6) token ที่ถูก revoke (jti อยู่ใน RevokedTokenSet) -> ไม่ authenticate
+    @Test
+    void testDoFilter_RevokedToken() throws Exception {
+        String strong = "1234567890123456789012345678901234567890123456789012345678901234";
+        RevokedTokenSet revoked = new RevokedTokenSet(1000, 0.01);
+        JwtFilter f = new JwtFilter(new JwtVerifier(strong, 0, 1000, 900), revoked,
+                new SessionActivityRecorder(mock(JdbcTemplate.class), 1000));
+        String jwt = Jwts.builder()
+                .setSubject("alice")
+                .setId("jti-1")
+                .claim("role", "USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(io.jsonwebtoken.security.Keys.hmacShaKeyFor(strong.getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS512)
+                .compact();
+
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader("Authorization", "Bearer " + jwt);
+        f.doFilter(req, new MockHttpServletResponse(), mock(FilterChain.class));
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+
+        SecurityContextHolder.clearContext();
+        revoked.revoke("jti-1", System.currentTimeMillis() + 60_000);
+        f.doFilter(req, new MockHttpServletResponse(), mock(FilterChain.class));
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
 }
@@ -5,11 +5,11 @@ import io.jsonwebtoken.SignatureAlgorithm;
 import jakarta.servlet.FilterChain;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
@@ -28,12 +28,9 @@ public class JwtTokenUtilTest {
 
     @BeforeEach
     void setup() throws Exception {
-        filter = new JwtFilter();
-
-        // Inject secret ผ่าน Reflection
-        Field f = JwtFilter.class.getDeclaredField("jwtSecret");
-        f.setAccessible(true);
-        f.set(filter, secret);
+        // secret ส่งผ่าน JwtVerifier (parser ตัวเดียว + cache)
+        filter = new JwtFilter(new JwtVerifier(secret, 60, 1000, 900), new RevokedTokenSet(1000, 0.01),
+                new SessionActivityRecorder(mock(JdbcTemplate.class), 1000));
 
         SecurityContextHolder.clearContext();
     }
@@ -0,0 +1,101 @@
+package com.example.devops.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtVerifierTest {
+
+    private final String secret =
+            "1234567890123456789012345678901234567890123456789012345678901234";
+
+    private JwtVerifier verifier;
+
+    @BeforeEach
+    void setup() {
+        verifier = new JwtVerifier(secret, 0, 1000, 900);
+    }
+
+    private String token(String subject, String role, Date exp, String signingSecret) {
+        Key key = Keys.hmacShaKeyFor(signingSecret.getBytes(StandardCharsets.UTF_8));
+        var b = Jwts.builder()
+                .setSubject(subject)
+                .claim("role", role)
+                .claim("email", subject + "@mail.com")
+                .setIssuedAt(new Date());
+        if (exp != null) b.setExpiration(exp);
+        return b.signWith(key, SignatureAlgorithm.HS512).compact();
+    }
+
+    @Test
+    void verify_secondCallIsServedFromCache() {
+        String jwt = token("alice", "USER", new Date(System.currentTimeMillis() + 60_000), secret);
+
+        VerifiedToken first = verifier.verify(jwt);
+        VerifiedToken second = verifier.verify(jwt);
+
+        assertThat(first.subject()).isEqualTo("alice");
+        assertThat(first.role()).isEqualTo("USER");
+        assertThat(first.email()).isEqualTo("alice@mail.com");
+        assertThat(second).isSameAs(first);
+        assertThat(verifier.cache().missCount()).isEqualTo(1);
+        assertThat(verifier.cache().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void verify_badSignature_isRejectedAndNotCached() {
+        String jwt = token("mallory", "ADMIN", null,
+                "abcdefghijabcdefghijabcdefghijabcdefghijabcdefghijabcdefghij1234");
+
+        assertThatThrownBy(() -> verifier.verify(jwt)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> verifier.verify(jwt)).isInstanceOf(JwtException.class);
+        assertThat(verifier.cache().size()).isZero();
+        assertThat(verifier.cache().hitCount()).isZero();
+    }
+
+    @Test
+    void verify_expiredToken_isRejected() {
+        String jwt = token("bob", "USER", new Date(System.currentTimeMillis() - 1_000), secret);
+
+        assertThatThrownBy(() -> verifier.verify(jwt)).isInstanceOf(JwtException.class);
+        assertThat(verifier.cache().size()).isZero();
+    }
+
+    @Test
+    void verify_clockSkewIsOptIn() {
+        String jwt = token("bob", "USER", new Date(System.currentTimeMillis() - 10_000), secret);
+
+        assertThatThrownBy(() -> verifier.verify(jwt)).isInstanceOf(JwtException.class);
+        assertThat(new JwtVerifier(secret, 60, 1000, 900).verify(jwt).subject()).isEqualTo("bob");
+    }
+
+    @Test
+    void cache_dropsEntryAtTokenExpiry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60_000);
+        cache.put("k", new VerifiedToken("alice", "USER", null, null, null, null, 1_000), 0);
+
+        assertThat(cache.get("k", 999)).isNotNull();
+        assertThat(cache.get("k", 1_000)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void cache_neverGrowsBeyondMaxEntries() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(50, 60_000);
+        for (int i = 0; i < 500; i++) {
+            cache.put("k" + i, new VerifiedToken("u" + i, "USER", null, null, null, null, 0), 0);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(50);
+        assertThat(cache.evictionCount()).isPositive();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.devops.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenSetTest {
+
+    @Test
+    void revoke_thenIsRevoked() {
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+
+        set.revoke("a", 0);
+
+        assertThat(set.isRevoked("a")).isTrue();
+        assertThat(set.isRevoked("b")).isFalse();
+        assertThat(set.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void noFalseNegatives_andFewFalsePositives() {
+        RevokedTokenSet set = new RevokedTokenSet(1000, 0.01);
+        for (int i = 0; i < 1000; i++) set.revoke("jti-" + i, 0);
+
+        for (int i = 0; i < 1000; i++) assertThat(set.isRevoked("jti-" + i)).isTrue();
+        for (int i = 0; i < 10_000; i++) assertThat(set.isRevoked("other-" + i)).isFalse();
+        // false positive ถูกจับโดย exact set แต่ต้องไม่บ่อยเกินอัตราที่ตั้งไว้มากนัก
+        assertThat(set.falsePositiveCount()).isLessThan(300);
+    }
+
+    @Test
+    void growsBeyondExpectedEntries() {
+        RevokedTokenSet set = new RevokedTokenSet(64, 0.01);
+        for (int i = 0; i < 1000; i++) set.revoke("jti-" + i, 0);
+
+        assertThat(set.size()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) assertThat(set.isRevoked("jti-" + i)).isTrue();
+    }
+
+    @Test
+    void purgeExpired_dropsOnlyExpiredEntries() {
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+        set.revoke("old", 1_000);
+        set.revoke("live", 5_000);
+        set.revoke("forever", 0);
+
+        assertThat(set.purgeExpired(2_000)).isEqualTo(1);
+        assertThat(set.isRevoked("old")).isFalse();
+        assertThat(set.isRevoked("live")).isTrue();
+        assertThat(set.isRevoked("forever")).isTrue();
+    }
+
+    @Test
+    void replaceAll_swapsContents() {
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+        set.revoke("stale", 0);
+        Map<String, Long> loaded = new HashMap<>();
+        loaded.put("x", 0L);
+
+        set.replaceAll(loaded);
+
+        assertThat(set.isRevoked("x")).isTrue();
+        assertThat(set.isRevoked("stale")).isFalse();
+    }
+}
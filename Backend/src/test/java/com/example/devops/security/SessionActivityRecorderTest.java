@@ -0,0 +1,97 @@
+package com.example.devops.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionActivityRecorderTest {
+
+    private JdbcTemplate jdbc;
+    private SessionActivityRecorder recorder;
+
+    @BeforeEach
+    void setup() {
+        jdbc = mock(JdbcTemplate.class);
+        recorder = new SessionActivityRecorder(jdbc, 3);
+    }
+
+    private static VerifiedToken token(String jti, String acct, long id) {
+        return new VerifiedToken("u" + id, "USER", null, id, acct, jti, 0);
+    }
+
+    @Test
+    void record_coalescesPerSession_andFlushesOneBatchPerTable() {
+        recorder.record(token("a", "USER", 1), "1.1.1.1", "ua", 1_000);
+        recorder.record(token("a", "USER", 1), "2.2.2.2", "ua", 2_000);
+        recorder.record(token("b", "ORGANIZER", 9), "3.3.3.3", "ua", 3_000);
+
+        assertThat(recorder.pendingCount()).isEqualTo(2);
+        assertThat(recorder.flush()).isEqualTo(2);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(contains("INSERT INTO user_sessions"), args.capture());
+        assertThat(args.getValue()).hasSize(1);
+        assertThat(args.getValue().get(0)[4]).isEqualTo("2.2.2.2"); // ค่าล่าสุดชนะ
+        verify(jdbc).batchUpdate(contains("INSERT INTO organizer_sessions"), anyList());
+        assertThat(recorder.pendingCount()).isZero();
+    }
+
+    @Test
+    void record_ignoresTokensWithoutJtiOrAccount() {
+        recorder.record(token(null, "USER", 1), null, null, 1_000);
+        recorder.record(new VerifiedToken("x", "ADMIN", null, null, null, "j", 0), null, null, 1_000);
+
+        assertThat(recorder.pendingCount()).isZero();
+        assertThat(recorder.flush()).isZero();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void record_isBounded() {
+        for (int i = 0; i < 10; i++) recorder.record(token("j" + i, "USER", i), null, null, 1_000);
+
+        assertThat(recorder.pendingCount()).isEqualTo(3);
+        assertThat(recorder.droppedCount()).isEqualTo(7);
+
+        // session ที่มีอยู่แล้วยังอัปเดตได้แม้ buffer เต็ม
+        recorder.record(token("j0", "USER", 0), null, null, 2_000);
+        assertThat(recorder.droppedCount()).isEqualTo(7);
+    }
+
+    @Test
+    void flush_failure_keepsEntriesForNextRound() {
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+        recorder.record(token("a", "USER", 1), null, null, 1_000);
+
+        assertThat(recorder.flush()).isZero();
+        assertThat(recorder.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void flush_rejectedBatch_dropsOnlyThePoisonRow() {
+        when(jdbc.batchUpdate(anyString(), anyList())).thenThrow(new DataIntegrityViolationException("fk"));
+        doAnswer(inv -> {
+            if ("deleted-user".equals(inv.getArgument(1))) throw new DataIntegrityViolationException("fk");
+            return 1;
+        }).when(jdbc).update(contains("INSERT INTO user_sessions"), any(Object[].class));
+        recorder.record(token("deleted-user", "USER", 1), null, null, 1_000);
+        recorder.record(token("live-user", "USER", 2), null, null, 1_000);
+
+        assertThat(recorder.flush()).isEqualTo(1);
+        assertThat(recorder.pendingCount()).isZero();
+        assertThat(recorder.discardedCount()).isEqualTo(1);
+
+        // รอบถัดไปไม่มีอะไรค้าง → session ใหม่ยังบันทึกได้
+        recorder.record(token("next", "USER", 3), null, null, 2_000);
+        assertThat(recorder.droppedCount()).isZero();
+    }
+}
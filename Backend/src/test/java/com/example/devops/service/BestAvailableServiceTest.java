@@ -0,0 +1,184 @@
+package com.example.devops.service;
+
+import com.example.devops.dto.BestAvailableRequest;
+import com.example.devops.dto.ReservationRequest;
+import com.example.devops.dto.ReservedResponse;
+import com.example.devops.repo.SeatsRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BestAvailableServiceTest {
+
+    /** โซนเดียว rows แถว แถวละ perRow ที่นั่ง ; seat_id = zone*1,000,000 + row*1000 + seat_number */
+    private static List<BestAvailableService.SeatRecord> layout(long zoneId, int zoneOrder, BigDecimal price,
+                                                                int rows, int perRow) {
+        List<BestAvailableService.SeatRecord> out = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int s = 1; s <= perRow; s++) {
+                out.add(new BestAvailableService.SeatRecord(zoneId * 1_000_000 + r * 1000L + s, zoneId, zoneOrder,
+                        price, zoneId * 1000 + r, r, s));
+            }
+        }
+        return out;
+    }
+
+    private static BestAvailableService.Block allocate(BestAvailableService.EventIndex idx, int n) {
+        return idx.allocate(n, null, null, null, 10, 1);
+    }
+
+    @Test
+    void picksCenterOfFrontRowFirst() {
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(layout(1, 0, BigDecimal.TEN, 3, 10));
+
+        BestAvailableService.Block b = allocate(idx, 2);
+
+        assertThat(b.rowNo()).isZero();
+        assertThat(b.seatNumbers()).containsExactly(5, 6);
+    }
+
+    @Test
+    void blocksAreContiguousAndNeverOverlap() {
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(layout(1, 0, BigDecimal.TEN, 2, 10));
+
+        Set<Long> taken = new HashSet<>();
+        BestAvailableService.Block b;
+        while ((b = allocate(idx, 3)) != null) {
+            for (int i = 1; i < b.seatNumbers().length; i++) {
+                assertThat(b.seatNumbers()[i]).isEqualTo(b.seatNumbers()[i - 1] + 1);
+            }
+            for (Long id : b.seatIds()) assertThat(taken.add(id)).isTrue();
+        }
+        assertThat(taken).hasSize(18); // 3 block ต่อแถว (เหลือแถวละ 1 ที่นั่ง)
+    }
+
+    @Test
+    void seatNumberGapsBreakContiguity() {
+        List<BestAvailableService.SeatRecord> seats = new ArrayList<>();
+        for (int s : new int[]{1, 2, 4, 5}) {           // ไม่มีที่นั่งเบอร์ 3 (ทางเดิน)
+            seats.add(new BestAvailableService.SeatRecord(s, 1, 0, BigDecimal.ONE, 1, 0, s));
+        }
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(seats);
+
+        assertThat(allocate(idx, 3)).isNull();
+        assertThat(allocate(idx, 2)).isNotNull();
+    }
+
+    @Test
+    void occupiedSeatsAndPriceBandAreRespected() {
+        List<BestAvailableService.SeatRecord> seats = new ArrayList<>(layout(1, 0, new BigDecimal("3000"), 1, 10));
+        seats.addAll(layout(2, 1, new BigDecimal("1500"), 2, 10));
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(seats);
+        // แถวหน้าของโซนถูกเต็มกลางแถว
+        idx.resetOccupancy(Set.of(2_000_005L, 2_000_006L), System.currentTimeMillis());
+
+        BestAvailableService.Block b = idx.allocate(2, null, null, new BigDecimal("2000"), 10, 1);
+
+        assertThat(b.zoneId()).isEqualTo(2L);
+        assertThat(b.rowNo()).isZero();
+        assertThat(b.seatIds()).doesNotContain(2_000_005L, 2_000_006L);
+    }
+
+    @Test
+    void outboxEventsKeepIndexInStep() {
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(layout(1, 0, BigDecimal.TEN, 1, 4));
+        idx.setOccupied(List.of(1_000_001L, 1_000_002L, 1_000_003L, 1_000_004L), true);
+        assertThat(allocate(idx, 1)).isNull();
+
+        idx.setOccupied(List.of(1_000_002L, 1_000_003L), false);
+        assertThat(allocate(idx, 2).seatNumbers()).containsExactly(2, 3);
+    }
+
+    @Test
+    void largeVenueAllocationsStayDisjoint() {
+        // 50,000 ที่นั่ง : 100 แถว × 500
+        BestAvailableService.EventIndex idx = BestAvailableService.EventIndex.build(layout(1, 0, BigDecimal.TEN, 100, 500));
+        Set<Long> taken = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            BestAvailableService.Block b = allocate(idx, 4);
+            for (Long id : b.seatIds()) assertThat(taken.add(id)).isTrue();
+        }
+        assertThat(taken).hasSize(20_000);
+    }
+
+    /* ==================== reserveBest ==================== */
+
+    @Test
+    void reserveBestRetriesAfterConflictWithFreshOccupancy() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        SeatsRepository seatsRepo = mock(SeatsRepository.class);
+        ReservationService reservationService = mock(ReservationService.class);
+        when(jdbc.query(anyString(), ArgumentMatchers.<RowMapper<BestAvailableService.SeatRecord>>any(), eq(7L)))
+                .thenReturn(new ArrayList<>(layout(1, 0, BigDecimal.TEN, 1, 4)));
+        when(seatsRepo.findPaidTakenSeatIdsByEvent(7L)).thenReturn(List.of(), List.of(1_000_002L));
+        when(seatsRepo.findLockedSeatIdsByEvent(7L)).thenReturn(List.of());
+        ReservedResponse ok = mock(ReservedResponse.class);
+        when(reservationService.createReservation(eq(5L), any(ReservationRequest.class)))
+                .thenThrow(new ReservationService.SeatConflict("Some seats are already taken (paid/reserved): [1000002]"))
+                .thenReturn(ok);
+
+        BestAvailableService svc = new BestAvailableService(jdbc, seatsRepo, reservationService, 10, 1, 10, 3, 60, 300);
+        BestAvailableRequest req = BestAvailableRequest.builder().eventId(7L).quantity(2).build();
+
+        BestAvailableService.Result r = svc.reserveBest(5L, req);
+
+        assertThat(r.reservation()).isSameAs(ok);
+        assertThat(r.cols()).containsExactly(2, 3);   // seat 3,4 (0-based col 2,3) หลัง seat 2 ถูกจองไป
+        verify(seatsRepo, times(2)).findPaidTakenSeatIdsByEvent(7L);
+        verify(reservationService, times(2)).createReservation(eq(5L), argThat(rr ->
+                rr.getTotalAmount().compareTo(new BigDecimal("20")) == 0 && rr.getSeats().size() == 2));
+    }
+
+    @Test
+    void reserveBestDoesNotRetryValidationErrors() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        SeatsRepository seatsRepo = mock(SeatsRepository.class);
+        ReservationService reservationService = mock(ReservationService.class);
+        when(jdbc.query(anyString(), ArgumentMatchers.<RowMapper<BestAvailableService.SeatRecord>>any(), eq(7L)))
+                .thenReturn(new ArrayList<>(layout(1, 0, BigDecimal.TEN, 1, 4)));
+        when(reservationService.createReservation(eq(5L), any(ReservationRequest.class)))
+                .thenThrow(new IllegalArgumentException("totalAmount mismatch"));
+
+        BestAvailableService svc = new BestAvailableService(jdbc, seatsRepo, reservationService, 10, 1, 10, 3, 60, 300);
+        BestAvailableRequest req = BestAvailableRequest.builder().eventId(7L).quantity(2).build();
+
+        assertThatThrownBy(() -> svc.reserveBest(5L, req))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mismatch");
+        verify(reservationService, times(1)).createReservation(eq(5L), any(ReservationRequest.class));
+    }
+
+    @Test
+    void reserveBestRejectsWhenNothingFits() {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        SeatsRepository seatsRepo = mock(SeatsRepository.class);
+        when(jdbc.query(anyString(), ArgumentMatchers.<RowMapper<BestAvailableService.SeatRecord>>any(), eq(7L)))
+                .thenReturn(new ArrayList<>(layout(1, 0, BigDecimal.TEN, 1, 3)));
+        BestAvailableService svc = new BestAvailableService(jdbc, seatsRepo, mock(ReservationService.class),
+                10, 1, 10, 3, 60, 300);
+
+        assertThatThrownBy(() -> svc.reserveBest(5L, BestAvailableRequest.builder().eventId(7L).quantity(4).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> svc.reserveBest(null, BestAvailableRequest.builder().eventId(7L).quantity(1).build()))
+                .hasMessageContaining("guestEmail");
+    }
+
+    @Test
+    void outboxHandlerIgnoresUnknownEvents() {
+        BestAvailableService svc = new BestAvailableService(mock(JdbcTemplate.class), mock(SeatsRepository.class),
+                mock(ReservationService.class), 10, 1, 10, 3, 60, 300);
+        svc.handle(new OutboxEvent(1L, OutboxPublisher.AGGREGATE_RESERVATION, 1L, OutboxPublisher.RESERVATION_CREATED,
+                Map.of("eventId", 99, "seatIds", List.of(1, 2)), Instant.now(), 0));
+        assertThat(svc.supports(OutboxPublisher.RESERVATION_PAID)).isFalse();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BrownoutServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger waiting = new AtomicInteger();
+    // pool-wait 3, latency 800ms, recover หลังสงบ 3 รอบ, อยู่ในโหมดอย่างน้อย 5s, probe ทุก 2s
+    private final BrownoutService brownout = new BrownoutService(true, waiting::get, now::get,
+            3, 800, 3, 5000, 2000, 100);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load() {
+        return "v" + loads.incrementAndGet();
+    }
+
+    private void tick(long ms) {
+        now.addAndGet(ms);
+        brownout.evaluate();
+    }
+
+    @Test
+    void normalModeAlwaysReadsFresh() {
+        assertThat(brownout.read("k", this::load)).isEqualTo(new BrownoutService.Read<>("v1", false, 0));
+        assertThat(brownout.read("k", this::load).value()).isEqualTo("v2");
+    }
+
+    @Test
+    void poolPressureSwitchesPublicReadsToSnapshots() {
+        brownout.read("k", this::load);
+        now.addAndGet(1500);
+
+        waiting.set(5);
+        brownout.evaluate();
+
+        BrownoutService.Read<String> r = brownout.read("k", this::load);
+        assertThat(brownout.isActive()).isTrue();
+        assertThat(r.stale()).isTrue();
+        assertThat(r.value()).isEqualTo("v1");
+        assertThat(r.ageSeconds()).isEqualTo(1);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void oldSnapshotIsProbedOnceThenServedAgain() {
+        brownout.read("k", this::load);
+        waiting.set(5);
+        brownout.evaluate();
+
+        now.addAndGet(2500);
+        assertThat(brownout.read("k", this::load)).isEqualTo(new BrownoutService.Read<>("v2", false, 0));
+        assertThat(brownout.read("k", this::load).stale()).isTrue();
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failureFallsBackToSnapshotOrPropagatesWithoutOne() {
+        brownout.read("k", this::load);
+
+        BrownoutService.Read<String> r = brownout.read("k", () -> {
+            throw new IllegalStateException("timeout");
+        });
+        assertThat(r.stale()).isTrue();
+        assertThat(r.value()).isEqualTo("v1");
+
+        assertThatThrownBy(() -> brownout.read("other", () -> {
+            throw new IllegalStateException("timeout");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void slowLoadsTriggerBrownout() {
+        brownout.read("k", () -> {
+            now.addAndGet(5000);
+            return "slow";
+        });
+
+        brownout.evaluate();
+
+        assertThat(brownout.latencyMs()).isEqualTo(1000);
+        assertThat(brownout.isActive()).isTrue();
+    }
+
+    @Test
+    void recoversOnlyAfterSustainedCalmAndMinimumDuration() {
+        waiting.set(5);
+        brownout.evaluate();
+
+        waiting.set(0);
+        tick(1000);
+        tick(1000);
+        waiting.set(1);           // ยังมีคนรอ pool → นับใหม่
+        tick(1000);
+        waiting.set(0);
+        tick(1000);
+        tick(1000);
+        tick(1000);
+        assertThat(brownout.isActive()).isFalse();
+    }
+
+    @Test
+    void brieflyCalmDoesNotFlapOut() {
+        waiting.set(5);
+        brownout.evaluate();
+
+        waiting.set(0);
+        tick(100);
+        tick(100);
+        tick(100);
+
+        assertThat(brownout.isActive()).isTrue();
+    }
+
+    @Test
+    void notFoundIsNotSnapshotted() {
+        brownout.read("gone", () -> null);
+        waiting.set(5);
+        brownout.evaluate();
+
+        assertThat(brownout.read("gone", () -> null).value()).isNull();
+        assertThat(brownout.read("gone", () -> null).stale()).isFalse();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationBusTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final InvalidatableCache identity = cache("identity");
+    private final InvalidatableCache other = cache("events");
+
+    private static InvalidatableCache cache(String name) {
+        InvalidatableCache c = mock(InvalidatableCache.class);
+        when(c.cacheName()).thenReturn(name);
+        return c;
+    }
+
+    private CacheInvalidationBus bus(boolean enabled) {
+        return new CacheInvalidationBus(jdbc, List.of(identity, other), enabled,
+                "jdbc:postgresql://localhost/test", "u", "p", 500, 2000, 60_000, 24);
+    }
+
+    @Test
+    void publishWhenDisabledOnlyEvictsLocally() {
+        bus(false).publish("identity", "alice", "alice@example.com");
+
+        verify(identity).invalidate("alice", 0);
+        verify(identity).invalidate("alice@example.com", 0);
+        verifyNoInteractions(jdbc);
+        verify(other, never()).invalidate(anyString(), anyLong());
+    }
+
+    @Test
+    void publishBumpsVersionAndNotifiesInSameConnection() {
+        when(jdbc.queryForObject(contains("INSERT INTO cache_versions"), eq(Long.class), eq("identity"), eq("alice")))
+                .thenReturn(3L);
+
+        bus(true).publish("identity", "alice");
+
+        verify(jdbc).query(eq("SELECT pg_notify(?, ?)"), any(RowCallbackHandler.class),
+                eq(CacheInvalidationBus.CHANNEL), eq("identity\t3\talice"));
+        verify(identity).invalidate("alice", 3);
+    }
+
+    @Test
+    void publishInsideTransactionEvictsAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bus(false).publish("identity", "bob");
+            verify(identity, times(1)).invalidate("bob", 0);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(identity, times(2)).invalidate("bob", 0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void nullOrOversizedKeyInvalidatesWholeCache() {
+        bus(false).publish("identity", (String) null);
+        bus(false).publish("identity", "x".repeat(CacheInvalidationBus.MAX_KEY_BYTES + 1));
+
+        verify(identity, times(2)).invalidateAll();
+        verify(identity, never()).invalidate(anyString(), anyLong());
+    }
+
+    @Test
+    void dispatchRoutesByCacheNameAndSurvivesGarbage() {
+        CacheInvalidationBus bus = bus(true);
+
+        bus.dispatch("identity\t7\tcarol@example.com");
+        bus.dispatch("events\t2\t");
+        bus.dispatch("garbage");
+        bus.dispatch("identity\tnot-a-number\tx");
+        bus.dispatch("unknown\t1\tk");
+
+        verify(identity).invalidate("carol@example.com", 7);
+        verify(other).invalidateAll();
+        verifyNoMoreInteractions(ignoreStubs(identity, other));
+    }
+
+    @Test
+    void firstResyncClearsEverythingThenReplaysMissedRows() throws Exception {
+        CacheInvalidationBus bus = bus(true);
+        Instant first = Instant.parse("2026-10-19T10:00:00Z");
+
+        bus.resync(first);
+        verify(identity).invalidateAll();
+        verify(other).invalidateAll();
+        verify(jdbc, never()).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("cache_name")).thenReturn("identity");
+        when(rs.getString("cache_key")).thenReturn("dave");
+        when(rs.getLong("version")).thenReturn(4L);
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("FROM cache_versions"), any(RowCallbackHandler.class), any(Object[].class));
+
+        bus.resync(first.plusSeconds(300));
+
+        verify(jdbc).query(contains("FROM cache_versions"), any(RowCallbackHandler.class),
+                eq(Timestamp.from(first.minusSeconds(60))));
+        verify(identity).invalidate("dave", 4);
+        verify(identity, times(1)).invalidateAll();
+    }
+
+    @Test
+    void resyncAfterGapLongerThanRetentionClearsEverything() {
+        CacheInvalidationBus bus = bus(true);
+        Instant first = Instant.parse("2026-10-19T10:00:00Z");
+
+        bus.resync(first);
+        bus.resync(first.plusSeconds(25 * 3600));
+
+        verify(identity, times(2)).invalidateAll();
+        verify(jdbc, never()).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ClusterJobCoordinatorTest {
+
+    private static final Duration EVERY = Duration.ofMinutes(1);
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    private final ClusterJobCoordinator jobs = new ClusterJobCoordinator(jdbc, txManager, true, "node-a");
+
+    private void claims(Integer first, Integer... rest) {
+        when(jdbc.update(contains("INSERT INTO job_runs"), any(), any(), any(), any(), any())).thenReturn(first, rest);
+    }
+
+    @Test
+    void runsWhenClaimedAndRecordsDurationAndRows() {
+        claims(1);
+        when(txManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        int rows = jobs.run("cleanup", EVERY, LEASE, () -> 7);
+
+        assertThat(rows).isEqualTo(7);
+        verify(jdbc).update(contains("INSERT INTO job_runs"), eq("cleanup"), eq(0), eq("node-a"), eq(300_000L), eq(54_000L));
+        verify(jdbc).update(contains("last_success_at = NOW()"), anyLong(), eq(7), eq("cleanup"), eq(0), eq("node-a"));
+        verify(txManager).commit(any());
+    }
+
+    @Test
+    void skipsWhenAnotherNodeHoldsOrRecentlyRanTheJob() {
+        claims(0);
+        int[] calls = {0};
+
+        int rows = jobs.run("cleanup", EVERY, LEASE, () -> ++calls[0]);
+
+        assertThat(rows).isEqualTo(-1);
+        assertThat(calls[0]).isZero();
+        verify(jdbc, never()).update(contains("UPDATE job_runs"), any(Object[].class));
+    }
+
+    @Test
+    void failureIsRecordedAndSwallowed() {
+        claims(1);
+
+        int rows = jobs.run("cleanup", EVERY, LEASE, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(rows).isEqualTo(-1);
+        verify(jdbc).update(contains("failure_count = failure_count + 1"), anyLong(), eq("boom"), eq("cleanup"), eq(0), eq("node-a"));
+        verify(jdbc, never()).update(contains("last_success_at = NOW()"), any(Object[].class));
+    }
+
+    @Test
+    void shardedJobRunsOnlyTheShardsThisNodeClaimed() {
+        claims(1, 0, 1, 0);
+        List<Integer> ran = new ArrayList<>();
+
+        int rows = jobs.runSharded("cleanup", 4, EVERY, LEASE, shard -> {
+            ran.add(shard);
+            return 10;
+        });
+
+        assertThat(ran).hasSize(2).doesNotHaveDuplicates();
+        assertThat(rows).isEqualTo(20);
+        verify(jdbc, times(4)).update(contains("INSERT INTO job_runs"), eq("cleanup"), anyInt(), eq("node-a"), any(), any());
+    }
+
+    @Test
+    void jobsRunInTheBatchWorkload() {
+        List<WorkloadClass> seen = new ArrayList<>();
+
+        ClusterJobCoordinator.uncoordinated().run("cleanup", EVERY, LEASE, () -> {
+            seen.add(WorkloadContext.current());
+            return 0;
+        });
+
+        assertThat(seen).containsExactly(WorkloadClass.BATCH);
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @Test
+    void uncoordinatedRunsEveryTime() {
+        ClusterJobCoordinator local = ClusterJobCoordinator.uncoordinated();
+
+        assertThat(local.run("cleanup", EVERY, LEASE, () -> 3)).isEqualTo(3);
+        assertThat(local.runSharded("cleanup", 2, EVERY, LEASE, shard -> 1)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 20, 4, 200, 1.5, 0.5);
+
+    /** ยิง request n ตัวพร้อมกัน แล้วปล่อยทั้งหมดด้วย rtt เท่ากัน */
+    private void wave(WorkloadClass group, int n, long rttNanos) {
+        int admitted = 0;
+        for (int i = 0; i < n; i++) if (limiter.tryAcquire(group)) admitted++;
+        for (int i = 0; i < admitted; i++) limiter.release(group, rttNanos, false);
+    }
+
+    @Test
+    void limitGrowsWhileLatencyStaysFlat() {
+        for (int i = 0; i < 50; i++) wave(WorkloadClass.PURCHASE, 200, 10 * MS);
+
+        assertThat(limiter.limit(WorkloadClass.PURCHASE).limit()).isGreaterThan(60);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyClimbsAndExcessIsShed() {
+        for (int i = 0; i < 50; i++) wave(WorkloadClass.PURCHASE, 200, 10 * MS);
+        int before = limiter.limit(WorkloadClass.PURCHASE).limit();
+
+        for (int i = 0; i < 20; i++) wave(WorkloadClass.PURCHASE, 200, 500 * MS);
+
+        GradientLimit l = limiter.limit(WorkloadClass.PURCHASE);
+        assertThat(l.limit()).isLessThan(before / 2);
+        assertThat(l.congested()).isTrue();
+        assertThat(limiter.rejected(WorkloadClass.PURCHASE)).isPositive();
+    }
+
+    @Test
+    void idleLimitDoesNotGrow() {
+        for (int i = 0; i < 200; i++) wave(WorkloadClass.PUBLIC_READ, 1, 10 * MS);
+
+        assertThat(limiter.limit(WorkloadClass.PUBLIC_READ).limit()).isEqualTo(20);
+    }
+
+    @Test
+    void failuresCutTheLimit() {
+        assertThat(limiter.tryAcquire(WorkloadClass.PURCHASE)).isTrue();
+        limiter.release(WorkloadClass.PURCHASE, 10 * MS, true);
+
+        assertThat(limiter.limit(WorkloadClass.PURCHASE).limit()).isEqualTo(18);
+    }
+
+    @Test
+    void browsingIsShedFirstWhilePurchaseIsCongested() {
+        // purchase latency พุ่ง → congested
+        wave(WorkloadClass.PURCHASE, 5, 10 * MS);
+        wave(WorkloadClass.PURCHASE, 5, 500 * MS);
+        assertThat(limiter.limit(WorkloadClass.PURCHASE).congested()).isTrue();
+
+        int browsing = 0;
+        for (int i = 0; i < 20; i++) if (limiter.tryAcquire(WorkloadClass.PUBLIC_READ)) browsing++;
+        int purchases = 0;
+        for (int i = 0; i < 20; i++) if (limiter.tryAcquire(WorkloadClass.PURCHASE)) purchases++;
+
+        assertThat(browsing).isEqualTo(10);
+        assertThat(purchases).isGreaterThan(browsing);
+    }
+}
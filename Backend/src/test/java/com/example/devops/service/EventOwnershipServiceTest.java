@@ -0,0 +1,175 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EventOwnershipServiceTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final SeatLockService seatLocks = mock(SeatLockService.class);
+    private final StandingInventoryService standing = mock(StandingInventoryService.class);
+
+    private EventOwnershipService node(String id, boolean enabled) {
+        return new EventOwnershipService(jdbc, seatLocks, standing, enabled, id, "http://" + id + ":8080",
+                8080, 1000, 5000, 30);
+    }
+
+    private static EventOwnershipService.Lease lease(long eventId, String nodeId, long epoch, long remainingMs) {
+        return new EventOwnershipService.Lease(eventId, nodeId, "http://" + nodeId + ":8080", epoch, remainingMs);
+    }
+
+    /** heartbeat เห็น node ที่ยังมีชีวิต, อีเวนต์ที่กำลังขาย และ lease ในตาราง (remaining_ms อยู่ใน validUntilMillis) */
+    @SuppressWarnings("unchecked")
+    private void db(List<String> live, List<Long> onSale, EventOwnershipService.Lease... leases) {
+        when(jdbc.queryForList(contains("FROM backend_nodes"), eq(String.class), any())).thenReturn(live);
+        when(jdbc.queryForList(contains("FROM events_nam"), eq(Long.class), any())).thenReturn(onSale);
+        when(jdbc.query(contains("FROM event_leases"), any(RowMapper.class))).thenAnswer(inv -> {
+            RowMapper<EventOwnershipService.Lease> m = inv.getArgument(1);
+            List<EventOwnershipService.Lease> out = new ArrayList<>();
+            for (EventOwnershipService.Lease l : leases) {
+                java.sql.ResultSet rs = mock(java.sql.ResultSet.class);
+                when(rs.getLong("event_id")).thenReturn(l.eventId());
+                when(rs.getString("node_id")).thenReturn(l.nodeId());
+                when(rs.getString("base_url")).thenReturn(l.baseUrl());
+                when(rs.getLong("epoch")).thenReturn(l.epoch());
+                when(rs.getLong("remaining_ms")).thenReturn(l.validUntilMillis());
+                out.add(m.mapRow(rs, 0));
+            }
+            return out;
+        });
+    }
+
+    @Test
+    void rendezvousIsStableAndMovesOnlyTheLeavingNodesEvents() {
+        List<String> three = List.of("a", "b", "c");
+        List<String> two = List.of("a", "b");
+        Map<String, Integer> spread = new HashMap<>();
+        int moved = 0;
+
+        for (long e = 1; e <= 3000; e++) {
+            String before = EventOwnershipService.ownerFor(e, three);
+            assertThat(EventOwnershipService.ownerFor(e, List.of("c", "b", "a"))).isEqualTo(before);
+            spread.merge(before, 1, Integer::sum);
+
+            String after = EventOwnershipService.ownerFor(e, two);
+            if (!before.equals("c")) assertThat(after).isEqualTo(before);
+            if (!after.equals(before)) moved++;
+        }
+
+        assertThat(spread.values()).allSatisfy(n -> assertThat(n).isBetween(800, 1200));
+        assertThat(moved).isEqualTo(spread.get("c"));
+    }
+
+    @Test
+    void disabledRoutesEverythingLocally() {
+        EventOwnershipService svc = node("a", false);
+
+        svc.heartbeat();
+
+        assertThat(svc.route(1L).kind()).isEqualTo(EventOwnershipService.Kind.LOCAL);
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void heartbeatRoutesByLeaseAndHoldsBackUnleasedOnSaleEvents() {
+        EventOwnershipService svc = node("a", true);
+        db(List.of("a", "b"), List.of(1L, 2L, 3L),
+                lease(1, "a", 1, 5000),
+                lease(2, "b", 1, 5000));
+
+        svc.heartbeat();
+
+        assertThat(svc.route(1L).kind()).isEqualTo(EventOwnershipService.Kind.LOCAL);
+        EventOwnershipService.Route remote = svc.route(2L);
+        assertThat(remote.kind()).isEqualTo(EventOwnershipService.Kind.REMOTE);
+        assertThat(remote.owner().baseUrl()).isEqualTo("http://b:8080");
+        assertThat(svc.route(3L).kind()).isEqualTo(EventOwnershipService.Kind.PENDING);
+        assertThat(svc.route(99L).kind()).isEqualTo(EventOwnershipService.Kind.LOCAL);
+        // acquire ของเรา + release ที่ไม่ใช่ของเรา
+        verify(jdbc, atLeast(1)).update(any(PreparedStatementCreator.class));
+    }
+
+    @Test
+    void ownLeaseIsTrustedOneHeartbeatLessThanTheDatabaseSays() {
+        EventOwnershipService svc = node("a", true);
+        db(List.of("a"), List.of(1L), lease(1, "a", 1, 800));
+
+        svc.heartbeat();
+
+        // เหลือ 800ms แต่ heartbeat 1000ms → ถือว่าไม่ใช่ของเราแล้ว (อาจถูกแย่งก่อนต่ออายุทัน)
+        assertThat(svc.route(1L).kind()).isEqualTo(EventOwnershipService.Kind.PENDING);
+    }
+
+    @Test
+    void newlyAcquiredEventsRebuildInMemoryState() {
+        EventOwnershipService svc = node("a", true);
+        db(List.of("a"), List.of(1L), lease(1, "a", 1, 5000));
+
+        // reconcile ต้องเสร็จก่อน node นี้เริ่มขาย → ตอนถูกเรียก route ยังไม่เป็น LOCAL
+        List<EventOwnershipService.Kind> routeDuringReconcile = new ArrayList<>();
+        doAnswer(inv -> routeDuringReconcile.add(svc.route(1L).kind())).when(standing).reconcile(anyCollection());
+
+        svc.heartbeat();
+        svc.heartbeat();
+        verify(seatLocks, times(1)).rebuildLockStore(Set.of(1L));
+        verify(standing, times(1)).reconcile(Set.of(1L));
+        verify(standing, never()).reconcile();
+        assertThat(routeDuringReconcile).containsExactly(EventOwnershipService.Kind.PENDING);
+        assertThat(svc.route(1L).kind()).isEqualTo(EventOwnershipService.Kind.LOCAL);
+
+        // อีเวนต์เดิมถูกแย่งไปแล้วได้คืน (epoch ใหม่) → rebuild อีกรอบ
+        db(List.of("a"), List.of(1L), lease(1, "a", 3, 5000));
+        svc.heartbeat();
+        verify(seatLocks, times(2)).rebuildLockStore(Set.of(1L));
+    }
+
+    @Test
+    void lostEventsAreDroppedFromTheLockStore() {
+        EventOwnershipService svc = node("a", true);
+        db(List.of("a", "b"), List.of(1L, 2L), lease(1, "a", 1, 5000), lease(2, "a", 1, 5000));
+        svc.heartbeat();
+        verify(seatLocks, never()).dropLockStore(anyCollection());
+
+        // node b รับอีเวนต์ 2 ไป → สำเนา lock ของอีเวนต์ 2 ที่นี่ต้องไม่ expire ไปยกเลิกใบจองของ b
+        db(List.of("a", "b"), List.of(1L, 2L), lease(1, "a", 1, 5000), lease(2, "b", 2, 5000));
+        svc.heartbeat();
+
+        verify(seatLocks).dropLockStore(Set.of(2L));
+        assertThat(svc.route(2L).kind()).isEqualTo(EventOwnershipService.Kind.REMOTE);
+    }
+
+    @Test
+    void heartbeatFailureKeepsServingUntilLeasesLapse() {
+        EventOwnershipService svc = node("a", true);
+        db(List.of("a"), LongStream.rangeClosed(1, 3).boxed().toList(), lease(1, "a", 1, 5000));
+        svc.heartbeat();
+
+        when(jdbc.update(contains("INSERT INTO backend_nodes"), any(), any())).thenThrow(new RuntimeException("db down"));
+        svc.heartbeat();
+
+        assertThat(svc.route(1L).kind()).isEqualTo(EventOwnershipService.Kind.LOCAL);
+    }
+
+    @Test
+    void resignReleasesLeasesAndHeartbeat() {
+        EventOwnershipService svc = node("a", true);
+
+        svc.resign();
+
+        verify(jdbc).update("DELETE FROM event_leases WHERE node_id = ?", "a");
+        verify(jdbc).update("DELETE FROM backend_nodes WHERE node_id = ?", "a");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GuestClaimQueueTest {
+
+    private JdbcTemplate jdbc;
+    private GuestClaimService guestClaimService;
+    private GuestClaimQueue queue;
+
+    @BeforeEach
+    void setup() {
+        jdbc = mock(JdbcTemplate.class);
+        guestClaimService = mock(GuestClaimService.class);
+        queue = new GuestClaimQueue(jdbc, guestClaimService, 10, 3, 5);
+    }
+
+    @Test
+    @DisplayName("enqueue → INSERT งานพร้อม trim email และไม่เคลมเอง")
+    void testEnqueue() {
+        when(jdbc.update(contains("INSERT INTO guest_claim_jobs"), eq(7L), eq("a@b.com"), eq("a@b.com")))
+                .thenReturn(1);
+
+        assertThat(queue.enqueue(7L, "  a@b.com ")).isTrue();
+        verifyNoInteractions(guestClaimService);
+    }
+
+    @Test
+    @DisplayName("enqueue: userId/email ว่าง → ไม่แตะ DB")
+    void testEnqueueInvalid() {
+        assertThat(queue.enqueue(null, "a@b.com")).isFalse();
+        assertThat(queue.enqueue(1L, "  ")).isFalse();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    @DisplayName("processBatch → เคลมทุกงานแล้ว mark DONE")
+    void testProcessBatch() {
+        when(jdbc.queryForList(contains("FOR UPDATE SKIP LOCKED"), eq(5), eq(10))).thenReturn(List.of(
+                Map.of("job_id", 1L, "user_id", 7L, "email", "a@b.com", "attempts", 1),
+                Map.of("job_id", 2L, "user_id", 8L, "email", "c@d.com", "attempts", 1)));
+        when(guestClaimService.linkGuestReservationsToUser(7L, "a@b.com")).thenReturn(3);
+        when(guestClaimService.linkGuestReservationsToUser(8L, "c@d.com")).thenReturn(0);
+
+        assertThat(queue.processBatch()).isEqualTo(2);
+        verify(jdbc).update(contains("status = 'DONE'"), eq(3), eq(1L));
+        verify(jdbc).update(contains("status = 'DONE'"), eq(0), eq(2L));
+    }
+
+    @Test
+    @DisplayName("processBatch → รันเป็น BATCH workload (pool ของงานเบื้องหลัง)")
+    void testProcessBatchRunsAsBatchWorkload() {
+        List<WorkloadClass> seen = new ArrayList<>();
+        when(jdbc.queryForList(anyString(), anyInt(), anyInt())).thenAnswer(inv -> {
+            seen.add(WorkloadContext.current());
+            return List.of();
+        });
+
+        queue.processBatch();
+
+        assertThat(seen).containsExactly(WorkloadClass.BATCH);
+        assertThat(WorkloadContext.current()).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @Test
+    @DisplayName("processBatch: เคลมล้มเหลว → กลับเป็น PENDING (หรือ FAILED เมื่อครบ max-attempts)")
+    void testProcessBatchFailure() {
+        when(jdbc.queryForList(anyString(), anyInt(), anyInt())).thenReturn(List.of(
+                Map.of("job_id", 1L, "user_id", 7L, "email", "a@b.com", "attempts", 1),
+                Map.of("job_id", 2L, "user_id", 8L, "email", "c@d.com", "attempts", 3)));
+        when(guestClaimService.linkGuestReservationsToUser(anyLong(), anyString()))
+                .thenThrow(new RuntimeException("boom"));
+
+        assertThat(queue.processBatch()).isZero();
+        verify(jdbc).update(contains("next_attempt_at"), eq("PENDING"), eq("boom"), anyDouble(), eq(false), eq(1L));
+        verify(jdbc).update(contains("next_attempt_at"), eq("FAILED"), eq("boom"), anyDouble(), eq(true), eq(2L));
+    }
+
+    @Test
+    @DisplayName("processBatch: retry ชน unique index (มีงาน PENDING ใหม่ของ email เดียวกัน) → ปิดแถวนี้เป็น DONE")
+    void testProcessBatchFailure_supersededByPendingJob() {
+        when(jdbc.queryForList(anyString(), anyInt(), anyInt())).thenReturn(List.of(
+                Map.of("job_id", 1L, "user_id", 7L, "email", "a@b.com", "attempts", 1)));
+        when(guestClaimService.linkGuestReservationsToUser(anyLong(), anyString()))
+                .thenThrow(new RuntimeException("boom"));
+        when(jdbc.update(contains("next_attempt_at"), eq("PENDING"), any(), any(), any(), eq(1L)))
+                .thenThrow(new DuplicateKeyException("uq_guest_claim_jobs_pending"));
+
+        assertThat(queue.processBatch()).isZero();
+        verify(jdbc).update(contains("status = 'DONE'"), contains("superseded"), eq(1L));
+    }
+
+    @Test
+    @DisplayName("purgeOld: ลบงานที่จบแล้วเก่ากว่า retention ทีละ chunk จนหมด")
+    void testPurgeOld() {
+        when(jdbc.update(contains("DELETE FROM guest_claim_jobs"), eq(7), eq(GuestClaimQueue.PURGE_CHUNK)))
+                .thenReturn(GuestClaimQueue.PURGE_CHUNK, 4);
+
+        assertThat(queue.purgeOld()).isEqualTo(GuestClaimQueue.PURGE_CHUNK + 4);
+        verify(jdbc, times(2)).update(contains("status IN ('DONE', 'FAILED')"), eq(7), eq(GuestClaimQueue.PURGE_CHUNK));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InMemorySeatLockStoreTest extends SeatLockStoreContract {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final InMemorySeatLockStore store = new InMemorySeatLockStore(jdbc);
+
+    @Override
+    SeatLockStore store() { return store; }
+
+    @Override
+    List<Long> seats() { return List.of(100L, 101L, 102L); }
+
+    @Override
+    Long eventId() { return 1L; }
+
+    @Override
+    Long userA() { return 7L; }
+
+    @Override
+    Long userB() { return 8L; }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization s : syncs) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) s.afterCommit();
+            s.afterCompletion(status);
+        }
+    }
+
+    @Test
+    void rollbackRestoresPreviousHolder() {
+        Instant later = Instant.now().plusSeconds(300);
+        store.lock(1L, 7L, List.of(100L), later);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(store.lock(1L, 7L, List.of(100L, 101L), later.plusSeconds(60))).containsExactly(100L, 101L);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(store.lockedSeatIds(1L)).containsExactly(100L);
+        assertThat(store.lock(1L, 8L, List.of(101L), later)).containsExactly(101L);
+    }
+
+    @Test
+    void unlockInsideTransactionAppliesAfterCommit() {
+        store.lock(1L, 7L, List.of(100L), Instant.now().plusSeconds(300));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(store.unlock(7L, List.of(100L))).isEqualTo(1);
+        assertThat(store.lockedSeatIds(1L)).containsExactly(100L);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(store.lockedSeatIds(1L)).isEmpty();
+    }
+
+    @Test
+    void rebuildRestoresPendingReservationHolds() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("seat_id")).thenReturn(100L);
+        when(rs.getLong("event_id")).thenReturn(1L);
+        when(rs.getLong("user_id")).thenReturn(0L);
+        when(rs.wasNull()).thenReturn(true);
+        when(rs.getTimestamp("expires_at")).thenReturn(Timestamp.from(Instant.now().plusSeconds(120)));
+        doAnswer(inv -> {
+            inv.<RowCallbackHandler>getArgument(2).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("FROM reserved_seats"), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+        assertThat(store.rebuild(5)).isEqualTo(1);
+        assertThat(store.lockedBy(List.of(100L))).containsEntry(100L, "SYSTEM");
+    }
+
+    @Test
+    void rebuildForAcquiredEventsReplacesOnlyTheirHolds() {
+        Instant later = Instant.now().plusSeconds(300);
+        store.lock(1L, 7L, List.of(100L), later);   // สำเนาเก่าจากรอบที่เคยเป็นเจ้าของ
+        store.lock(2L, 7L, List.of(200L), later);
+
+        assertThat(store.rebuild(5, List.of(1L))).isZero();
+
+        verify(jdbc).query(contains("r.event_id = ANY (?)"), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+        assertThat(store.lockedSeatIds(1L)).isEmpty();
+        assertThat(store.lockedSeatIds(2L)).containsExactly(200L);
+    }
+
+    @Test
+    void dropForgetsHoldsOfLostEventsWithoutExpiringThem() {
+        store.lock(1L, 7L, List.of(100L), Instant.now().minusSeconds(5));
+        store.lock(2L, 7L, List.of(200L), Instant.now().minusSeconds(5));
+
+        store.drop(List.of(1L));
+
+        assertThat(store.expire()).containsExactly(200L);
+    }
+}
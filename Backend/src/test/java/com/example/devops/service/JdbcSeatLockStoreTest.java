@@ -0,0 +1,105 @@
+package com.example.devops.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SeatLockStoreContract กับ PostgreSQL จริง (schema จาก Flyway) ทั้ง seat_locks และ seat_locks_unlogged
+ * รัน: ./mvnw test -Dtest=JdbcSeatLockStoreTest -Dlockstore.db.url=jdbc:postgresql://localhost:5432/devops
+ *      (-Dlockstore.db.user=postgres -Dlockstore.db.password=postgres)
+ */
+@EnabledIfSystemProperty(named = "lockstore.db.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JdbcSeatLockStoreTest {
+
+    private HikariDataSource ds;
+    private JdbcTemplate jdbc;
+    private Long eventId;
+    private Long userA;
+    private Long userB;
+    private final List<Long> seats = new ArrayList<>();
+
+    @BeforeAll
+    void setup() {
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(System.getProperty("lockstore.db.url"));
+        cfg.setUsername(System.getProperty("lockstore.db.user", "postgres"));
+        cfg.setPassword(System.getProperty("lockstore.db.password", "postgres"));
+        cfg.setMaximumPoolSize(2);
+        ds = new HikariDataSource(cfg);
+        jdbc = new JdbcTemplate(ds);
+
+        eventId = jdbc.queryForObject(
+                "INSERT INTO events_nam (event_name, status) VALUES ('lock-store-contract', 'DRAFT') RETURNING event_id", Long.class);
+        Long zoneId = jdbc.queryForObject(
+                "INSERT INTO seat_zones (event_id, zone_code, zone_name, price) VALUES (?, 'LS', 'LS', 100) RETURNING zone_id",
+                Long.class, eventId);
+        Long rowId = jdbc.queryForObject(
+                "INSERT INTO seat_rows (zone_id, row_label, sort_order) VALUES (?, 'A', 0) RETURNING row_id", Long.class, zoneId);
+        for (int s = 1; s <= 3; s++) {
+            seats.add(jdbc.queryForObject(
+                    "INSERT INTO seats (row_id, seat_number, seat_label) VALUES (?, ?, ?) RETURNING seat_id",
+                    Long.class, rowId, s, String.valueOf(s)));
+        }
+        userA = user("a");
+        userB = user("b");
+    }
+
+    private Long user(String tag) {
+        String name = "lockstore-" + tag + "-" + System.nanoTime();
+        return jdbc.queryForObject("""
+                INSERT INTO users (email, username, password_hash, roles)
+                VALUES (?, ?, 'x', 'USER') RETURNING user_id
+                """, Long.class, name + "@test.local", name);
+    }
+
+    @AfterEach
+    void clearLocks() {
+        for (String table : List.of(JdbcSeatLockStore.TABLE, JdbcSeatLockStore.UNLOGGED)) {
+            jdbc.update("DELETE FROM " + table + " WHERE event_id = ?", eventId);
+        }
+    }
+
+    @AfterAll
+    void teardown() {
+        jdbc.update("DELETE FROM events_nam WHERE event_id = ?", eventId);
+        jdbc.update("DELETE FROM users WHERE user_id IN (?, ?)", userA, userB);
+        ds.close();
+    }
+
+    abstract class Postgres extends SeatLockStoreContract {
+        @Override
+        List<Long> seats() { return seats; }
+
+        @Override
+        Long eventId() { return eventId; }
+
+        @Override
+        Long userA() { return userA; }
+
+        @Override
+        Long userB() { return userB; }
+    }
+
+    @Nested
+    class Table extends Postgres {
+        @Override
+        SeatLockStore store() { return new JdbcSeatLockStore(jdbc, JdbcSeatLockStore.TABLE); }
+    }
+
+    @Nested
+    class Unlogged extends Postgres {
+        @Override
+        SeatLockStore store() { return new JdbcSeatLockStore(jdbc, JdbcSeatLockStore.UNLOGGED); }
+    }
+}
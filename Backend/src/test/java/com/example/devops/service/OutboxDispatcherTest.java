@@ -0,0 +1,109 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxDispatcherTest {
+
+    private JdbcTemplate jdbc;
+    private final List<OutboxEvent> delivered = new ArrayList<>();
+    private OutboxDispatcher dispatcher;
+    private boolean failPaid;
+
+    @BeforeEach
+    void setup() {
+        jdbc = mock(JdbcTemplate.class);
+        OutboxHandler handler = new OutboxHandler() {
+            public boolean supports(String eventType) { return true; }
+            public void handle(OutboxEvent event) {
+                if (failPaid && OutboxPublisher.RESERVATION_PAID.equals(event.eventType())) {
+                    throw new IllegalStateException("handler down");
+                }
+                delivered.add(event);
+            }
+        };
+        @SuppressWarnings("unchecked")
+        ObjectProvider<OutboxHandler> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(inv -> Stream.of(handler));
+        dispatcher = new OutboxDispatcher(jdbc, provider, 10, 3, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private static Map<String, Object> row(long id, long aggId, String type, int attempts) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("event_id", id);
+        m.put("aggregate_type", OutboxPublisher.AGGREGATE_RESERVATION);
+        m.put("aggregate_id", aggId);
+        m.put("event_type", type);
+        m.put("payload", "{\"reservedId\":" + aggId + "}");
+        m.put("created_at", new Timestamp(0));
+        m.put("attempts", attempts);
+        return m;
+    }
+
+    @Test
+    void dispatchBatch_deliversInEventOrder_andMarksDone() {
+        when(jdbc.queryForList(contains("FOR UPDATE SKIP LOCKED"), anyDouble(), anyInt())).thenReturn(List.of(
+                row(9, 2, OutboxPublisher.RESERVATION_CREATED, 0),
+                row(7, 1, OutboxPublisher.RESERVATION_CREATED, 0)));
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(2);
+
+        assertThat(delivered).extracting(OutboxEvent::eventId).containsExactly(7L, 9L);
+        assertThat(delivered.get(0).payload()).containsEntry("reservedId", 1);
+        verify(jdbc).batchUpdate(contains("status = 'DONE'"), argThat((List<Object[]> l) -> l.size() == 2));
+    }
+
+    @Test
+    void dispatchBatch_handlerFailure_retriesThenDead() {
+        failPaid = true;
+        when(jdbc.queryForList(anyString(), anyDouble(), anyInt())).thenReturn(List.of(
+                row(1, 1, OutboxPublisher.RESERVATION_PAID, 0),
+                row(2, 2, OutboxPublisher.RESERVATION_PAID, 2),
+                row(3, 3, OutboxPublisher.RESERVATION_CREATED, 0)));
+
+        dispatcher.dispatchBatch();
+
+        verify(jdbc).update(contains("next_attempt_at"), eq("PENDING"), eq(1), eq("handler down"), anyDouble(), eq(1L));
+        verify(jdbc).update(contains("next_attempt_at"), eq("DEAD"), eq(3), eq("handler down"), anyDouble(), eq(2L));
+        assertThat(delivered).extracting(OutboxEvent::eventId).containsExactly(3L);
+    }
+
+    @Test
+    void dispatchBatch_emptyOutbox_doesNothing() {
+        when(jdbc.queryForList(anyString(), anyDouble(), anyInt())).thenReturn(List.of());
+
+        assertThat(dispatcher.dispatchBatch()).isZero();
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void purgeOld_deletesDoneAndDeadRowsInChunks() {
+        when(jdbc.update(contains("status = 'DONE'"), eq(7), eq(OutboxDispatcher.PURGE_CHUNK)))
+                .thenReturn(OutboxDispatcher.PURGE_CHUNK, 12);
+        when(jdbc.update(contains("status = 'DEAD'"), eq(30), eq(OutboxDispatcher.PURGE_CHUNK)))
+                .thenReturn(3);
+
+        assertThat(dispatcher.purgeOld()).isEqualTo(OutboxDispatcher.PURGE_CHUNK + 15);
+        verify(jdbc, times(2)).update(contains("status = 'DONE'"), eq(7), eq(OutboxDispatcher.PURGE_CHUNK));
+        verify(jdbc, times(1)).update(contains("status = 'DEAD'"), eq(30), eq(OutboxDispatcher.PURGE_CHUNK));
+    }
+}
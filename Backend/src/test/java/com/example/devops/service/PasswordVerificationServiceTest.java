@@ -0,0 +1,73 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class PasswordVerificationServiceTest {
+
+    private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+    private PasswordVerificationService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    void matches_runsOnPoolAndReturnsEncoderResult() {
+        service = new PasswordVerificationService(encoder, 1, 4, 5000, 2);
+        when(encoder.matches("pw", "hash")).thenReturn(true);
+
+        assertThat(service.matches("pw", "hash")).isTrue();
+        assertThat(service.matches("pw", "other")).isFalse();
+        assertThat(service.matches(null, "hash")).isFalse();
+    }
+
+    @Test
+    void matches_queueFull_throwsSaturatedWithRetryAfter() throws Exception {
+        service = new PasswordVerificationService(encoder, 1, 1, 5000, 7);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(encoder.matches(anyString(), anyString())).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        // worker 1 ตัวถูกยึด + คิว 1 ช่องเต็ม
+        CompletableFuture<Boolean> busy = CompletableFuture.supplyAsync(() -> service.matches("a", "h"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> service.matches("b", "h"));
+        while (service.queueDepth() < 1) Thread.onSpinWait();
+
+        assertThatThrownBy(() -> service.matches("c", "h"))
+                .isInstanceOf(PasswordVerificationService.Saturated.class)
+                .satisfies(e -> assertThat(((PasswordVerificationService.Saturated) e).getRetryAfterSeconds()).isEqualTo(7));
+        assertThat(service.rejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void matches_waitTimeout_throwsSaturated() {
+        service = new PasswordVerificationService(encoder, 1, 4, 50, 2);
+        when(encoder.matches(anyString(), anyString())).thenAnswer(inv -> {
+            Thread.sleep(2_000);
+            return true;
+        });
+
+        assertThatThrownBy(() -> service.matches("slow", "h"))
+                .isInstanceOf(PasswordVerificationService.Saturated.class);
+    }
+}
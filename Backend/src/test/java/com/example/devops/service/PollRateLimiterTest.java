@@ -0,0 +1,124 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PollRateLimiterTest {
+
+    private static final long SEC = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(5 * SEC);
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("app.poll-limit.seats-taken.burst", "3")
+            .withProperty("app.poll-limit.seats-taken.per-second", "1");
+
+    private PollRateLimiter limiter(int maxClients) {
+        return new PollRateLimiter(env, true, maxClients, now::get);
+    }
+
+    @Test
+    void burstThenRefillAtConfiguredRate() {
+        PollRateLimiter l = limiter(100);
+
+        PollRateLimiter.Decision first = l.tryAcquire("seats-taken", "1.2.3.4/anon");
+        assertThat(first.allowed()).isTrue();
+        assertThat(first.limit()).isEqualTo(3);
+        assertThat(first.remaining()).isEqualTo(2);
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/anon").remaining()).isEqualTo(1);
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/anon").remaining()).isZero();
+
+        PollRateLimiter.Decision denied = l.tryAcquire("seats-taken", "1.2.3.4/anon");
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterSeconds()).isEqualTo(1);
+        assertThat(denied.resetSeconds()).isEqualTo(3);
+
+        now.addAndGet(SEC);
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/anon").allowed()).isTrue();
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/anon").allowed()).isFalse();
+    }
+
+    @Test
+    void clientsAndPoliciesHaveSeparateBuckets() {
+        PollRateLimiter l = limiter(100);
+        for (int i = 0; i < 3; i++) l.tryAcquire("seats-taken", "1.2.3.4/anon");
+
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/anon").allowed()).isFalse();
+        assertThat(l.tryAcquire("seats-taken", "1.2.3.4/alice").allowed()).isTrue();
+        assertThat(l.tryAcquire("seats-status", "1.2.3.4/anon").allowed()).isTrue();
+        // policy ที่ไม่ได้ตั้งค่า → burst 10 / 1 ต่อวินาที
+        assertThat(l.tryAcquire("seats-status", "1.2.3.4/anon").limit()).isEqualTo(10);
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledBucketsAndOverflowSharesOneBucket() {
+        PollRateLimiter l = new PollRateLimiter(env, true, 2, 1, now::get);
+        l.tryAcquire("seats-taken", "a");
+        l.tryAcquire("seats-taken", "b");
+        for (int i = 0; i < 3; i++) l.tryAcquire("seats-taken", "c");
+        assertThat(l.tryAcquire("seats-taken", "d").allowed())
+                .as("c and d share the overflow bucket once the map is full").isFalse();
+
+        now.addAndGet(2 * SEC);
+        l.sweep();
+        assertThat(l.clients()).isEqualTo(1);   // overflow ยังไม่เต็ม
+
+        now.addAndGet(10 * SEC);
+        l.sweep();
+        assertThat(l.clients()).isZero();
+    }
+
+    @Test
+    void overflowBucketIsSizedByTheOverflowFactor() {
+        PollRateLimiter l = new PollRateLimiter(env, true, 1, 4, now::get);
+        l.tryAcquire("seats-taken", "regular");
+
+        // map เต็ม : client ใหม่ทั้งหมดใช้ถังรวม burst 3 × 4 = 12
+        int granted = 0;
+        for (int i = 0; i < 20; i++) {
+            PollRateLimiter.Decision d = l.tryAcquire("seats-taken", "new-" + i);
+            if (d.allowed()) {
+                granted++;
+                assertThat(d.limit()).isEqualTo(12);
+            }
+        }
+        assertThat(granted).isEqualTo(12);
+        assertThat(l.clients()).isEqualTo(2);
+
+        // เติม 4 token ต่อวินาที (1 ต่อวินาที × 4)
+        now.addAndGet(SEC);
+        for (int i = 0; i < 4; i++) assertThat(l.tryAcquire("seats-taken", "late-" + i).allowed()).isTrue();
+        assertThat(l.tryAcquire("seats-taken", "late-4").allowed()).isFalse();
+
+        // client ที่มีถังของตัวเองอยู่แล้วไม่ถูกกระทบ
+        assertThat(l.tryAcquire("seats-taken", "regular").allowed()).isTrue();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheBurst() throws Exception {
+        PollRateLimiter l = limiter(100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger ok = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (l.tryAcquire("seats-taken", "bot").allowed()) ok.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ok.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RangeHoldServiceTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final RangeHoldService svc = new RangeHoldService(jdbc, true, 2);
+    private final RangeHoldService.SeatSpan span = new RangeHoldService.SeatSpan(3L, 10L, 4, 7);
+
+    @SuppressWarnings("unchecked")
+    private void groups(long[]... rows) {
+        when(jdbc.query(contains("GROUP BY r.zone_id, s.row_id"), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(Arrays.asList(rows));
+    }
+
+    @Test
+    void spanOfContiguousSeatsInOneRow() {
+        groups(new long[]{3, 10, 4, 7, 4});
+
+        assertThat(svc.spanOf(List.of(1L, 2L, 3L, 4L))).contains(span);
+        assertThat(span.size()).isEqualTo(4);
+    }
+
+    @Test
+    void spanOfRejectsGapsAndMultipleRows() {
+        groups(new long[]{3, 10, 4, 8, 4});
+        assertThat(svc.spanOf(List.of(1L, 2L, 3L, 4L))).isEmpty();
+
+        groups(new long[]{3, 10, 4, 5, 2}, new long[]{3, 11, 4, 5, 2});
+        assertThat(svc.spanOf(List.of(1L, 2L, 3L, 4L))).isEmpty();
+    }
+
+    @Test
+    void spanOfSkippedWhenDisabledOrTooSmall() {
+        RangeHoldService off = new RangeHoldService(jdbc, false, 2);
+
+        assertThat(off.spanOf(List.of(1L, 2L))).isEmpty();
+        assertThat(svc.spanOf(List.of(1L))).isEmpty();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdReturnsNullWhenSeatInRangeIsBusy() {
+        when(jdbc.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class))).thenReturn(1);
+
+        assertThat(svc.hold(1L, 7L, span, 5)).isNull();
+        verify(jdbc, never()).queryForList(contains("INSERT INTO seat_range_holds"), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdWritesOneRowForWholeRange() {
+        when(jdbc.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class))).thenReturn(0);
+        when(jdbc.queryForList(contains("INSERT INTO seat_range_holds"), eq(Long.class),
+                eq(1L), eq(3L), eq(10L), eq(4), eq(7), eq(7L), eq(5))).thenReturn(List.of(42L));
+
+        assertThat(svc.hold(1L, 7L, span, 5)).isEqualTo(42L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdReturnsNullWhenExclusionConstraintRejectsOverlap() {
+        when(jdbc.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class))).thenReturn(0);
+        when(jdbc.queryForList(contains("INSERT INTO seat_range_holds"), eq(Long.class),
+                eq(1L), eq(3L), eq(10L), eq(4), eq(7), eq(7L), eq(5))).thenReturn(List.of());
+
+        assertThat(svc.hold(1L, 7L, span, 5)).isNull();
+    }
+
+    @Test
+    void expireCancelsOwningReservations() {
+        when(jdbc.queryForList(contains("SET status = 'EXPIRED'"), eq(Long.class))).thenReturn(Arrays.asList(5L, null, 6L));
+        when(jdbc.update(any(PreparedStatementCreator.class))).thenReturn(2);
+
+        assertThat(svc.expire()).isEqualTo(3);
+        verify(jdbc).update(any(PreparedStatementCreator.class));
+    }
+
+    @Test
+    void expireWithNothingDueDoesNotTouchReservations() {
+        when(jdbc.queryForList(contains("SET status = 'EXPIRED'"), eq(Long.class))).thenReturn(List.of());
+
+        assertThat(svc.expire()).isZero();
+        verify(jdbc, never()).update(any(PreparedStatementCreator.class));
+    }
+}
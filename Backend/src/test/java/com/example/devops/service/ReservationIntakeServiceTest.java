@@ -0,0 +1,206 @@
+package com.example.devops.service;
+
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.config.WorkloadContext;
+import com.example.devops.dto.ReservationRequest;
+import com.example.devops.dto.ReservedResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReservationIntakeServiceTest {
+
+    private final ReservationService reservationService = mock(ReservationService.class);
+    private ReservationIntakeService intake;
+
+    @AfterEach
+    void tearDown() {
+        if (intake != null) intake.shutdown();
+    }
+
+    private ReservationIntakeService newIntake(int batchSize, int capacity) {
+        return new ReservationIntakeService(reservationService, "batched", batchSize, capacity, 20, 1, 600, 3);
+    }
+
+    private static ReservationRequest request(long eventId) {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(eventId);
+        req.setQuantity(1);
+        req.setSeats(List.of(new ReservationRequest.SeatPick(1L, 0, 0)));
+        return req;
+    }
+
+    private static void awaitDone(ReservationIntakeService.Ticket t) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (t.getStatus() == ReservationIntakeService.Status.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void directModeIsDefault() {
+        intake = new ReservationIntakeService(reservationService, "direct", 50, 10, 5, 1, 600, 2);
+        assertThat(intake.isEnabled()).isFalse();
+    }
+
+    @Test
+    void queuedRequestsOfOneEventAreCommittedAsOneBatchInOrder() throws Exception {
+        ReservedResponse ok = mock(ReservedResponse.class);
+        List<List<ReservationService.BatchItem>> calls = new ArrayList<>();
+        when(reservationService.createReservationBatch(eq(1L), anyList())).thenAnswer(inv -> {
+            List<ReservationService.BatchItem> items = inv.getArgument(1);
+            calls.add(List.copyOf(items));
+            List<ReservationService.BatchResult> out = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                out.add(i == 0 ? new ReservationService.BatchResult(ok, null)
+                               : new ReservationService.BatchResult(null, "Some seats are currently locked by others: 100"));
+            }
+            return out;
+        });
+        intake = newIntake(10, 100);
+
+        ReservationIntakeService.Ticket first = intake.submit(7L, request(1L));
+        ReservationIntakeService.Ticket second = intake.submit(8L, request(1L));
+        awaitDone(first);
+        awaitDone(second);
+
+        assertThat(calls).hasSize(1);
+        assertThat(calls.get(0)).extracting(ReservationService.BatchItem::userId).containsExactly(7L, 8L);
+        assertThat(first.getStatus()).isEqualTo(ReservationIntakeService.Status.CONFIRMED);
+        assertThat(first.getReservation()).isSameAs(ok);
+        assertThat(second.getStatus()).isEqualTo(ReservationIntakeService.Status.REJECTED);
+        assertThat(intake.find(second.getId())).containsSame(second);
+        assertThat(intake.queuedCount()).isZero();
+    }
+
+    @Test
+    void workersRunAsPurchaseWorkload() throws Exception {
+        List<WorkloadClass> seen = new CopyOnWriteArrayList<>();
+        when(reservationService.createReservationBatch(anyLong(), anyList())).thenAnswer(inv -> {
+            seen.add(WorkloadContext.current());
+            return List.of(new ReservationService.BatchResult(mock(ReservedResponse.class), null));
+        });
+        intake = newIntake(10, 100);
+
+        awaitDone(intake.submit(7L, request(1L)));
+
+        assertThat(seen).containsExactly(WorkloadClass.PURCHASE);
+    }
+
+    @Test
+    void failedBatchFallsBackToOneByOne() throws Exception {
+        ReservedResponse ok = mock(ReservedResponse.class);
+        when(reservationService.createReservationBatch(anyLong(), anyList()))
+                .thenThrow(new IllegalStateException("deadlock detected"));
+        when(reservationService.createReservation(eq(7L), any())).thenReturn(ok);
+        when(reservationService.createReservation(eq(8L), any()))
+                .thenThrow(new IllegalArgumentException("Some seats are already taken (paid/reserved): [100]"));
+        intake = newIntake(10, 100);
+
+        ReservationIntakeService.Ticket a = intake.submit(7L, request(2L));
+        ReservationIntakeService.Ticket b = intake.submit(8L, request(2L));
+        awaitDone(a);
+        awaitDone(b);
+
+        assertThat(a.getStatus()).isEqualTo(ReservationIntakeService.Status.CONFIRMED);
+        assertThat(b.getStatus()).isEqualTo(ReservationIntakeService.Status.REJECTED);
+        assertThat(b.getMessage()).contains("already taken");
+    }
+
+    @Test
+    void fullQueueIsRefusedWithRetryAfter() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(reservationService.createReservationBatch(anyLong(), anyList())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<ReservationService.BatchItem> items = inv.getArgument(1);
+            return items.stream().map(i -> new ReservationService.BatchResult(null, "x")).toList();
+        });
+        intake = newIntake(1, 1);
+
+        intake.submit(1L, request(3L));                 // worker หยิบไปแล้วค้างอยู่ใน batch
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        intake.submit(2L, request(3L));                 // เต็มคิว (capacity 1)
+
+        assertThatThrownBy(() -> intake.submit(3L, request(3L)))
+                .isInstanceOf(ReservationIntakeService.Full.class)
+                .satisfies(e -> assertThat(((ReservationIntakeService.Full) e).getRetryAfterSeconds()).isEqualTo(3));
+
+        // อีเวนต์อื่นมีคิวของตัวเอง ไม่โดนผลกระทบ
+        assertThat(intake.submit(4L, request(4L)).getStatus()).isNotNull();
+        release.countDown();
+    }
+
+    private static List<ReservationService.BatchResult> rejectAll(List<ReservationService.BatchItem> items) {
+        return items.stream().map(i -> new ReservationService.BatchResult(null, "x")).toList();
+    }
+
+    @Test
+    void purgeRacingSubmitNeverLosesARequestOrRunsTwoDrainersForOneEvent() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(reservationService.createReservationBatch(eq(5L), anyList())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.yield();
+            inFlight.decrementAndGet();
+            return rejectAll(inv.getArgument(1));
+        });
+        intake = new ReservationIntakeService(reservationService, "batched", 1, 10_000, 0, 4, 600, 3, 1);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread purger = new Thread(() -> {
+            while (!stop.get()) intake.purgeExpired();
+        });
+        purger.start();
+        List<ReservationIntakeService.Ticket> tickets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2000; i++) tickets.add(intake.submit((long) i, request(5L)));
+            for (ReservationIntakeService.Ticket t : tickets) awaitDone(t);
+        } finally {
+            stop.set(true);
+            purger.join(5000);
+        }
+
+        assertThat(tickets).allSatisfy(t -> assertThat(t.getStatus()).isEqualTo(ReservationIntakeService.Status.REJECTED));
+        assertThat(maxInFlight.get()).isEqualTo(1);
+        intake.purgeExpired();
+        assertThat(intake.laneCount()).isZero();
+    }
+
+    @Test
+    void hotEventYieldsTheWorkerAfterFairBatches() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> order = new CopyOnWriteArrayList<>();
+        when(reservationService.createReservationBatch(anyLong(), anyList())).thenAnswer(inv -> {
+            order.add(inv.getArgument(0));
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return rejectAll(inv.getArgument(1));
+        });
+        // 1 worker, batch ละ 1 คำขอ, ให้ทำติดกันได้ 2 batch
+        intake = new ReservationIntakeService(reservationService, "batched", 1, 100, 0, 1, 600, 3, 2);
+
+        intake.submit(1L, request(1L));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 9; i++) intake.submit(1L, request(1L));
+        ReservationIntakeService.Ticket other = intake.submit(2L, request(2L));
+        release.countDown();
+        awaitDone(other);
+
+        assertThat(order.indexOf(2L)).isEqualTo(2);
+    }
+}
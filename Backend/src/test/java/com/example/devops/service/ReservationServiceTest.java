@@ -11,6 +11,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +23,12 @@ class ReservationServiceTest {
     SeatsRepository seatsRepo;
     PaymentsRepository paymentsRepo;
     JdbcTemplate jdbc;
+    OutboxPublisher outbox;
+    ZoneSeatClaimer zoneClaimer;
+    StandingInventoryService standing;
+    TicketInventoryService ticketInventory;
+    RangeHoldService rangeHolds;
+    SeatLockStore lockStore;
 
     ReservationService service;
 
@@ -32,9 +39,17 @@ class ReservationServiceTest {
         seatsRepo = mock(SeatsRepository.class);
         paymentsRepo = mock(PaymentsRepository.class);
         jdbc = mock(JdbcTemplate.class);
+        outbox = mock(OutboxPublisher.class);
+        zoneClaimer = mock(ZoneSeatClaimer.class);
+        standing = mock(StandingInventoryService.class);
+        ticketInventory = mock(TicketInventoryService.class);
+        rangeHolds = mock(RangeHoldService.class);
+        lockStore = mock(SeatLockStore.class);
+        when(lockStore.sharedWithSql()).thenReturn(true);
+        when(ticketInventory.tryHold(anyLong())).thenReturn(true);
 
         service = Mockito.spy(new ReservationService(
-                reservedRepo, reservedSeatsRepo, seatsRepo, paymentsRepo, jdbc
+                reservedRepo, reservedSeatsRepo, seatsRepo, paymentsRepo, jdbc, outbox, zoneClaimer, standing, ticketInventory, rangeHolds, lockStore
         ));
     }
 
@@ -104,4 +119,315 @@ class ReservationServiceTest {
                 .isInstanceOf(IllegalArgumentException.class);
     }
 
+    @Test
+    @DisplayName("payMock → เขียน ReservationPaid ลง outbox")
+    void payMockPublishesOutboxEvent() {
+        Reserved r = new Reserved();
+        r.setReservedId(5L);
+        r.setEventId(1L);
+        r.setPaymentStatus("RESERVED");
+        r.setTotalAmount(BigDecimal.TEN);
+        when(reservedRepo.findById(5L)).thenReturn(java.util.Optional.of(r));
+        when(reservedRepo.save(any(Reserved.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(5L))).thenReturn(List.of(100L, 101L));
+        doNothing().when(service).unlockSeatsNullableUser(any(), anyList());
+
+        service.payMock(5L, "MOCK");
+
+        verify(outbox).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), eq(5L),
+                eq(OutboxPublisher.RESERVATION_PAID), argThat(m -> List.of(100L, 101L).equals(m.get("seatIds"))));
+    }
+
+    @Test
+    @DisplayName("cancelReservation → เขียน ReservationCancelled ลง outbox")
+    void cancelPublishesOutboxEvent() {
+        Reserved r = new Reserved();
+        r.setReservedId(6L);
+        r.setEventId(1L);
+        when(reservedRepo.findById(6L)).thenReturn(java.util.Optional.of(r));
+        when(jdbc.queryForList(contains("FOR UPDATE"), eq(String.class), eq(6L))).thenReturn(List.of("RESERVED"));
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(6L))).thenReturn(List.of(100L));
+        doNothing().when(service).unlockSeatsNullableUser(any(), anyList());
+
+        service.cancelReservation(6L);
+
+        verify(outbox).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), eq(6L),
+                eq(OutboxPublisher.RESERVATION_CANCELLED), anyMap());
+    }
+
+    private static ReservationRequest seatRequest(Long eventId, int row, int col, String guestEmail) {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(eventId);
+        req.setQuantity(1);
+        req.setGuestEmail(guestEmail);
+        req.setSeats(List.of(new ReservationRequest.SeatPick(1L, row, col)));
+        return req;
+    }
+
+    @Test
+    @DisplayName("createReservationBatch → ที่นั่งชนกันใน batch คนที่มาก่อนได้ไป")
+    void batchResolvesConflictsInFifoOrder() {
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 1)).thenReturn(100L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 2)).thenReturn(101L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+        when(lockStore.lock(eq(1L), any(), anyList(), any())).thenAnswer(inv -> inv.getArgument(2));
+        AtomicLong ids = new AtomicLong(500);
+        when(reservedRepo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Reserved> rs = inv.getArgument(0);
+            rs.forEach(r -> r.setReservedId(ids.incrementAndGet()));
+            return rs;
+        });
+
+        List<ReservationService.BatchResult> results = service.createReservationBatch(1L, List.of(
+                new ReservationService.BatchItem(7L, seatRequest(1L, 0, 0, null)),
+                new ReservationService.BatchItem(null, seatRequest(1L, 0, 0, "g@mail.com")),
+                new ReservationService.BatchItem(8L, seatRequest(1L, 0, 1, null))
+        ));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(0).reservation().getReservedId()).isEqualTo(501L);
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).error()).contains("locked");
+        assertThat(results.get(2).reservation().getReservedId()).isEqualTo(502L);
+        // เช็คที่นั่งไม่ว่างด้วย query ชุดเดียวทั้ง batch
+        verify(seatsRepo, times(1)).findPaidTakenAmong(eq(1L), any());
+        verify(seatsRepo, times(1)).findLockedSeatIdsByEvent(1L);
+        // lock ผ่าน lock-store ไม่เขียน seat_locks ตรง
+        verify(lockStore).lock(eq(1L), eq(7L), eq(List.of(100L)), any());
+        verify(jdbc, never()).batchUpdate(contains("seat_locks"), anyList());
+        verify(outbox, times(2)).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), anyLong(),
+                eq(OutboxPublisher.RESERVATION_CREATED), anyMap());
+    }
+
+    @Test
+    @DisplayName("createReservationBatch → ล็อกไม่ได้ (instance อื่นล็อกก่อน) ถูกปฏิเสธเฉพาะรายการนั้น")
+    void batchRejectsItemWhoseLockWasLost() {
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 1)).thenReturn(100L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 2)).thenReturn(101L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+        when(lockStore.lock(eq(1L), eq(7L), anyList(), any())).thenReturn(List.of());
+        when(lockStore.lock(eq(1L), eq(8L), anyList(), any())).thenAnswer(inv -> inv.getArgument(2));
+        when(reservedRepo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Reserved> rs = inv.getArgument(0);
+            rs.forEach(r -> r.setReservedId(900L));
+            return rs;
+        });
+        doNothing().when(service).unlockSeatsNullableUser(any(), anyList());
+
+        List<ReservationService.BatchResult> results = service.createReservationBatch(1L, List.of(
+                new ReservationService.BatchItem(7L, seatRequest(1L, 0, 0, null)),
+                new ReservationService.BatchItem(8L, seatRequest(1L, 0, 1, null))
+        ));
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(1).isSuccess()).isTrue();
+        verify(service).unlockSeatsNullableUser(7L, List.of());
+    }
+
+    @Test
+    @DisplayName("createReservationBatch → ticket type ขายหมดตอน hold ถูกปฏิเสธเฉพาะรายการนั้น")
+    void batchRejectsItemWhoseTicketTypeIsSoldOut() {
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 1)).thenReturn(100L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 2)).thenReturn(101L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+        when(lockStore.lock(eq(1L), any(), anyList(), any())).thenAnswer(inv -> inv.getArgument(2));
+        AtomicLong ids = new AtomicLong(700);
+        when(reservedRepo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Reserved> rs = inv.getArgument(0);
+            rs.forEach(r -> r.setReservedId(ids.incrementAndGet()));
+            return rs;
+        });
+        when(ticketInventory.tryHold(701L)).thenReturn(false);
+        doNothing().when(service).unlockSeatsNullableUser(any(), anyList());
+
+        List<ReservationService.BatchResult> results = service.createReservationBatch(1L, List.of(
+                new ReservationService.BatchItem(7L, seatRequest(1L, 0, 0, null)),
+                new ReservationService.BatchItem(8L, seatRequest(1L, 0, 1, null))
+        ));
+
+        assertThat(results.get(0).isSuccess()).isFalse();
+        assertThat(results.get(0).error()).contains("SOLD_OUT");
+        assertThat(results.get(1).isSuccess()).isTrue();
+        verify(service).unlockSeatsNullableUser(7L, List.of(100L));
+        verify(reservedRepo).deleteAll(argThat(rs -> ((List<Reserved>) rs).size() == 1));
+        verify(outbox, times(1)).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), eq(702L),
+                eq(OutboxPublisher.RESERVATION_CREATED), anyMap());
+    }
+
+    private static ReservationRequest rowRequest(Long eventId, int row, int... cols) {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(eventId);
+        req.setQuantity(cols.length);
+        req.setSeats(java.util.Arrays.stream(cols).mapToObj(c -> new ReservationRequest.SeatPick(1L, row, c)).toList());
+        return req;
+    }
+
+    @Test
+    @DisplayName("createReservation → ที่นั่งติดกันในแถวเดียว ใช้ range hold แทน seat_locks รายที่นั่ง")
+    void contiguousSeatsUseRangeHold() {
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 1)).thenReturn(100L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 2)).thenReturn(101L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 3)).thenReturn(102L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+        RangeHoldService.SeatSpan span = new RangeHoldService.SeatSpan(1L, 10L, 1, 3);
+        when(rangeHolds.spanOf(List.of(100L, 101L, 102L))).thenReturn(java.util.Optional.of(span));
+        when(rangeHolds.hold(1L, 7L, span, 5)).thenReturn(42L);
+        when(reservedRepo.save(any(Reserved.class))).thenAnswer(inv -> {
+            Reserved r = inv.getArgument(0);
+            r.setReservedId(55L);
+            return r;
+        });
+
+        ReservedResponse res = service.createReservation(7L, rowRequest(1L, 0, 0, 1, 2));
+
+        assertThat(res.getReservedId()).isEqualTo(55L);
+        verify(rangeHolds).attach(42L, 55L);
+        verify(service, never()).lockSeats(any(), anyLong(), anyList(), anyInt());
+    }
+
+    @Test
+    @DisplayName("createReservation → ช่วงชนกับที่ถือไว้แล้ว = error (ไม่สร้าง reserved)")
+    void rangeHoldConflictRejects() {
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 1)).thenReturn(100L);
+        when(seatsRepo.findSeatIdByZoneRowCol(1L, 0, 2)).thenReturn(101L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+        RangeHoldService.SeatSpan span = new RangeHoldService.SeatSpan(1L, 10L, 1, 2);
+        when(rangeHolds.spanOf(anyList())).thenReturn(java.util.Optional.of(span));
+        when(rangeHolds.hold(1L, 7L, span, 5)).thenReturn(null);
+
+        assertThatThrownBy(() -> service.createReservation(7L, rowRequest(1L, 0, 0, 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("locked by others");
+        verify(reservedRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("lockSeats → ที่นั่งที่ผ่านการตรวจถูกล็อกผ่าน SeatLockStore")
+    @SuppressWarnings("unchecked")
+    void lockSeatsDelegatesToStore() {
+        when(jdbc.query(contains("FROM seats s"), any(org.springframework.jdbc.core.PreparedStatementSetter.class),
+                any(org.springframework.jdbc.core.RowMapper.class))).thenReturn(List.of(100L, 101L));
+        when(lockStore.lock(eq(1L), eq(7L), eq(List.of(100L, 101L)), any(Instant.class))).thenReturn(List.of(100L));
+
+        assertThat(service.lockSeats(7L, 1L, List.of(100L, 101L), 5)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("lock-store นอก seat_locks → ตรวจที่นั่งล็อกรวม lock ใน store ด้วย")
+    void memoryStoreLocksAreSeenByPreCheck() {
+        when(lockStore.sharedWithSql()).thenReturn(false);
+        when(lockStore.lockedSeatIds(1L)).thenReturn(List.of(100L));
+        when(seatsRepo.findSeatIdByZoneRowCol(anyLong(), anyInt(), anyInt())).thenReturn(100L);
+        when(seatsRepo.findPaidTakenAmong(anyLong(), any())).thenReturn(List.of());
+        when(seatsRepo.findLockedSeatIdsByEvent(1L)).thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.createReservation(7L, seatRequest(1L, 0, 0, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("locked by others");
+    }
+
+    @Test
+    @DisplayName("createZoneReservation → ใช้ที่นั่งที่ claimer หยิบได้ สร้าง reserved + outbox")
+    void zoneReservationUsesClaimedSeats() {
+        when(jdbc.queryForList(anyString(), eq(BigDecimal.class), eq(3L), eq(1L))).thenReturn(List.of(new BigDecimal("500")));
+        when(zoneClaimer.claim(1L, 3L, 7L, 2, 5)).thenReturn(List.of(100L, 101L));
+        when(reservedRepo.save(any(Reserved.class))).thenAnswer(inv -> {
+            Reserved r = inv.getArgument(0);
+            r.setReservedId(77L);
+            return r;
+        });
+
+        ReservedResponse res = service.createZoneReservation(7L, 1L, 3L, 2, null);
+
+        assertThat(res.getReservedId()).isEqualTo(77L);
+        assertThat(res.getTotalAmount()).isEqualByComparingTo("1000");
+        verify(jdbc).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 2));
+        verify(outbox).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), eq(77L),
+                eq(OutboxPublisher.RESERVATION_CREATED), argThat(m -> List.of(100L, 101L).equals(m.get("seatIds"))));
+    }
+
+    @Test
+    @DisplayName("createZoneReservation → ที่นั่งเหลือไม่พอ = error (ไม่สร้าง reserved)")
+    void zoneReservationFailsWhenZoneIsShort() {
+        when(jdbc.queryForList(anyString(), eq(BigDecimal.class), eq(3L), eq(1L))).thenReturn(List.of(BigDecimal.TEN));
+        when(zoneClaimer.claim(1L, 3L, 7L, 4, 5)).thenReturn(List.of(100L));
+
+        assertThatThrownBy(() -> service.createZoneReservation(7L, 1L, 3L, 4, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Only 1");
+        verify(reservedRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("createStandingReservation → ตัด counter แล้วสร้าง reserved ผูกโซนยืน (ไม่มี reserved_seats)")
+    void standingReservationHoldsCapacity() {
+        when(standing.tryHold(1L, 9L, 3)).thenReturn(true);
+        when(jdbc.queryForList(anyString(), eq(BigDecimal.class), eq(9L))).thenReturn(List.of(new BigDecimal("800")));
+        when(reservedRepo.save(any(Reserved.class))).thenAnswer(inv -> {
+            Reserved r = inv.getArgument(0);
+            r.setReservedId(88L);
+            return r;
+        });
+
+        ReservedResponse res = service.createStandingReservation(null, 1L, 9L, 3, "ga@example.com");
+
+        assertThat(res.getTotalAmount()).isEqualByComparingTo("2400");
+        verify(reservedRepo).save(argThat(r -> Long.valueOf(9L).equals(r.getStandingZoneId()) && r.getQuantity() == 3));
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+        verify(outbox).publish(eq(OutboxPublisher.AGGREGATE_RESERVATION), eq(88L),
+                eq(OutboxPublisher.RESERVATION_CREATED), argThat(m -> Integer.valueOf(3).equals(m.get("quantity"))));
+    }
+
+    @Test
+    @DisplayName("createStandingReservation → โซนเต็ม = SOLD_OUT")
+    void standingReservationSoldOut() {
+        when(standing.tryHold(1L, 9L, 2)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.createStandingReservation(7L, 1L, 9L, 2, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SOLD_OUT");
+        verify(reservedRepo, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("cancel ใบจองโซนยืน → คืน counter")
+    void cancelStandingReleasesCapacity() {
+        Reserved r = new Reserved();
+        r.setReservedId(5L);
+        r.setStandingZoneId(9L);
+        r.setQuantity(4);
+        r.setPaymentStatus("RESERVED");
+        when(reservedRepo.findById(5L)).thenReturn(java.util.Optional.of(r));
+        when(jdbc.queryForList(contains("FOR UPDATE"), eq(String.class), eq(5L))).thenReturn(List.of("RESERVED"));
+        when(jdbc.queryForList(anyString(), eq(Long.class), eq(5L))).thenReturn(List.of());
+        doNothing().when(service).unlockSeatsNullableUser(any(), anyList());
+
+        service.cancelReservation(5L);
+
+        verify(standing).release(9L, 4);
+    }
+
+    @Test
+    @DisplayName("cancel ที่แพ้ expireHolds (ถูกยกเลิกไปแล้ว) → ไม่คืน counter / ยอดซ้ำ")
+    void cancelAlreadyCancelledReleasesNothing() {
+        Reserved r = new Reserved();
+        r.setReservedId(5L);
+        r.setStandingZoneId(9L);
+        r.setQuantity(4);
+        r.setPaymentStatus("RESERVED"); // ค่าเก่าที่อ่านมาโดยไม่ล็อก
+        when(reservedRepo.findById(5L)).thenReturn(java.util.Optional.of(r));
+        when(jdbc.queryForList(contains("FOR UPDATE"), eq(String.class), eq(5L))).thenReturn(List.of());
+
+        service.cancelReservation(5L);
+
+        verify(standing, never()).release(anyLong(), anyInt());
+        verify(ticketInventory, never()).release(anyLong());
+        verify(outbox, never()).publish(anyString(), anyLong(), anyString(), anyMap());
+    }
 }
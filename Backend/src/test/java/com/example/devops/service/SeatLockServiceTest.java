@@ -4,22 +4,28 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class SeatLockServiceTest {
 
     JdbcTemplate jdbc;
+    SeatLockStore lockStore;
     SeatLockService service;
 
     @BeforeEach
     void setup() {
         jdbc = mock(JdbcTemplate.class);
-        service = new SeatLockService(jdbc);
+        lockStore = mock(SeatLockStore.class);
+        when(lockStore.sharedWithSql()).thenReturn(true);
+        service = new SeatLockService(jdbc, lockStore);
     }
 
     // =====================================================================
@@ -43,6 +49,65 @@ class SeatLockServiceTest {
         verify(jdbc, times(3)).update(anyString());
     }
 
+    @Test
+    @DisplayName("cleanupExpiredLocks() – lock-store นอก seat_locks → ยกเลิกใบจองของที่นั่งที่ store บอกว่าหมดเวลา")
+    void testCleanupExpiredLocks_externalStore() {
+        when(lockStore.sharedWithSql()).thenReturn(false);
+        when(lockStore.expire()).thenReturn(List.of(10L, 11L));
+        when(jdbc.update(any(PreparedStatementCreator.class))).thenReturn(1);
+
+        service.cleanupExpiredLocks();
+
+        verify(lockStore).expire();
+        verify(jdbc).update(any(PreparedStatementCreator.class));
+        verify(jdbc, times(3)).update(anyString());
+    }
+
+    @Test
+    @DisplayName("cleanupExpiredLocks() – หลาย replica : SQL ผ่าน coordinator (แบ่ง shard) แต่ store ใน memory expire ทุก node")
+    void testCleanupExpiredLocks_coordinatedShards() {
+        ClusterJobCoordinator jobs = mock(ClusterJobCoordinator.class);
+        SeatLockService sharded = new SeatLockService(jdbc, lockStore, jobs, 4, false);
+        when(lockStore.sharedWithSql()).thenReturn(false);
+        when(lockStore.expire()).thenReturn(List.of());
+
+        sharded.cleanupExpiredLocks();
+
+        verify(lockStore).expire();
+        verify(jobs).runSharded(eq(SeatLockService.CLEANUP_JOB), eq(4), any(), any(), any());
+        verify(jdbc, never()).update(anyString());
+
+        sharded.cleanupShard(2);
+
+        verify(jdbc).update(contains("seat_id % 4 = 2"));
+        verify(jdbc, times(2)).update(contains("reserved_id % 4 = 2"));
+    }
+
+    @Test
+    @DisplayName("rebuildLockStore() – เติม lock จาก reserved_seats / error ไม่ทำให้ start พัง")
+    void testRebuildLockStore() {
+        when(lockStore.rebuild(5)).thenReturn(2).thenThrow(new RuntimeException("DB down"));
+
+        service.rebuildLockStore();
+        service.rebuildLockStore();
+
+        verify(lockStore, times(2)).rebuild(5);
+    }
+
+    @Test
+    @DisplayName("rebuildLockStore() – ownership เปิด : ไม่เติมทุกอีเวนต์ตอน start ; ได้/เสียอีเวนต์ → เติม/ทิ้งเฉพาะอีเวนต์นั้น")
+    void testRebuildLockStore_ownedEventsOnly() {
+        SeatLockService owned = new SeatLockService(jdbc, lockStore, ClusterJobCoordinator.uncoordinated(), 1, true);
+
+        owned.rebuildLockStore();
+        owned.rebuildLockStore(Set.of(3L));
+        owned.dropLockStore(Set.of(4L));
+
+        verify(lockStore, never()).rebuild(anyInt());
+        verify(lockStore).rebuild(5, Set.of(3L));
+        verify(lockStore).drop(Set.of(4L));
+    }
+
     @Test
     @DisplayName("cleanupExpiredLocks() – exception should not crash service")
     void testCleanupExpiredLocks_exception() {
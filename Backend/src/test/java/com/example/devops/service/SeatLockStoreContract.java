@@ -0,0 +1,102 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ชุดทดสอบ semantics ของ SeatLockStore ที่ทุก implementation ต้องผ่าน
+ * (InMemorySeatLockStoreTest, JdbcSeatLockStoreTest.Table / .Unlogged)
+ */
+abstract class SeatLockStoreContract {
+
+    abstract SeatLockStore store();
+
+    /** seat_id ที่ใช้ได้อย่างน้อย 3 ที่ ของ eventId() */
+    abstract List<Long> seats();
+
+    abstract Long eventId();
+
+    abstract Long userA();
+
+    abstract Long userB();
+
+    private static Instant later() {
+        return Instant.now().plusSeconds(300);
+    }
+
+    private static Instant past() {
+        return Instant.now().minusSeconds(5);
+    }
+
+    @Test
+    void locksFreeSeats() {
+        List<Long> s = seats().subList(0, 2);
+
+        assertThat(store().lock(eventId(), userA(), s, later())).containsExactlyElementsOf(s);
+        assertThat(store().lockedSeatIds(eventId())).containsAll(s);
+    }
+
+    @Test
+    void skipsSeatsHeldByAnotherUser() {
+        Long a = seats().get(0), b = seats().get(1);
+        store().lock(eventId(), userA(), List.of(a), later());
+
+        assertThat(store().lock(eventId(), userB(), List.of(a, b), later())).containsExactly(b);
+        assertThat(store().lockedBy(List.of(a, b)))
+                .containsEntry(a, "USER_" + userA())
+                .containsEntry(b, "USER_" + userB());
+    }
+
+    @Test
+    void sameUserCanExtendOwnHold() {
+        Long a = seats().get(0);
+        store().lock(eventId(), userA(), List.of(a), later());
+
+        assertThat(store().lock(eventId(), userA(), List.of(a), later().plusSeconds(60))).containsExactly(a);
+    }
+
+    @Test
+    void expiredHoldCanBeTakenOver() {
+        Long a = seats().get(0);
+        store().lock(eventId(), userA(), List.of(a), past());
+
+        assertThat(store().lockedSeatIds(eventId())).doesNotContain(a);
+        assertThat(store().lock(eventId(), userB(), List.of(a), later())).containsExactly(a);
+    }
+
+    @Test
+    void unlockOnlyReleasesOwnHolds() {
+        Long a = seats().get(0), b = seats().get(1);
+        store().lock(eventId(), userA(), List.of(a), later());
+        store().lock(eventId(), userB(), List.of(b), later());
+
+        assertThat(store().unlock(userA(), List.of(a, b))).isEqualTo(1);
+        assertThat(store().lockedBy(List.of(a, b))).containsOnlyKeys(b);
+    }
+
+    @Test
+    void guestHoldsUseNullUser() {
+        Long a = seats().get(0);
+
+        assertThat(store().lock(eventId(), null, List.of(a), later())).containsExactly(a);
+        assertThat(store().lockedBy(List.of(a))).containsEntry(a, "SYSTEM");
+        assertThat(store().lock(eventId(), userA(), List.of(a), later())).isEmpty();
+        assertThat(store().unlock(null, List.of(a))).isEqualTo(1);
+        assertThat(store().lockedBy(List.of(a))).isEmpty();
+    }
+
+    @Test
+    void expireReportsEachExpiredSeatOnce() {
+        Long a = seats().get(0), b = seats().get(1);
+        store().lock(eventId(), userA(), List.of(a), past());
+        store().lock(eventId(), userA(), List.of(b), later());
+
+        assertThat(store().expire()).contains(a).doesNotContain(b);
+        assertThat(store().expire()).doesNotContain(a);
+        assertThat(store().lockedSeatIds(eventId())).containsExactly(b);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+class SequencedSeatLockStoreTest extends SeatLockStoreContract {
+
+    @TempDir
+    Path dir;
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private SequencedSeatLockStore store;
+
+    private SequencedSeatLockStore open(int segmentBytes) {
+        SequencedSeatLockStore s = new SequencedSeatLockStore(jdbc, new SeatJournal(dir, segmentBytes, 1));
+        s.rebuild(5);
+        return s;
+    }
+
+    @Override
+    SeatLockStore store() {
+        if (store == null) store = open(1 << 16);
+        return store;
+    }
+
+    @Override
+    List<Long> seats() { return List.of(100L, 101L, 102L); }
+
+    @Override
+    Long eventId() { return 1L; }
+
+    @Override
+    Long userA() { return 7L; }
+
+    @Override
+    Long userB() { return 8L; }
+
+    @AfterEach
+    void close() {
+        if (store != null) store.close();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void groupCommitWithoutIntervalMakesConcurrentCommandsDurable() throws Exception {
+        try (SeatJournal journal = new SeatJournal(dir.resolve("gc"), 1 << 16, 0)) {
+            SequencedSeatLockStore s = new SequencedSeatLockStore(jdbc, journal);
+            Instant later = Instant.now().plusSeconds(300);
+            List<Thread> buyers = new ArrayList<>();
+            for (long u = 1; u <= 16; u++) {
+                long user = u;
+                Thread t = new Thread(() -> s.lock(1L, user, List.of(1000L + user), later));
+                t.start();
+                buyers.add(t);
+            }
+            for (Thread t : buyers) t.join(5_000);
+
+            assertThat(s.lockedSeatIds(1L)).hasSize(16);
+            long appended = journal.appendedBytes();
+            journal.awaitDurable(appended); // flusher force ทันทีที่มีของค้าง ไม่ค้างรอ interval
+        }
+        try (SeatJournal reopened = new SeatJournal(dir.resolve("gc"), 1 << 16, 0)) {
+            assertThat(reopened.entries()).hasSize(16);
+        }
+    }
+
+    @Test
+    void restartReplaysJournal() {
+        Instant later = Instant.now().plusSeconds(300);
+        store().lock(1L, 7L, List.of(100L, 101L), later);
+        store().lock(2L, null, List.of(200L), later);
+        store().unlock(7L, List.of(101L));
+        store.close();
+
+        store = open(1 << 16);
+
+        assertThat(store.lockedSeatIds(1L)).containsExactly(100L);
+        assertThat(store.lockedBy(List.of(100L, 200L)))
+                .containsEntry(100L, "USER_7")
+                .containsEntry(200L, "SYSTEM");
+        assertThat(store.lock(1L, 8L, List.of(100L, 101L), later)).containsExactly(101L);
+    }
+
+    @Test
+    void acquiringAnEventReloadsItFromTheDatabaseEvenWhenTheJournalHasIt() throws Exception {
+        Instant later = Instant.now().plusSeconds(300);
+        store().lock(1L, 7L, List.of(100L), later);   // journal เก่าจากรอบที่เคยเป็นเจ้าของ
+        store().lock(2L, 7L, List.of(200L), later);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("seat_id")).thenReturn(101L);
+        when(rs.getLong("event_id")).thenReturn(1L);
+        when(rs.getLong("user_id")).thenReturn(8L);
+        when(rs.getTimestamp("expires_at")).thenReturn(Timestamp.from(later));
+        doAnswer(inv -> {
+            inv.<RowCallbackHandler>getArgument(2).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("r.event_id = ANY (?)"), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+        assertThat(store.rebuild(5, List.of(1L))).isEqualTo(1);
+
+        assertThat(store.lockedBy(List.of(100L, 101L, 200L)))
+                .containsOnlyKeys(101L, 200L)
+                .containsEntry(101L, "USER_8");
+        store.close();
+        store = open(1 << 16);
+        assertThat(store.lockedSeatIds(1L)).containsExactly(101L);
+    }
+
+    @Test
+    void compactionKeepsStateAcrossRestart() {
+        Instant later = Instant.now().plusSeconds(300);
+        // segment เล็ก (64 records) → compact หลายรอบ
+        store = open(SeatJournal.RECORD_BYTES * 64);
+        for (int round = 0; round < 20; round++) {
+            for (long seat = 100; seat < 110; seat++) {
+                store.lock(1L, 7L, List.of(seat), later);
+                if (seat % 2 == 0) store.unlock(7L, List.of(seat));
+            }
+        }
+        store.close();
+
+        store = open(SeatJournal.RECORD_BYTES * 64);
+
+        assertThat(store.lockedSeatIds(1L)).containsExactlyInAnyOrder(101L, 103L, 105L, 107L, 109L);
+    }
+
+    @Test
+    void rollbackRestoresPreviousHolder() {
+        Instant later = Instant.now().plusSeconds(300);
+        store().lock(1L, 7L, List.of(100L), later);
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(store().lock(1L, 7L, List.of(100L, 101L), later.plusSeconds(60))).containsExactly(100L, 101L);
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        syncs.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(store().lockedSeatIds(1L)).containsExactly(100L);
+    }
+}
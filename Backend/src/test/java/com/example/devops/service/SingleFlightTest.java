@@ -0,0 +1,124 @@
+package com.example.devops.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight flights = new SingleFlight();
+
+    @Test
+    void concurrentCallersWithTheSameKeyShareOneComputation() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> flights.run("event", 7L, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return "seat-map";
+                })));
+            }
+            // รอให้ทุก caller เข้ามาต่อคิวที่ flight เดียวกันก่อนปล่อย leader
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (flights.ratio("event") < 7.0 / 8 && System.nanoTime() < deadline) Thread.sleep(5);
+            release.countDown();
+
+            for (Future<String> f : results) assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("seat-map");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(flights.inFlight()).isZero();
+    }
+
+    @Test
+    void completedFlightIsNotCachedAndKeysAreIndependent() {
+        AtomicInteger runs = new AtomicInteger();
+
+        flights.run("event", 1L, runs::incrementAndGet);
+        flights.run("event", 1L, runs::incrementAndGet);
+        flights.run("event", 2L, runs::incrementAndGet);
+        flights.run("seats", 1L, runs::incrementAndGet);
+
+        assertThat(runs.get()).isEqualTo(4);
+        assertThat(flights.ratio("event")).isZero();
+    }
+
+    @Test
+    void failureReachesTheLeaderAndClearsTheFlight() {
+        assertThatThrownBy(() -> flights.run("event", 1L, () -> {
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("db down");
+
+        assertThat(flights.inFlight()).isZero();
+        assertThat(flights.run("event", 1L, () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void followerReceivesTheLeadersException() throws Exception {
+        CountDownLatch leaderIn = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> {
+            try {
+                flights.run("event", 1L, () -> {
+                    leaderIn.countDown();
+                    await(release);
+                    throw new IllegalStateException("db down");
+                });
+            } catch (IllegalStateException ignore) {
+            }
+        });
+        leader.start();
+        assertThat(leaderIn.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> follower = pool.submit(() -> flights.run("event", 1L, () -> "not run"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (flights.ratio("event") == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            release.countDown();
+
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("db down");
+        } finally {
+            pool.shutdownNow();
+            leader.join(5000);
+        }
+    }
+
+    @Test
+    void exposesCoalescingRatioPerName() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        flights.run("event", 1L, () -> 1);
+        flights.bindTo(registry);
+        flights.run("seats", 1L, () -> 1);
+
+        assertThat(registry.get("singleflight.calls").tag("name", "event").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("singleflight.calls").tag("name", "seats").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("singleflight.coalescing.ratio").tag("name", "seats").gauge().value()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
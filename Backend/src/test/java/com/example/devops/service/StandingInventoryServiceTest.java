@@ -0,0 +1,159 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StandingInventoryServiceTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    /** โซนยืน 9 ของอีเวนต์ 1 : ความจุ capacity, จองไว้แล้ว held (ตามที่ reconcile อ่านจาก reserved) */
+    @SuppressWarnings("unchecked")
+    private StandingInventoryService newService(int capacity, int held) {
+        when(jdbc.query(anyString(), any(RowMapper.class)))
+                .thenReturn(new ArrayList<>(List.<long[]>of(new long[]{9L, 1L, capacity, held})));
+        StandingInventoryService svc = new StandingInventoryService(jdbc, 5);
+        svc.reconcile();
+        return svc;
+    }
+
+    @Test
+    void reconcileRestoresHeldFromReservationsAndWritesInventory() {
+        StandingInventoryService svc = newService(100, 40);
+
+        assertThat(svc.available(9L)).isEqualTo(60);
+        verify(jdbc).batchUpdate(contains("standing_zone_inventory"),
+                argThat((List<Object[]> args) -> args.size() == 1 && Integer.valueOf(40).equals(args.get(0)[3])));
+        assertThat(svc.flush()).isZero(); // ไม่มีอะไรเปลี่ยนตั้งแต่ flush ล่าสุด
+    }
+
+    @Test
+    void holdsNeverExceedCapacity() {
+        StandingInventoryService svc = newService(10, 7);
+
+        assertThat(svc.tryHold(1L, 9L, 3)).isTrue();
+        assertThat(svc.tryHold(1L, 9L, 1)).isFalse();
+        svc.release(9L, 2);
+        assertThat(svc.tryHold(1L, 9L, 2)).isTrue();
+        assertThat(svc.available(9L)).isZero();
+        assertThat(svc.flush()).isEqualTo(1);
+    }
+
+    @Test
+    void wrongEventOrUnknownZoneIsRejected() {
+        StandingInventoryService svc = newService(10, 0);
+
+        assertThatThrownBy(() -> svc.tryHold(2L, 9L, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> svc.tryHold(1L, 99L, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rolledBackHoldIsReturned() {
+        StandingInventoryService svc = newService(5, 0);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(svc.tryHold(1L, 9L, 5)).isTrue();
+            assertThat(svc.available(9L)).isZero();
+            for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+                s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(svc.available(9L)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentBuyersSellExactlyCapacity() throws Exception {
+        StandingInventoryService svc = newService(30_000, 0);
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 5_000; i++) {
+                    if (svc.tryHold(1L, 9L, 1)) granted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted.get()).isEqualTo(30_000); // 80,000 ครั้ง ขายได้พอดีความจุ
+        assertThat(svc.available(9L)).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiredHoldsGoBackToTheZone() {
+        StandingInventoryService svc = newService(10, 10);
+        when(jdbc.query(contains("UPDATE reserved"), any(RowMapper.class), eq(5)))
+                .thenReturn(List.<long[]>of(new long[]{9L, 4L}));
+
+        assertThat(svc.expireHolds()).isEqualTo(1);
+        assertThat(svc.available(9L)).isEqualTo(4);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcilingNewlyOwnedEventsLeavesOtherEventsCountersAlone() {
+        StandingInventoryService svc = newService(10, 0);
+        assertThat(svc.tryHold(1L, 9L, 4)).isTrue(); // อีเวนต์ 1 กำลังขายอยู่
+        when(jdbc.query(contains("z.event_id = ?"), any(RowMapper.class), eq(2L)))
+                .thenReturn(List.<long[]>of(new long[]{20L, 2L, 50L, 5L}));
+
+        svc.reconcile(Set.of(2L));
+
+        assertThat(svc.available(9L)).isEqualTo(6);  // hold ที่เพิ่งขายไม่หาย
+        assertThat(svc.available(20L)).isEqualTo(45);
+        verify(jdbc, never()).query(contains("z.event_id = ?"), any(RowMapper.class), eq(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void expiryRunsOnlyForZonesOfEventsThisNodeOwns() {
+        EventOwnershipService owner = mock(EventOwnershipService.class);
+        ObjectProvider<EventOwnershipService> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(owner);
+        when(owner.isEnabled()).thenReturn(true);
+        when(owner.owns(1L)).thenReturn(false);
+        when(jdbc.query(anyString(), any(RowMapper.class)))
+                .thenReturn(new ArrayList<>(List.<long[]>of(new long[]{9L, 1L, 10L, 10L})));
+        StandingInventoryService svc = new StandingInventoryService(jdbc, 5, provider);
+        svc.reconcile();
+
+        assertThat(svc.expireHolds()).isZero();
+        verify(jdbc, never()).query(contains("UPDATE reserved"), any(RowMapper.class), anyInt());
+        verify(jdbc, never()).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+
+        when(owner.owns(1L)).thenReturn(true);
+        when(jdbc.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.<long[]>of(new long[]{9L, 3L}));
+
+        assertThat(svc.expireHolds()).isEqualTo(1);
+        assertThat(svc.available(9L)).isEqualTo(3);
+    }
+}
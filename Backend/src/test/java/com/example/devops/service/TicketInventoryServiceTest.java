@@ -0,0 +1,147 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TicketInventoryServiceTest {
+
+    private static final String TAKE = "remaining - ?";
+    private static final String GIVE = "remaining + ?";
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final TicketInventoryService svc = new TicketInventoryService(jdbc, 4, 3);
+
+    @Test
+    void takeStopsAtFirstShardWithEnoughLeft() {
+        when(jdbc.update(contains(TAKE), eq(2), eq(2), eq(7L), anyInt(), eq(2))).thenReturn(0, 1);
+
+        assertThat(svc.take(7L, 2)).isTrue();
+
+        verify(jdbc, times(2)).update(contains(TAKE), eq(2), eq(2), eq(7L), anyInt(), eq(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void takeSpansShardsWhenNoSingleShardIsEnough() {
+        // ทุก shard มีไม่ถึง 3 แต่ shard 1 + shard 3 รวมกันพอ
+        when(jdbc.update(contains(TAKE), eq(3), eq(3), eq(7L), anyInt(), eq(3))).thenReturn(0);
+        when(jdbc.query(contains("ORDER BY shard"), any(RowMapper.class), eq(7L)))
+                .thenReturn(List.of(new int[]{1, 2}, new int[]{3, 2}));
+        when(jdbc.update(contains(TAKE), eq(2), eq(2), eq(7L), eq(1), eq(2))).thenReturn(1);
+        when(jdbc.update(contains(TAKE), eq(1), eq(1), eq(7L), eq(3), eq(1))).thenReturn(1);
+
+        assertThat(svc.take(7L, 3)).isTrue();
+        verify(jdbc, never()).update(contains(GIVE), anyInt(), anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void takeFailsWithoutLeavingPartialDecrements() {
+        when(jdbc.update(contains(TAKE), eq(3), eq(3), eq(7L), anyInt(), eq(3))).thenReturn(0);
+        when(jdbc.query(contains("ORDER BY shard"), any(RowMapper.class), eq(7L)))
+                .thenReturn(List.of(new int[]{1, 2}, new int[]{3, 2}));
+        // shard 1 ได้ แต่ shard 3 ถูกคนอื่นตัดไปก่อนทุกรอบ
+        when(jdbc.update(contains(TAKE), eq(2), eq(2), eq(7L), eq(1), eq(2))).thenReturn(1);
+        when(jdbc.update(contains(TAKE), eq(1), eq(1), eq(7L), eq(3), eq(1))).thenReturn(0);
+
+        assertThat(svc.take(7L, 3)).isFalse();
+        verify(jdbc, times(3)).update(contains(GIVE), eq(2), eq(2), eq(7L), eq(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void soldOutWhenShardsSumBelowRequest() {
+        when(jdbc.query(contains("ORDER BY shard"), any(RowMapper.class), eq(7L)))
+                .thenReturn(List.of(new int[]{0, 1}));
+
+        assertThat(svc.take(7L, 2)).isFalse();
+    }
+
+    @Test
+    void shardsAreCreatedOnceOutsideTransactions() {
+        when(jdbc.update(contains(TAKE), anyInt(), anyInt(), anyLong(), anyInt(), anyInt())).thenReturn(1);
+
+        svc.take(7L, 1);
+        svc.take(7L, 1);
+
+        verify(jdbc, times(1)).update(contains("INSERT INTO ticket_type_counter_shards"), eq(4), eq(4), eq(4), eq(7L));
+    }
+
+    @Test
+    void recordSaleRejectsSoldOutTicketType() {
+        TicketInventoryService spy = spy(svc);
+        when(jdbc.update(contains("DELETE FROM reserved_ticket_holds"), eq(5L))).thenReturn(0);
+        doReturn(Map.of(11L, 2)).when(spy).ticketCounts(5L);
+        doReturn(false).when(spy).take(11L, 2);
+
+        assertThatThrownBy(() -> spy.recordSale(5L))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SOLD_OUT");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdTakesTypesInIdOrderAndRecordsThem() {
+        TicketInventoryService spy = spy(svc);
+        Map<Long, Integer> counts = new TreeMap<>(Map.of(12L, 1, 11L, 2));
+        doReturn(counts).when(spy).ticketCounts(5L);
+        doReturn(true).when(spy).take(anyLong(), anyInt());
+
+        spy.hold(5L);
+
+        InOrder order = inOrder(spy);
+        order.verify(spy).take(11L, 2);
+        order.verify(spy).take(12L, 1);
+        verify(jdbc).batchUpdate(contains("INSERT INTO reserved_ticket_holds"), anyList());
+    }
+
+    @Test
+    void tryHoldGivesBackPartialTakesWhenALaterTypeIsSoldOut() {
+        TicketInventoryService spy = spy(svc);
+        doReturn(new TreeMap<>(Map.of(11L, 2, 12L, 1))).when(spy).ticketCounts(5L);
+        doReturn(true).when(spy).take(11L, 2);
+        doReturn(false).when(spy).take(12L, 1);
+        doNothing().when(spy).giveBack(anyLong(), anyInt());
+
+        assertThat(spy.tryHold(5L)).isFalse();
+
+        verify(spy).giveBack(11L, 2);
+        verify(jdbc, never()).batchUpdate(contains("reserved_ticket_holds"), anyList());
+    }
+
+    @Test
+    void recordSaleConsumesTheHoldWithoutTakingAgain() {
+        TicketInventoryService spy = spy(svc);
+        when(jdbc.update(contains("DELETE FROM reserved_ticket_holds"), eq(5L))).thenReturn(2);
+
+        spy.recordSale(5L);
+
+        verify(spy, never()).take(anyLong(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void releaseExpiredGivesBackCancelledHoldsPerType() {
+        TicketInventoryService spy = spy(svc);
+        when(jdbc.query(contains("DELETE FROM reserved_ticket_holds h"), any(RowMapper.class)))
+                .thenReturn(List.of(new long[]{12L, 1}, new long[]{11L, 2}, new long[]{12L, 3}));
+        doNothing().when(spy).giveBack(anyLong(), anyInt());
+
+        assertThat(spy.releaseExpired()).isEqualTo(3);
+
+        InOrder order = inOrder(spy);
+        order.verify(spy).giveBack(11L, 2);
+        order.verify(spy).giveBack(12L, 4);
+    }
+}
@@ -12,6 +12,7 @@ import java.time.Instant;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class TicketSetupServiceTest {
@@ -84,6 +85,14 @@ class TicketSetupServiceTest {
         assertThat(result.get("seatRows")).isEqualTo(1);
         assertThat(result.get("seatColumns")).isEqualTo(3);
     }
+
+    @Test
+    void testGetSetup_databaseErrorPropagates() {
+        when(zoneRepo.findByEventIdOrderBySortOrderAsc(100L))
+                .thenThrow(new RuntimeException("Connection is not available"));
+
+        assertThatThrownBy(() -> service.getSetup(100L)).hasMessageContaining("Connection");
+    }
     // ====================================================================================
     // getSeatGrid()
     // ====================================================================================
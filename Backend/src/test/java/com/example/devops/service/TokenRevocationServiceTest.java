@@ -0,0 +1,126 @@
+package com.example.devops.service;
+
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.security.RevokedTokenSet;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTest {
+
+    private final String secret =
+            "1234567890123456789012345678901234567890123456789012345678901234";
+
+    private JdbcTemplate jdbc;
+    private RevokedTokenSet revoked;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setup() {
+        jdbc = mock(JdbcTemplate.class);
+        revoked = new RevokedTokenSet(1000, 0.01);
+        service = new TokenRevocationService(jdbc, new JwtVerifier(secret, 0, 1000, 900), revoked, 0);
+    }
+
+    private String token(String jti, Long uid, String acct) {
+        var b = Jwts.builder()
+                .setSubject("alice")
+                .claim("role", "USER")
+                .claim("uid", uid)
+                .claim("acct", acct)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        if (jti != null) b.setId(jti);
+        return b.signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    @Test
+    void revoke_marksSessionInactiveAndAddsJtiToSet() {
+        when(jdbc.update(contains("UPDATE user_sessions"), eq("jti-1"))).thenReturn(1);
+
+        boolean ok = service.revoke(token("jti-1", 5L, "USER"));
+
+        assertThat(ok).isTrue();
+        assertThat(revoked.isRevoked("jti-1")).isTrue();
+        verify(jdbc).update(contains("UPDATE user_sessions"), eq("jti-1"));
+        verify(jdbc, never()).update(contains("revoked_tokens"), any(), any());
+    }
+
+    @Test
+    void revoke_withoutSessionRow_persistsJtiForOtherInstances() {
+        when(jdbc.update(contains("UPDATE user_sessions"), eq("jti-3"))).thenReturn(0);
+
+        boolean ok = service.revoke(token("jti-3", 5L, "USER"));
+
+        assertThat(ok).isTrue();
+        assertThat(revoked.isRevoked("jti-3")).isTrue();
+        verify(jdbc).update(contains("INSERT INTO revoked_tokens"), eq("jti-3"), any(Timestamp.class));
+    }
+
+    @Test
+    void sync_advancesCursorFromDatabaseRevokedAt() throws Exception {
+        Timestamp dbTime = Timestamp.valueOf("2026-10-19 10:00:00");
+        Timestamp exp = new Timestamp(System.currentTimeMillis() + 60_000);
+        doAnswer(inv -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("jti")).thenReturn("x");
+            when(rs.getTimestamp("expires_at")).thenReturn(exp);
+            when(rs.getTimestamp("revoked_at")).thenReturn(dbTime);
+            inv.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbc).query(contains("revoked_at >="), any(RowCallbackHandler.class), eq(new Timestamp(0)));
+
+        service.sync();
+        service.sync();
+
+        assertThat(revoked.isRevoked("x")).isTrue();
+        // รอบสองใช้ revoked_at ล่าสุดจาก DB เป็น cursor (ไม่ใช่นาฬิกาของ instance)
+        verify(jdbc).query(contains("revoked_tokens"), any(RowCallbackHandler.class), eq(dbTime));
+    }
+
+    @Test
+    void revoke_legacyTokenWithoutJti_isNoop() {
+        boolean ok = service.revoke(token(null, 5L, "USER"));
+
+        assertThat(ok).isFalse();
+        assertThat(revoked.size()).isZero();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void recordSession_insertsIntoOrganizerSessions() {
+        service.recordSession(token("jti-2", 9L, "ORGANIZER"), "10.0.0.1", "ua");
+
+        verify(jdbc).update(contains("INSERT INTO organizer_sessions (session_id, organizer_id"),
+                eq("jti-2"), eq(9L), any(Timestamp.class), eq("10.0.0.1"), eq("ua"));
+    }
+
+    @Test
+    void revokeAllFor_revokesEveryActiveSession() {
+        when(jdbc.queryForList(contains("FROM user_sessions"), eq(5L))).thenReturn(List.of(
+                Map.of("session_id", "a", "expires_at", new Timestamp(System.currentTimeMillis() + 60_000)),
+                Map.of("session_id", "b", "expires_at", new Timestamp(System.currentTimeMillis() + 60_000))));
+
+        int n = service.revokeAllFor("USER", 5L);
+
+        assertThat(n).isEqualTo(2);
+        assertThat(revoked.isRevoked("a")).isTrue();
+        assertThat(revoked.isRevoked("b")).isTrue();
+        verify(jdbc).update(contains("UPDATE user_sessions"), eq(5L));
+    }
+}
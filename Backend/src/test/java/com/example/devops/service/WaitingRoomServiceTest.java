@@ -0,0 +1,133 @@
+package com.example.devops.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class WaitingRoomServiceTest {
+
+    private static final WaitingRoomService.Holder ALICE = new WaitingRoomService.Holder("alice", "10.0.0.1");
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    private WaitingRoomService newService(double minRate, double maxRate) {
+        return new WaitingRoomService(jdbc, true, "memory", "test-secret-test-secret-test-secret!",
+                minRate, maxRate, 1.0, 120);
+    }
+
+    private static void elapse(WaitingRoomService.Room room, double seconds) {
+        room.lastTickNanos -= (long) (seconds * 1e9);
+    }
+
+    @Test
+    void joinIssuesIncreasingPositionsWithSignedTokens() {
+        WaitingRoomService svc = newService(10, 100);
+
+        WaitingRoomService.Pass a = svc.join(1L, ALICE);
+        WaitingRoomService.Pass b = svc.join(1L, ALICE);
+
+        assertThat(a.position()).isEqualTo(1);
+        assertThat(b.position()).isEqualTo(2);
+        assertThat(a.admitted()).isFalse();
+        assertThat(svc.status(1L, b.token(), ALICE).position()).isEqualTo(2);
+        assertThat(svc.status(1L, b.token(), ALICE).aheadOfYou()).isEqualTo(1);
+        verifyNoInteractions(jdbc); // memory mode ไม่แตะ DB
+    }
+
+    @Test
+    void tamperedOrForeignTokensAreInvalid() {
+        WaitingRoomService svc = newService(10, 100);
+        String token = svc.join(1L, ALICE).token();
+
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + ".0." + parts[3] + "." + parts[4];
+
+        assertThat(svc.status(1L, forged, ALICE).valid()).isFalse();
+        assertThat(svc.status(2L, token, ALICE).valid()).isFalse();
+        assertThat(svc.status(1L, null, ALICE).valid()).isFalse();
+        assertThat(svc.status(1L, "garbage", ALICE).valid()).isFalse();
+
+        WaitingRoomService other = new WaitingRoomService(jdbc, true, "memory", "another-secret-another-secret-another",
+                10, 100, 1.0, 120);
+        assertThat(other.status(1L, token, ALICE).valid()).isFalse();
+    }
+
+    @Test
+    void tokenIsBoundToItsHolder() {
+        WaitingRoomService svc = newService(10, 100);
+        String loggedIn = svc.join(1L, ALICE).token();
+        String anonymous = svc.join(1L, new WaitingRoomService.Holder(null, "10.0.0.1")).token();
+
+        // token ที่แจกให้คนอื่น / บอทเอาไปใช้ต่อไม่ได้
+        assertThat(svc.status(1L, loggedIn, new WaitingRoomService.Holder("mallory", "10.0.0.1")).valid()).isFalse();
+        assertThat(svc.status(1L, loggedIn, new WaitingRoomService.Holder(null, "10.0.0.1")).valid()).isFalse();
+        assertThat(svc.status(1L, anonymous, new WaitingRoomService.Holder(null, "10.6.6.6")).valid()).isFalse();
+
+        // join ตอนยังไม่ login แล้ว login ทีหลังจาก IP เดิม → ยังใช้ได้
+        assertThat(svc.status(1L, anonymous, ALICE).valid()).isTrue();
+        // login แล้วเปลี่ยน IP (มือถือ) → ยังเป็นคนเดิม
+        assertThat(svc.status(1L, loggedIn, new WaitingRoomService.Holder("alice", "10.9.9.9")).valid()).isTrue();
+    }
+
+    @Test
+    void tickAdmitsAtMeteredRateInOrder() {
+        WaitingRoomService svc = newService(2, 100);
+        WaitingRoomService.Pass first = null;
+        WaitingRoomService.Pass last = null;
+        for (int i = 0; i < 10; i++) {
+            WaitingRoomService.Pass p = svc.join(1L, ALICE);
+            if (first == null) first = p;
+            last = p;
+        }
+        WaitingRoomService.Room room = svc.room(1L);
+
+        elapse(room, 1.0);
+        svc.tickMemory(room);
+
+        assertThat(room.admittedUpTo).isEqualTo(2);
+        assertThat(svc.admission(1L, first.token(), ALICE).admitted()).isTrue();
+        WaitingRoomService.Pass waiting = svc.admission(1L, last.token(), ALICE);
+        assertThat(waiting.admitted()).isFalse();
+        assertThat(waiting.estimatedWaitSeconds()).isEqualTo(4); // 8 คิว / 2 ต่อวินาที
+    }
+
+    @Test
+    void admissionRateFollowsMeasuredReservationThroughput() {
+        WaitingRoomService svc = newService(1, 100);
+        for (int i = 0; i < 200; i++) svc.join(1L, ALICE);
+        WaitingRoomService.Room room = svc.room(1L);
+
+        // 50 การจองสำเร็จในหนึ่งวินาที (มาทาง outbox)
+        OutboxEvent created = new OutboxEvent(1L, OutboxPublisher.AGGREGATE_RESERVATION, 10L,
+                OutboxPublisher.RESERVATION_CREATED, Map.of("eventId", 1), Instant.now(), 0);
+        assertThat(svc.supports(OutboxPublisher.RESERVATION_CREATED)).isTrue();
+        for (int i = 0; i < 50; i++) svc.handle(created);
+
+        elapse(room, 1.0);
+        svc.tickMemory(room);
+
+        assertThat(svc.rate(room)).isGreaterThan(1.0);
+        assertThat(room.admittedUpTo).isGreaterThan(1);
+        assertThat(room.admittedUpTo).isLessThanOrEqualTo(200);
+    }
+
+    @Test
+    void idleRoomDoesNotBankUnboundedCredit() {
+        WaitingRoomService svc = newService(5, 100);
+        WaitingRoomService.Room room = svc.room(1L);
+
+        elapse(room, 60);
+        svc.tickMemory(room);          // ไม่มีคนรอ 60 วินาที
+        for (int i = 0; i < 100; i++) svc.join(1L, ALICE);
+        elapse(room, 0.001);
+        svc.tickMemory(room);
+
+        assertThat(room.admittedUpTo).isLessThanOrEqualTo(5);
+    }
+}
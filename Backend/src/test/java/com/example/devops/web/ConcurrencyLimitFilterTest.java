@@ -0,0 +1,123 @@
+package com.example.devops.web;
+
+import com.example.devops.config.Workload;
+import com.example.devops.config.WorkloadClass;
+import com.example.devops.service.ConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ConcurrencyLimiter limiter = mock(ConcurrencyLimiter.class);
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter);
+
+    @Test
+    void groupsByPath() {
+        assertThat(ConcurrencyLimitFilter.groupOf("/api/public/reservations/zone")).isEqualTo(WorkloadClass.PURCHASE);
+        assertThat(ConcurrencyLimitFilter.groupOf("/api/public/reservations/7/pay")).isEqualTo(WorkloadClass.PURCHASE);
+        assertThat(ConcurrencyLimitFilter.groupOf("/api/organizer/events/1/dashboard")).isEqualTo(WorkloadClass.BACK_OFFICE);
+        assertThat(ConcurrencyLimitFilter.groupOf("/api/admin/users")).isEqualTo(WorkloadClass.BACK_OFFICE);
+        assertThat(ConcurrencyLimitFilter.groupOf("/api/public/events")).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @Test
+    void overLimitRequestIsShedWithRetryAfter() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(limiter.tryAcquire(WorkloadClass.PUBLIC_READ)).thenReturn(false);
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/public/events"), res, chain);
+
+        assertThat(res.getStatus()).isEqualTo(503);
+        assertThat(res.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(res.getContentAsString()).contains("OVERLOADED");
+        verifyNoInteractions(chain);
+        verify(limiter, never()).release(any(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void admittedRequestReportsLatencyAndServerErrors() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(limiter.tryAcquire(WorkloadClass.PURCHASE)).thenReturn(true);
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/public/reservations"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        verify(limiter).release(eq(WorkloadClass.PURCHASE), anyLong(), eq(false));
+
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/public/reservations"), failed,
+                (req, res) -> ((MockHttpServletResponse) res).setStatus(500));
+        verify(limiter).release(eq(WorkloadClass.PURCHASE), anyLong(), eq(true));
+    }
+
+    @Test
+    void deliberateLoadSheddingIsNotADrop() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        when(limiter.tryAcquire(WorkloadClass.PURCHASE)).thenReturn(true);
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/public/reservations"), new MockHttpServletResponse(),
+                (req, res) -> ((MockHttpServletResponse) res).setStatus(503));
+        verify(limiter).release(eq(WorkloadClass.PURCHASE), anyLong(), eq(false));
+
+        assertThat(ConcurrencyLimitFilter.isDrop(504)).isTrue();
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("POST", "/api/public/reservations"),
+                new MockHttpServletResponse(), (req, res) -> { throw new IllegalStateException("boom"); }))
+                .isInstanceOf(IllegalStateException.class);
+        verify(limiter).release(eq(WorkloadClass.PURCHASE), anyLong(), eq(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void groupComesFromTheHandlersWorkloadAnnotation() throws Exception {
+        StaticApplicationContext ctx = new StaticApplicationContext();
+        ctx.registerSingleton("paymentPublicController", PaymentStatusController.class);
+        RequestMappingHandlerMapping mapping = new RequestMappingHandlerMapping();
+        mapping.setApplicationContext(ctx);
+        mapping.afterPropertiesSet();
+        ObjectProvider<HandlerMapping> handlers = mock(ObjectProvider.class);
+        when(handlers.getIfAvailable()).thenReturn(mapping);
+        ConcurrencyLimitFilter annotated = new ConcurrencyLimitFilter(limiter, handlers);
+
+        MockHttpServletRequest status = new MockHttpServletRequest("GET", "/api/public/events/7/seats/status");
+        assertThat(annotated.groupOf(status)).isEqualTo(WorkloadClass.PURCHASE);
+        assertThat(ServletRequestPathUtils.hasParsedRequestPath(status)).isFalse();
+        assertThat(annotated.groupOf(new MockHttpServletRequest("GET", "/api/public/events/7"))).isEqualTo(WorkloadClass.PUBLIC_READ);
+    }
+
+    @RestController
+    @Workload(WorkloadClass.PURCHASE)
+    static class PaymentStatusController {
+        @GetMapping("/api/public/events/{eventId}/seats/status")
+        public String status(@PathVariable Long eventId) {
+            return "ok";
+        }
+    }
+
+    @Test
+    void actuatorAndDisabledLimiterPassThrough() throws Exception {
+        when(limiter.isEnabled()).thenReturn(true);
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(), new MockFilterChain());
+
+        when(limiter.isEnabled()).thenReturn(false);
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/public/events"), new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(limiter, never()).tryAcquire(any());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.devops.web;
+
+import com.example.devops.config.ClientIdentity;
+import com.example.devops.service.EventOwnershipService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class EventOwnerRouterTest {
+
+    private final EventOwnershipService ownership = mock(EventOwnershipService.class);
+    private final EventOwnerRouter router = new EventOwnerRouter(ownership, new ObjectMapper(), new ClientIdentity(1), 1000, 5000);
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/public/reservations/zone");
+
+    private HttpServer owner;
+    private final AtomicReference<String> seenBody = new AtomicReference<>();
+    private final AtomicReference<String> seenAuth = new AtomicReference<>();
+    private final AtomicReference<String> seenForwarded = new AtomicReference<>();
+    private final AtomicReference<String> seenClientIp = new AtomicReference<>();
+    private final AtomicReference<String> seenXff = new AtomicReference<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        when(ownership.isEnabled()).thenReturn(true);
+        when(ownership.nodeId()).thenReturn("node-a");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        owner.createContext("/api/public/reservations/zone", ex -> {
+            seenBody.set(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            seenAuth.set(ex.getRequestHeaders().getFirst("Authorization"));
+            seenForwarded.set(ex.getRequestHeaders().getFirst(EventOwnerRouter.FORWARDED_HEADER));
+            seenClientIp.set(ex.getRequestHeaders().getFirst(ClientIdentity.FORWARDED_CLIENT_IP_HEADER));
+            seenXff.set(ex.getRequestHeaders().getFirst("X-Forwarded-For"));
+            byte[] out = "{\"reservedId\":42}".getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(201, out.length);
+            ex.getResponseBody().write(out);
+            ex.close();
+        });
+        owner.start();
+    }
+
+    @AfterEach
+    void teardown() {
+        owner.stop(0);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private void ownedBy(String baseUrl) {
+        when(ownership.route(7L)).thenReturn(new EventOwnershipService.Route(EventOwnershipService.Kind.REMOTE,
+                new EventOwnershipService.Lease(7L, "node-b", baseUrl, 1, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void localOrDisabledFallsThrough() {
+        when(ownership.route(7L)).thenReturn(new EventOwnershipService.Route(EventOwnershipService.Kind.LOCAL, null));
+        assertThat(router.route(7L, Map.of())).isEmpty();
+
+        when(ownership.isEnabled()).thenReturn(false);
+        assertThat(router.route(7L, Map.of())).isEmpty();
+    }
+
+    @Test
+    void forwardsBodyAndCredentialsToOwner() {
+        ownedBy("http://127.0.0.1:" + owner.getAddress().getPort());
+        request.addHeader("Authorization", "Bearer t");
+
+        Optional<ResponseEntity<?>> r = router.route(7L, Map.of("eventId", 7, "quantity", 2));
+
+        assertThat(r).isPresent();
+        assertThat(r.get().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(new String((byte[]) r.get().getBody(), StandardCharsets.UTF_8)).contains("42");
+        assertThat(seenBody.get()).contains("\"quantity\":2");
+        assertThat(seenAuth.get()).isEqualTo("Bearer t");
+        assertThat(seenForwarded.get()).isEqualTo("node-a");
+    }
+
+    @Test
+    void forwardsResolvedClientIpInsteadOfAppendingOurHop() {
+        ownedBy("http://127.0.0.1:" + owner.getAddress().getPort());
+        request.setRemoteAddr("10.0.0.5");   // ingress
+        request.addHeader("X-Forwarded-For", "203.0.113.9");
+
+        router.route(7L, Map.of()).orElseThrow();
+
+        assertThat(seenClientIp.get()).isEqualTo("203.0.113.9");
+        assertThat(seenXff.get()).isNull();
+    }
+
+    @Test
+    void alreadyForwardedRequestIsNotBouncedAgain() {
+        ownedBy("http://127.0.0.1:" + owner.getAddress().getPort());
+        request.addHeader(EventOwnerRouter.FORWARDED_HEADER, "node-c");
+
+        ResponseEntity<?> r = router.route(7L, Map.of()).orElseThrow();
+
+        assertThat(r.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(seenBody.get()).isNull();
+    }
+
+    @Test
+    void pendingOrUnreachableOwnerAsksClientToRetry() {
+        when(ownership.route(7L)).thenReturn(new EventOwnershipService.Route(EventOwnershipService.Kind.PENDING, null));
+        ResponseEntity<?> pending = router.route(7L, Map.of()).orElseThrow();
+        assertThat(pending.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(pending.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+
+        ownedBy("http://127.0.0.1:1");
+        ResponseEntity<?> down = router.route(7L, Map.of()).orElseThrow();
+        assertThat(down.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(((Map<?, ?>) down.getBody()).get("error")).isEqualTo("EVENT_OWNER_UNAVAILABLE");
+    }
+}
@@ -4,6 +4,7 @@ import com.example.devops.dto.EventCardResponse;
 import com.example.devops.model.EventsNam;
 import com.example.devops.repo.EventsNamRepository;
 import com.example.devops.repo.SeatsRepository;
+import com.example.devops.service.BrownoutService;
 import com.example.devops.service.TicketSetupService;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +14,8 @@ import java.time.Instant;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class PublicEventsControllerTest {
@@ -33,7 +36,7 @@ class PublicEventsControllerTest {
             TicketSetupService ticketService,
             SeatsRepository seatsRepo
     ) {
-        return new PublicEventsController(eventsRepo, ticketService, seatsRepo);
+        return new PublicEventsController(eventsRepo, ticketService, seatsRepo, null, null, null);
     }
 
     // =========================================================
@@ -78,10 +81,75 @@ class PublicEventsControllerTest {
 
         PublicEventsController ctrl = controller(repo, mock(TicketSetupService.class), mock(SeatsRepository.class));
 
-        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(1L);
+        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(1L, null);
         assertThat(resp.getStatusCodeValue()).isEqualTo(404);
     }
 
+    @Test
+    void testGetPublicSeatSetup_databaseDownIsNotAnEmptySeatMap() {
+        EventsNamRepository repo = mock(EventsNamRepository.class);
+        when(repo.findById(2L)).thenThrow(new RuntimeException("Connection is not available, request timed out"));
+
+        PublicEventsController ctrl = controller(repo, mock(TicketSetupService.class), mock(SeatsRepository.class));
+
+        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(2L, null);
+        assertThat(resp.getStatusCodeValue()).isEqualTo(503);
+        assertThat(resp.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        assertThat(((Map<String, Object>) resp.getBody()).get("error")).isEqualTo("SEAT_MAP_UNAVAILABLE");
+    }
+
+    @Test
+    void testGetPublicSeatSetup_brownoutServesFlaggedSnapshot() {
+        BrownoutService brownout = mock(BrownoutService.class);
+        Map<String, Object> snapshot = new LinkedHashMap<>(Map.of("zones", List.of(), "takenSeatIds", List.of(5L)));
+        when(brownout.read(eq("seat-setup:3"), any())).thenReturn(new BrownoutService.Read<>(snapshot, true, 7));
+
+        PublicEventsController ctrl = new PublicEventsController(mock(EventsNamRepository.class),
+                mock(TicketSetupService.class), mock(SeatsRepository.class), null, brownout, null);
+
+        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(3L, null);
+        assertThat(resp.getStatusCodeValue()).isEqualTo(200);
+        assertThat(resp.getHeaders().getFirst("Age")).isEqualTo("7");
+        assertThat(resp.getHeaders().getFirst(BrownoutService.STALE_HEADER)).isEqualTo("true");
+        Map<String, Object> body = (Map<String, Object>) resp.getBody();
+        assertThat(body).containsEntry("stale", true).containsEntry("staleAgeSeconds", 7L);
+        assertThat(body.get("takenSeatIds")).isEqualTo(List.of(5L));
+        assertThat(snapshot).doesNotContainKey("stale");
+    }
+
+    @Test
+    void testGetPublicSeatSetup_setupQueryFailureIsNotAnEmptySeatMap() {
+        EventsNamRepository repo = mock(EventsNamRepository.class);
+        EventsNam e = new EventsNam();
+        setId(e, 5L);
+        when(repo.findById(5L)).thenReturn(Optional.of(e));
+        TicketSetupService setup = mock(TicketSetupService.class);
+        when(setup.getSetup(5L)).thenThrow(new RuntimeException("Connection is not available, request timed out"));
+
+        PublicEventsController ctrl = controller(repo, setup, mock(SeatsRepository.class));
+
+        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(5L, null);
+        assertThat(resp.getStatusCodeValue()).isEqualTo(503);
+        assertThat(((Map<String, Object>) resp.getBody()).get("error")).isEqualTo("SEAT_MAP_UNAVAILABLE");
+    }
+
+    @Test
+    void testGetPublicSeatSetup_occupancyQueryFailureIsNotAnEmptySeatMap() {
+        EventsNamRepository repo = mock(EventsNamRepository.class);
+        EventsNam e = new EventsNam();
+        setId(e, 6L);
+        when(repo.findById(6L)).thenReturn(Optional.of(e));
+        SeatsRepository seats = mock(SeatsRepository.class);
+        when(seats.findPaidTakenSeatIdsByEvent(6L)).thenReturn(List.of(1L));
+        when(seats.findLockedSeatIdsByEvent(6L)).thenReturn(List.of());
+        when(seats.findZoneRowColForSeatIds(eq(6L), any())).thenThrow(new RuntimeException("statement timeout"));
+
+        PublicEventsController ctrl = controller(repo, mock(TicketSetupService.class), seats);
+
+        ResponseEntity<?> resp = ctrl.getPublicSeatSetup(6L, null);
+        assertThat(resp.getStatusCodeValue()).isEqualTo(503);
+    }
+
     // =========================================================
     // seats/taken
     // =========================================================
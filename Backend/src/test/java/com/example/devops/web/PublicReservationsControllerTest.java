@@ -1,21 +1,43 @@
 package com.example.devops.web;
 
+import com.example.devops.dto.BestAvailableRequest;
 import com.example.devops.dto.ReservationRequest;
 import com.example.devops.dto.ReservedResponse;
+import com.example.devops.dto.ZoneReservationRequest;
 import com.example.devops.model.User;
 import com.example.devops.repo.EventsNamRepository;
+import com.example.devops.repo.OrganizerRepo;
 import com.example.devops.repo.UserRepository;
+import com.example.devops.security.AuthenticatedUser;
+import com.example.devops.security.JwtFilter;
+import com.example.devops.security.JwtTokenUtil;
+import com.example.devops.security.JwtVerifier;
+import com.example.devops.security.RevokedTokenSet;
+import com.example.devops.security.SessionActivityRecorder;
+import com.example.devops.service.BestAvailableService;
+import com.example.devops.service.IdentityCache;
+import com.example.devops.service.ReservationIntakeService;
 import com.example.devops.service.ReservationService;
+import com.example.devops.service.WaitingRoomService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -25,6 +47,9 @@ class PublicReservationsControllerTest {
     ReservationService reservationService;
     EventsNamRepository eventsRepo;
     UserRepository userRepo;
+    OrganizerRepo organizerRepo;
+    ReservationIntakeService intake;
+    BestAvailableService bestAvailable;
 
     PublicReservationsController controller;
 
@@ -33,8 +58,13 @@ class PublicReservationsControllerTest {
         reservationService = mock(ReservationService.class);
         eventsRepo = mock(EventsNamRepository.class);
         userRepo = mock(UserRepository.class);
+        organizerRepo = mock(OrganizerRepo.class);
+        intake = mock(ReservationIntakeService.class);
+        bestAvailable = mock(BestAvailableService.class);
 
-        controller = new PublicReservationsController(reservationService, eventsRepo, userRepo);
+        controller = new PublicReservationsController(reservationService, eventsRepo,
+                new IdentityCache(userRepo, organizerRepo, 1000), intake, null, bestAvailable, null);
+        SecurityContextHolder.clearContext();
     }
 
     /* ======================================================
@@ -93,6 +123,124 @@ class PublicReservationsControllerTest {
         assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
     }
 
+    @Test
+    void testCreateReservation_batchedMode_returnsTicket() {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(1L);
+        req.setQuantity(1);
+        req.setGuestEmail("guest@test.com");
+        req.setSeats(List.of(new ReservationRequest.SeatPick(10L, 0, 0)));
+
+        ReservationIntakeService.Ticket ticket = mock(ReservationIntakeService.Ticket.class);
+        when(ticket.getId()).thenReturn("t-1");
+        when(ticket.toBody()).thenReturn(new java.util.LinkedHashMap<>(Map.of("ticket", "t-1", "status", "QUEUED")));
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        when(intake.isEnabled()).thenReturn(true);
+        when(intake.submit(null, req)).thenReturn(ticket);
+
+        ResponseEntity<?> resp = controller.createReservation(req, null, null);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(resp.getHeaders().getLocation()).hasToString("/api/public/reservations/intake/t-1");
+        verify(reservationService, never()).createReservation(any(), any());
+    }
+
+    @Test
+    void testCreateReservation_batchedMode_full() {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(1L);
+        req.setQuantity(1);
+        req.setGuestEmail("guest@test.com");
+        req.setSeats(List.of(new ReservationRequest.SeatPick(10L, 0, 0)));
+
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        when(intake.isEnabled()).thenReturn(true);
+        when(intake.submit(null, req)).thenThrow(new ReservationIntakeService.Full(2));
+
+        ResponseEntity<?> resp = controller.createReservation(req, null, null);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(resp.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+    }
+
+    @Test
+    void testGetIntakeStatus_unknownTicket() {
+        when(intake.find("nope")).thenReturn(Optional.empty());
+        assertThat(controller.getIntakeStatus("nope").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void testCreateReservation_waitingRoom_blocksUntilAdmitted() {
+        WaitingRoomService waitingRoom = new WaitingRoomService(mock(JdbcTemplate.class), true, "memory",
+                "test-secret-test-secret-test-secret!", 1, 10, 1.0, 120);
+        PublicReservationsController gated = new PublicReservationsController(reservationService, eventsRepo,
+                new IdentityCache(userRepo, organizerRepo, 1000), intake, new WaitingRoomGate(waitingRoom), bestAvailable, null);
+
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(1L);
+        req.setQuantity(1);
+        req.setGuestEmail("guest@test.com");
+        req.setSeats(List.of(new ReservationRequest.SeatPick(10L, 0, 0)));
+
+        assertThat(gated.createReservation(req, null, null).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        // token ของ client อื่นเอามาใช้ไม่ได้
+        String shared = waitingRoom.join(1L, new WaitingRoomService.Holder(null, "10.6.6.6")).token();
+        assertThat(gated.createReservation(req, null, shared).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        String token = waitingRoom.join(1L, new WaitingRoomService.Holder(null, "unknown")).token();
+        ResponseEntity<?> waiting = gated.createReservation(req, null, token);
+        assertThat(waiting.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(waiting.getHeaders().getFirst("Retry-After")).isNotNull();
+        verifyNoInteractions(eventsRepo, reservationService);
+    }
+
+    @Test
+    void testReserveBestAvailable_success() {
+        BestAvailableRequest req = new BestAvailableRequest();
+        req.setEventId(1L);
+        req.setQuantity(2);
+        req.setGuestEmail("guest@test.com");
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        when(bestAvailable.reserveBest(null, req)).thenReturn(
+                new BestAvailableService.Result(mock(ReservedResponse.class), 10L, 0, List.of(4, 5)));
+
+        ResponseEntity<?> resp = controller.reserveBestAvailable(req, null, null);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(((Map<?, ?>) resp.getBody()).get("cols")).isEqualTo(List.of(4, 5));
+    }
+
+    @Test
+    void testReserveBestAvailable_contended() {
+        BestAvailableRequest req = new BestAvailableRequest();
+        req.setEventId(1L);
+        req.setQuantity(2);
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        when(bestAvailable.reserveBest(any(), any())).thenThrow(new IllegalStateException("busy"));
+
+        assertThat(controller.reserveBestAvailable(req, null, null).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void testReserveAnyInZone_success() {
+        ZoneReservationRequest req = new ZoneReservationRequest(1L, 3L, 2, "guest@test.com");
+        when(reservationService.createZoneReservation(null, 1L, 3L, 2, "guest@test.com"))
+                .thenReturn(mock(ReservedResponse.class));
+
+        assertThat(controller.reserveAnyInZone(req, null, null).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    void testReserveStanding_soldOutIsConflict() {
+        ZoneReservationRequest req = new ZoneReservationRequest(1L, 9L, 2, "guest@test.com");
+        when(reservationService.createStandingReservation(null, 1L, 9L, 2, "guest@test.com"))
+                .thenThrow(new IllegalArgumentException("SOLD_OUT: Not enough capacity left in standing zone 9"));
+
+        assertThat(controller.reserveStanding(req, null, null).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
     /* ======================================================
        getReservation()
        ====================================================== */
@@ -149,38 +297,141 @@ class PublicReservationsControllerTest {
     }
 
     /* ======================================================
-       resolveUserId() via JWT
+       resolveUserId() : principal จาก JwtFilter เท่านั้น
        ====================================================== */
 
+    private static final String JWT_SECRET =
+            "1234567890123456789012345678901234567890123456789012345678901234";
+
+    /** ส่ง request ผ่าน JwtFilter จริง แล้วเรียก controller ใน chain (เหมือน request จริง) */
+    private ResponseEntity<?> createThroughFilter(ReservationRequest req, String authHeader) throws Exception {
+        return createThroughFilter(req, authHeader, new RevokedTokenSet(1000, 0.01));
+    }
+
+    private ResponseEntity<?> createThroughFilter(ReservationRequest req, String authHeader,
+                                                  RevokedTokenSet revoked) throws Exception {
+        JwtFilter filter = new JwtFilter(new JwtVerifier(JWT_SECRET, 0, 1000, 900), revoked,
+                new SessionActivityRecorder(mock(JdbcTemplate.class), 1000));
+        MockHttpServletRequest http = new MockHttpServletRequest("POST", "/api/public/reservations");
+        http.addHeader("Authorization", authHeader);
+        AtomicReference<ResponseEntity<?>> out = new AtomicReference<>();
+        filter.doFilter(http, new MockHttpServletResponse(),
+                (rq, rs) -> out.set(controller.createReservation(req, authHeader, null)));
+        return out.get();
+    }
+
+    private ReservationRequest guestRequest() {
+        ReservationRequest req = new ReservationRequest();
+        req.setEventId(1L);
+        req.setQuantity(1);
+        req.setGuestEmail("guest@test.com");
+        req.setSeats(List.of(new ReservationRequest.SeatPick(10L, 0, 0)));
+        return req;
+    }
+
     @Test
-    void testResolveUserId_jwt() throws Exception {
-        PublicReservationsController spyCtl = Mockito.spy(controller);
+    void testCreateReservation_forgedOrUnsignedToken_isUnauthorized() throws Exception {
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        String unsigned = Jwts.builder()
+                .setSubject("victim")
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_ID, 123)
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_TYPE, AuthenticatedUser.ACCOUNT_USER)
+                .claim("role", "USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .compact();
+        String forged = Jwts.builder()
+                .setSubject("victim")
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_ID, 123)
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_TYPE, AuthenticatedUser.ACCOUNT_USER)
+                .claim("role", "USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, "abcdefghijabcdefghijabcdefghijabcdefghijabcdefghijabcdefghij1234".getBytes(StandardCharsets.UTF_8))
+                .compact();
+
+        for (String token : List.of(unsigned, forged)) {
+            ResponseEntity<?> resp = createThroughFilter(guestRequest(), "Bearer " + token);
+            assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(((Map<?, ?>) resp.getBody()).get("error")).isEqualTo("INVALID_TOKEN");
+        }
+        verifyNoInteractions(reservationService, intake);
+    }
 
-        String payload = Base64.getUrlEncoder().encodeToString(
-                "{\"userId\":123}".getBytes()
-        );
+    @Test
+    void testCreateReservation_validToken_usesVerifiedAccountId() throws Exception {
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        ReservationRequest req = guestRequest();
+        when(reservationService.createReservation(eq(123L), eq(req))).thenReturn(mock(ReservedResponse.class));
+        String signed = Jwts.builder()
+                .setSubject("alice")
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_ID, 123)
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_TYPE, AuthenticatedUser.ACCOUNT_USER)
+                .claim("role", "USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, JWT_SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+
+        assertThat(createThroughFilter(req, "Bearer " + signed).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        verify(reservationService).createReservation(123L, req);
+    }
 
-        String jwt = "Bearer AAA." + payload + ".BBB";
+    @Test
+    void testCreateReservation_revokedToken_isUnauthorized() throws Exception {
+        when(eventsRepo.existsById(1L)).thenReturn(true);
+        String signed = Jwts.builder()
+                .setSubject("alice")
+                .setId("jti-logged-out")
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_ID, 123)
+                .claim(JwtTokenUtil.CLAIM_ACCOUNT_TYPE, AuthenticatedUser.ACCOUNT_USER)
+                .claim("role", "USER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, JWT_SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+        RevokedTokenSet revoked = new RevokedTokenSet(1000, 0.01);
+        revoked.revoke("jti-logged-out", System.currentTimeMillis() + 60_000);
+
+        ResponseEntity<?> resp = createThroughFilter(guestRequest(), "Bearer " + signed, revoked);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verifyNoInteractions(reservationService, intake);
+    }
 
-        var m = PublicReservationsController.class
-                .getDeclaredMethod("resolveUserId", Long.class, String.class);
+    @Test
+    void testResolveUserId_typedPrincipal_noRepositoryLookup() throws Exception {
+        AuthenticatedUser principal = new AuthenticatedUser(42L, AuthenticatedUser.ACCOUNT_USER,
+                "alice", "USER", "alice@mail.com");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
 
+        var m = PublicReservationsController.class
+                .getDeclaredMethod("resolveUserId");
         m.setAccessible(true);
-        Long uid = (Long) m.invoke(spyCtl, null, jwt);
+        Long uid = (Long) m.invoke(controller);
 
-        assertThat(uid).isEqualTo(123L);
+        assertThat(uid).isEqualTo(42L);
+        verifyNoInteractions(userRepo, organizerRepo);
     }
 
     @Test
-    void testResolveUserId_header() throws Exception {
-        PublicReservationsController spyCtl = Mockito.spy(controller);
+    void testResolveUserId_legacyPrincipal_cachedAfterFirstLookup() throws Exception {
+        User u = new User();
+        u.setId(9L);
+        u.setUsername("bob");
+        u.setEmail("bob@mail.com");
+        when(userRepo.findByUsernameIgnoreCase("bob")).thenReturn(Optional.of(u));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bob", null, List.of()));
 
         var m = PublicReservationsController.class
-                .getDeclaredMethod("resolveUserId", Long.class, String.class);
-
+                .getDeclaredMethod("resolveUserId");
         m.setAccessible(true);
-        Long uid = (Long) m.invoke(spyCtl, 77L, null);
 
-        assertThat(uid).isEqualTo(77L);
+        assertThat((Long) m.invoke(controller)).isEqualTo(9L);
+        assertThat((Long) m.invoke(controller)).isEqualTo(9L);
+        verify(userRepo, times(1)).findByUsernameIgnoreCase("bob");
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
     }
 }
@@ -82,7 +82,8 @@ CREATE TABLE reserved (
                           payment_method VARCHAR(50),
                           guest_email VARCHAR(255),
                           guest_claimed_at TIMESTAMP,
-                          created_as_guest BOOLEAN
+                          created_as_guest BOOLEAN,
+                          standing_zone_id BIGINT
 );
 
 -- ============================